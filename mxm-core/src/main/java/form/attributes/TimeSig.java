@@ -47,6 +47,13 @@ public final class TimeSig {
         this.fraction = fraction;
     }
 
+    public final int getNumerator() {
+        return fraction.getNumerator();
+    }
+    public final int getDenominator() {
+        return fraction.getDenominator();
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Override methods                                                                          //
     ////////////////////////////////////////////////////////////////////////////////////////////////
@@ -19,6 +19,7 @@ public abstract class SpanningEvent implements IEvent {
     // GETTERS
     @Override
     public final Time getTime() { return startITime; }
-    public final Time getStart() { return endITime; }
+    public final Time getStart() { return startITime; }
+    public final Time getEnd() { return endITime; }
     public final Duration getDuration() { return duration; }
 }
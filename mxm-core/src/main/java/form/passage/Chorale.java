@@ -3,6 +3,7 @@ package form.passage;
 import org.jetbrains.annotations.NotNull;
 
 import sound.attributes.Instrument;
+import form.time.Timebase;
 import sound.pitched.Pitch;
 
 public final class Chorale extends Score {
@@ -29,7 +30,25 @@ public final class Chorale extends Score {
      * @param title the title of this chorale
      */
     public Chorale(@NotNull String title) {
-        super(title);
+        this(title, Timebase.adaptive());
+    }
+    /**
+     * The chorale constructor, taking a title and the timebase its parts should share.
+     * @param title the title of this chorale
+     * @param timebase the tick resolution of this chorale
+     */
+    public Chorale(@NotNull String title, @NotNull Timebase timebase) {
+        this(title, timebase, false);
+    }
+    /**
+     * The chorale constructor, taking a title, the timebase its parts should share, and whether its tempo and time
+     * signature changes may be written from many threads at once.
+     * @param title the title of this chorale
+     * @param timebase the tick resolution of this chorale
+     * @param concurrent whether the control timelines must be safe to share between threads
+     */
+    public Chorale(@NotNull String title, @NotNull Timebase timebase, boolean concurrent) {
+        super(title, timebase, concurrent);
         // Create four parts
         this.soprano = new Line<>(this,Instrument.DEFAULT);
         this.alto = new Line<>(this,Instrument.DEFAULT);
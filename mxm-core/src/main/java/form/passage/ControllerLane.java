@@ -0,0 +1,225 @@
+package form.passage;
+
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import util.fraction.Rational;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * The values one continuous controller of a {@link Part} takes over time- a control change, the pitch bend, or the
+ * channel or key pressure of a MIDI channel- stored as two columns of primitives: the time of every change, and the
+ * value it changes to. A controller can change tens of thousands of times in one part, which as objects would outweigh
+ * the notes many times over; as columns, a change costs twelve bytes.</p>
+ *
+ * <p> Times are packed {@link Rational}s, in measures, and rows are kept in time order, changes at the same time in
+ * the order they were added. Adding changes in time order, as a file is read, only ever appends. A lane is looked up
+ * by time with a binary search, for the value in effect at a time or the rows falling within a span.</p>
+ *
+ * <p> Controllers are numbered as MIDI numbers them: 0 to 127 are control changes, followed by {@link #PITCH_BEND},
+ * {@link #CHANNEL_PRESSURE}, and one {@link #polyPressure(int)} per key. The pitch bend takes 14 bit values, centred
+ * on {@link #PITCH_BEND_CENTRE}; every other controller takes 7 bit values.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class ControllerLane {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    public static final int CONTROL_CHANGES     = 128;
+    public static final int PITCH_BEND          = CONTROL_CHANGES;
+    public static final int CHANNEL_PRESSURE    = PITCH_BEND + 1;
+    public static final int POLY_PRESSURE       = CHANNEL_PRESSURE + 1;
+    /** How many controllers there are, control changes and key pressures included */
+    public static final int CONTROLLERS         = POLY_PRESSURE + 128;
+
+    /** The pitch bend which leaves a note where it is */
+    public static final int PITCH_BEND_CENTRE   = 0x2000;
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    /**
+     * Getter for the controller of one key's pressure.
+     * @param key the MIDI number of the key
+     * @return the controller
+     */
+    public static int polyPressure(int key) {
+        if (key < 0 || key >= 128) throw new Error("CONTROLLER LANE:\tThere's no key " + key);
+        return POLY_PRESSURE + key;
+    }
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final int controller;
+    private long[] times;
+    private int[] values;
+    private int size;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * An empty lane.
+     * @param controller the controller whose values it holds
+     */
+    public ControllerLane(int controller) {
+        if (controller < 0 || controller >= CONTROLLERS) {
+            throw new Error("CONTROLLER LANE:\tThere's no controller " + controller);
+        }
+        this.controller = controller;
+        this.times = new long[16];
+        this.values = new int[16];
+    }
+
+    //////////////////////////////
+    // Adder methods            //
+    //////////////////////////////
+
+    public @NotNull ControllerLane add(@NotNull Time time, int value) {
+        return add(time.toRational(), value);
+    }
+
+    /**
+     * Adds a change at a time given as a packed {@link Rational}, so that a lane can be filled without making a
+     * {@link Time} for every change. A change no earlier than the last is appended; any other is inserted after every
+     * change at or before its time.
+     * @param time the time of the change, in measures
+     * @param value the value the controller changes to
+     * @return this lane
+     */
+    public @NotNull ControllerLane add(long time, int value) {
+        if (value < 0 || value > getMaxValue()) {
+            throw new Error("CONTROLLER LANE:\tController " + controller + " can't take a value of " + value);
+        }
+        if (size == times.length) {
+            times = Arrays.copyOf(times, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int row = size;
+        if (size > 0 && Rational.compare(time, times[size - 1]) < 0) {
+            row = rowAfter(time);
+            System.arraycopy(times, row, times, row + 1, size - row);
+            System.arraycopy(values, row, values, row + 1, size - row);
+        }
+        times[row] = time;
+        values[row] = value;
+        size++;
+        return this;
+    }
+
+    // PUBLIC GETTERS
+    public int getController() {
+        return controller;
+    }
+    public int getMaxValue() {
+        return controller == PITCH_BEND ? 0x3FFF : 0x7F;
+    }
+    public int size() {
+        return size;
+    }
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    // As a packed rational, in measures
+    public long getTime(int row) {
+        return times[check(row)];
+    }
+    public int getValue(int row) {
+        return values[check(row)];
+    }
+
+    // COLUMNS
+    public @NotNull long[] getTimeColumn() {
+        return Arrays.copyOf(times, size);
+    }
+    public @NotNull int[] getValueColumn() {
+        return Arrays.copyOf(values, size);
+    }
+    public @NotNull LongStream times() {
+        return Arrays.stream(times, 0, size);
+    }
+    public @NotNull IntStream values() {
+        return Arrays.stream(values, 0, size);
+    }
+
+    // QUERIES
+    /**
+     * Getter for the first row at or after a time, for walking the rows from there on.
+     * @param time the time
+     * @return the row, or the size of this lane if every change comes before the time
+     */
+    public int rowAt(@NotNull Time time) {
+        long fraction = time.toRational();
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Rational.compare(times[middle], fraction) < 0) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Getter for the value a controller has at a time: that of the last change at or before it.
+     * @param time the time
+     * @param otherwise the value to give if the controller hasn't changed by then
+     * @return the value at the time
+     */
+    public int getValueAt(@NotNull Time time, int otherwise) {
+        int row = rowAfter(time.toRational());
+        return row == 0 ? otherwise : values[row - 1];
+    }
+
+    /**
+     * Getter for the changes from one time up to another, as a lane of their own.
+     * @param start the first time to include
+     * @param end the first time to leave out
+     * @return a new lane of the changes in between
+     */
+    public @NotNull ControllerLane getDuring(@NotNull Time start, @NotNull Time end) {
+        int from = rowAt(start);
+        int to = Math.max(from, rowAt(end));
+        ControllerLane toReturn = new ControllerLane(controller);
+        toReturn.times = Arrays.copyOfRange(times, from, Math.max(to, from + 1));
+        toReturn.values = Arrays.copyOfRange(values, from, Math.max(to, from + 1));
+        toReturn.size = to - from;
+        return toReturn;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "controller " + controller + ", " + size + " changes";
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    // The first row after every change at or before a time
+    private int rowAfter(long time) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Rational.compare(times[middle], time) <= 0) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private int check(int row) {
+        if (row < 0 || row >= size) {
+            throw new Error("CONTROLLER LANE:\tRow " + row + " out of range.");
+        }
+        return row;
+    }
+}
@@ -0,0 +1,52 @@
+package form.passage;
+
+import org.jetbrains.annotations.NotNull;
+
+import sound.ISound;
+import sound.attributes.Instrument;
+import form.time.Timebase;
+
+public final class Ensemble extends Score {
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * The ensemble constructor, taking a title. An ensemble starts with no parts, and has lines added to it one by
+     * one, for music whose parts aren't known ahead of time- e.g. whatever a file turns out to hold.
+     * @param title the title of this ensemble
+     */
+    public Ensemble(@NotNull String title) {
+        this(title, Timebase.adaptive());
+    }
+    /**
+     * The ensemble constructor, taking a title and the timebase its parts should share.
+     * @param title the title of this ensemble
+     * @param timebase the tick resolution of this ensemble
+     */
+    public Ensemble(@NotNull String title, @NotNull Timebase timebase) {
+        this(title, timebase, false);
+    }
+    /**
+     * The ensemble constructor, taking a title, the timebase its parts should share, and whether its tempo and time
+     * signature changes may be written from many threads at once.
+     * @param title the title of this ensemble
+     * @param timebase the tick resolution of this ensemble
+     * @param concurrent whether the control timelines must be safe to share between threads
+     */
+    public Ensemble(@NotNull String title, @NotNull Timebase timebase, boolean concurrent) {
+        super(title, timebase, concurrent);
+    }
+    /**
+     * Adds a new, empty line to this ensemble, after every part already in it.
+     * @param instrument the instrument the line is played on
+     * @param <SoundType> the type of sound the line holds
+     * @return the new line
+     */
+    public final <SoundType extends ISound> @NotNull Line<SoundType> addLine(@NotNull Instrument instrument) {
+        Line<SoundType> line = new Line<>(this, instrument);
+        this.add(line);
+        return line;
+    }
+}
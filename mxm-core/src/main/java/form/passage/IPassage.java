@@ -4,11 +4,14 @@ import form.time.Time;
 import util.timeline.ITimeline;
 import form.attributes.Tempo;
 import form.attributes.TimeSig;
+import form.events.Note;
 import form.events.TempoChange;
 import form.events.TimeSigChange;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 public interface IPassage {
     // Getters for iterators over form.events during a specific form.time
 
@@ -60,18 +63,21 @@ public interface IPassage {
         }
         return null;
     }
-    /*
-    default @NotNull Collection<Sound> getNotesAt(@NotNull Time form.time) {
-        Frame<Sound> frame = getNotes().getBefore(form.time);
-        if(frame != null) {
-            return getNotes().getAt(form.time).ongoingEvents();
-        }
-        // Return a trivial collection
-        return new ArrayList<>();
-    }
+    /**
+     * Getter for every note sounding at a given time- that is, every note which has started by then, and not yet ended.
+     * @param time the time to look at
+     * @return the sounding notes, in order of their start
+     */
+    @NotNull List<? extends Note<?>> getNotesAt(@NotNull Time time);
+
+    /**
+     * Getter for every note which sounds at some point in a given range.
+     * @param start the start of the range, inclusive
+     * @param end the end of the range, exclusive
+     * @return the overlapping notes, in order of their start
+     */
+    @NotNull List<? extends Note<?>> getNotesDuring(@NotNull Time start, @NotNull Time end);
 
-    @NotNull ITimeline<Frame<Sound>> getNotes();
-    */
     @NotNull ITimeline<TimeSigChange> getTimeSigChanges();
     @NotNull ITimeline<TempoChange> getTempoChanges();
 }
@@ -5,6 +5,7 @@ import sound.pitched.Pitch;
 import org.jetbrains.annotations.NotNull;
 
 import sound.attributes.Instrument;
+import form.time.Timebase;
 
 public final class LeadSheet extends Score {
 
@@ -20,7 +21,13 @@ public final class LeadSheet extends Score {
     //////////////////////////////
 
     public LeadSheet(@NotNull String title) {
-        super(title);
+        this(title, Timebase.adaptive());
+    }
+    public LeadSheet(@NotNull String title, @NotNull Timebase timebase) {
+        this(title, timebase, false);
+    }
+    public LeadSheet(@NotNull String title, @NotNull Timebase timebase, boolean concurrent) {
+        super(title, timebase, concurrent);
         // Create the tune and changes
         this.tune = new Line<>(this,Instrument.DEFAULT);
         this.changes = new Line<>(this,Instrument.DEFAULT);
@@ -5,18 +5,22 @@ import sound.ISound;
 import form.time.Duration;
 import form.time.Measure;
 import util.timeline.ITimeline;
-import util.timeline.SerialTimeline;
+import util.timeline.PersistentTimeline;
 import sound.attributes.Instrument;
 import form.time.Time;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collections;
+import java.util.List;
+
 public class Line<SoundType extends ISound> extends Part<SoundType> {
 
     //////////////////////////////
     // Member variables         //
     //////////////////////////////
 
-    private final SerialTimeline<Note<SoundType>> notes;
+    /** Replaced, never changed, on every write- so that any version handed out stays as it was */
+    private PersistentTimeline<Note<SoundType>> notes;
     private Time writeHead;
 
     //////////////////////////////
@@ -25,7 +29,7 @@ public class Line<SoundType extends ISound> extends Part<SoundType> {
 
     public Line(@NotNull Score score, @NotNull Instrument instrument) {
         super(score,instrument);
-        this.notes = new SerialTimeline<>();
+        this.notes = PersistentTimeline.empty();
         this.writeHead = Time.of(Measure.ONE);
     }
 
@@ -34,17 +38,66 @@ public class Line<SoundType extends ISound> extends Part<SoundType> {
     //////////////////////////////
 
     public @NotNull Line<SoundType> add(@NotNull SoundType sound, @NotNull Duration length) {
-        notes.add(new Note<>(this, sound, writeHead, writeHead.plus(length)));
-        writeHead = writeHead.plus(length);
+        Time end = writeHead.plus(length);
+        getScore().getTimebase().observe(end);
+        Note<SoundType> note = new Note<>(this, sound, writeHead, end);
+        notes = notes.with(note);
+        getScore().add(note);
+        writeHead = end;
         return this;
     }
 
     public @NotNull Line<SoundType> add(@NotNull Duration length) {
         writeHead = writeHead.plus(length);
+        getScore().getTimebase().observe(writeHead);
+        return this;
+    }
+
+    /**
+     * Moves the write head of a line with nothing written to it yet, most often back into the pickup measure, so
+     * that the line starts with an anacrusis.
+     * @param time where the first note or rest written to this line will start
+     * @return this line
+     */
+    public @NotNull Line<SoundType> startAt(@NotNull Time time) {
+        if (notes.getFirst() != null || !writeHead.equals(Time.of(Measure.ONE))) {
+            throw new Error("LINE:\tA line can only be started somewhere else before anything is written to it.");
+        }
+        getScore().getTimebase().observe(time);
+        writeHead = time;
         return this;
     }
 
+    /**
+     * Getter for where the next note written to this line will start: the end of the last note or rest.
+     * @return the write head of this line
+     */
+    public @NotNull Time getWriteHead() {
+        return writeHead;
+    }
+
+    @Override
     public @NotNull ITimeline<Note<SoundType>> getNotes() {
         return notes;
     }
+
+    /**
+     * Getter for the notes written so far, as a version which later writes will never change. This costs O(1), and
+     * any number of candidate continuations may be grown from it with {@link PersistentTimeline#with}, each sharing
+     * everything written up to now.
+     * @return the notes of this line as they are now
+     */
+    public @NotNull PersistentTimeline<Note<SoundType>> snapshot() {
+        return notes;
+    }
+
+    // A line's notes never overlap, so at most one is sounding, and it's the last to start
+    @Override
+    public @NotNull List<Note<SoundType>> getNotesAt(@NotNull Time time) {
+        Note<SoundType> note = notes.getBefore(time);
+        if (note != null && note.getEnd().compareTo(time) > 0) {
+            return Collections.singletonList(note);
+        }
+        return Collections.emptyList();
+    }
 }
@@ -0,0 +1,321 @@
+package form.passage;
+
+import form.events.Note;
+import form.time.Duration;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import sound.ISound;
+import sound.attributes.Accent;
+import sound.attributes.Dynamic;
+import sound.attributes.Technique;
+import sound.pitched.Pitch;
+import util.fraction.Rational;
+import util.timeline.PersistentTimeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A snapshot of the notes of a {@link Line} or a {@link Score}, laid out as columns of primitives rather than as a
+ * graph of objects: one array for every property, and one row per note, in time order. Histograms, n-grams and
+ * feature extraction over a table run through flat arrays, instead of chasing a note, its times and its attributes
+ * around the heap for every row.</p>
+ *
+ * <p> Times and durations are packed {@link Rational}s, in measures. Pitches are their MIDI numbers, and velocities
+ * the values of their dynamics. Properties which aren't numbers- the part, the sound itself, the technique and the
+ * accent- are stored as indices into a small dictionary of distinct values, so that a table can still be turned back
+ * into notes. Any column which a note has no value for holds -1.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class NoteTable {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    /** What a column holds for a note which has no value for it */
+    public static final int NONE = -1;
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final int size;
+    private final long[] starts;
+    private final long[] durations;
+    private final int[] pitches;
+    private final int[] velocities;
+    private final int[] parts;
+    private final int[] sounds;
+    private final int[] techniques;
+    private final int[] accents;
+
+    private final List<Part<?>> partValues;
+    private final List<Object> soundValues;
+    private final List<Technique> techniqueValues;
+    private final List<Accent> accentValues;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    private NoteTable(@NotNull Iterator<? extends Note<?>> notes, int capacity, @NotNull List<Part<?>> parts) {
+        long[] starts = new long[capacity];
+        long[] durations = new long[capacity];
+        int[] pitches = new int[capacity];
+        int[] velocities = new int[capacity];
+        int[] partIndices = new int[capacity];
+        int[] sounds = new int[capacity];
+        int[] techniques = new int[capacity];
+        int[] accents = new int[capacity];
+        Dictionary<Part<?>> partValues = new Dictionary<>();
+        Dictionary<Object> soundValues = new Dictionary<>();
+        Dictionary<Technique> techniqueValues = new Dictionary<>();
+        Dictionary<Accent> accentValues = new Dictionary<>();
+        for (Part<?> part : parts) {
+            partValues.indexOf(part);
+        }
+
+        int row = 0;
+        while (notes.hasNext()) {
+            Note<?> note = notes.next();
+            Object sound = note.getSound();
+            Dynamic dynamic = note.getDynamic();
+            starts[row] = note.getStart().toRational();
+            durations[row] = note.getDuration().toRational();
+            pitches[row] = sound instanceof Pitch ? ((Pitch) sound).getValue() : NONE;
+            velocities[row] = dynamic != null ? dynamic.getValue() : NONE;
+            partIndices[row] = partValues.indexOf(note.getPart());
+            sounds[row] = soundValues.indexOf(sound);
+            techniques[row] = techniqueValues.indexOf(note.getTechnique());
+            accents[row] = accentValues.indexOf(note.getAccent());
+            row++;
+        }
+        if (row != capacity) {
+            throw new Error("NOTE TABLE:\tExpected " + capacity + " notes, but found " + row);
+        }
+
+        this.size = row;
+        this.starts = starts;
+        this.durations = durations;
+        this.pitches = pitches;
+        this.velocities = velocities;
+        this.parts = partIndices;
+        this.sounds = sounds;
+        this.techniques = techniques;
+        this.accents = accents;
+        this.partValues = partValues.values;
+        this.soundValues = soundValues.values;
+        this.techniqueValues = techniqueValues.values;
+        this.accentValues = accentValues.values;
+    }
+
+    /**
+     * A table of every note of a line, in time order. Its only part is the line itself.
+     * @param line the line to take the notes of
+     * @return the table
+     */
+    public static @NotNull NoteTable of(@NotNull Line<?> line) {
+        PersistentTimeline<? extends Note<?>> notes = line.snapshot();
+        return new NoteTable(notes.iterator(), notes.size(), Collections.singletonList(line));
+    }
+
+    /**
+     * A table of every note of every line of a score, in time order. Parts are numbered, and notes which start
+     * together are ordered, by the order the parts were added to the score.
+     * @param score the score to take the notes of
+     * @return the table
+     */
+    public static @NotNull NoteTable of(@NotNull Score score) {
+        List<Part<?>> parts = new ArrayList<>();
+        for (Part<?> part : score.getParts()) parts.add(part);
+        return new NoteTable(score.getNoteIterator(), score.getNoteCount(), parts);
+    }
+
+    // PUBLIC GETTERS
+    public int size() {
+        return size;
+    }
+    // Both as packed rationals, in measures
+    public long getStart(int row) {
+        return starts[check(row)];
+    }
+    public long getDuration(int row) {
+        return durations[check(row)];
+    }
+    public int getPitch(int row) {
+        return pitches[check(row)];
+    }
+    public int getVelocity(int row) {
+        return velocities[check(row)];
+    }
+    public int getPartIndex(int row) {
+        return parts[check(row)];
+    }
+    public @NotNull Part<?> getPart(int row) {
+        return partValues.get(parts[check(row)]);
+    }
+    public @NotNull Object getSound(int row) {
+        return soundValues.get(sounds[check(row)]);
+    }
+    public @Nullable Technique getTechnique(int row) {
+        int index = techniques[check(row)];
+        return index == NONE ? null : techniqueValues.get(index);
+    }
+    public @Nullable Accent getAccent(int row) {
+        int index = accents[check(row)];
+        return index == NONE ? null : accentValues.get(index);
+    }
+
+    /**
+     * Getter for every part in this table: the line it was taken from, or every part of the score it was taken
+     * from, in the order they were added. A row's part index points into this list.
+     * @return the parts of this table
+     */
+    public @NotNull List<Part<?>> getParts() {
+        return Collections.unmodifiableList(partValues);
+    }
+
+    // COLUMNS
+    // Each getter copies its column out whole, for loops which want a plain array to run over
+    public @NotNull long[] getStartColumn() {
+        return Arrays.copyOf(starts, size);
+    }
+    public @NotNull long[] getDurationColumn() {
+        return Arrays.copyOf(durations, size);
+    }
+    public @NotNull int[] getPitchColumn() {
+        return Arrays.copyOf(pitches, size);
+    }
+    public @NotNull int[] getVelocityColumn() {
+        return Arrays.copyOf(velocities, size);
+    }
+    public @NotNull int[] getPartIndexColumn() {
+        return Arrays.copyOf(parts, size);
+    }
+
+    public @NotNull LongStream starts() {
+        return Arrays.stream(starts, 0, size);
+    }
+    public @NotNull LongStream durations() {
+        return Arrays.stream(durations, 0, size);
+    }
+    public @NotNull IntStream pitches() {
+        return Arrays.stream(pitches, 0, size);
+    }
+    public @NotNull IntStream velocities() {
+        return Arrays.stream(velocities, 0, size);
+    }
+    public @NotNull IntStream partIndices() {
+        return Arrays.stream(parts, 0, size);
+    }
+
+    /**
+     * The start of every row in ticks, counting from the pickup measure, rounded down to the nearest tick.
+     * @param ticksPerMeasure how many ticks make up one measure
+     * @return the start ticks, in row order
+     */
+    public @NotNull LongStream startTicks(long ticksPerMeasure) {
+        return starts().map(start -> Math.floorDiv(Rational.numerator(start) * ticksPerMeasure,
+                (long) Rational.denominator(start)));
+    }
+
+    /**
+     * The duration of every row in ticks, rounded down to the nearest tick.
+     * @param ticksPerMeasure how many ticks make up one measure
+     * @return the duration ticks, in row order
+     */
+    public @NotNull LongStream durationTicks(long ticksPerMeasure) {
+        return durations().map(duration -> Math.floorDiv(Rational.numerator(duration) * ticksPerMeasure,
+                (long) Rational.denominator(duration)));
+    }
+
+    // CONVERSIONS
+    /**
+     * Builds a note for every row, belonging to the same part and with the same properties as the one it came from.
+     * The notes are new, and not written to any line.
+     * @return the notes, in row order
+     */
+    public @NotNull List<Note<?>> toNotes() {
+        List<Note<?>> notes = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            Time start = Time.ofRational(starts[row]);
+            Note<?> note = new Note<>(partValues.get(parts[row]), soundValues.get(sounds[row]), start,
+                    start.plus(Duration.ofRational(durations[row])));
+            setProperties(note, row);
+            notes.add(note);
+        }
+        return notes;
+    }
+
+    /**
+     * Writes every row of one part onto the end of a line, resting wherever there's a gap between them. The rows must
+     * all start at or after the line's write head.
+     * @param line the line to write to
+     * @param partIndex the index of the part whose rows to write, into {@link #getParts()}
+     * @param <SoundType> the type of sound the line holds, which every written row's sound must be
+     */
+    @SuppressWarnings("unchecked")
+    public <SoundType extends ISound> void appendTo(@NotNull Line<SoundType> line, int partIndex) {
+        for (int row = 0; row < size; row++) {
+            if (parts[row] != partIndex) continue;
+            Time start = Time.ofRational(starts[row]);
+            int gap = start.compareTo(line.getWriteHead());
+            if (gap < 0) {
+                throw new Error("NOTE TABLE:\tCannot write a note at " + start + " before the write head at "
+                        + line.getWriteHead());
+            }
+            if (gap > 0) {
+                line.add(start.minus(line.getWriteHead()));
+            }
+            line.add((SoundType) soundValues.get(sounds[row]), Duration.ofRational(durations[row]));
+            setProperties(line.getNotes().getLast(), row);
+        }
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private int check(int row) {
+        if (row < 0 || row >= size) {
+            throw new Error("NOTE TABLE:\tRow " + row + " out of range.");
+        }
+        return row;
+    }
+
+    private void setProperties(Note<?> note, int row) {
+        if (velocities[row] != NONE) note.set(Dynamic.of(velocities[row]));
+        if (techniques[row] != NONE) note.set(techniqueValues.get(techniques[row]));
+        if (accents[row] != NONE) note.set(accentValues.get(accents[row]));
+    }
+
+    // Numbers distinct values in the order they're first seen, and null as NONE
+    private static final class Dictionary<T> {
+        private final Map<T, Integer> indices = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        private int indexOf(@Nullable T value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer index = indices.get(value);
+            if (index == null) {
+                index = values.size();
+                indices.put(value, index);
+                values.add(value);
+            }
+            return index;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package form.passage;
 
+import form.events.Note;
 import form.events.TempoChange;
 import form.events.TimeSigChange;
 import sound.attributes.Instrument;
@@ -9,6 +10,11 @@ import form.attributes.Tempo;
 import form.time.Time;
 import form.attributes.TimeSig;
 import util.timeline.ITimeline;
+import util.timeline.PersistentTimeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public abstract class Part<SoundType> implements IPassage {
 
@@ -19,6 +25,9 @@ public abstract class Part<SoundType> implements IPassage {
     private final Score score;
     private final Instrument instrument;
 
+    // The lane of each controller, by its number, made the first time it's asked for, or read in by readLanes
+    private ControllerLane[] lanes;
+
     //////////////////////////////
     // Member methods           //
     //////////////////////////////
@@ -35,6 +44,32 @@ public abstract class Part<SoundType> implements IPassage {
         return instrument;
     }
 
+    /**
+     * Getter for the lane of one of this part's controllers, which is made empty the first time it's asked for.
+     * @param controller the controller, numbered as {@link ControllerLane} numbers them
+     * @return the lane of the controller
+     */
+    public final @NotNull ControllerLane getLane(int controller) {
+        ControllerLane[] lanes = lanes();
+        if (controller < 0 || controller >= lanes.length) {
+            throw new Error("PART:\tThere's no controller " + controller);
+        }
+        if (lanes[controller] == null) lanes[controller] = new ControllerLane(controller);
+        return lanes[controller];
+    }
+
+    /**
+     * Getter for every lane of this part which has a change in it, in the order of their controllers.
+     * @return the lanes of this part
+     */
+    public final @NotNull List<ControllerLane> getLanes() {
+        List<ControllerLane> toReturn = new ArrayList<>();
+        for (ControllerLane lane : lanes()) {
+            if (lane != null && !lane.isEmpty()) toReturn.add(lane);
+        }
+        return toReturn;
+    }
+
     @Override
     public final @Nullable TimeSig getTimeSigAt(@NotNull Time time) { return score.getTimeSigAt(time); }
     @Override
@@ -43,4 +78,48 @@ public abstract class Part<SoundType> implements IPassage {
     public final @NotNull ITimeline<TimeSigChange> getTimeSigChanges() { return score.getTimeSigChanges(); }
     @Override
     public final @NotNull ITimeline<TempoChange> getTempoChanges() { return score.getTempoChanges(); }
+
+    /**
+     * Getter for the notes of this part, in time order. A part which doesn't keep its notes one after the other has
+     * none to give here, and is left out of anything which walks a score's notes in order.
+     * @return the notes of this part
+     */
+    public @NotNull ITimeline<? extends Note<?>> getNotes() {
+        return PersistentTimeline.empty();
+    }
+
+    // By default, narrow the score's answer down to this part
+    @Override
+    public @NotNull List<? extends Note<?>> getNotesAt(@NotNull Time time) {
+        return ownNotes(score.getNotesAt(time));
+    }
+    @Override
+    public @NotNull List<? extends Note<?>> getNotesDuring(@NotNull Time start, @NotNull Time end) {
+        return ownNotes(score.getNotesDuring(start, end));
+    }
+
+    /**
+     * Getter for the lanes this part holds before any is asked for, called once, the first time one is. A part kept
+     * somewhere other than the heap gives its stored lanes here, so that they're only read in if they're looked at.
+     * @return the lanes this part starts out with
+     */
+    protected @NotNull List<ControllerLane> readLanes() {
+        return Collections.emptyList();
+    }
+
+    private @NotNull ControllerLane[] lanes() {
+        if (lanes == null) {
+            lanes = new ControllerLane[ControllerLane.CONTROLLERS];
+            for (ControllerLane lane : readLanes()) lanes[lane.getController()] = lane;
+        }
+        return lanes;
+    }
+
+    private @NotNull List<Note<?>> ownNotes(@NotNull List<Note<?>> notes) {
+        List<Note<?>> own = new ArrayList<>();
+        for (Note<?> note : notes) {
+            if (note.getPart() == this) own.add(note);
+        }
+        return own;
+    }
 }
@@ -0,0 +1,190 @@
+package form.passage;
+
+import form.ITimed;
+import form.attributes.Tempo;
+import form.attributes.TimeSig;
+import form.events.Note;
+import form.events.TempoChange;
+import form.events.TimeSigChange;
+import form.time.Measure;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.timeline.ITimeline;
+import util.timeline.MergingIterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A playhead which moves forward through a {@link Score}, always knowing the tempo, the time signature and the notes
+ * sounding where it stands. Asking the score instead costs a search of each timeline per question; the cursor
+ * answers from what it already holds, and only ever looks at the next change of each kind, so walking a whole score
+ * from front to back costs O(1) per event, plus O(p) whenever a note ends while p are sounding.</p>
+ *
+ * <p> Moving backwards, or anywhere at all with {@link #seek}, starts over from a search of every timeline, which is
+ * O(log n). The score must not be written to while a cursor is walking it.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class PlayheadCursor {
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final Score score;
+    private Time time;
+
+    private Tempo tempo;
+    private Iterator<TempoChange> tempoChanges;
+    private TempoChange nextTempoChange;
+
+    private TimeSig timeSig;
+    private Iterator<TimeSigChange> timeSigChanges;
+    private TimeSigChange nextTimeSigChange;
+
+    /** Every note sounding at the playhead, in order of their start */
+    private final List<Note<?>> sounding;
+    /** The earliest end of any sounding note, or null if none is sounding */
+    private Time nextEnd;
+    private Iterator<Note<?>> starts;
+    private Note<?> nextStart;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A cursor standing at the start of the first measure of a score.
+     * @param score the score to walk
+     */
+    public PlayheadCursor(@NotNull Score score) {
+        this.score = score;
+        this.sounding = new ArrayList<>();
+        seek(Time.of(Measure.ONE));
+    }
+
+    // PUBLIC GETTERS
+    public @NotNull Score getScore() {
+        return score;
+    }
+    public @NotNull Time getTime() {
+        return time;
+    }
+    public @Nullable Tempo getTempo() {
+        return tempo;
+    }
+    public @Nullable TimeSig getTimeSig() {
+        return timeSig;
+    }
+
+    /**
+     * Getter for every note which has started by the playhead, and not yet ended.
+     * @return the sounding notes, in order of their start
+     */
+    public @NotNull List<Note<?>> getSoundingNotes() {
+        return Collections.unmodifiableList(sounding);
+    }
+
+    /**
+     * Getter for the next time after the playhead at which anything changes: a note starts or ends, or the tempo or
+     * time signature changes. Stepping from one such time to the next visits every event of the score once.
+     * @return the next time anything changes, or null if nothing ever will
+     */
+    public @Nullable Time getNextTime() {
+        Time next = nextEnd;
+        if (nextStart != null) next = earlier(next, nextStart.getTime());
+        if (nextTempoChange != null) next = earlier(next, nextTempoChange.getTime());
+        if (nextTimeSigChange != null) next = earlier(next, nextTimeSigChange.getTime());
+        return next;
+    }
+
+    // MOVERS
+    /**
+     * Moves the playhead to a given time, stepping forward through every change on the way. Moving backwards falls
+     * back on {@link #seek}.
+     * @param time the time to move to
+     * @return this cursor
+     */
+    public @NotNull PlayheadCursor advanceTo(@NotNull Time time) {
+        if (time.compareTo(this.time) < 0) {
+            return seek(time);
+        }
+        this.time = time;
+        while (nextTempoChange != null && nextTempoChange.getTime().compareTo(time) <= 0) {
+            tempo = nextTempoChange.getTempo();
+            nextTempoChange = tempoChanges.hasNext() ? tempoChanges.next() : null;
+        }
+        while (nextTimeSigChange != null && nextTimeSigChange.getTime().compareTo(time) <= 0) {
+            timeSig = nextTimeSigChange.getTimeSig();
+            nextTimeSigChange = timeSigChanges.hasNext() ? timeSigChanges.next() : null;
+        }
+        if (nextEnd != null && nextEnd.compareTo(time) <= 0) {
+            sounding.removeIf(note -> note.getEnd().compareTo(time) <= 0);
+            nextEnd = null;
+            for (Note<?> note : sounding) nextEnd = earlier(nextEnd, note.getEnd());
+        }
+        while (nextStart != null && nextStart.getTime().compareTo(time) <= 0) {
+            if (nextStart.getEnd().compareTo(time) > 0) {
+                sounding.add(nextStart);
+                nextEnd = earlier(nextEnd, nextStart.getEnd());
+            }
+            nextStart = starts.hasNext() ? starts.next() : null;
+        }
+        return this;
+    }
+
+    /**
+     * Moves the playhead straight to a given time, in either direction, by searching every timeline afresh.
+     * @param time the time to move to
+     * @return this cursor
+     */
+    public @NotNull PlayheadCursor seek(@NotNull Time time) {
+        this.time = time;
+
+        ITimeline<TempoChange> tempos = score.getTempoChanges();
+        TempoChange tempoChange = tempos.getBefore(time);
+        tempo = tempoChange == null ? null : tempoChange.getTempo();
+        tempoChanges = tempos.tailTimeline(time).iterator();
+        nextTempoChange = skipTo(tempoChanges, time);
+
+        ITimeline<TimeSigChange> timeSigs = score.getTimeSigChanges();
+        TimeSigChange timeSigChange = timeSigs.getBefore(time);
+        timeSig = timeSigChange == null ? null : timeSigChange.getTimeSig();
+        timeSigChanges = timeSigs.tailTimeline(time).iterator();
+        nextTimeSigChange = skipTo(timeSigChanges, time);
+
+        sounding.clear();
+        sounding.addAll(score.getNotesAt(time));
+        nextEnd = null;
+        for (Note<?> note : sounding) nextEnd = earlier(nextEnd, note.getEnd());
+        List<ITimeline<? extends Note<?>>> tails = new ArrayList<>();
+        for (ITimeline<? extends Note<?>> line : score.getLineNotes()) {
+            tails.add(line.tailTimeline(time));
+        }
+        starts = new MergingIterator<>(tails);
+        nextStart = skipTo(starts, time);
+        return this;
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    // The first element strictly after the time, dropping any at it- what happens there has happened already
+    private static <T extends ITimed> T skipTo(Iterator<T> iterator, Time time) {
+        while (iterator.hasNext()) {
+            T next = iterator.next();
+            if (next.getTime().compareTo(time) > 0) return next;
+        }
+        return null;
+    }
+
+    private static @NotNull Time earlier(@Nullable Time a, @NotNull Time b) {
+        return a == null || b.compareTo(a) < 0 ? b : a;
+    }
+}
@@ -1,9 +1,18 @@
 package form.passage;
 
+import form.events.Note;
 import form.events.TempoChange;
 import form.events.TimeSigChange;
 import form.time.Time;
+import form.time.Timebase;
+import util.timeline.Frame;
+import util.timeline.FrameBuilder;
+import util.timeline.ConcurrentSerialTimeline;
+import util.timeline.ISerialTimeline;
+import util.timeline.IIntervalTimeline;
 import util.timeline.ITimeline;
+import util.timeline.IntervalTimeline;
+import util.timeline.MergingIterator;
 import util.timeline.SerialTimeline;
 import org.jetbrains.annotations.NotNull;
 import form.time.Measure;
@@ -11,19 +20,77 @@ import form.attributes.Tempo;
 import form.attributes.TimeSig;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public abstract class Score implements IPassage {
 
     private String title;
+    /** Kept in the order they were added, so that anything walking them all does so the same way every time */
     private Set<Part> parts;
-    private SerialTimeline<TimeSigChange> timeSigChanges;
-    private SerialTimeline<TempoChange> tempoChanges;
+    private ISerialTimeline<TimeSigChange> timeSigChanges;
+    private ISerialTimeline<TempoChange> tempoChanges;
+    /** Every note of every part, indexed by the interval it sounds over */
+    private final IntervalTimeline<Note<?>> notes;
+    /** Every note of every line swept into frames, built on demand and dropped whenever a note is added */
+    private volatile ITimeline<Frame<Note<?>>> frames;
+    private final Timebase timebase;
+    /** Guards the note index and the frames of a concurrent score, whose lines may be written from many threads */
+    private final Object lock;
 
     protected Score(@NotNull String title) {
+        this(title, Timebase.adaptive());
+    }
+
+    /**
+     * A constructor which lets the score use a specific timebase, e.g. a fixed PPQ for MIDI-bound material, or
+     * {@link Timebase#rational()} to opt out of tick mode entirely.
+     * @param title the title of this score
+     * @param timebase the tick resolution shared by every part of this score
+     */
+    protected Score(@NotNull String title, @NotNull Timebase timebase) {
+        this(title, timebase, false);
+    }
+
+    /**
+     * A constructor which also lets the score keep its time signature and tempo changes in concurrent timelines, so
+     * that many threads may add to and read from them at once. Each line is still single-threaded, but different
+     * lines may be written from different threads: the index of every note they share is then kept under a lock.
+     * @param title the title of this score
+     * @param timebase the tick resolution shared by every part of this score
+     * @param concurrent whether the control timelines must be safe to share between threads
+     */
+    protected Score(@NotNull String title, @NotNull Timebase timebase, boolean concurrent) {
+        this(title, timebase,
+                score -> concurrent ? new ConcurrentSerialTimeline<>() : new SerialTimeline<>(timebase),
+                score -> concurrent ? new ConcurrentSerialTimeline<>() : new SerialTimeline<>(timebase), concurrent);
+    }
+
+    /**
+     * A constructor which lets a subclass supply its own control timelines, e.g. ones read from a file rather than
+     * kept on the heap. Each is built from the score under construction, which the events it holds belong to.
+     * @param title the title of this score
+     * @param timebase the tick resolution shared by every part of this score
+     * @param timeSigChanges builds the timeline of time signature changes
+     * @param tempoChanges builds the timeline of tempo changes
+     */
+    protected Score(@NotNull String title, @NotNull Timebase timebase,
+                    @NotNull Function<Score, ISerialTimeline<TimeSigChange>> timeSigChanges,
+                    @NotNull Function<Score, ISerialTimeline<TempoChange>> tempoChanges) {
+        this(title, timebase, timeSigChanges, tempoChanges, false);
+    }
+
+    private Score(@NotNull String title, @NotNull Timebase timebase,
+                  @NotNull Function<Score, ISerialTimeline<TimeSigChange>> timeSigChanges,
+                  @NotNull Function<Score, ISerialTimeline<TempoChange>> tempoChanges, boolean concurrent) {
         this.title = title;
-        this.parts = new HashSet<>();
-        this.timeSigChanges = new SerialTimeline<>();
-        this.tempoChanges = new SerialTimeline<>();
+        this.timebase = timebase;
+        this.parts = new LinkedHashSet<>();
+        this.timeSigChanges = timeSigChanges.apply(this);
+        this.tempoChanges = tempoChanges.apply(this);
+        this.notes = new IntervalTimeline<>();
+        this.lock = concurrent ? new Object() : null;
     }
 
     public final @NotNull Collection<Part> getParts() {
@@ -31,14 +98,33 @@ public abstract class Score implements IPassage {
     }
 
     protected @NotNull Score add(Part part) {
-        parts.add(part);
+        if (lock == null) {
+            parts.add(part);
+            return this;
+        }
+        synchronized (lock) {
+            parts.add(part);
+        }
         return this;
     }
+    // Package private on purpose- parts register their notes as they write them
+    void add(@NotNull Note<?> note) {
+        if (lock == null) {
+            notes.add(note);
+            frames = null;
+            return;
+        }
+        synchronized (lock) {
+            notes.add(note);
+            frames = null;
+        }
+    }
     public @NotNull Score add(@NotNull TimeSig timeSig, @NotNull Measure time) {
         timeSigChanges.add(new TimeSigChange(this, time, timeSig));
         return this;
     }
     public @NotNull Score add(@NotNull Tempo tempo, @NotNull Time time) {
+        timebase.observe(time);
         tempoChanges.add(new TempoChange(this, time, tempo));
         return this;
     }
@@ -46,6 +132,98 @@ public abstract class Score implements IPassage {
     public final @NotNull String getTitle() {
         return title;
     }
+    public final @NotNull Timebase getTimebase() {
+        return timebase;
+    }
     public final @NotNull ITimeline<TimeSigChange> getTimeSigChanges() { return timeSigChanges; }
     public final @NotNull ITimeline<TempoChange> getTempoChanges() { return tempoChanges; }
-}
\ No newline at end of file
+    @Override
+    public @NotNull List<Note<?>> getNotesAt(@NotNull Time time) {
+        if (lock == null) return notes.getOngoingAt(time);
+        synchronized (lock) {
+            return notes.getOngoingAt(time);
+        }
+    }
+    @Override
+    public @NotNull List<Note<?>> getNotesDuring(@NotNull Time start, @NotNull Time end) {
+        if (lock == null) return notes.getOverlapping(start, end);
+        synchronized (lock) {
+            return notes.getOverlapping(start, end);
+        }
+    }
+    /**
+     * Only the notes written to this score's own lines- a subclass which keeps its notes elsewhere leaves it empty.
+     * The view reads through to the live index, so on a concurrent score it should only be walked once writing is done.
+     */
+    public final @NotNull IIntervalTimeline<Note<?>> getNoteIntervals() { return notes.readOnly(); }
+    public int getNoteCount() {
+        if (lock == null) return notes.size();
+        synchronized (lock) {
+            return notes.size();
+        }
+    }
+
+    /**
+     * Walks every note of every line in order of their start, merging the lines as it goes rather than collecting and
+     * sorting them, so it holds only one cursor per line. Notes which start together come out in the order their
+     * parts were added. Each note knows its own part, from {@link Note#getPart()}.
+     * @return an iterator over every note of this score, in time order
+     */
+    public final @NotNull Iterator<Note<?>> getNoteIterator() {
+        return new MergingIterator<>(getLineNotes());
+    }
+
+    /**
+     * Streams every note of every line in order of their start, as {@link #getNoteIterator()} walks them. The stream
+     * is sized by the same snapshot of the lines it walks, so long as every line knows its own size.
+     * @return an ordered stream over every note of this score
+     */
+    public final @NotNull Stream<Note<?>> getNoteStream() {
+        List<ITimeline<? extends Note<?>>> lines = getLineNotes();
+        long size = 0;
+        for (ITimeline<? extends Note<?>> line : lines) {
+            long lineSize = line.spliterator().getExactSizeIfKnown();
+            if (lineSize < 0) {
+                size = -1;
+                break;
+            }
+            size += lineSize;
+        }
+        Iterator<Note<?>> iterator = new MergingIterator<>(lines);
+        int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+        return StreamSupport.stream(size < 0 ? Spliterators.spliteratorUnknownSize(iterator, characteristics)
+                : Spliterators.spliterator(iterator, size, characteristics), false);
+    }
+
+    /**
+     * Getter for a vertical view of this score: a frame wherever a note of any line starts or ends. The view is
+     * built the first time it's asked for, and kept until the next note is written.
+     * @return the frames of this score
+     */
+    public final @NotNull ITimeline<Frame<Note<?>>> getFrames() {
+        ITimeline<Frame<Note<?>>> frames = this.frames;
+        if (frames != null) return frames;
+        if (lock == null) return this.frames = FrameBuilder.build(getLineNotes());
+        // Built under the lock, so that a note written meanwhile can't be left out of frames which are then kept
+        synchronized (lock) {
+            if (this.frames == null) this.frames = FrameBuilder.build(getLineNotes());
+            return this.frames;
+        }
+    }
+
+    // Package private on purpose- the notes of every line, for whatever walks them all at once
+    @NotNull List<ITimeline<? extends Note<?>>> getLineNotes() {
+        if (lock == null) return lineNotes();
+        synchronized (lock) {
+            return lineNotes();
+        }
+    }
+
+    private @NotNull List<ITimeline<? extends Note<?>>> lineNotes() {
+        List<ITimeline<? extends Note<?>>> lines = new ArrayList<>();
+        for (Part<?> part : parts) {
+            lines.add(part.getNotes());
+        }
+        return lines;
+    }
+}
@@ -1,7 +1,7 @@
 package form.time;
 
 import org.jetbrains.annotations.NotNull;
-import util.fraction.ReducedFraction;
+import util.fraction.Rational;
 
 public final class Beat implements Comparable<Beat> {
 
@@ -17,32 +17,40 @@ public final class Beat implements Comparable<Beat> {
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
     public static Beat of(int num, int den) {
-        return new Beat(num,den);
+        return new Beat(Rational.of(num,den));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Package-private static methods                                                            //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static Beat of(long fraction) {
+        return new Beat(fraction);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Member variables                                                                          //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private final ReducedFraction fraction;
+    private final long fraction;
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Instance methods                                                                          //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private Beat(int num, int den) {
-        this.fraction = ReducedFraction.of(num,den);
+    private Beat(long fraction) {
+        this.fraction = fraction;
     }
 
     public final @NotNull String toString() {
-        return "b " + fraction;
+        return "b " + Rational.toString(fraction);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Package-private methods                                                                   //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    final @NotNull ReducedFraction getFraction() {
+    final long getFraction() {
         return fraction;
     }
 
@@ -52,13 +60,17 @@ public final class Beat implements Comparable<Beat> {
 
     @Override
     public final int compareTo(@NotNull Beat other) {
-        return this.fraction.compareTo(other.fraction);
+        return Rational.compare(this.fraction, other.fraction);
     }
     @Override
     public final boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Beat beat = (Beat) o;
-        return this.fraction.equals(beat.fraction);
+        return this.fraction == beat.fraction;
+    }
+    @Override
+    public final int hashCode() {
+        return Long.hashCode(fraction);
     }
 }
\ No newline at end of file
@@ -1,12 +1,17 @@
 package form.time;
 
 import org.jetbrains.annotations.NotNull;
-import util.fraction.ReducedFraction;
-
-import java.util.Objects;
+import util.fraction.Rational;
 
 public final class Duration implements Comparable<Duration> {
 
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Static variables                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /** Canonical durations; anything up to four measures long in common subdivisions is precomputed */
+    private static final Interner<Duration> INTERNER = new Interner<>(Duration::new, Duration::getFraction, 4, 1 << 14);
+
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Static methods                                                                            //
     ////////////////////////////////////////////////////////////////////////////////////////////////
@@ -18,65 +23,94 @@ public final class Duration implements Comparable<Duration> {
         return of(num + (den * measNum), den);
     }
     public static Duration of(int num, int den) {
-        return of(ReducedFraction.of(num, den));
+        return of(Rational.of(num, den));
+    }
+
+    /**
+     * Getter for a duration from a packed {@link Rational}, the inverse of {@link #toRational()}.
+     * @param rational the duration, in measures, packed into a long
+     * @return the duration
+     */
+    public static @NotNull Duration ofRational(long rational) {
+        return of(rational);
+    }
+
+    /**
+     * Getter for the cache which makes equal durations share one instance, mostly so its hit rate may be inspected.
+     * @return the interner for durations
+     */
+    public static @NotNull Interner<Duration> interner() {
+        return INTERNER;
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Package-private static methods                                                            //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    static Duration of(ReducedFraction fraction) {
-        return new Duration(fraction);
+    static Duration of(long fraction) {
+        return INTERNER.intern(fraction);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Member variables                                                                          //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private final ReducedFraction fraction;
-    private final Measure measure;
-    private final Beat beat;
+    private final long fraction;
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Constructor                                                                               //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private Duration(ReducedFraction fraction) {
+    private Duration(long fraction) {
         this.fraction = fraction;
-        beat = Beat.of(fraction.getNumerator() % fraction.getDenominator(), fraction.getDenominator());
-        measure = Measure.of(fraction.getNumerator() / fraction.getDenominator());
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Instance methods                                                                          //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Getter for what's left of this duration after its whole measures, computed from the fraction when asked for.
+     * @return the leftover beat
+     */
     public final @NotNull Beat getBeat() {
-        return beat;
+        return Beat.of(Rational.fractionalPart(fraction));
     }
 
+    /**
+     * Getter for how many whole measures this duration spans, also computed on demand.
+     * @return the number of whole measures
+     */
     public final @NotNull Measure getMeasure() {
-        return measure;
+        return Measure.of(Rational.floor(fraction));
+    }
+
+    /**
+     * Getter for this duration as a packed {@link Rational}, for code which wants to do its own primitive arithmetic.
+     * @return this duration, in measures, packed into a long
+     */
+    public final long toRational() {
+        return fraction;
     }
 
     public final @NotNull Duration plus(Duration duration) {
-        return Duration.of(fraction.plus(duration.fraction));
+        return Duration.of(Rational.plus(fraction, duration.fraction));
     }
     public final @NotNull Duration minus(Duration duration) {
-        return Duration.of(fraction.minus(duration.fraction));
+        return Duration.of(Rational.minus(fraction, duration.fraction));
     }
     public final @NotNull Duration times(int factor) {
-        return Duration.of(fraction.times(factor));
+        return Duration.of(Rational.times(fraction, factor));
     }
     public final @NotNull Duration divBy(int factor) {
-        return Duration.of(fraction.divBy(factor));
+        return Duration.of(Rational.divBy(fraction, factor));
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Package-private methods                                                                   //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    final @NotNull ReducedFraction getFraction() {
+    final long getFraction() {
         return fraction;
     }
 
@@ -86,21 +120,22 @@ public final class Duration implements Comparable<Duration> {
 
     @Override
     public final @NotNull String toString() {
-        return fraction.toString();
+        return Rational.toString(fraction);
     }
     @Override
     public final int compareTo(@NotNull Duration other) {
-        return fraction.compareTo(other.fraction);
+        if (this == other) return 0;
+        return Rational.compare(fraction, other.fraction);
     }
     @Override
     public final boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Duration duration = (Duration) o;
-        return Objects.equals(fraction, duration.fraction);
+        return fraction == duration.fraction;
     }
     @Override
     public final int hashCode() {
-        return Objects.hash(fraction);
+        return Long.hashCode(fraction);
     }
 }
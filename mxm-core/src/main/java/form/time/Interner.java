@@ -0,0 +1,176 @@
+package form.time;
+
+import org.jetbrains.annotations.NotNull;
+import util.fraction.Rational;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A bounded, thread-safe canonicalizing cache for immutable time values ({@link Time}s and {@link Duration}s), keyed
+ * by their packed {@link Rational}. Real music reuses a small set of values (quarters, eighths, triplet eighths, whole
+ * bars) millions of times, so those come out of a table which is filled once up front and never changes. Anything
+ * outside that table goes through a fixed-size, direct-mapped overflow cache: each value hashes to exactly one slot,
+ * and a new value evicts whatever was in its slot. Lookups never lock, box or allocate, and since the cached values
+ * are immutable, two threads racing on one slot at worst both make a value.</p>
+ *
+ * <p> Interned values are usually shared, so identity comparisons on them are a valid fast path for equality. Values
+ * that get evicted simply stop being shared; they remain perfectly valid, just not canonical.</p>
+ *
+ * @param <T> the type of value being interned
+ *
+ * @author Patrick Celentano
+ */
+public final class Interner<T> {
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Static variables                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /** The denominators which get a precomputed table: powers of two, with and without triplets */
+    private static final int[] TABLE_DENOMINATORS = { 1, 2, 3, 4, 6, 8, 12, 16, 24, 32, 48, 64 };
+    /** Maps a denominator to its row in the table, or -1 if it doesn't have one */
+    private static final int[] TABLE_ROWS;
+    static {
+        TABLE_ROWS = new int[TABLE_DENOMINATORS[TABLE_DENOMINATORS.length - 1] + 1];
+        Arrays.fill(TABLE_ROWS, -1);
+        for (int row = 0; row < TABLE_DENOMINATORS.length; row++) {
+            TABLE_ROWS[TABLE_DENOMINATORS[row]] = row;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Member variables                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private final LongFunction<T> factory;
+    private final ToLongFunction<T> key;
+    /** table[row][num] holds num/TABLE_DENOMINATORS[row], for every such fraction in lowest terms */
+    private final Object[][] table;
+    /** The direct-mapped overflow cache, whose length is a power of two */
+    private final Object[] overflow;
+
+    private final LongAdder tableHits = new LongAdder();
+    private final LongAdder overflowHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Constructor                                                                               //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A limited-access constructor, since only the time classes themselves should be making values.
+     * @param factory makes a new value from a packed rational
+     * @param key gets the packed rational back out of a value
+     * @param tableMeasures how many measures, starting from zero, the precomputed table should cover
+     * @param overflowCapacity how many slots the overflow cache has; rounded up to a power of two
+     */
+    Interner(@NotNull LongFunction<T> factory, @NotNull ToLongFunction<T> key, int tableMeasures, int overflowCapacity) {
+        this.factory = factory;
+        this.key = key;
+        this.overflow = new Object[Integer.highestOneBit(Math.max(1, overflowCapacity - 1)) << 1];
+        this.table = new Object[TABLE_DENOMINATORS.length][];
+        for (int row = 0; row < TABLE_DENOMINATORS.length; row++) {
+            int den = TABLE_DENOMINATORS[row];
+            table[row] = new Object[tableMeasures * den];
+            for (int num = 0; num < table[row].length; num++) {
+                // Only fill in fractions already in lowest terms; others are found under a smaller denominator
+                if (Rational.gcd(num, den) == 1) {
+                    table[row][num] = factory.apply(Rational.of(num, den));
+                }
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Instance methods                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public final long getTableHits() {
+        return tableHits.sum();
+    }
+    public final long getOverflowHits() {
+        return overflowHits.sum();
+    }
+    public final long getMisses() {
+        return misses.sum();
+    }
+    public final long getEvictions() {
+        return evictions.sum();
+    }
+    public final int getOverflowCapacity() {
+        return overflow.length;
+    }
+
+    /**
+     * The fraction of lookups which found an existing value, whether in the table or the overflow cache.
+     * @return a hit rate between 0 and 1, or 0 if nothing has been looked up yet
+     */
+    public final double getHitRate() {
+        long hits = getTableHits() + getOverflowHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public final void resetStatistics() {
+        tableHits.reset();
+        overflowHits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Package-private methods                                                                   //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @SuppressWarnings("unchecked")
+    final @NotNull T intern(long fraction) {
+        int num = Rational.numerator(fraction);
+        int den = Rational.denominator(fraction);
+        if (num >= 0 && den < TABLE_ROWS.length) {
+            int row = TABLE_ROWS[den];
+            if (row >= 0 && num < table[row].length) {
+                tableHits.increment();
+                return (T) table[row][num];
+            }
+        }
+
+        int slot = slot(fraction);
+        T value = (T) overflow[slot];
+        if (value != null) {
+            if (key.applyAsLong(value) == fraction) {
+                overflowHits.increment();
+                return value;
+            }
+            evictions.increment();
+        }
+        misses.increment();
+        value = factory.apply(fraction);
+        overflow[slot] = value;
+        return value;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Private methods                                                                           //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Spreads the numerator and denominator bits before masking, since musical fractions have very regular low bits
+    private int slot(long fraction) {
+        long hash = fraction * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (overflow.length - 1);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Override methods                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public final @NotNull String toString() {
+        return "table hits " + getTableHits() + ", overflow hits " + getOverflowHits() + ", misses " + getMisses()
+                + ", evictions " + getEvictions() + ", hit rate " + getHitRate();
+    }
+}
@@ -1,7 +1,7 @@
 package form.time;
 
 import org.jetbrains.annotations.NotNull;
-import util.fraction.ReducedFraction;
+import util.fraction.Rational;
 
 import java.util.Objects;
 
@@ -44,8 +44,8 @@ public final class Measure implements Comparable<Measure> {
     //  Package-private methods                                                                   //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    final @NotNull ReducedFraction getFraction() {
-        return ReducedFraction.of(number,1);
+    final long getFraction() {
+        return Rational.of(number,1);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
@@ -1,12 +1,17 @@
 package form.time;
 
 import org.jetbrains.annotations.NotNull;
-import util.fraction.ReducedFraction;
-
-import java.util.Objects;
+import util.fraction.Rational;
 
 public final class Time implements Comparable<Time> {
 
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Static variables                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /** Canonical times; the first 64 measures of common subdivisions are precomputed */
+    private static final Interner<Time> INTERNER = new Interner<>(Time::new, Time::getFraction, 64, 1 << 16);
+
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Static methods                                                                            //
     ////////////////////////////////////////////////////////////////////////////////////////////////
@@ -16,55 +21,106 @@ public final class Time implements Comparable<Time> {
     }
 
     public static @NotNull Time of(@NotNull Beat beat, @NotNull Measure measure) {
-        return of(measure.getFraction().plus(beat.getFraction()));
+        return of(Rational.plus(measure.getFraction(), beat.getFraction()));
+    }
+
+    /**
+     * Getter for a time from a packed {@link Rational}, the inverse of {@link #toRational()}.
+     * @param rational the time, in measures, packed into a long
+     * @return the time
+     */
+    public static @NotNull Time ofRational(long rational) {
+        return of(rational);
+    }
+
+    /**
+     * Getter for the cache which makes equal times share one instance, mostly so its hit rate may be inspected.
+     * @return the interner for times
+     */
+    public static @NotNull Interner<Time> interner() {
+        return INTERNER;
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Package-private methods                                                                   //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    static @NotNull Time of(@NotNull ReducedFraction fraction) {
-        return new Time(fraction);
+    static @NotNull Time of(long fraction) {
+        return INTERNER.intern(fraction);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Member variables                                                                          //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private final ReducedFraction fraction;
-    private final Measure measure;
-    private final Beat beat;
+    private final long fraction;
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
     //  Instance methods                                                                          //
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private Time(ReducedFraction fraction) {
+    private Time(long fraction) {
         this.fraction = fraction;
-        beat = Beat.of(fraction.getNumerator() % fraction.getDenominator(), fraction.getDenominator());
-        measure = Measure.of(fraction.getNumerator() / fraction.getDenominator());
     }
 
+    /**
+     * Getter for how far past the start of its measure this lies. This is a view over the underlying fraction, which
+     * is only worked out when asked for, so that arithmetic never has to pay for it.
+     * @return the beat within the measure
+     */
     public final @NotNull Beat getBeat() {
-        return beat;
+        return Beat.of(Rational.fractionalPart(fraction));
     }
+    /**
+     * Getter for the measure this lies in, worked out on demand like {@link #getBeat()}.
+     * @return the measure
+     */
     public final @NotNull Measure getMeasure() {
-        return measure;
+        return Measure.of(Rational.floor(fraction));
+    }
+    /**
+     * Getter for the numerator of this time, in measures and in lowest terms.
+     * @return the numerator
+     */
+    public final int getNumerator() {
+        return Rational.numerator(fraction);
+    }
+    /**
+     * Getter for the denominator of this time, in lowest terms and always positive.
+     * @return the denominator
+     */
+    public final int getDenominator() {
+        return Rational.denominator(fraction);
+    }
+    /**
+     * Getter for this time as a packed {@link Rational}, for code which wants to do its own primitive arithmetic.
+     * @return this time, in measures, packed into a long
+     */
+    public final long toRational() {
+        return fraction;
     }
     public final @NotNull Time plus(Duration duration) {
-        return Time.of(fraction.plus(duration.getFraction()));
+        return Time.of(Rational.plus(fraction, duration.getFraction()));
     }
     public final @NotNull Time minus(Duration duration) {
-        return Time.of(fraction.minus(duration.getFraction()));
+        return Time.of(Rational.minus(fraction, duration.getFraction()));
     }
     public final @NotNull Duration minus(Time duration) {
-        return Duration.of(fraction.minus(duration.fraction));
+        return Duration.of(Rational.minus(fraction, duration.fraction));
     }
     public final @NotNull Time times(int factor) {
-        return Time.of(fraction.times(factor));
+        return Time.of(Rational.times(fraction, factor));
     }
     public final @NotNull Time divBy(int factor) {
-        return Time.of(fraction.divBy(factor));
+        return Time.of(Rational.divBy(fraction, factor));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Package-private methods                                                                   //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    final long getFraction() {
+        return fraction;
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
@@ -73,21 +129,22 @@ public final class Time implements Comparable<Time> {
 
     @Override
     public final @NotNull String toString() {
-        return fraction.toString();
+        return Rational.toString(fraction);
     }
     @Override
     public final int compareTo(@NotNull Time other) {
-        return fraction.compareTo(other.fraction);
+        if (this == other) return 0;
+        return Rational.compare(fraction, other.fraction);
     }
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Time time = (Time) o;
-        return Objects.equals(fraction, time.fraction);
+        return fraction == time.fraction;
     }
     @Override
     public int hashCode() {
-        return Objects.hash(fraction);
+        return Long.hashCode(fraction);
     }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package form.time;
+
+import org.jetbrains.annotations.NotNull;
+import util.fraction.Rational;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A score-wide tick resolution. While every {@link Time} a score has seen lands exactly on a tick, times can be
+ * stored and compared as plain {@code long} tick counts, MIDI-style, without giving up exactness. The resolution is
+ * counted in ticks per whole measure-unit (that is, per {@code Duration.of(1)}), so a PPQ of 480 is a resolution of
+ * 1920.</p>
+ *
+ * <p> A timebase starts out in tick mode and falls back to rational mode, for good, the first time it observes a
+ * time whose denominator doesn't divide the resolution (and which an adaptive timebase can't grow to fit). While in
+ * tick mode, the resolution only ever changes by growing to a multiple of itself, so anything holding tick counts
+ * may compare {@link #getResolution()} against the resolution it last saw and rescale by the quotient.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class Timebase {
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Static variables                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /** The resolution used once a timebase has fallen back to exact rationals */
+    public static final long RATIONAL = 0;
+    /** The largest resolution an adaptive timebase will grow to before falling back to rationals */
+    public static final long MAX_RESOLUTION = Integer.MAX_VALUE;
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Static methods                                                                            //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A timebase whose resolution is the least common multiple of every denominator it has observed.
+     * @return a new adaptive timebase
+     */
+    public static @NotNull Timebase adaptive() {
+        return new Timebase(1, true);
+    }
+
+    /**
+     * A timebase with a fixed, user-chosen resolution.
+     * @param ticksPerMeasure the number of ticks in one whole measure-unit
+     * @return a new fixed timebase
+     */
+    public static @NotNull Timebase of(long ticksPerMeasure) {
+        if (ticksPerMeasure <= 0 || ticksPerMeasure > MAX_RESOLUTION) {
+            throw new Error("Timebase: Invalid resolution! (" + ticksPerMeasure + " ticks)");
+        }
+        return new Timebase(ticksPerMeasure, false);
+    }
+
+    /**
+     * A timebase with a fixed resolution given in pulses per quarter note, as MIDI files do.
+     * @param ppq the number of ticks in a quarter note
+     * @return a new fixed timebase
+     */
+    public static @NotNull Timebase ofPPQ(int ppq) {
+        return of(4L * ppq);
+    }
+
+    /**
+     * A timebase which never uses ticks at all.
+     * @return a new timebase, already in rational mode
+     */
+    public static @NotNull Timebase rational() {
+        return new Timebase(RATIONAL, false);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Member variables                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /** Ticks per measure-unit, or {@link #RATIONAL} */
+    private volatile long resolution;
+    private final boolean adaptive;
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Constructor                                                                               //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private Timebase(long resolution, boolean adaptive) {
+        this.resolution = resolution;
+        this.adaptive = adaptive;
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Instance methods                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public final boolean isTicked() {
+        return resolution != RATIONAL;
+    }
+    public final boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Getter for the current resolution.
+     * @return the number of ticks per measure-unit, or {@link #RATIONAL} in rational mode
+     */
+    public final long getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Whether the given time lands exactly on a tick at the current resolution.
+     * @param time the time to check
+     * @return true if the time can be represented in ticks right now
+     */
+    public final boolean admits(@NotNull Time time) {
+        long resolution = this.resolution;
+        return resolution != RATIONAL && resolution % Rational.denominator(time.getFraction()) == 0;
+    }
+
+    /**
+     * Tells the timebase that a score now holds the given time. Adaptive timebases grow to fit it if they can, and
+     * any timebase which can't represent it falls back to rational mode.
+     * @param time the time now in use
+     * @return true if the timebase is still in tick mode
+     */
+    public final boolean observe(@NotNull Time time) {
+        // The common case, no locking required
+        long current = resolution;
+        int den = Rational.denominator(time.getFraction());
+        if (current == RATIONAL) return false;
+        if (current % den == 0) return true;
+
+        synchronized (this) {
+            current = resolution;
+            if (current == RATIONAL) return false;
+            if (current % den == 0) return true;
+            long grown = adaptive ? current / Rational.gcd(current, den) * den : RATIONAL;
+            resolution = grown > MAX_RESOLUTION ? RATIONAL : grown;
+            return resolution != RATIONAL;
+        }
+    }
+
+    /**
+     * Converts a time to a tick count at the current resolution.
+     * @param time the time to convert, which must be {@link #admits admitted}
+     * @return the number of ticks since the start of measure zero
+     */
+    public final long toTicks(@NotNull Time time) {
+        long resolution = this.resolution;
+        long fraction = time.getFraction();
+        long den = Rational.denominator(fraction);
+        if (resolution == RATIONAL || resolution % den != 0) {
+            throw new Error("Timebase: " + time + " does not land on a tick at resolution " + resolution);
+        }
+        return Rational.numerator(fraction) * (resolution / den);
+    }
+
+    /**
+     * Converts a tick count at the current resolution back into a time.
+     * @param ticks the number of ticks since the start of measure zero
+     * @return the exact time
+     */
+    public final @NotNull Time fromTicks(long ticks) {
+        long resolution = this.resolution;
+        if (resolution == RATIONAL) {
+            throw new Error("Timebase: Cannot convert ticks in rational mode!");
+        }
+        return Time.of(Rational.of(ticks, resolution));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Override methods                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public final @NotNull String toString() {
+        return isTicked() ? resolution + " ticks/measure" : "rational";
+    }
+}
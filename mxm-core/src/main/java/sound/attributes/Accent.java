@@ -16,7 +16,7 @@ public class Accent {
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    public static Accent of(@NotNull String name) {
+    public static synchronized Accent of(@NotNull String name) {
         name = name.toLowerCase();
         if (ALL.containsKey(name)) {
             return ALL.get(name);
@@ -26,11 +26,11 @@ public class Accent {
         return newAccent;
     }
 
-    public static @NotNull Collection<Accent> all() {
-        return Collections.unmodifiableCollection(ALL.values());
+    public static synchronized @NotNull Collection<Accent> all() {
+        return Collections.unmodifiableList(new ArrayList<>(ALL.values()));
     }
 
-    public static @NotNull Accent random() {
+    public static synchronized @NotNull Accent random() {
         return of(new ArrayList<>(ALL.keySet()).get(ThreadLocalRandom.current().nextInt(ALL.size())));
     }
 
@@ -42,5 +42,9 @@ public class Accent {
         this.name = name;
     }
 
+    public final @NotNull String getName() {
+        return name;
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////
 }
@@ -44,6 +44,14 @@ public class Dynamic implements Comparator<Dynamic>, Comparable<Dynamic> {
         this.value = value;
     }
 
+    /**
+     * Getter for the loudness of this dynamic, the same as a MIDI velocity.
+     * @return the value, between 0 and 127
+     */
+    public int getValue() {
+        return value;
+    }
+
     @Override
     public int compareTo(@NotNull Dynamic other) {
         return Integer.compare(value, other.value);
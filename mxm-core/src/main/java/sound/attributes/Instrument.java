@@ -6,6 +6,7 @@ import sound.unpitched.Noise;
 import sound.pitched.Pitch;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -14,9 +15,39 @@ public class Instrument {
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
     private static final ArrayList<Instrument> GeneralMIDIInstrumentSet = new ArrayList<>();
+    private static final HashMap<String,Instrument> ALL = new HashMap<>();
+
+    /** The 128 General MIDI programs, in program order */
+    private static final String[] GENERAL_MIDI_NAMES = {
+        "Acoustic Grand Piano", "Bright Acoustic Piano", "Electric Grand Piano", "Honky-tonk Piano",
+        "Electric Piano 1", "Electric Piano 2", "Harpsichord", "Clavinet", "Celesta", "Glockenspiel", "Music Box",
+        "Vibraphone", "Marimba", "Xylophone", "Tubular Bells", "Dulcimer", "Drawbar Organ", "Percussive Organ",
+        "Rock Organ", "Church Organ", "Reed Organ", "Accordion", "Harmonica", "Tango Accordion",
+        "Acoustic Guitar (nylon)", "Acoustic Guitar (steel)", "Electric Guitar (jazz)", "Electric Guitar (clean)",
+        "Electric Guitar (muted)", "Overdriven Guitar", "Distortion Guitar", "Guitar Harmonics", "Acoustic Bass",
+        "Electric Bass (finger)", "Electric Bass (pick)", "Fretless Bass", "Slap Bass 1", "Slap Bass 2",
+        "Synth Bass 1", "Synth Bass 2", "Violin", "Viola", "Cello", "Contrabass", "Tremolo Strings",
+        "Pizzicato Strings", "Orchestral Harp", "Timpani", "String Ensemble 1", "String Ensemble 2", "Synth Strings 1",
+        "Synth Strings 2", "Choir Aahs", "Voice Oohs", "Synth Choir", "Orchestra Hit", "Trumpet", "Trombone", "Tuba",
+        "Muted Trumpet", "French Horn", "Brass Section", "Synth Brass 1", "Synth Brass 2", "Soprano Sax", "Alto Sax",
+        "Tenor Sax", "Baritone Sax", "Oboe", "English Horn", "Bassoon", "Clarinet", "Piccolo", "Flute", "Recorder",
+        "Pan Flute", "Blown Bottle", "Shakuhachi", "Whistle", "Ocarina", "Lead 1 (square)", "Lead 2 (sawtooth)",
+        "Lead 3 (calliope)", "Lead 4 (chiff)", "Lead 5 (charang)", "Lead 6 (voice)", "Lead 7 (fifths)",
+        "Lead 8 (bass + lead)", "Pad 1 (new age)", "Pad 2 (warm)", "Pad 3 (polysynth)", "Pad 4 (choir)",
+        "Pad 5 (bowed)", "Pad 6 (metallic)", "Pad 7 (halo)", "Pad 8 (sweep)", "FX 1 (rain)", "FX 2 (soundtrack)",
+        "FX 3 (crystal)", "FX 4 (atmosphere)", "FX 5 (brightness)", "FX 6 (goblins)", "FX 7 (echoes)", "FX 8 (sci-fi)",
+        "Sitar", "Banjo", "Shamisen", "Koto", "Kalimba", "Bagpipe", "Fiddle", "Shanai", "Tinkle Bell", "Agogo",
+        "Steel Drums", "Woodblock", "Taiko Drum", "Melodic Tom", "Synth Drum", "Reverse Cymbal", "Guitar Fret Noise",
+        "Breath Noise", "Seashore", "Bird Tweet", "Telephone Ring", "Helicopter", "Applause", "Gunshot"
+    };
+    static {
+        for (String name : GENERAL_MIDI_NAMES) {
+            GeneralMIDIInstrumentSet.add(of(name));
+        }
+    }
 
-    public static final Instrument GRAND_PIANO     = new Instrument("Acoustic Grand Piano");
-    public static final Instrument DRUM_SET        = new Instrument("Drum Set");
+    public static final Instrument GRAND_PIANO     = of("Acoustic Grand Piano");
+    public static final Instrument DRUM_SET        = of("Drum Set");
     public static final Instrument DEFAULT = GRAND_PIANO;
 
     private Set<ISound> possibleSounds;
@@ -30,6 +61,32 @@ public class Instrument {
         this.name = name;
     }
 
+    /**
+     * Getter for an instrument by its name, which is created the first time it's asked for, by whichever thread asks.
+     * @param name the name of the instrument
+     * @return the instrument
+     */
+    public static synchronized @NotNull Instrument of(@NotNull String name) {
+        Instrument instrument = ALL.get(name);
+        if (instrument == null) {
+            instrument = new Instrument(name);
+            ALL.put(name, instrument);
+        }
+        return instrument;
+    }
+
+    /**
+     * Getter for the General MIDI instrument a MIDI program change selects.
+     * @param program the program number, between 0 and 127
+     * @return the instrument
+     */
+    public static @NotNull Instrument getGeneralMIDIInstrument(int program) {
+        if (program < 0 || program >= GeneralMIDIInstrumentSet.size()) {
+            throw new Error("INSTRUMENT:\tNo General MIDI program " + program);
+        }
+        return GeneralMIDIInstrumentSet.get(program);
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
     public Iterator<ISound> possibleSoundItr() {
@@ -49,6 +106,14 @@ public class Instrument {
         return name;
     }
 
+    /**
+     * Getter for the General MIDI program number of this instrument, for writing it back out as a program change.
+     * @return the program number, or -1 if this isn't a General MIDI instrument
+     */
+    public int getGeneralMIDIProgram() {
+        return GeneralMIDIInstrumentSet.indexOf(this);
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
     @Override
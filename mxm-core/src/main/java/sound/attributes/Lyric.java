@@ -16,7 +16,7 @@ public class Lyric {
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    public static Lyric of(@NotNull String name) {
+    public static synchronized Lyric of(@NotNull String name) {
         name = name.toLowerCase();
         if (ALL.containsKey(name)) {
             return ALL.get(name);
@@ -26,11 +26,11 @@ public class Lyric {
         return newLyric;
     }
 
-    public static @NotNull Collection<Lyric> all() {
-        return Collections.unmodifiableCollection(ALL.values());
+    public static synchronized @NotNull Collection<Lyric> all() {
+        return Collections.unmodifiableList(new ArrayList<>(ALL.values()));
     }
 
-    public static @NotNull Lyric random() {
+    public static synchronized @NotNull Lyric random() {
         return of(new ArrayList<>(ALL.keySet()).get(ThreadLocalRandom.current().nextInt(ALL.size())));
     }
 
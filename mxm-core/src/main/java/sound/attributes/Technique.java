@@ -24,7 +24,7 @@ public class Technique {
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    public static Technique of(@NotNull String name) {
+    public static synchronized Technique of(@NotNull String name) {
         name = name.toLowerCase();
         if (ALL.containsKey(name)) {
             return ALL.get(name);
@@ -34,11 +34,11 @@ public class Technique {
         return newTechnique;
     }
 
-    public static @NotNull Collection<Technique> all() {
-        return Collections.unmodifiableCollection(ALL.values());
+    public static synchronized @NotNull Collection<Technique> all() {
+        return Collections.unmodifiableList(new ArrayList<>(ALL.values()));
     }
 
-    public static @NotNull Technique random() {
+    public static synchronized @NotNull Technique random() {
         return of(new ArrayList<>(ALL.keySet()).get(ThreadLocalRandom.current().nextInt(ALL.size())));
     }
 
@@ -50,5 +50,9 @@ public class Technique {
         this.name = name;
     }
 
+    public final @NotNull String getName() {
+        return name;
+    }
+
     ////////////////////////////////////////////////////////////////////////////////////////////////
 }
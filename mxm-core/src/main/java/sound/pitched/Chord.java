@@ -31,6 +31,17 @@ public final class Chord implements ISound, Iterable<PitchClass> {
         return ALL[(root.value * ChordClass.TOTAL_NUM) + chordClass.getID()];
     }
 
+    /**
+     * Getter for a chord by its number, as given by {@link #getValue()}.
+     * @param value the number of the chord, between 0 and {@link #TOTAL_NUM}, exclusive
+     * @return the chord
+     */
+    public static @NotNull Chord get(int value) {
+        if (value < 0 || value >= TOTAL_NUM)
+            throw new Error("CHORD:\tValue out of range.");
+        return ALL[value];
+    }
+
     public static @NotNull Collection<Chord> all() {
         return Collections.unmodifiableList(Arrays.asList(ALL));
     }
@@ -64,6 +75,14 @@ public final class Chord implements ISound, Iterable<PitchClass> {
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Getter for the number of this chord, which is unique to its root and chord class.
+     * @return the number of this chord
+     */
+    public final int getValue() {
+        return value;
+    }
+
     public final @NotNull PitchClass getRoot() {
         return root;
     }
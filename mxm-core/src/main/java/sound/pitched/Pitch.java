@@ -28,7 +28,12 @@ public final class Pitch implements ISound, Comparable<Pitch> {
     public static final Pitch MIN = get(MIN_VALUE);
     public static final Pitch MAX = get(MAX_VALUE);
 
-    private static @NotNull Pitch get(int value) {
+    /**
+     * Getter for a pitch by its number, which is the same as its MIDI key number (middle C is 60).
+     * @param value the number of the pitch, between 0 and 120
+     * @return the pitch
+     */
+    public static @NotNull Pitch get(int value) {
         if (value < MIN_VALUE || value > MAX_VALUE)
             throw new Error("PITCH:\tInterval out of range.");
         return ALL[value - MIN_VALUE];
@@ -65,6 +70,10 @@ public final class Pitch implements ISound, Comparable<Pitch> {
         this.pitchClass = PitchClass.get(value%12);
     }
 
+    public final int getValue() {
+        return value;
+    }
+
     public final int getOctave() {
         return octave;
     }
@@ -57,6 +57,10 @@ public final class PitchClass {
         this.value = value;
     }
 
+    public final int getValue() {
+        return value;
+    }
+
     public final @NotNull PitchClass transpose(@NotNull IntervalClass intervalClass) {
         return PitchClass.get((value + intervalClass.getSize()) % 12);
     }
@@ -10,14 +10,14 @@ public final class Noise implements ISound {
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
+    private static final HashMap<String,Noise> ALL = new HashMap<>();
+
     public static final Noise HIT = of("hit");
     public static final Noise CRASH = of("crash");
 
-    private static final HashMap<String,Noise> ALL = new HashMap<>();
-
     ////////////////////////////////////////////////////////////////////////////////////////////////
 
-    public static Noise of(@NotNull String name) {
+    public static synchronized Noise of(@NotNull String name) {
         // Standardize
         name = name.toLowerCase();
         // If the noise already exists, return that one
@@ -30,11 +30,11 @@ public final class Noise implements ISound {
         return newNoise;
     }
 
-    public static @NotNull Collection<Noise> all() {
-        return Collections.unmodifiableCollection(ALL.values());
+    public static synchronized @NotNull Collection<Noise> all() {
+        return Collections.unmodifiableList(new ArrayList<>(ALL.values()));
     }
 
-    public static @NotNull Noise random() {
+    public static synchronized @NotNull Noise random() {
         return of(new ArrayList<>(ALL.keySet()).get(ThreadLocalRandom.current().nextInt(ALL.size())));
     }
 
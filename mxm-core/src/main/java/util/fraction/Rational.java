@@ -0,0 +1,215 @@
+package util.fraction;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigInteger;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * Static arithmetic over reduced rationals packed into a single primitive {@code long}. The high 32 bits hold the
+ * signed numerator and the low 32 bits hold the (always positive) denominator. Every packed value is kept in lowest
+ * terms, with zero stored as 0/1, so two packed rationals are equal exactly when their {@code long}s are equal.</p>
+ *
+ * <p> Because both halves fit in an {@code int}, every intermediate product below fits in a {@code long}; the only
+ * way an operation can overflow is if its reduced result no longer fits in 32 bits, in which case an
+ * {@link ArithmeticException} is thrown rather than silently wrapping around. Values built from arbitrary
+ * {@code long} components go through a {@link BigInteger} slow path when they can't be reduced in 64 bits.</p>
+ *
+ * @author Patrick Celentano
+ */
+public abstract class Rational {
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Static variables                                                                          //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public static final long ZERO = pack(0, 1);
+    public static final long ONE = pack(1, 1);
+
+    private static final long DENOMINATOR_MASK = 0xFFFFFFFFL;
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Static methods                                                                            //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Reduces num/den to lowest terms and packs it.
+     * @param num the numerator
+     * @param den the denominator, which may not be zero
+     * @return the packed, reduced rational
+     */
+    public static long of(long num, long den) {
+        if (den == 0) {
+            throw new Error("Cannot create a rational with a denominator of 0!");
+        }
+        if (num == 0) {
+            return ZERO;
+        }
+        // Negating Long.MIN_VALUE overflows, so leave that one case to BigInteger
+        if (num == Long.MIN_VALUE || den == Long.MIN_VALUE) {
+            return ofBig(BigInteger.valueOf(num), BigInteger.valueOf(den));
+        }
+        if (den < 0) {
+            num = -num;
+            den = -den;
+        }
+        long gcd = gcd(Math.abs(num), den);
+        return packChecked(num / gcd, den / gcd);
+    }
+
+    public static int numerator(long rational) {
+        return (int) (rational >> 32);
+    }
+
+    public static int denominator(long rational) {
+        return (int) rational;
+    }
+
+    public static long plus(long a, long b) {
+        long aDen = denominator(a), bDen = denominator(b);
+        if (aDen == bDen) {
+            return reduce((long) numerator(a) + numerator(b), aDen);
+        }
+        return reduce((long) numerator(a) * bDen + (long) numerator(b) * aDen, aDen * bDen);
+    }
+
+    public static long minus(long a, long b) {
+        long aDen = denominator(a), bDen = denominator(b);
+        if (aDen == bDen) {
+            return reduce((long) numerator(a) - numerator(b), aDen);
+        }
+        return reduce((long) numerator(a) * bDen - (long) numerator(b) * aDen, aDen * bDen);
+    }
+
+    public static long times(long a, int factor) {
+        return of((long) numerator(a) * factor, denominator(a));
+    }
+
+    public static long divBy(long a, int factor) {
+        return of(numerator(a), (long) denominator(a) * factor);
+    }
+
+    public static long times(long a, long b) {
+        return of((long) numerator(a) * numerator(b), (long) denominator(a) * denominator(b));
+    }
+
+    public static long negate(long a) {
+        return of(-(long) numerator(a), denominator(a));
+    }
+
+    public static int compare(long a, long b) {
+        if (a == b) return 0;
+        long aDen = denominator(a), bDen = denominator(b);
+        if (aDen == bDen) {
+            return Integer.compare(numerator(a), numerator(b));
+        }
+        return Long.compare((long) numerator(a) * bDen, (long) numerator(b) * aDen);
+    }
+
+    public static int signum(long a) {
+        return Integer.signum(numerator(a));
+    }
+
+    /**
+     * The greatest integer less than or equal to this rational, i.e. the whole part under floor division.
+     * @param a the packed rational
+     * @return the floor of the rational
+     */
+    public static int floor(long a) {
+        return Math.floorDiv(numerator(a), denominator(a));
+    }
+
+    /**
+     * What's left over once the {@link #floor(long)} is taken out, always in [0, 1).
+     * @param a the packed rational
+     * @return the fractional part of the rational
+     */
+    public static long fractionalPart(long a) {
+        int den = denominator(a);
+        // The numerator and denominator are coprime, so this is already reduced
+        return pack(Math.floorMod(numerator(a), den), den);
+    }
+
+    public static @NotNull String toString(long a) {
+        return numerator(a) + "/" + denominator(a);
+    }
+
+    public static @NotNull BigInteger bigNumerator(long a) {
+        return BigInteger.valueOf(numerator(a));
+    }
+
+    public static @NotNull BigInteger bigDenominator(long a) {
+        return BigInteger.valueOf(denominator(a));
+    }
+
+    /**
+     * Stein's binary gcd, which only ever shifts and subtracts.
+     * @param a a non-negative number
+     * @param b a non-negative number
+     * @return the greatest common divisor of a and b
+     */
+    public static long gcd(long a, long b) {
+        if (a == 0) return b;
+        if (b == 0) return a;
+        int shift = Long.numberOfTrailingZeros(a | b);
+        a >>= Long.numberOfTrailingZeros(a);
+        do {
+            b >>= Long.numberOfTrailingZeros(b);
+            if (a > b) {
+                long swap = a;
+                a = b;
+                b = swap;
+            }
+            b -= a;
+        } while (b != 0);
+        return a << shift;
+    }
+
+    public static long lcm(long a, long b) {
+        if (a == 0 || b == 0) return 0;
+        return Math.multiplyExact(a / gcd(a, b), b);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Package-private static methods                                                            //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Packs a numerator and denominator which are already known to be in lowest terms.
+     */
+    static long pack(int num, int den) {
+        return ((long) num << 32) | (den & DENOMINATOR_MASK);
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+    //  Private static methods                                                                    //
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    // Like of(), but for intermediates whose denominator is already positive and not Long.MIN_VALUE
+    private static long reduce(long num, long den) {
+        if (num == 0) return ZERO;
+        long gcd = gcd(Math.abs(num), den);
+        return packChecked(num / gcd, den / gcd);
+    }
+
+    private static long packChecked(long num, long den) {
+        if (num < Integer.MIN_VALUE || num > Integer.MAX_VALUE || den > Integer.MAX_VALUE) {
+            throw new ArithmeticException("Rational overflow: " + num + "/" + den + " does not fit in 32 bits");
+        }
+        return pack((int) num, (int) den);
+    }
+
+    private static long ofBig(@NotNull BigInteger num, @NotNull BigInteger den) {
+        if (den.signum() < 0) {
+            num = num.negate();
+            den = den.negate();
+        }
+        BigInteger gcd = num.gcd(den);
+        num = num.divide(gcd);
+        den = den.divide(gcd);
+        if (num.bitLength() > 31 || den.bitLength() > 31) {
+            throw new ArithmeticException("Rational overflow: " + num + "/" + den + " does not fit in 32 bits");
+        }
+        return pack(num.intValue(), den.intValue());
+    }
+}
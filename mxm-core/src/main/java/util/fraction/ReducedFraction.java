@@ -18,26 +18,12 @@ public class ReducedFraction implements Comparable<ReducedFraction> {
     private final int denominator;
 
     private @NotNull ReducedFraction(int numerator, int denominator) {
-        if (numerator == 0) {
-            this.numerator = numerator;
-            this.denominator = 1;
-            return;
-        }
-        if (denominator == 0) {
-            throw new Error("Cannot create a reduced fraction with a denominator of 0!");
-        }
-
-        // Euclid's gcd algorithm, everyone's favorite
-        int a = numerator, b = denominator;
-        while (a != b) {
-            if (a > b) {
-                a -= b;
-            } else {
-                b -= a;
-            }
-        }
-        this.numerator = numerator / a;
-        this.denominator = denominator / a;
+        this(Rational.of(numerator, denominator));
+    }
+
+    private @NotNull ReducedFraction(long rational) {
+        this.numerator = Rational.numerator(rational);
+        this.denominator = Rational.denominator(rational);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
@@ -51,24 +37,26 @@ public class ReducedFraction implements Comparable<ReducedFraction> {
     }
 
     public final @NotNull ReducedFraction plus(@NotNull ReducedFraction other) {
-        int newNumerator = this.numerator * other.denominator + other.numerator * this.denominator;
-        int newDenominator = this.denominator * other.denominator;
-        return ReducedFraction.of(newNumerator, newDenominator);
+        return new ReducedFraction(Rational.plus(toRational(), other.toRational()));
     }
 
     public final @NotNull ReducedFraction minus(@NotNull ReducedFraction other) {
-        int newNumerator = this.numerator * other.denominator - other.numerator * this.denominator;
-        int newDenominator = this.denominator * other.denominator;
-        return ReducedFraction.of(newNumerator, newDenominator);
+        return new ReducedFraction(Rational.minus(toRational(), other.toRational()));
     }
     public final @NotNull ReducedFraction times(@NotNull int factor) {
-        int newNumerator = this.numerator * factor;
-        return ReducedFraction.of(newNumerator, denominator);
+        return new ReducedFraction(Rational.times(toRational(), factor));
     }
 
     public final @NotNull ReducedFraction divBy(@NotNull int factor) {
-        int newDenominator = this.denominator * factor;
-        return ReducedFraction.of(numerator, newDenominator);
+        return new ReducedFraction(Rational.divBy(toRational(), factor));
+    }
+
+    /**
+     * Getter for this fraction in the packed form used by {@link Rational}.
+     * @return this fraction, packed into a long
+     */
+    public final long toRational() {
+        return Rational.pack(numerator, denominator);
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////
@@ -79,9 +67,7 @@ public class ReducedFraction implements Comparable<ReducedFraction> {
 
     @Override
     public final int compareTo(@NotNull ReducedFraction other) {
-        int num1 = numerator * other.denominator;
-        int num2 = other.numerator * denominator;
-        return Integer.compare(num1,num2);
+        return Rational.compare(toRational(), other.toRational());
     }
 
     @Override
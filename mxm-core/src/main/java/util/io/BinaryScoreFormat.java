@@ -0,0 +1,217 @@
+package util.io;
+
+import org.jetbrains.annotations.NotNull;
+import util.fraction.Rational;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * What the {@link BinaryScoreWriter} and {@link BinaryScoreReader} agree on: the constants of the {@code .mxmb} format,
+ * and the buffered channel ends they write and read it through.</p>
+ *
+ * <p> A file is the magic number {@code MXMB} and the version; the title; the kind of score; its timebase; the
+ * resolution its times are written at; the tempo changes; the time signature changes; and then every part, as its
+ * instrument, its note count and its notes, and then its controller lanes. Whole numbers are unsigned LEB128 varints, or zigzagged first if they
+ * may be negative. Times are written as deltas- a tempo change from the one before, and a note from the end of the
+ * one before, which is nothing at all for a line without rests- in ticks of the least common multiple of every
+ * denominator in the score, so that almost every delta fits in a byte or two. A score whose times can't all be
+ * ticked at a 32 bit resolution writes each as a numerator and denominator instead.</p>
+ *
+ * <p> Each note then writes one byte holding the kind of its sound and which of a dynamic, technique and accent it
+ * has, the sound, and whichever of those it has. Strings- titles, instruments, noises, techniques and accents- are
+ * interned as they're written: the first time a string appears it's written out whole, and every time after as its
+ * number.</p>
+ *
+ * <p> A part's lanes come as their count, and then each lane as its controller, its change count, the time of every
+ * change as a delta from the one before- the first from the first measure- and then every value, in the same order.
+ * </p>
+ *
+ * @author Patrick Celentano
+ */
+abstract class BinaryScoreFormat {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    static final byte[] MAGIC = {'M', 'X', 'M', 'B'};
+    static final int VERSION = 2;
+
+    // The kinds of score, so that a file comes back as the same kind it was written from
+    static final int ENSEMBLE = 0;
+    static final int LEAD_SHEET = 1;
+    static final int CHORALE = 2;
+
+    // A note's header byte: the kind of its sound in the low two bits, as in the score store, then what it has
+    static final int SOUND_KIND_MASK = 0x03;
+    static final int HAS_DYNAMIC = 0x04;
+    static final int HAS_TECHNIQUE = 0x08;
+    static final int HAS_ACCENT = 0x10;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    // Everything written goes into a buffer, which is only handed to the channel when it fills up or is flushed
+    static final class Output {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final Map<String, Integer> strings;
+        private final long resolution;
+
+        Output(@NotNull WritableByteChannel channel, long resolution) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.strings = new HashMap<>();
+            this.resolution = resolution;
+        }
+
+        long getResolution() {
+            return resolution;
+        }
+
+        void writeByte(int value) throws IOException {
+            if (!buffer.hasRemaining()) flush();
+            buffer.put((byte) value);
+        }
+
+        void writeBytes(@NotNull byte[] bytes) throws IOException {
+            for (byte b : bytes) writeByte(b);
+        }
+
+        void writeUnsigned(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeSigned(long value) throws IOException {
+            writeUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        // Nought for a string seen for the first time, which then follows, or one more than its number after that
+        void writeString(@NotNull String string) throws IOException {
+            Integer index = strings.get(string);
+            if (index != null) {
+                writeUnsigned(index + 1);
+                return;
+            }
+            strings.put(string, strings.size());
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(0);
+            writeUnsigned(bytes.length);
+            writeBytes(bytes);
+        }
+
+        // A difference between two times, which may be negative, as a packed rational
+        void writeDelta(long delta) throws IOException {
+            if (resolution == 0) {
+                writeSigned(Rational.numerator(delta));
+                writeUnsigned(Rational.denominator(delta));
+            } else {
+                writeSigned(Rational.numerator(delta) * (resolution / Rational.denominator(delta)));
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // Reads ahead into a buffer, and only goes back to the channel when it runs dry
+    static final class Input {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+        private final List<String> strings;
+        private long resolution;
+
+        Input(@NotNull ReadableByteChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.buffer.flip();
+            this.strings = new ArrayList<>();
+        }
+
+        void setResolution(long resolution) {
+            this.resolution = resolution;
+        }
+
+        int readByte() throws IOException {
+            if (!buffer.hasRemaining()) fill();
+            return buffer.get() & 0xFF;
+        }
+
+        @NotNull byte[] readBytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) bytes[i] = (byte) readByte();
+            return bytes;
+        }
+
+        long readUnsigned() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new Error("BINARY SCORE:\tMalformed varint.");
+        }
+
+        int readInt() throws IOException {
+            long value = readUnsigned();
+            if (value > Integer.MAX_VALUE) throw new Error("BINARY SCORE:\t" + value + " is out of range.");
+            return (int) value;
+        }
+
+        long readSigned() throws IOException {
+            long value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        @NotNull String readString() throws IOException {
+            int index = readInt();
+            if (index > 0) {
+                if (index > strings.size()) throw new Error("BINARY SCORE:\tUnknown string " + index);
+                return strings.get(index - 1);
+            }
+            String string = new String(readBytes(readInt()), StandardCharsets.UTF_8);
+            strings.add(string);
+            return string;
+        }
+
+        long readDelta() throws IOException {
+            if (resolution == 0) {
+                long num = readSigned();
+                return Rational.of(num, readUnsigned());
+            }
+            return Rational.of(readSigned(), resolution);
+        }
+
+        private void fill() throws IOException {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            if (read < 0) throw new Error("BINARY SCORE:\tUnexpected end of file.");
+        }
+    }
+}
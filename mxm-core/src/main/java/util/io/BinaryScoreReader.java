@@ -0,0 +1,191 @@
+package util.io;
+
+import form.attributes.Tempo;
+import form.attributes.TimeSig;
+import form.events.Note;
+import form.passage.Chorale;
+import form.passage.ControllerLane;
+import form.passage.Ensemble;
+import form.passage.LeadSheet;
+import form.passage.Line;
+import form.passage.Part;
+import form.passage.Score;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import form.time.Timebase;
+import org.jetbrains.annotations.NotNull;
+import sound.ISound;
+import sound.attributes.Accent;
+import sound.attributes.Dynamic;
+import sound.attributes.Instrument;
+import sound.attributes.Technique;
+import sound.pitched.Chord;
+import sound.pitched.Pitch;
+import sound.unpitched.Noise;
+import util.fraction.Rational;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static util.io.BinaryScoreFormat.*;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * Reads a {@link Score} back from the compact {@code .mxmb} format described in {@link BinaryScoreFormat}. A file
+ * written from a {@link LeadSheet} or a {@link Chorale} comes back as one; any other score comes back as an
+ * {@link Ensemble} of lines. The file is read front to back through a fixed size buffer, writing each note straight
+ * onto its line, so nothing but the score itself is built- bar a column of times for each controller lane, held only
+ * until the values they go with have been read.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class BinaryScoreReader implements IFileReader<Score> {
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    @Override
+    public @NotNull Score read(@NotNull String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            return read(channel);
+        } catch (IOException e) {
+            throw new Error("BINARY SCORE:\tCould not read " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a score from a channel, which is left open. The channel is read a buffer at a time, so it may be left past
+     * the end of the score.
+     * @param channel the channel to read from
+     * @return the score
+     */
+    public @NotNull Score read(@NotNull ReadableByteChannel channel) {
+        try {
+            Input input = new Input(channel);
+            Score score = readHeader(input);
+            readControls(score, input);
+            readParts(score, input);
+            return score;
+        } catch (IOException e) {
+            throw new Error("BINARY SCORE:\tCould not read a score", e);
+        }
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private static Score readHeader(Input input) throws IOException {
+        if (!Arrays.equals(MAGIC, input.readBytes(MAGIC.length))) {
+            throw new Error("BINARY SCORE:\tNot an " + BinaryScoreWriter.EXTENSION + " file.");
+        }
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new Error("BINARY SCORE:\tVersion " + version + " can't be read, only version " + VERSION);
+        }
+        String title = input.readString();
+        int kind = input.readByte();
+        long resolution = input.readUnsigned();
+        boolean adaptive = input.readByte() != 0;
+        input.setResolution(input.readUnsigned());
+
+        Timebase timebase = adaptive ? Timebase.adaptive()
+                : resolution == Timebase.RATIONAL ? Timebase.rational() : Timebase.of(resolution);
+        switch (kind) {
+            case ENSEMBLE: return new Ensemble(title, timebase);
+            case LEAD_SHEET: return new LeadSheet(title, timebase);
+            case CHORALE: return new Chorale(title, timebase);
+            default: throw new Error("BINARY SCORE:\tUnknown kind of score " + kind);
+        }
+    }
+
+    private static void readControls(Score score, Input input) throws IOException {
+        long time = Time.of(Measure.ONE).toRational();
+        for (int i = input.readInt(); i > 0; i--) {
+            time = Rational.plus(time, input.readDelta());
+            score.add(Tempo.of(input.readInt()), Time.ofRational(time));
+        }
+        int measure = Measure.ONE.getNumber();
+        for (int i = input.readInt(); i > 0; i--) {
+            measure += (int) input.readSigned();
+            int num = input.readInt();
+            score.add(TimeSig.of(num, input.readInt()), Measure.of(measure));
+        }
+    }
+
+    // An ensemble's lines are made as they're read; any other score already has its own, which must match, instruments
+    // and all- a lead sheet's or a chorale's lines are made with theirs, which can't be changed after
+    private static void readParts(Score score, Input input) throws IOException {
+        int partCount = input.readInt();
+        List<Part<?>> parts = new ArrayList<>();
+        for (Part<?> part : score.getParts()) parts.add(part);
+        if (!(score instanceof Ensemble) && parts.size() != partCount) {
+            throw new Error("BINARY SCORE:\tExpected " + parts.size() + " parts, but found " + partCount);
+        }
+        for (int p = 0; p < partCount; p++) {
+            Instrument instrument = Instrument.of(input.readString());
+            if (score instanceof Ensemble) {
+                Line<ISound> line = ((Ensemble) score).addLine(instrument);
+                readNotes(line, input);
+                readLanes(line, input);
+                continue;
+            }
+            Part<?> part = parts.get(p);
+            if (part.getInstrument() != instrument) {
+                throw new Error("BINARY SCORE:\tPart " + p + " of a " + score.getClass().getSimpleName() + " plays "
+                        + part.getInstrument().getName() + ", but the file gives it " + instrument.getName());
+            }
+            @SuppressWarnings("unchecked")
+            Line<ISound> line = (Line<ISound>) part;
+            readNotes(line, input);
+            readLanes(line, input);
+        }
+    }
+
+    private static void readNotes(Line<ISound> line, Input input) throws IOException {
+        for (int i = input.readInt(); i > 0; i--) {
+            long rest = input.readDelta();
+            long length = input.readDelta();
+            if (Rational.signum(rest) > 0) {
+                line.add(Duration.ofRational(rest));
+            }
+            int header = input.readByte();
+            ISound sound;
+            switch (header & SOUND_KIND_MASK) {
+                case ScoreStore.PITCH: sound = Pitch.get(input.readInt()); break;
+                case ScoreStore.CHORD: sound = Chord.get(input.readInt()); break;
+                case ScoreStore.NOISE: sound = Noise.of(input.readString()); break;
+                default: throw new Error("BINARY SCORE:\tUnknown sound in note header " + header);
+            }
+            line.add(sound, Duration.ofRational(length));
+            Note<ISound> note = line.getNotes().getLast();
+            if ((header & HAS_DYNAMIC) != 0) note.set(Dynamic.of(input.readInt()));
+            if ((header & HAS_TECHNIQUE) != 0) note.set(Technique.of(input.readString()));
+            if ((header & HAS_ACCENT) != 0) note.set(Accent.of(input.readString()));
+        }
+    }
+
+    // A lane's times are read into a column of their own, to be paired up with the values which follow them
+    private static void readLanes(Part<?> part, Input input) throws IOException {
+        for (int l = input.readInt(); l > 0; l--) {
+            ControllerLane lane = part.getLane(input.readInt());
+            long[] times = new long[input.readInt()];
+            long time = Time.of(Measure.ONE).toRational();
+            for (int row = 0; row < times.length; row++) {
+                time = Rational.plus(time, input.readDelta());
+                times[row] = time;
+            }
+            for (long change : times) {
+                lane.add(change, input.readInt());
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package util.io;
+
+import form.events.Note;
+import form.events.TempoChange;
+import form.events.TimeSigChange;
+import form.passage.Chorale;
+import form.passage.ControllerLane;
+import form.passage.LeadSheet;
+import form.passage.Part;
+import form.passage.Score;
+import form.time.Measure;
+import form.time.Time;
+import form.time.Timebase;
+import org.jetbrains.annotations.NotNull;
+import sound.attributes.Accent;
+import sound.attributes.Dynamic;
+import sound.attributes.Technique;
+import sound.pitched.Chord;
+import sound.pitched.Pitch;
+import sound.unpitched.Noise;
+import util.fraction.Rational;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static util.io.BinaryScoreFormat.*;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * Writes a {@link Score} in the compact {@code .mxmb} format described in {@link BinaryScoreFormat}: its title,
+ * timebase, tempo and time signature changes, and every note of every part, with its dynamic, technique and accent,
+ * and every change of its controller lanes.
+ * The score is walked twice, once to find the resolution its times are written at and once to write them, and goes
+ * out through a fixed size buffer, so writing holds nothing more than the score itself does.</p>
+ *
+ * <p> Sounds may be pitches, chords or noises. Only the notes a part gives from {@link Part#getNotes()} are written.
+ * </p>
+ *
+ * @author Patrick Celentano
+ */
+public final class BinaryScoreWriter implements IFileWriter<Score> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    public static final String EXTENSION = ".mxmb";
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    @Override
+    public void write(@NotNull Score score, @NotNull String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(score, channel);
+        } catch (IOException e) {
+            throw new Error("BINARY SCORE:\tCould not write " + filename, e);
+        }
+    }
+
+    /**
+     * Writes a score to a channel, which is left open.
+     * @param score the score to write
+     * @param channel the channel to write to
+     */
+    public void write(@NotNull Score score, @NotNull WritableByteChannel channel) {
+        try {
+            Output output = new Output(channel, resolutionOf(score));
+            writeHeader(score, output);
+            writeControls(score, output);
+            output.writeUnsigned(score.getParts().size());
+            for (Part<?> part : score.getParts()) {
+                writePart(part, output);
+            }
+            output.flush();
+        } catch (IOException e) {
+            throw new Error("BINARY SCORE:\tCould not write " + score.getTitle(), e);
+        }
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private static void writeHeader(Score score, Output output) throws IOException {
+        Timebase timebase = score.getTimebase();
+        output.writeBytes(MAGIC);
+        output.writeUnsigned(VERSION);
+        output.writeString(score.getTitle());
+        output.writeByte(score instanceof LeadSheet ? LEAD_SHEET : score instanceof Chorale ? CHORALE : ENSEMBLE);
+        output.writeUnsigned(timebase.getResolution());
+        output.writeByte(timebase.isAdaptive() ? 1 : 0);
+        output.writeUnsigned(output.getResolution());
+    }
+
+    private static void writeControls(Score score, Output output) throws IOException {
+        output.writeUnsigned(score.getTempoChanges().stream().count());
+        long previous = Time.of(Measure.ONE).toRational();
+        for (TempoChange tempo : score.getTempoChanges()) {
+            long time = tempo.getTime().toRational();
+            output.writeDelta(Rational.minus(time, previous));
+            output.writeUnsigned(tempo.getTempo().getBPM());
+            previous = time;
+        }
+
+        output.writeUnsigned(score.getTimeSigChanges().stream().count());
+        int measure = Measure.ONE.getNumber();
+        for (TimeSigChange timeSig : score.getTimeSigChanges()) {
+            int next = timeSig.getTime().getMeasure().getNumber();
+            output.writeSigned(next - measure);
+            output.writeUnsigned(timeSig.getTimeSig().getNumerator());
+            output.writeUnsigned(timeSig.getTimeSig().getDenominator());
+            measure = next;
+        }
+    }
+
+    private static void writePart(Part<?> part, Output output) throws IOException {
+        output.writeString(part.getInstrument().getName());
+        output.writeUnsigned(part.getNotes().stream().count());
+        long previous = Time.of(Measure.ONE).toRational();
+        for (Note<?> note : part.getNotes()) {
+            long start = note.getStart().toRational();
+            long end = note.getEnd().toRational();
+            if (Rational.compare(start, previous) < 0) {
+                throw new Error("BINARY SCORE:\tCannot write a note at " + note.getStart()
+                        + ", which overlaps the one before it.");
+            }
+            output.writeDelta(Rational.minus(start, previous));
+            output.writeDelta(Rational.minus(end, start));
+
+            Object sound = note.getSound();
+            Dynamic dynamic = note.getDynamic();
+            Technique technique = note.getTechnique();
+            Accent accent = note.getAccent();
+            int kind = sound instanceof Pitch ? ScoreStore.PITCH : sound instanceof Chord ? ScoreStore.CHORD
+                    : sound instanceof Noise ? ScoreStore.NOISE : 0;
+            if (kind == 0) {
+                throw new Error("BINARY SCORE:\tCannot write a sound of type " + sound.getClass());
+            }
+            output.writeByte(kind | (dynamic != null ? HAS_DYNAMIC : 0) | (technique != null ? HAS_TECHNIQUE : 0)
+                    | (accent != null ? HAS_ACCENT : 0));
+            if (sound instanceof Pitch) output.writeUnsigned(((Pitch) sound).getValue());
+            else if (sound instanceof Chord) output.writeUnsigned(((Chord) sound).getValue());
+            else output.writeString(((Noise) sound).getName());
+            if (dynamic != null) output.writeUnsigned(dynamic.getValue());
+            if (technique != null) output.writeString(technique.getName());
+            if (accent != null) output.writeString(accent.getName());
+            previous = end;
+        }
+        writeLanes(part, output);
+    }
+
+    // The times of a lane first, then its values, so that a sweep of small steps packs as tightly as it can
+    private static void writeLanes(Part<?> part, Output output) throws IOException {
+        List<ControllerLane> lanes = part.getLanes();
+        output.writeUnsigned(lanes.size());
+        for (ControllerLane lane : lanes) {
+            output.writeUnsigned(lane.getController());
+            output.writeUnsigned(lane.size());
+            long previous = Time.of(Measure.ONE).toRational();
+            for (int row = 0; row < lane.size(); row++) {
+                output.writeDelta(Rational.minus(lane.getTime(row), previous));
+                previous = lane.getTime(row);
+            }
+            for (int row = 0; row < lane.size(); row++) {
+                output.writeUnsigned(lane.getValue(row));
+            }
+        }
+    }
+
+    // The least common multiple of every denominator in the score, or 0 if that's too fine to tick at
+    private static long resolutionOf(Score score) {
+        long resolution = 1;
+        for (TempoChange tempo : score.getTempoChanges()) {
+            resolution = lcm(resolution, tempo.getTime().toRational());
+        }
+        for (Part<?> part : score.getParts()) {
+            for (Note<?> note : part.getNotes()) {
+                resolution = lcm(resolution, note.getStart().toRational());
+                resolution = lcm(resolution, note.getEnd().toRational());
+            }
+            for (ControllerLane lane : part.getLanes()) {
+                for (int row = 0; row < lane.size(); row++) {
+                    resolution = lcm(resolution, lane.getTime(row));
+                }
+            }
+        }
+        return resolution;
+    }
+
+    private static long lcm(long resolution, long time) {
+        if (resolution == 0) return 0;
+        long lcm = Rational.lcm(resolution, Rational.denominator(time));
+        return lcm > Timebase.MAX_RESOLUTION ? 0 : lcm;
+    }
+}
@@ -0,0 +1,79 @@
+package util.io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * Runs the batch reads and writes of {@link IFileReader} and {@link IFileWriter}: one task per file on an executor,
+ * with results handed back in the order the files were given.</p>
+ *
+ * <p> At most a given number of files are ever in flight- being read or written, or done and waiting for the files
+ * before them- so a batch over thousands of files never holds more than that many results at once. Once the window
+ * is full, no file is started until the oldest one has been handed back. Whatever a file throws is caught into its
+ * result, except a {@link VirtualMachineError}, which stops the batch.</p>
+ *
+ * @author Patrick Celentano
+ */
+abstract class FileBatch {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    // Enough files in flight to keep every thread busy while one slow file holds up the head of the window
+    static final int DEFAULT_IN_FLIGHT = 4 * ForkJoinPool.getCommonPoolParallelism();
+
+    static final Executor DEFAULT_EXECUTOR = ForkJoinPool.commonPool();
+
+    //////////////////////////////
+    // Static methods           //
+    //////////////////////////////
+
+    static <I, O> void run(@NotNull List<I> inputs, @NotNull Function<I, String> filename,
+                           @NotNull Function<I, O> task, @NotNull Executor executor, int maxInFlight,
+                           @NotNull Consumer<? super FileResult<O>> consumer) {
+        if (maxInFlight < 1) throw new Error("FILE BATCH:\tCannot keep " + maxInFlight + " files in flight.");
+        ArrayDeque<CompletableFuture<FileResult<O>>> window = new ArrayDeque<>(Math.min(maxInFlight, inputs.size()));
+        Iterator<I> iterator = inputs.iterator();
+        while (iterator.hasNext() || !window.isEmpty()) {
+            while (iterator.hasNext() && window.size() < maxInFlight) {
+                I input = iterator.next();
+                window.add(CompletableFuture.supplyAsync(() -> attempt(filename.apply(input), input, task), executor));
+            }
+            consumer.accept(join(window.poll()));
+        }
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private static <I, O> FileResult<O> attempt(String filename, I input, Function<I, O> task) {
+        try {
+            return new FileResult<>(filename, task.apply(input), null);
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Throwable e) {
+            return new FileResult<>(filename, null, e);
+        }
+    }
+
+    private static <O> FileResult<O> join(CompletableFuture<FileResult<O>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof VirtualMachineError) throw (VirtualMachineError) e.getCause();
+            throw e;
+        }
+    }
+}
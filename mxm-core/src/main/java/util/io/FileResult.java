@@ -0,0 +1,69 @@
+package util.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * What became of one file in a batch read or write: the file's name, and either what was read from or written to it
+ * or what went wrong. A batch gives one of these per file, in the order the files were given, so that one bad file
+ * among thousands neither aborts the rest nor is lost.</p>
+ *
+ * @param <T> the type read or written
+ * @author Patrick Celentano
+ */
+public final class FileResult<T> {
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final String filename;
+    private final T value;
+    private final Throwable error;
+
+    //////////////////////////////
+    // Constructors             //
+    //////////////////////////////
+
+    // Package private on purpose- only a batch makes these
+    FileResult(@NotNull String filename, @Nullable T value, @Nullable Throwable error) {
+        this.filename = filename;
+        this.value = value;
+        this.error = error;
+    }
+
+    //////////////////////////////
+    // Getters                  //
+    //////////////////////////////
+
+    public @NotNull String getFilename() {
+        return filename;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Returns what went wrong with this file, if anything did.
+     * @return the error, or null if the file was read or written
+     */
+    public @Nullable Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Returns what was read from or written to this file, throwing what went wrong instead if anything did.
+     * @return the value
+     */
+    public T get() {
+        if (error != null) throw new Error("FILE RESULT:\t" + filename + " failed: " + error.getMessage(), error);
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return filename + (error == null ? "" : " (" + error + ")");
+    }
+}
@@ -2,21 +2,70 @@ package util.io;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * IFileReader is a public interface for any class that takes a file as input and outputs a form. This means that there
  * may be MIDI readers, util.io.Log readers, LilyPond readers, MusicXML readers, ABC readers, and so on. Sound that the different
  * sound of passages will have different readers- a RealBookReader, a ScoreReader, a LineReader, etc.
+ *
+ * The batch reads call {@link #read(String)} from many threads at once, so a reader must not keep any state between
+ * files.
  */
 public interface IFileReader<T> {
 
     public T read(String filename);
 
+    /**
+     * Reads every file in parallel, and returns what was read in the order the files were given, throwing the first
+     * file's error if any failed once all of them have been tried.
+     * @param filenames the files to read
+     * @return what was read from each file
+     */
     public default Collection<T> read(Collection<String> filenames) {
-        ArrayList<T> toReturn = new ArrayList<>();
-        for(String filename : filenames) {
-            toReturn.add(read(filename));
+        ArrayList<T> toReturn = new ArrayList<>(filenames.size());
+        for(FileResult<T> result : readAll(filenames)) {
+            toReturn.add(result.get());
         }
         return toReturn;
     }
+
+    /**
+     * Reads every file in parallel on the common fork join pool, a few files per thread in flight at once.
+     * @param filenames the files to read
+     * @return what became of each file, in the order they were given
+     */
+    public default List<FileResult<T>> readAll(Collection<String> filenames) {
+        return readAll(filenames, FileBatch.DEFAULT_EXECUTOR, FileBatch.DEFAULT_IN_FLIGHT);
+    }
+
+    /**
+     * Reads every file in parallel on the given executor.
+     * @param filenames the files to read
+     * @param executor the executor to read on
+     * @param maxInFlight the most files being read or waiting to be returned at once
+     * @return what became of each file, in the order they were given
+     */
+    public default List<FileResult<T>> readAll(Collection<String> filenames, Executor executor, int maxInFlight) {
+        List<FileResult<T>> toReturn = new ArrayList<>(filenames.size());
+        readAll(filenames, executor, maxInFlight, toReturn::add);
+        return toReturn;
+    }
+
+    /**
+     * Reads every file in parallel on the given executor, handing each result to a consumer on the calling thread in
+     * the order the files were given. Only a window of files is held at once, so a consumer that doesn't keep what
+     * it's given can stream through any number of files in bounded memory.
+     * @param filenames the files to read
+     * @param executor the executor to read on
+     * @param maxInFlight the most files being read or waiting to be consumed at once
+     * @param consumer what to do with each file's result
+     */
+    public default void readAll(Collection<String> filenames, Executor executor, int maxInFlight,
+                                Consumer<? super FileResult<T>> consumer) {
+        FileBatch.run(new ArrayList<>(filenames), Function.identity(), this::read, executor, maxInFlight, consumer);
+    }
 }
@@ -1,29 +1,66 @@
 package util.io;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * IFileWriter is a public interface for any class that takes a form as input and outputs a file. This means that there
  * may be MIDI writers, util.io.Log writers, LilyPond writers, MusicXML writers, ABC writers, and so on.
+ *
+ * The batch writes call {@link #write(Object, String)} from many threads at once, so a writer must not keep any state
+ * between files.
  */
 public interface IFileWriter<T> {
 
     void write(T type, String filename);
 
+    /**
+     * Writes each form in parallel to the filename followed by an underscore and its index, throwing the first
+     * form's error if any failed once all of them have been tried.
+     * @param types the forms to write
+     * @param filename the filename to number
+     */
     default void write(Collection<T> types, String filename) {
+        for(FileResult<T> result : writeAll(types, filename)) {
+            result.get();
+        }
+    }
+
+    /**
+     * Writes each form in parallel on the common fork join pool to the filename followed by an underscore and its
+     * index, a few forms per thread in flight at once.
+     * @param types the forms to write
+     * @param filename the filename to number
+     * @return what became of each form, in the order they were given
+     */
+    default List<FileResult<T>> writeAll(Collection<T> types, String filename) {
+        List<Map.Entry<T, String>> files = new ArrayList<>(types.size());
         int index = 0;
         for(T type : types) {
-            write(type,filename + "_" + index++);
+            files.add(new AbstractMap.SimpleImmutableEntry<>(type, filename + "_" + index++));
         }
+        return writeAll(files, FileBatch.DEFAULT_EXECUTOR, FileBatch.DEFAULT_IN_FLIGHT);
+    }
 
-        /*
-        Set<Server> servers = getServers();
-        Map<String, String> serverData = new ConcurrentHashMap<>();
-
-        servers.parallelStream().forEach((server) -> {
-            serverData.put(server.getIdentifier(), server.fetchData());
-        });
-        */
+    /**
+     * Writes each form to its own file in parallel on the given executor.
+     * @param files each form and the file to write it to
+     * @param executor the executor to write on
+     * @param maxInFlight the most forms being written or waiting to be returned at once
+     * @return what became of each form, in the order they were given
+     */
+    default List<FileResult<T>> writeAll(Collection<? extends Map.Entry<T, String>> files, Executor executor,
+                                         int maxInFlight) {
+        List<FileResult<T>> toReturn = new ArrayList<>(files.size());
+        FileBatch.<Map.Entry<T, String>, T>run(new ArrayList<>(files), Map.Entry::getValue, file -> {
+            write(file.getKey(), file.getValue());
+            return file.getKey();
+        }, executor, maxInFlight, toReturn::add);
+        return toReturn;
     }
 
 }
@@ -0,0 +1,171 @@
+package util.io;
+
+import form.events.Note;
+import form.passage.ControllerLane;
+import form.passage.Part;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import sound.ISound;
+import sound.attributes.Accent;
+import sound.attributes.Dynamic;
+import sound.attributes.Instrument;
+import sound.attributes.Technique;
+import sound.pitched.Chord;
+import sound.pitched.Pitch;
+import sound.unpitched.Noise;
+import util.timeline.IndexedTimeline;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static util.io.ScoreStore.*;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * One part of a {@link MappedScore}, whose notes are read from its columns in the mapped block as they're looked up.
+ * Like the {@link form.passage.Line} it was written from, its notes never overlap, so finding what's sounding at a
+ * time, or during a span, takes one binary search of its starts. Its controller lanes are read onto the heap whole,
+ * the first time any lane is asked for.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class MappedLine extends Part<ISound> {
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final NoteTimeline notes;
+    private final ByteBuffer buffer;
+    private final int laneCount;
+    private final int lanes;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    // Package private on purpose- only a mapped score knows where its parts' entries are
+    MappedLine(@NotNull MappedScore score, @NotNull String[] strings, @NotNull ByteBuffer buffer, int entry) {
+        super(score, Instrument.of(strings[buffer.getInt(entry + PART_INSTRUMENT)]));
+        this.notes = new NoteTimeline(this, strings, buffer, buffer.getInt(entry + PART_NOTE_COUNT),
+                (int) buffer.getLong(entry + PART_NOTES));
+        this.buffer = buffer;
+        this.laneCount = buffer.getInt(entry + PART_LANE_COUNT);
+        this.lanes = (int) buffer.getLong(entry + PART_LANES);
+    }
+
+    @Override
+    public @NotNull IndexedTimeline<Note<ISound>> getNotes() {
+        return notes;
+    }
+
+    @Override
+    public @NotNull List<Note<ISound>> getNotesAt(@NotNull Time time) {
+        Note<ISound> note = notes.getBefore(time);
+        if (note != null && note.getEnd().compareTo(time) > 0) {
+            return Collections.singletonList(note);
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public @NotNull List<Note<ISound>> getNotesDuring(@NotNull Time start, @NotNull Time end) {
+        List<Note<ISound>> during = new ArrayList<>();
+        int index = notes.rank(start.toRational(), true) - 1;
+        // Only the last note to start by the span's start may still be sounding when it starts
+        if (index < 0 || Time.ofRational(notes.endAt(index)).compareTo(start) <= 0) {
+            index++;
+        }
+        int fence = notes.rank(end.toRational(), false);
+        for (; index < fence; index++) {
+            during.add(notes.eventAt(index));
+        }
+        return during;
+    }
+
+    // Two columns per lane, one after the other: times, values
+    @Override
+    protected @NotNull List<ControllerLane> readLanes() {
+        List<ControllerLane> toReturn = new ArrayList<>(laneCount);
+        for (int l = 0; l < laneCount; l++) {
+            int entry = lanes + LANE_SIZE * l;
+            ControllerLane lane = new ControllerLane(buffer.getInt(entry + LANE_CONTROLLER));
+            int count = buffer.getInt(entry + LANE_CHANGE_COUNT);
+            int times = (int) buffer.getLong(entry + LANE_CHANGES);
+            int values = times + 8 * count;
+            for (int i = 0; i < count; i++) {
+                lane.add(buffer.getLong(times + 8 * i), buffer.getInt(values + 4 * i));
+            }
+            toReturn.add(lane);
+        }
+        return toReturn;
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    // Six columns, one after the other: starts, ends, sounds, velocities, techniques, accents
+    private static final class NoteTimeline extends IndexedTimeline<Note<ISound>> {
+        private final MappedLine line;
+        private final String[] strings;
+        private final ByteBuffer buffer;
+        private final int size;
+        private final int starts;
+        private final int ends;
+        private final int sounds;
+        private final int velocities;
+        private final int techniques;
+        private final int accents;
+
+        private NoteTimeline(MappedLine line, String[] strings, ByteBuffer buffer, int size, int offset) {
+            this.line = line;
+            this.strings = strings;
+            this.buffer = buffer;
+            this.size = size;
+            this.starts = offset;
+            this.ends = starts + 8 * size;
+            this.sounds = ends + 8 * size;
+            this.velocities = sounds + 4 * size;
+            this.techniques = velocities + 4 * size;
+            this.accents = techniques + 4 * size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+        @Override
+        protected long keyAt(int index) {
+            return buffer.getLong(starts + 8 * index);
+        }
+        private long endAt(int index) {
+            return buffer.getLong(ends + 8 * index);
+        }
+        @Override
+        protected @NotNull Note<ISound> eventAt(int index) {
+            Note<ISound> note = new Note<>(line, soundAt(index), Time.ofRational(keyAt(index)),
+                    Time.ofRational(endAt(index)));
+            int velocity = buffer.getInt(velocities + 4 * index);
+            int technique = buffer.getInt(techniques + 4 * index);
+            int accent = buffer.getInt(accents + 4 * index);
+            if (velocity != NONE) note.set(Dynamic.of(velocity));
+            if (technique != NONE) note.set(Technique.of(strings[technique]));
+            if (accent != NONE) note.set(Accent.of(strings[accent]));
+            return note;
+        }
+
+        private ISound soundAt(int index) {
+            int code = buffer.getInt(sounds + 4 * index);
+            int value = code & SOUND_VALUE_MASK;
+            switch (code >>> SOUND_KIND_SHIFT) {
+                case PITCH: return Pitch.get(value);
+                case CHORD: return Chord.get(value);
+                case NOISE: return Noise.of(strings[value]);
+                default: throw new Error("SCORE STORE:\tUnknown sound code " + code);
+            }
+        }
+    }
+}
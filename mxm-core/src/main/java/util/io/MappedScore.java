@@ -0,0 +1,175 @@
+package util.io;
+
+import form.attributes.Tempo;
+import form.attributes.TimeSig;
+import form.events.Note;
+import form.events.TempoChange;
+import form.events.TimeSigChange;
+import form.passage.Part;
+import form.passage.Score;
+import form.time.Time;
+import form.time.Timebase;
+import org.jetbrains.annotations.NotNull;
+import util.timeline.IndexedTimeline;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static util.io.ScoreStore.*;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A score which lives in a memory-mapped block of a {@link ScoreStore}, and is decoded from it piece by piece as it's
+ * read. Building one decodes only its dictionary of strings and the entry of each part; its tempo and time signature
+ * timelines, and the notes of every part, binary search their columns in place and build an event only for what a
+ * lookup returns. Nothing built is kept, so two lookups of the same note return equal notes, but not the same one.</p>
+ *
+ * <p> A mapped score is read-only: adding a tempo or time signature change to it throws an Error. Setting a property
+ * of one of its notes changes only that note object, and is lost as soon as the note is dropped.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class MappedScore extends Score {
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final int noteCount;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    // Package private on purpose- only a store knows where a score's block is
+    MappedScore(@NotNull ByteBuffer buffer) {
+        this(buffer, readStrings(buffer));
+    }
+
+    private MappedScore(@NotNull ByteBuffer buffer, @NotNull String[] strings) {
+        super(strings[buffer.getInt(SCORE_TITLE)], readTimebase(buffer),
+                score -> new TimeSigTimeline(score, buffer),
+                score -> new TempoTimeline(score, buffer));
+        int partCount = buffer.getInt(SCORE_PART_COUNT);
+        int parts = (int) buffer.getLong(SCORE_PARTS);
+        int noteCount = 0;
+        for (int p = 0; p < partCount; p++) {
+            int entry = parts + PART_SIZE * p;
+            MappedLine line = new MappedLine(this, strings, buffer, entry);
+            add(line);
+            noteCount += line.getNotes().size();
+        }
+        this.noteCount = noteCount;
+    }
+
+    @Override
+    public int getNoteCount() {
+        return noteCount;
+    }
+
+    // Each line searches its own columns, and the answers are merged back into order of their start
+    @Override
+    public @NotNull List<Note<?>> getNotesAt(@NotNull Time time) {
+        List<Note<?>> notes = new ArrayList<>();
+        for (Part<?> part : getParts()) {
+            notes.addAll(part.getNotesAt(time));
+        }
+        notes.sort(Comparator.comparing(Note::getStart));
+        return notes;
+    }
+    @Override
+    public @NotNull List<Note<?>> getNotesDuring(@NotNull Time start, @NotNull Time end) {
+        List<Note<?>> notes = new ArrayList<>();
+        for (Part<?> part : getParts()) {
+            notes.addAll(part.getNotesDuring(start, end));
+        }
+        notes.sort(Comparator.comparing(Note::getStart));
+        return notes;
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] strings = new String[buffer.getInt(SCORE_STRING_COUNT)];
+        int position = (int) buffer.getLong(SCORE_STRINGS);
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt(position)];
+            for (int b = 0; b < bytes.length; b++) bytes[b] = buffer.get(position + 4 + b);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            position += 4 + bytes.length;
+        }
+        return strings;
+    }
+
+    // A stored score can't grow, so whatever resolution it had when it was written is fixed from now on
+    private static Timebase readTimebase(ByteBuffer buffer) {
+        long resolution = buffer.getLong(SCORE_RESOLUTION);
+        return resolution == Timebase.RATIONAL ? Timebase.rational() : Timebase.of(resolution);
+    }
+
+    private static final class TempoTimeline extends IndexedTimeline<TempoChange> {
+        private final Score score;
+        private final ByteBuffer buffer;
+        private final int size;
+        private final int times;
+        private final int tempos;
+
+        private TempoTimeline(Score score, ByteBuffer buffer) {
+            this.score = score;
+            this.buffer = buffer;
+            this.size = buffer.getInt(SCORE_TEMPO_COUNT);
+            this.times = (int) buffer.getLong(SCORE_TEMPOS);
+            this.tempos = times + 8 * size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+        @Override
+        protected long keyAt(int index) {
+            return buffer.getLong(times + 8 * index);
+        }
+        @Override
+        protected @NotNull TempoChange eventAt(int index) {
+            return new TempoChange(score, Time.ofRational(keyAt(index)), Tempo.of(buffer.getInt(tempos + 4 * index)));
+        }
+    }
+
+    private static final class TimeSigTimeline extends IndexedTimeline<TimeSigChange> {
+        private final Score score;
+        private final ByteBuffer buffer;
+        private final int size;
+        private final int times;
+        private final int numerators;
+        private final int denominators;
+
+        private TimeSigTimeline(Score score, ByteBuffer buffer) {
+            this.score = score;
+            this.buffer = buffer;
+            this.size = buffer.getInt(SCORE_TIME_SIG_COUNT);
+            this.times = (int) buffer.getLong(SCORE_TIME_SIGS);
+            this.numerators = times + 8 * size;
+            this.denominators = numerators + 4 * size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+        @Override
+        protected long keyAt(int index) {
+            return buffer.getLong(times + 8 * index);
+        }
+        @Override
+        protected @NotNull TimeSigChange eventAt(int index) {
+            return new TimeSigChange(score, Time.ofRational(keyAt(index)).getMeasure(),
+                    TimeSig.of(buffer.getInt(numerators + 4 * index), buffer.getInt(denominators + 4 * index)));
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package util.io;
+
+import form.passage.Score;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A reader which remembers what another reader made of each file, on disk, so that a file it has seen before is
+ * mapped back in rather than parsed again. Each file is keyed by a SHA-256 hash of its contents and of the version of
+ * the parser, so a file which changes, or a parser which changes what it makes of files, is simply a miss. On a miss
+ * the parser reads the file, and the score it makes is stored in the cache's directory as a one-score
+ * {@link ScoreStore}; on a hit that store is opened, and its score handed back as a {@link MappedScore}, which reads
+ * its notes straight out of the mapped file as they're looked at.</p>
+ *
+ * <p> The cache holds at most a given number of bytes, throwing out the least recently used scores to make room. When
+ * it was last used is kept as each file's modification time, so the order survives from one run to the next; a cache
+ * opened on a directory picks up whatever is already in it. A hit hands back the score as it was first stored, title
+ * and all- two files with the same contents share one score. It hands back only what a {@link ScoreStore} keeps,
+ * notes, tempos, time signatures and controller lanes.</p>
+ *
+ * <p> A cache may be read from many threads at once, as the batch reads of {@link IFileReader} do, so long as the
+ * parser can be; several caches, or several processes, should not share a directory.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class ScoreCache implements IFileReader<Score> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    public static final String EXTENSION = ".mxms";
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final Path directory;
+    private final long maxBytes;
+    private final IFileReader<? extends Score> parser;
+    private final byte[] version;
+
+    // The size of every score in the cache, by its key, from the least recently used to the most
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Opens a cache on a directory, making it if it isn't there, and taking in whatever scores are already in it.
+     * @param directory the directory to keep scores in
+     * @param maxBytes the most bytes of scores to keep
+     * @param parser the reader to parse files with on a miss
+     * @param version the version of the parser, which should change whenever what it makes of a file does
+     */
+    public ScoreCache(@NotNull Path directory, long maxBytes, @NotNull IFileReader<? extends Score> parser,
+                      @NotNull String version) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.parser = parser;
+        this.version = version.getBytes(StandardCharsets.UTF_8);
+        try {
+            Files.createDirectories(directory);
+            Map<Path, FileTime> times = new HashMap<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+                for (Path file : stream) times.put(file, Files.getLastModifiedTime(file));
+            }
+            List<Path> files = new ArrayList<>(times.keySet());
+            files.sort(Comparator.comparing(times::get));
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long bytes = Files.size(file);
+                entries.put(name.substring(0, name.length() - EXTENSION.length()), bytes);
+                size += bytes;
+            }
+            evict();
+        } catch (IOException e) {
+            throw new Error("SCORE CACHE:\tCould not open " + directory, e);
+        }
+    }
+
+    @Override
+    public @NotNull Score read(@NotNull String filename) {
+        String key;
+        long sourceBytes;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            sourceBytes = channel.size();
+            key = keyOf(channel.map(FileChannel.MapMode.READ_ONLY, 0, sourceBytes));
+        } catch (IOException e) {
+            throw new Error("SCORE CACHE:\tCould not read " + filename, e);
+        }
+
+        Path path = directory.resolve(key + EXTENSION);
+        if (touch(key, path)) {
+            try (ScoreStore store = ScoreStore.open(path)) {
+                Score score = store.get(0);
+                hits.increment();
+                bytesSaved.add(sourceBytes);
+                return score;
+            } catch (VirtualMachineError e) {
+                throw e;
+            } catch (Error e) {
+                // Whatever was stored can't be read back, so it's dropped and the file parsed again
+                remove(key, path);
+            }
+        }
+
+        misses.increment();
+        Score score = parser.read(filename);
+        try {
+            Path temporary = Files.createTempFile(directory, key, ".tmp");
+            try {
+                ScoreStore.write(Collections.singletonList(score), temporary);
+                long bytes = Files.size(temporary);
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                add(key, bytes);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new Error("SCORE CACHE:\tCould not store " + filename, e);
+        }
+        return score;
+    }
+
+    // PUBLIC GETTERS
+    public @NotNull Path getDirectory() {
+        return directory;
+    }
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    public synchronized long getSize() {
+        return size;
+    }
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+    public long getHits() {
+        return hits.sum();
+    }
+    public long getMisses() {
+        return misses.sum();
+    }
+    /** The bytes of every file found in the cache, which didn't need parsing */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * The fraction of reads which found their file in the cache.
+     * @return a hit rate between 0 and 1, or 0 if nothing has been read yet
+     */
+    public double getHitRate() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0 : (double) getHits() / total;
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        bytesSaved.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "hits " + getHits() + ", misses " + getMisses() + ", bytes saved " + getBytesSaved() + ", evictions "
+                + getEvictions() + ", hit rate " + getHitRate() + ", " + getEntryCount() + " scores in "
+                + getSize() + " bytes";
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    // The hash of the parser's version and the file's contents, in hexadecimal
+    private String keyOf(ByteBuffer contents) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error("SCORE CACHE:\tSHA-256 isn't available.", e);
+        }
+        digest.update(version);
+        digest.update((byte) 0);
+        digest.update(contents);
+        StringBuilder key = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    // Marks a score as just used, if the cache has it
+    private synchronized boolean touch(String key, Path path) {
+        if (entries.get(key) == null) return false;
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // The order only matters to the next run, which will find the file missing if it's really gone
+        }
+        return true;
+    }
+
+    private synchronized void add(String key, long bytes) {
+        Long previous = entries.put(key, bytes);
+        size += bytes - (previous != null ? previous : 0);
+        evict();
+    }
+
+    private synchronized void remove(String key, Path path) {
+        Long bytes = entries.remove(key);
+        if (bytes != null) size -= bytes;
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new Error("SCORE CACHE:\tCould not remove " + path, e);
+        }
+    }
+
+    // Throws out the least recently used scores until the rest fit
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            try {
+                Files.deleteIfExists(directory.resolve(eldest.getKey() + EXTENSION));
+            } catch (IOException e) {
+                throw new Error("SCORE CACHE:\tCould not evict " + eldest.getKey(), e);
+            }
+            size -= eldest.getValue();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package util.io;
+
+import form.events.Note;
+import form.events.TempoChange;
+import form.events.TimeSigChange;
+import form.passage.ControllerLane;
+import form.passage.Part;
+import form.passage.Score;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import sound.attributes.Accent;
+import sound.attributes.Dynamic;
+import sound.attributes.Technique;
+import sound.pitched.Chord;
+import sound.pitched.Pitch;
+import sound.unpitched.Noise;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A file of many scores, laid out so that it can be memory-mapped and read where it lies. Opening a store reads only
+ * its header; asking for a score maps that score's block of the file and hands back a {@link MappedScore}, which
+ * decodes a note, a tempo or a time signature only when it's looked up. Scores which aren't being looked at cost
+ * nothing on the heap, so a corpus far larger than the heap can be opened whole and visited at random.</p>
+ *
+ * <p> Everything is little-endian, and every table is aligned to 8 bytes. A file starts with the magic number
+ * {@code MXMS}, the version, the number of scores, and then the offset of every score's block plus the end of the
+ * last one. Each score block holds, in order: a fixed header of counts and offsets; a dictionary of every string the
+ * score uses (its title, instrument names, noise names, techniques and accents), each as a length and UTF-8 bytes;
+ * the tempo table, as a column of times and a column of beats per minute; the time signature table, as a column of
+ * times, of numerators and of denominators; a 32 byte entry per part, of its instrument, its note count, the offset
+ * of its notes, its lane count and the offset of its lanes; and for each part, its notes, as a column of starts, of
+ * ends, of sounds, of velocities, of techniques and of accents, then a 16 byte entry per controller lane, of its
+ * controller, its change count and the offset of its changes, then each lane's changes, as a column of times and a
+ * column of values. Times are packed rationals, in measures. Anything a note lacks is stored as -1.</p>
+ *
+ * <p> Each score is mapped on its own, so one score's block may be at most 2GB; the file as a whole has no limit.
+ * Sounds may be pitches, chords or noises. Only the notes a part gives from {@link Part#getNotes()} are stored, so a
+ * part which doesn't keep its notes one after the other is stored empty of notes, though not of lanes.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class ScoreStore implements Closeable {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    static final int MAGIC = 0x534D584D; // "MXMS", little-endian
+    static final int VERSION = 2;
+    static final int NONE = -1;
+
+    // The file header
+    private static final int HEADER_COUNT = 8;
+    private static final int HEADER_OFFSETS = 16;
+
+    // The fixed header of a score block, relative to its start
+    static final int SCORE_RESOLUTION = 0;
+    static final int SCORE_TITLE = 8;
+    static final int SCORE_STRING_COUNT = 12;
+    static final int SCORE_TEMPO_COUNT = 16;
+    static final int SCORE_TIME_SIG_COUNT = 20;
+    static final int SCORE_PART_COUNT = 24;
+    static final int SCORE_STRINGS = 32;
+    static final int SCORE_TEMPOS = 40;
+    static final int SCORE_TIME_SIGS = 48;
+    static final int SCORE_PARTS = 56;
+    private static final int SCORE_HEADER_SIZE = 64;
+
+    // Each part's entry in the part table
+    static final int PART_INSTRUMENT = 0;
+    static final int PART_NOTE_COUNT = 4;
+    static final int PART_NOTES = 8;
+    static final int PART_LANE_COUNT = 16;
+    static final int PART_LANES = 24;
+    static final int PART_SIZE = 32;
+
+    // Each lane's entry in a part's lane table
+    static final int LANE_CONTROLLER = 0;
+    static final int LANE_CHANGE_COUNT = 4;
+    static final int LANE_CHANGES = 8;
+    static final int LANE_SIZE = 16;
+
+    /** The bytes each note takes up across every column */
+    static final int NOTE_SIZE = 8 + 8 + 4 + 4 + 4 + 4;
+    /** The bytes each controller change takes up across both columns */
+    static final int CHANGE_SIZE = 8 + 4;
+
+    // The kind of a sound is kept in the top byte of its code, and what identifies it within its kind in the rest
+    static final int SOUND_KIND_SHIFT = 24;
+    static final int SOUND_VALUE_MASK = (1 << SOUND_KIND_SHIFT) - 1;
+    static final int PITCH = 1;
+    static final int CHORD = 2;
+    static final int NOISE = 3;
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final FileChannel channel;
+    private final long[] offsets;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    private ScoreStore(@NotNull FileChannel channel, @NotNull long[] offsets) {
+        this.channel = channel;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Opens a store for reading, reading only its header. The file stays open until the store is closed.
+     * @param path the file to open
+     * @return the store
+     */
+    public static @NotNull ScoreStore open(@NotNull Path path) {
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            ByteBuffer header = read(channel, 0, HEADER_OFFSETS);
+            if (header.getInt(0) != MAGIC) {
+                throw new Error("SCORE STORE:\t" + path + " is not a score store.");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new Error("SCORE STORE:\t" + path + " has version " + header.getInt(4) + ", but only version "
+                        + VERSION + " can be read.");
+            }
+            int count = header.getInt(HEADER_COUNT);
+            ByteBuffer table = read(channel, HEADER_OFFSETS, 8 * (count + 1));
+            long[] offsets = new long[count + 1];
+            for (int i = 0; i <= count; i++) {
+                offsets[i] = table.getLong(8 * i);
+            }
+            return new ScoreStore(channel, offsets);
+        } catch (IOException e) {
+            throw new Error("SCORE STORE:\tCould not open " + path, e);
+        }
+    }
+
+    /**
+     * Writes scores to a new store, replacing whatever file was there. Each score is laid out in memory and then
+     * written out before the next one is looked at, so writing holds only one score's block at a time.
+     * @param scores the scores to store, in the order they'll be numbered
+     * @param path the file to write
+     */
+    public static void write(@NotNull Collection<? extends Score> scores, @NotNull Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long[] offsets = new long[scores.size() + 1];
+            long position = align(HEADER_OFFSETS + 8L * offsets.length);
+            int index = 0;
+            for (Score score : scores) {
+                offsets[index++] = position;
+                ByteBuffer block = new ScoreBlock(score).encode();
+                position += write(channel, block, position);
+            }
+            offsets[index] = position;
+
+            ByteBuffer header = allocate(HEADER_OFFSETS + 8 * offsets.length);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(HEADER_COUNT, scores.size());
+            for (int i = 0; i < offsets.length; i++) {
+                header.putLong(HEADER_OFFSETS + 8 * i, offsets[i]);
+            }
+            write(channel, header, 0);
+        } catch (IOException e) {
+            throw new Error("SCORE STORE:\tCould not write " + path, e);
+        }
+    }
+
+    // PUBLIC GETTERS
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Maps one score of this store. Nothing but its dictionary of strings is read until it's looked at, and two
+     * calls for the same score map it twice- hold on to the score rather than asking again.
+     * @param index the number of the score, in the order they were written
+     * @return the score, which can be read but not written to
+     */
+    public @NotNull MappedScore get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new Error("SCORE STORE:\tScore " + index + " out of range.");
+        }
+        long length = offsets[index + 1] - offsets[index];
+        if (length > Integer.MAX_VALUE) {
+            throw new Error("SCORE STORE:\tScore " + index + " is larger than 2GB, and can't be mapped.");
+        }
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offsets[index], length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new MappedScore(buffer);
+        } catch (IOException e) {
+            throw new Error("SCORE STORE:\tCould not map score " + index, e);
+        }
+    }
+
+    /**
+     * Closes the file. Scores already mapped can still be read, for as long as they're reachable.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new Error("SCORE STORE:\tCould not close the store", e);
+        }
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static int align(int position) {
+        return (position + 7) & ~7;
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer;
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int size = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + size - buffer.remaining());
+        }
+        return size;
+    }
+
+    // One score, gathered up and measured so that it can be laid out in a buffer of exactly the right size
+    private static final class ScoreBlock {
+        private final Score score;
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final List<TempoChange> tempos = new ArrayList<>();
+        private final List<TimeSigChange> timeSigs = new ArrayList<>();
+        private final List<Part<?>> parts = new ArrayList<>();
+        private final List<List<Note<?>>> notes = new ArrayList<>();
+        private final List<List<ControllerLane>> lanes = new ArrayList<>();
+
+        private ScoreBlock(@NotNull Score score) {
+            this.score = score;
+            indexOf(score.getTitle());
+            for (TempoChange tempo : score.getTempoChanges()) tempos.add(tempo);
+            for (TimeSigChange timeSig : score.getTimeSigChanges()) timeSigs.add(timeSig);
+            for (Part<?> part : score.getParts()) {
+                indexOf(part.getInstrument().getName());
+                List<Note<?>> partNotes = new ArrayList<>();
+                for (Note<?> note : part.getNotes()) {
+                    partNotes.add(note);
+                    if (note.getSound() instanceof Noise) indexOf(((Noise) note.getSound()).getName());
+                    if (note.getTechnique() != null) indexOf(note.getTechnique().getName());
+                    if (note.getAccent() != null) indexOf(note.getAccent().getName());
+                }
+                parts.add(part);
+                notes.add(partNotes);
+                lanes.add(part.getLanes());
+            }
+        }
+
+        private @NotNull ByteBuffer encode() {
+            List<byte[]> encoded = new ArrayList<>(strings.size());
+            int stringsSize = 0;
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                stringsSize += 4 + bytes.length;
+            }
+            int stringsOffset = SCORE_HEADER_SIZE;
+            int temposOffset = align(stringsOffset + stringsSize);
+            int timeSigsOffset = align(temposOffset + tempos.size() * (8 + 4));
+            int partsOffset = align(timeSigsOffset + timeSigs.size() * (8 + 4 + 4));
+            int notesOffset = align(partsOffset + parts.size() * PART_SIZE);
+            long size = notesOffset;
+            for (int p = 0; p < parts.size(); p++) {
+                size = align(size + (long) notes.get(p).size() * NOTE_SIZE);
+                size += (long) lanes.get(p).size() * LANE_SIZE;
+                for (ControllerLane lane : lanes.get(p)) size = align(size + (long) lane.size() * CHANGE_SIZE);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new Error("SCORE STORE:\t" + score.getTitle() + " is larger than 2GB, and can't be stored.");
+            }
+
+            ByteBuffer buffer = allocate((int) size);
+            buffer.putLong(SCORE_RESOLUTION, score.getTimebase().getResolution());
+            buffer.putInt(SCORE_TITLE, indexOf(score.getTitle()));
+            buffer.putInt(SCORE_STRING_COUNT, strings.size());
+            buffer.putInt(SCORE_TEMPO_COUNT, tempos.size());
+            buffer.putInt(SCORE_TIME_SIG_COUNT, timeSigs.size());
+            buffer.putInt(SCORE_PART_COUNT, parts.size());
+            buffer.putLong(SCORE_STRINGS, stringsOffset);
+            buffer.putLong(SCORE_TEMPOS, temposOffset);
+            buffer.putLong(SCORE_TIME_SIGS, timeSigsOffset);
+            buffer.putLong(SCORE_PARTS, partsOffset);
+
+            int position = stringsOffset;
+            for (byte[] bytes : encoded) {
+                buffer.putInt(position, bytes.length);
+                for (int i = 0; i < bytes.length; i++) buffer.put(position + 4 + i, bytes[i]);
+                position += 4 + bytes.length;
+            }
+
+            int count = tempos.size();
+            for (int i = 0; i < count; i++) {
+                TempoChange tempo = tempos.get(i);
+                buffer.putLong(temposOffset + 8 * i, tempo.getTime().toRational());
+                buffer.putInt(temposOffset + 8 * count + 4 * i, tempo.getTempo().getBPM());
+            }
+
+            count = timeSigs.size();
+            for (int i = 0; i < count; i++) {
+                TimeSigChange timeSig = timeSigs.get(i);
+                buffer.putLong(timeSigsOffset + 8 * i, timeSig.getTime().toRational());
+                buffer.putInt(timeSigsOffset + 8 * count + 4 * i, timeSig.getTimeSig().getNumerator());
+                buffer.putInt(timeSigsOffset + 12 * count + 4 * i, timeSig.getTimeSig().getDenominator());
+            }
+
+            position = notesOffset;
+            for (int p = 0; p < parts.size(); p++) {
+                List<Note<?>> partNotes = notes.get(p);
+                int entry = partsOffset + PART_SIZE * p;
+                buffer.putInt(entry + PART_INSTRUMENT, indexOf(parts.get(p).getInstrument().getName()));
+                buffer.putInt(entry + PART_NOTE_COUNT, partNotes.size());
+                buffer.putLong(entry + PART_NOTES, position);
+                encodeNotes(buffer, position, partNotes);
+                position = align(position + partNotes.size() * NOTE_SIZE);
+
+                List<ControllerLane> partLanes = lanes.get(p);
+                buffer.putInt(entry + PART_LANE_COUNT, partLanes.size());
+                buffer.putLong(entry + PART_LANES, position);
+                int table = position;
+                position += partLanes.size() * LANE_SIZE;
+                for (int l = 0; l < partLanes.size(); l++) {
+                    ControllerLane lane = partLanes.get(l);
+                    buffer.putInt(table + LANE_SIZE * l + LANE_CONTROLLER, lane.getController());
+                    buffer.putInt(table + LANE_SIZE * l + LANE_CHANGE_COUNT, lane.size());
+                    buffer.putLong(table + LANE_SIZE * l + LANE_CHANGES, position);
+                    encodeLane(buffer, position, lane);
+                    position = align(position + lane.size() * CHANGE_SIZE);
+                }
+            }
+            return buffer;
+        }
+
+        // Two columns, one after the other: times, values
+        private void encodeLane(ByteBuffer buffer, int offset, ControllerLane lane) {
+            int count = lane.size();
+            int values = offset + 8 * count;
+            for (int i = 0; i < count; i++) {
+                buffer.putLong(offset + 8 * i, lane.getTime(i));
+                buffer.putInt(values + 4 * i, lane.getValue(i));
+            }
+        }
+
+        // Six columns, one after the other: starts, ends, sounds, velocities, techniques, accents
+        private void encodeNotes(ByteBuffer buffer, int offset, List<Note<?>> partNotes) {
+            int count = partNotes.size();
+            int ends = offset + 8 * count;
+            int sounds = ends + 8 * count;
+            int velocities = sounds + 4 * count;
+            int techniques = velocities + 4 * count;
+            int accents = techniques + 4 * count;
+            for (int i = 0; i < count; i++) {
+                Note<?> note = partNotes.get(i);
+                Dynamic dynamic = note.getDynamic();
+                Technique technique = note.getTechnique();
+                Accent accent = note.getAccent();
+                buffer.putLong(offset + 8 * i, note.getStart().toRational());
+                buffer.putLong(ends + 8 * i, note.getEnd().toRational());
+                buffer.putInt(sounds + 4 * i, encodeSound(note.getSound()));
+                buffer.putInt(velocities + 4 * i, dynamic != null ? dynamic.getValue() : NONE);
+                buffer.putInt(techniques + 4 * i, technique != null ? indexOf(technique.getName()) : NONE);
+                buffer.putInt(accents + 4 * i, accent != null ? indexOf(accent.getName()) : NONE);
+            }
+        }
+
+        private int encodeSound(@Nullable Object sound) {
+            if (sound instanceof Pitch) return (PITCH << SOUND_KIND_SHIFT) | ((Pitch) sound).getValue();
+            if (sound instanceof Chord) return (CHORD << SOUND_KIND_SHIFT) | ((Chord) sound).getValue();
+            if (sound instanceof Noise) return (NOISE << SOUND_KIND_SHIFT) | indexOf(((Noise) sound).getName());
+            throw new Error("SCORE STORE:\tCannot store a sound of type " + (sound == null ? null : sound.getClass()));
+        }
+
+        private int indexOf(@NotNull String string) {
+            Integer index = strings.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.put(string, index);
+            }
+            return index;
+        }
+    }
+}
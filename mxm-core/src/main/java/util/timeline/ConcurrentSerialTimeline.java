@@ -0,0 +1,133 @@
+package util.timeline;
+
+import form.events.IEvent;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A {@link SerialTimeline} which any number of threads may write to and read from at once, backed by a lock-free
+ * {@link ConcurrentSkipListMap}. Adding is a single atomic insert-if-absent, so two threads racing for the same time
+ * can never both win, nor both lose.</p>
+ *
+ * <p> Lookups see every add which finished before they began. Iteration, streams and range views are weakly
+ * consistent: they never throw {@link java.util.ConcurrentModificationException}, never show an event twice, and
+ * show everything which was there when they began, and perhaps some of what was added since.</p>
+ *
+ * @param <MusicEventType> the subclass of IEvent which this timeline may hold
+ *
+ * @author Patrick Celentano
+ */
+public final class ConcurrentSerialTimeline <MusicEventType extends IEvent> implements ISerialTimeline<MusicEventType>,
+        IRangedTimeline<MusicEventType> {
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final ConcurrentSkipListMap<Time, MusicEventType> events;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    public ConcurrentSerialTimeline() {
+        this.events = new ConcurrentSkipListMap<>();
+    }
+
+    // ADDERS
+    @Override
+    public void add(@NotNull MusicEventType event) {
+        if (!addIfAbsent(event)) {
+            throw new Error("Cannot add one event on top of another in a Serial Timeline!");
+        }
+    }
+    @Override
+    public boolean addIfAbsent(@NotNull MusicEventType event) {
+        return events.putIfAbsent(event.getTime(), event) == null;
+    }
+
+    // PUBLIC GETTERS
+    @Override
+    public int size() {
+        return events.size();
+    }
+    @Override
+    public @Nullable MusicEventType getFirst() {
+        return value(events.firstEntry());
+    }
+    @Override
+    public @Nullable MusicEventType getLast() {
+        return value(events.lastEntry());
+    }
+    @Override
+    public @Nullable MusicEventType getAt(@NotNull Time time) {
+        return events.get(time);
+    }
+    @Override
+    public @Nullable MusicEventType getBefore(@NotNull Time time) {
+        return value(events.floorEntry(time));
+    }
+    @Override
+    public @Nullable MusicEventType getAfter(@NotNull Time time) {
+        return value(events.ceilingEntry(time));
+    }
+    @Override
+    public @Nullable MusicEventType getLower(@NotNull Time time) {
+        return value(events.lowerEntry(time));
+    }
+
+    @Override
+    public @NotNull ITimeline<MusicEventType> subTimeline(@NotNull Time from, @NotNull Time to) {
+        return new TimelineView<>(this, from, to);
+    }
+    @Override
+    public @NotNull ITimeline<MusicEventType> headTimeline(@NotNull Time to) {
+        return new TimelineView<>(this, null, to);
+    }
+    @Override
+    public @NotNull ITimeline<MusicEventType> tailTimeline(@NotNull Time from) {
+        return new TimelineView<>(this, from, null);
+    }
+
+    @Override
+    public @NotNull Stream<MusicEventType> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+    @Override
+    public @NotNull Stream<MusicEventType> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+    @Override
+    public @NotNull Iterator<MusicEventType> iterator() {
+        return events.values().iterator();
+    }
+    @Override
+    public @NotNull Spliterator<MusicEventType> spliterator() {
+        return events.values().spliterator();
+    }
+    @Override
+    public @NotNull Spliterator<MusicEventType> spliterator(@Nullable Time from, @Nullable Time to) {
+        ConcurrentNavigableMap<Time, MusicEventType> range = events;
+        if (from != null) range = range.tailMap(from, true);
+        if (to != null) range = range.headMap(to, false);
+        return range.values().spliterator();
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private static <V> V value(@Nullable Map.Entry<Time, V> entry) {
+        return entry == null ? null : entry.getValue();
+    }
+}
@@ -1,15 +1,21 @@
 package util.timeline;
 
 import form.events.InstantEvent;
+import form.events.Note;
 import form.events.SpanningEvent;
 import form.events.IEvent;
 import form.ITimed;
 import org.jetbrains.annotations.NotNull;
 import form.time.Time;
+import sound.pitched.Chord;
+import sound.pitched.Pitch;
+import sound.pitched.PitchClass;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.TreeSet;
+import java.util.List;
 
 /**
  * <p> <b>Interface Overview:</b>
@@ -18,6 +24,14 @@ import java.util.TreeSet;
  * are accessed through passages). This may seem like a lot of indirection, but it is crucially useful in preventing
  * mishaps by limiting access.</p>
  *
+ * <p> A score may have hundreds of thousands of frames, so a frame holds no collections of its own. Its events are
+ * one run of an array- usually an array shared by every frame of the timeline- laid out as
+ * {@code [continued | started and carried on | started and ended | ended]}, and described by three boundaries. The
+ * continued events may lie apart from the rest of the run, so that a frame can point them at events an earlier frame
+ * already holds rather than copy them; every view but the ongoing events is still one contiguous slice. Which
+ * pitches are sounding is also kept as a 128-bit bitmap, and which pitch classes as a 12-bit mask, so sonority
+ * checks never need to look at the events themselves.</p>
+ *
  * @param <MusicEventType> the type of music event that may be found in this frame
  */
 public class Frame<MusicEventType extends IEvent> implements ITimed {
@@ -28,59 +42,103 @@ public class Frame<MusicEventType extends IEvent> implements ITimed {
 
         /** The form.time at which this frame occurs */
         private final Time time;
-        /** All form.events which start exactly on this frame */
-        private final TreeSet<MusicEventType> startedEvents;
-        /** All form.events which start or continue through this frame */
-        private final TreeSet<MusicEventType> ongoingEvents;
-        /** All form.events which continue through this frame */
-        private final TreeSet<MusicEventType> continuedEvents;
-        /** All form.events which end exactly on this frame */
-        private final TreeSet<MusicEventType> endedEvents;
+        /** The array holding this frame's run of events, which it may share with other frames */
+        private Object[] events;
+        /** Where this frame's continued events start within the array */
+        private int continuedOffset;
+        /** Where the rest of this frame's run, from its started events on, starts within the array */
+        private int offset;
+        /** The end of the continued form.events, and the start of the started ones */
+        private char continuedEnd;
+        /** The end of the started form.events which carry on past this frame, and the start of the ended ones */
+        private char carriedEnd;
+        /** The end of the started form.events, and with them, the ongoing ones */
+        private char ongoingEnd;
+        /** The end of this frame's run */
+        private char endedEnd;
+        /** A bit for every pitch sounding at this frame: bit n of the low word is pitch n, the high word is n + 64 */
+        private long lowPitches, highPitches;
+        /** A bit for every pitch class sounding at this frame, including those of chords */
+        private short pitchClasses;
 
         //////////////////////////////
         // Member methods           //
         //////////////////////////////
 
         /**
-         * A limited-access constructor which takes in a form.time, and initializes the various event-holding collections
+         * A limited-access constructor which takes in a form.time, and starts with no form.events at all
          * @param time the form.time at which this event occurs
          */
         Frame(@NotNull Time time) {
             this.time = time;
-            this.startedEvents = new TreeSet<>();
-            this.ongoingEvents = new TreeSet<>();
-            this.continuedEvents = new TreeSet<>();
-            this.endedEvents = new TreeSet<>();
+            this.events = new Object[0];
+        }
+
+        /**
+         * A limited-access constructor for frames built all at once by a {@link FrameBuilder}. The array is kept as it
+         * is, so neighbouring frames may share it- which also means they may not be added to afterwards, short of
+         * copying their own run out first.
+         * @param time the form.time at which this frame occurs
+         * @param events the array holding this frame's run of events
+         * @param continuedOffset where the continued events start
+         * @param offset where the rest of the run starts
+         * @param continued the number of form.events which continue through this frame
+         * @param carried the number of form.events which start on this frame and carry on past it
+         * @param instants the number of form.events which start and end on this frame
+         * @param ended the number of form.events which end on this frame, and didn't start on it
+         * @param lowPitches the bits of the sounding pitches below 64
+         * @param highPitches the bits of the sounding pitches from 64 up
+         * @param pitchClasses the bits of the sounding pitch classes
+         */
+        Frame(@NotNull Time time, @NotNull Object[] events, int continuedOffset, int offset, int continued, int carried,
+              int instants, int ended, long lowPitches, long highPitches, int pitchClasses) {
+            this.time = time;
+            this.events = events;
+            this.continuedOffset = continuedOffset;
+            this.offset = offset;
+            this.continuedEnd = bound(continued);
+            this.carriedEnd = bound(continued + carried);
+            this.ongoingEnd = bound(continued + carried + instants);
+            this.endedEnd = bound(continued + carried + instants + ended);
+            this.lowPitches = lowPitches;
+            this.highPitches = highPitches;
+            this.pitchClasses = (short) pitchClasses;
         }
 
         // Package private on purpose- we don't want users adding form.events, only score.
         void add(@NotNull MusicEventType event) {
             if(event instanceof InstantEvent) {
-                startedEvents.add(event);
-                ongoingEvents.add(event);
+                // It starts and ends here, as a frame built whole has it
+                insert(ongoingEnd, event);
+                ongoingEnd++; endedEnd++;
+                sound(event);
             }
             else throw new Error("Frame: Cannot add an event of type " + event.getClass());
         }
         // Package private on purpose- we don't want users adding form.events, only score.
         void addStart(@NotNull MusicEventType event) {
             if(event instanceof SpanningEvent) {
-                startedEvents.add(event);
-                ongoingEvents.add(event);
+                insert(carriedEnd, event);
+                carriedEnd++; ongoingEnd++; endedEnd++;
+                sound(event);
             }
             else throw new Error("Frame: Cannot add an event of type " + event.getClass());
         }
         // Package private on purpose- we don't want users adding form.events, only score.
         void addContinue(@NotNull MusicEventType event) {
             if(event instanceof SpanningEvent) {
-                continuedEvents.add(event);
-                ongoingEvents.add(event);
+                insert(continuedEnd, event);
+                // The run is one piece after an insert, so the started events move along with the boundary
+                continuedEnd++; offset++; carriedEnd++; ongoingEnd++; endedEnd++;
+                sound(event);
             }
             else throw new Error("Frame: Cannot add an event of type " + event.getClass());
         }
         // Package private on purpose- we don't want users adding form.events, only score.
         void addEnd(@NotNull MusicEventType event) {
             if(event instanceof SpanningEvent) {
-                endedEvents.add((MusicEventType)event);
+                insert(endedEnd, event);
+                endedEnd++;
             }
             else throw new Error("Frame: Cannot add an event of type " + event.getClass());
         }
@@ -90,15 +148,158 @@ public class Frame<MusicEventType extends IEvent> implements ITimed {
         }
 
         public final @NotNull Collection<MusicEventType> startedEvents() {
-            return Collections.unmodifiableCollection(startedEvents);
+            return slice(continuedEnd, ongoingEnd);
         }
         public final @NotNull Collection<MusicEventType> ongoingEvents() {
-            return Collections.unmodifiableCollection(ongoingEvents);
+            return slice(0, ongoingEnd);
         }
         public final @NotNull Collection<MusicEventType> continuedEvents() {
-            return Collections.unmodifiableCollection(continuedEvents);
+            return slice(0, continuedEnd);
         }
         public final @NotNull Collection<MusicEventType> endedEvents() {
-            return Collections.unmodifiableCollection(endedEvents);
+            return slice(carriedEnd, endedEnd);
+        }
+
+        // SONORITY GETTERS
+
+        /**
+         * Whether a note of the given pitch is sounding at this frame.
+         * @param pitch the pitch to check
+         * @return true if the pitch is sounding
+         */
+        public final boolean isSounding(@NotNull Pitch pitch) {
+            int value = pitch.getValue();
+            return ((value < 64 ? lowPitches >>> value : highPitches >>> (value - 64)) & 1) != 0;
+        }
+        /**
+         * Whether any note or chord sounding at this frame has the given pitch class.
+         * @param pitchClass the pitch class to check
+         * @return true if the pitch class is sounding
+         */
+        public final boolean isSounding(@NotNull PitchClass pitchClass) {
+            return (pitchClasses & (1 << pitchClass.getValue())) != 0;
+        }
+        /**
+         * Getter for the number of distinct pitches sounding at this frame. Chords, which have no octave, don't count.
+         * @return the number of distinct sounding pitches
+         */
+        public final int getPitchCount() {
+            return Long.bitCount(lowPitches) + Long.bitCount(highPitches);
+        }
+        /**
+         * Whether exactly the same pitches are sounding here as in another frame.
+         * @param other the frame to compare against
+         * @return true if both frames sound the same set of pitches
+         */
+        public final boolean soundsSamePitchesAs(@NotNull Frame<?> other) {
+            return lowPitches == other.lowPitches && highPitches == other.highPitches;
+        }
+        /**
+         * Getter for the sounding pitch classes, as a mask with bit n set for pitch class n (C is 0).
+         * @return the mask of sounding pitch classes
+         */
+        public final int getPitchClassMask() {
+            return pitchClasses;
+        }
+
+        //////////////////////////////
+        // Private methods          //
+        //////////////////////////////
+
+        @SuppressWarnings("unchecked")
+        private Collection<MusicEventType> slice(int from, int to) {
+            if (from == to) return Collections.emptyList();
+            List<Object> all = Arrays.asList(events);
+            List<Object> slice;
+            if (from >= continuedEnd) {
+                slice = all.subList(offset + from - continuedEnd, offset + to - continuedEnd);
+            } else if (to <= continuedEnd || continuedOffset + continuedEnd == offset) {
+                slice = all.subList(continuedOffset + from, continuedOffset + to);
+            } else {
+                slice = new Joined(all.subList(continuedOffset + from, continuedOffset + continuedEnd),
+                        all.subList(offset, offset + to - continuedEnd));
+            }
+            return Collections.unmodifiableList((List<MusicEventType>) (List<?>) slice);
+        }
+
+        // The event at a place in this frame's run, wherever that part of the run lies
+        private Object eventAt(int index) {
+            return index < continuedEnd ? events[continuedOffset + index] : events[offset + index - continuedEnd];
+        }
+
+        private static char bound(int index) {
+            if (index > Character.MAX_VALUE) {
+                throw new Error("Frame: Cannot hold more than " + (int) Character.MAX_VALUE + " events!");
+            }
+            return (char) index;
+        }
+
+        // Copies this frame's run out into an array of its own and in one piece, with the event at the given position
+        private void insert(int position, @NotNull Object event) {
+            bound(endedEnd + 1);
+            Object[] run = new Object[endedEnd + 1];
+            for (int i = 0; i < endedEnd; i++) {
+                run[i < position ? i : i + 1] = eventAt(i);
+            }
+            run[position] = event;
+            events = run;
+            continuedOffset = 0;
+            offset = continuedEnd;
+        }
+
+        private void sound(@NotNull Object event) {
+            int pitch = pitchOf(event);
+            if (pitch >= 64) highPitches |= 1L << (pitch - 64);
+            else if (pitch >= 0) lowPitches |= 1L << pitch;
+            pitchClasses |= (short) pitchClassesOf(event);
+        }
+
+        /**
+         * The pitch an event sounds, if it is a note of a single pitch.
+         * @param event the event
+         * @return the number of its pitch, or -1 if it has none
+         */
+        static int pitchOf(@NotNull Object event) {
+            Object sound = event instanceof Note ? ((Note<?>) event).getSound() : null;
+            return sound instanceof Pitch ? ((Pitch) sound).getValue() : -1;
+        }
+
+        /**
+         * The pitch classes an event sounds, if it is a note of a pitch or a chord.
+         * @param event the event
+         * @return a mask with bit n set for pitch class n
+         */
+        static int pitchClassesOf(@NotNull Object event) {
+            Object sound = event instanceof Note ? ((Note<?>) event).getSound() : null;
+            if (sound instanceof Pitch) {
+                return 1 << ((Pitch) sound).getPitchClass().getValue();
+            }
+            int mask = 0;
+            if (sound instanceof Chord) {
+                for (PitchClass pitchClass : (Chord) sound) {
+                    mask |= 1 << pitchClass.getValue();
+                }
+            }
+            return mask;
+        }
+
+        // Two slices of the array read as one list, for ongoing events which lie apart
+        private static final class Joined extends AbstractList<Object> {
+            private final List<Object> first, second;
+
+            private Joined(List<Object> first, List<Object> second) {
+                this.first = first;
+                this.second = second;
+            }
+
+            @Override
+            public Object get(int index) {
+                return index < first.size() ? first.get(index) : second.get(index - first.size());
+            }
+
+            @Override
+            public int size() {
+                return first.size() + second.size();
+            }
         }
     }
@@ -0,0 +1,245 @@
+package util.timeline;
+
+import form.events.SpanningEvent;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * Builds a {@link ParallelTimeline} of {@link Frame}s out of several serial sources- typically the lines of a score-
+ * in one sweep over every start and end point. There is a frame wherever something starts or ends.</p>
+ *
+ * <p> The sources are merged by start with a heap, and ongoing events wait on a second heap ordered by end, so the
+ * sweep itself is O(n log n). Frames are never filled one event at a time: every frame's run of events is appended to
+ * a single array shared by the whole timeline, and the sounding pitches are tracked with a count per pitch, so each
+ * frame's bitmap falls out of the starts and ends alone.</p>
+ *
+ * <p> A frame's continued events point at a run an earlier frame already laid out, for as long as that run still
+ * holds exactly the events carried on: a chord held across a hundred frames of rests or instants is stored once, not
+ * a hundred times. Only a frame whose continued events differ from the last frame's- because something ended on it,
+ * or started on the frame before- copies them. So beyond the sweep, the work is bounded by the polyphony at the frames
+ * where what's sounding changes, not at every frame: a note held under n notes played one after another is still
+ * copied about n times, once for each change beneath it.</p>
+ *
+ * @author Patrick Celentano
+ */
+public abstract class FrameBuilder {
+
+    private static final Comparator<SpanningEvent> BY_END = Comparator.comparing(SpanningEvent::getEnd);
+    private static final int LAYOUT = 7;
+
+    /**
+     * Sweeps the given sources into frames.
+     * @param sources any number of sources, each of which iterates in order of start
+     * @param <MusicEventType> the type of event in the frames
+     * @return a timeline with a frame at every start and end
+     */
+    public static <MusicEventType extends SpanningEvent> @NotNull ITimeline<Frame<MusicEventType>> build(
+            @NotNull Collection<? extends Iterable<? extends MusicEventType>> sources) {
+        // Every source, keyed by the start of its next event
+        PriorityQueue<Source<MusicEventType>> starts = new PriorityQueue<>(Math.max(1, sources.size()));
+        for (Iterable<? extends MusicEventType> iterable : sources) {
+            Source<MusicEventType> source = new Source<>(iterable.iterator());
+            if (source.next != null) starts.add(source);
+        }
+        PriorityQueue<MusicEventType> ends = new PriorityQueue<>(BY_END);
+        Sonority sonority = new Sonority();
+
+        // The ongoing events, in order of start, and the buffers reused for each frame
+        List<MusicEventType> carried = new ArrayList<>();
+        List<MusicEventType> ended = new ArrayList<>();
+        List<MusicEventType> started = new ArrayList<>();
+        List<MusicEventType> instants = new ArrayList<>();
+
+        // Everything the frames will be made of, once the shared array is final
+        Object[] pool = new Object[16];
+        int poolSize = 0;
+        List<Time> times = new ArrayList<>();
+        // Per frame: where its continued events and the rest of its run start, how many events are continued,
+        // carried, instant and ended, and its pitch classes; then the two pitch words
+        int[] layout = new int[LAYOUT * 16];
+        long[] pitches = new long[32];
+        // Where the carried events lie together in the pool, in order, or -1 if they don't
+        int carriedAt = -1;
+
+        while (!starts.isEmpty() || !ends.isEmpty()) {
+            Time time = frameTime(starts, ends);
+            ended.clear(); started.clear(); instants.clear();
+
+            // Everything ending here, then everything starting here
+            while (!ends.isEmpty() && ends.peek().getEnd().compareTo(time) <= 0) {
+                MusicEventType event = ends.poll();
+                ended.add(event);
+                sonority.remove(event);
+            }
+            while (!starts.isEmpty() && starts.peek().next.getStart().compareTo(time) == 0) {
+                Source<MusicEventType> source = starts.poll();
+                MusicEventType event = source.advance();
+                sonority.add(event);
+                if (event.getEnd().compareTo(time) > 0) {
+                    started.add(event);
+                    ends.add(event);
+                }
+                else {
+                    // Nothing to carry, so it starts and ends on this same frame
+                    instants.add(event);
+                }
+                if (source.next != null) starts.add(source);
+            }
+            if (!ended.isEmpty()) {
+                removeAll(carried, ended);
+                carriedAt = -1;
+            }
+
+            // [continued], kept from the last frame if it still lies together, then
+            // [started and carried on | started and ended | ended]
+            int frame = times.size();
+            int run = (carriedAt < 0 ? carried.size() : 0) + started.size() + instants.size() + ended.size();
+            if (poolSize + run > pool.length) {
+                pool = Arrays.copyOf(pool, Math.max(poolSize + run, pool.length + (pool.length >> 1)));
+            }
+            if (LAYOUT * frame + LAYOUT > layout.length) {
+                layout = Arrays.copyOf(layout, layout.length << 1);
+                pitches = Arrays.copyOf(pitches, pitches.length << 1);
+            }
+            if (carriedAt < 0) {
+                carriedAt = poolSize;
+                poolSize = copy(carried, pool, poolSize);
+            }
+            int offset = poolSize;
+            poolSize = copy(started, pool, poolSize);
+            poolSize = copy(instants, pool, poolSize);
+            poolSize = copy(ended, pool, poolSize);
+            times.add(time);
+            layout[LAYOUT * frame] = carriedAt;
+            layout[LAYOUT * frame + 1] = offset;
+            layout[LAYOUT * frame + 2] = carried.size();
+            layout[LAYOUT * frame + 3] = started.size();
+            layout[LAYOUT * frame + 4] = instants.size();
+            layout[LAYOUT * frame + 5] = ended.size();
+            layout[LAYOUT * frame + 6] = sonority.pitchClasses();
+            pitches[2 * frame] = sonority.low;
+            pitches[2 * frame + 1] = sonority.high;
+
+            for (MusicEventType event : instants) {
+                sonority.remove(event);
+            }
+            // The carried events only stay together if the ones starting here went straight after them
+            if (!started.isEmpty() && carriedAt + carried.size() != offset) carriedAt = -1;
+            carried.addAll(started);
+        }
+
+        Object[] events = poolSize == pool.length ? pool : Arrays.copyOf(pool, poolSize);
+        ParallelTimeline<MusicEventType> timeline = new ParallelTimeline<>();
+        for (int frame = 0; frame < times.size(); frame++) {
+            int at = LAYOUT * frame;
+            timeline.add(new Frame<>(times.get(frame), events, layout[at], layout[at + 1], layout[at + 2],
+                    layout[at + 3], layout[at + 4], layout[at + 5], pitches[2 * frame], pitches[2 * frame + 1],
+                    layout[at + 6]));
+        }
+        timeline.freeze();
+        return timeline;
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private static <E extends SpanningEvent> Time frameTime(PriorityQueue<Source<E>> starts, PriorityQueue<E> ends) {
+        if (starts.isEmpty()) return ends.peek().getEnd();
+        Time start = starts.peek().next.getStart();
+        if (ends.isEmpty()) return start;
+        Time end = ends.peek().getEnd();
+        return end.compareTo(start) < 0 ? end : start;
+    }
+
+    private static <E> void removeAll(List<E> events, List<E> removed) {
+        if (removed.size() == 1) {
+            E gone = removed.get(0);
+            for (int i = 0; i < events.size(); i++) {
+                if (events.get(i) == gone) { events.remove(i); return; }
+            }
+            return;
+        }
+        Set<E> gone = Collections.newSetFromMap(new IdentityHashMap<>(removed.size() * 2));
+        gone.addAll(removed);
+        events.removeIf(gone::contains);
+    }
+
+    private static int copy(List<?> events, Object[] pool, int at) {
+        for (Object event : events) {
+            pool[at++] = event;
+        }
+        return at;
+    }
+
+    // How many of each pitch and pitch class are sounding
+    private static final class Sonority {
+        private final int[] pitchCounts = new int[128];
+        private final int[] classCounts = new int[12];
+        private long low, high;
+
+        private void add(Object event) {
+            int pitch = Frame.pitchOf(event);
+            if (pitch >= 0 && pitchCounts[pitch]++ == 0) {
+                if (pitch < 64) low |= 1L << pitch;
+                else high |= 1L << (pitch - 64);
+            }
+            for (int mask = Frame.pitchClassesOf(event); mask != 0; mask &= mask - 1) {
+                classCounts[Integer.numberOfTrailingZeros(mask)]++;
+            }
+        }
+
+        private void remove(Object event) {
+            int pitch = Frame.pitchOf(event);
+            if (pitch >= 0 && --pitchCounts[pitch] == 0) {
+                if (pitch < 64) low &= ~(1L << pitch);
+                else high &= ~(1L << (pitch - 64));
+            }
+            for (int mask = Frame.pitchClassesOf(event); mask != 0; mask &= mask - 1) {
+                classCounts[Integer.numberOfTrailingZeros(mask)]--;
+            }
+        }
+
+        private int pitchClasses() {
+            int mask = 0;
+            for (int pitchClass = 0; pitchClass < 12; pitchClass++) {
+                if (classCounts[pitchClass] > 0) mask |= 1 << pitchClass;
+            }
+            return mask;
+        }
+    }
+
+    // A source iterator, peeked one event ahead
+    private static final class Source<E extends SpanningEvent> implements Comparable<Source<E>> {
+        private final Iterator<? extends E> iterator;
+        private E next;
+
+        private Source(Iterator<? extends E> iterator) {
+            this.iterator = iterator;
+            this.next = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        private E advance() {
+            E current = next;
+            next = iterator.hasNext() ? iterator.next() : null;
+            return current;
+        }
+
+        @Override
+        public int compareTo(@NotNull Source<E> other) {
+            return next.getStart().compareTo(other.next.getStart());
+        }
+    }
+}
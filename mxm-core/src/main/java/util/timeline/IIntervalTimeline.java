@@ -0,0 +1,58 @@
+package util.timeline;
+
+import form.events.SpanningEvent;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * <p> <b>Interface Overview:</b>
+ * The readable side of an {@link IntervalTimeline}: every lookup of events by the interval they cover, and none of
+ * the adding. This is what a {@link form.passage.Score} hands out its index of notes as, so that nothing but its own
+ * lines can put a note in it.</p>
+ *
+ * @param <MusicEventType> the type of spanning event this timeline holds
+ */
+public interface IIntervalTimeline <MusicEventType extends SpanningEvent> extends Iterable<MusicEventType> {
+    /**
+     * Getter for the number of events in this timeline.
+     * @return the number of events
+     */
+    int size();
+
+    /**
+     * Every event which has started by the given time, and not yet ended.
+     * @param time the time to look at
+     * @return the ongoing events, in order of their start
+     */
+    @NotNull List<MusicEventType> getOngoingAt(@NotNull Time time);
+
+    /**
+     * Every event which overlaps the given range, that is, which starts before it ends and ends after it starts.
+     * @param start the start of the range, inclusive
+     * @param end the end of the range, exclusive
+     * @return the overlapping events, in order of their start
+     */
+    @NotNull List<MusicEventType> getOverlapping(@NotNull Time start, @NotNull Time end);
+
+    /**
+     * Passes every event ongoing at the given time to an action, without building a list.
+     * @param time the time to look at
+     * @param action what to do with each ongoing event, in order of their start
+     */
+    void forEachOngoingAt(@NotNull Time time, @NotNull Consumer<? super MusicEventType> action);
+
+    /**
+     * Passes every event overlapping the given range to an action, without building a list.
+     * @param start the start of the range, inclusive
+     * @param end the end of the range, exclusive
+     * @param action what to do with each overlapping event, in order of their start
+     */
+    void forEachOverlapping(@NotNull Time start, @NotNull Time end, @NotNull Consumer<? super MusicEventType> action);
+
+    @NotNull Stream<MusicEventType> stream();
+    @NotNull Stream<MusicEventType> parallelStream();
+}
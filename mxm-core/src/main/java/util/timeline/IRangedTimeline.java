@@ -0,0 +1,31 @@
+package util.timeline;
+
+import form.ITimed;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Spliterator;
+
+/**
+ * The package-private half of a timeline which can back {@link TimelineView}s: the two lookups a view needs on top of
+ * the public ones, each of which must cost no more than a search of the underlying storage.
+ *
+ * @param <TimedType> the type of timed object held by this timeline
+ */
+interface IRangedTimeline <TimedType extends ITimed> extends ITimeline<TimedType> {
+    /**
+     * Getter for the last element strictly before a given time.
+     * @param time the time to look before
+     * @return the last element before the time, or null if there is none
+     */
+    @Nullable TimedType getLower(@NotNull Time time);
+
+    /**
+     * A spliterator over only the elements in a range, backed by the underlying storage.
+     * @param from the start of the range, inclusive, or null for the start of the timeline
+     * @param to the end of the range, exclusive, or null for the end of the timeline
+     * @return a spliterator over the range
+     */
+    @NotNull Spliterator<TimedType> spliterator(@Nullable Time from, @Nullable Time to);
+}
@@ -0,0 +1,33 @@
+package util.timeline;
+
+import form.events.IEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p> <b>Interface Overview:</b>
+ * The writable side of a timeline in which events happen one after the other, never two at once. This is what a
+ * {@link form.passage.Score} holds its control events in, so that it may choose between the plain
+ * {@link SerialTimeline} and the thread-safe {@link ConcurrentSerialTimeline} without anything else knowing.</p>
+ *
+ * @param <MusicEventType> the subclass of IEvent which this timeline may hold
+ */
+public interface ISerialTimeline <MusicEventType extends IEvent> extends ITimeline<MusicEventType> {
+    /**
+     * Adds an event, which must not land on the same time as one already in the timeline.
+     * @param event the event to add
+     */
+    void add(@NotNull MusicEventType event);
+
+    /**
+     * Adds an event unless one is already at its time, as a single atomic step.
+     * @param event the event to add
+     * @return true if the event was added, false if another was already there
+     */
+    boolean addIfAbsent(@NotNull MusicEventType event);
+
+    /**
+     * Getter for the number of events in this timeline.
+     * @return the number of events
+     */
+    int size();
+}
@@ -35,6 +35,27 @@ public interface ITimeline <TimedType extends ITimed> extends Iterable<TimedType
     @Nullable TimedType getBefore(@NotNull Time time);
     @Nullable TimedType getAfter(@NotNull Time time);
 
+    /**
+     * A view of only part of this timeline, backed by it rather than copied, so that working on a window costs time
+     * in proportion to the window and not to the whole timeline.
+     * @param from the start of the window, inclusive
+     * @param to the end of the window, exclusive
+     * @return a view of everything from the one time up to the other
+     */
+    @NotNull ITimeline<TimedType> subTimeline(@NotNull Time from, @NotNull Time to);
+    /**
+     * A view of this timeline up to a given time, backed by it rather than copied.
+     * @param to the end of the window, exclusive
+     * @return a view of everything before the time
+     */
+    @NotNull ITimeline<TimedType> headTimeline(@NotNull Time to);
+    /**
+     * A view of this timeline from a given time on, backed by it rather than copied.
+     * @param from the start of the window, inclusive
+     * @return a view of everything at or after the time
+     */
+    @NotNull ITimeline<TimedType> tailTimeline(@NotNull Time from);
+
     @NotNull Stream<TimedType> stream();
     @NotNull Stream<TimedType> parallelStream();
     @NotNull Iterator<TimedType> iterator();
@@ -0,0 +1,198 @@
+package util.timeline;
+
+import form.events.IEvent;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.fraction.Rational;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A read-only timeline over events which live somewhere other than the heap- a file, a buffer, a set of columns- and
+ * are only turned into objects when asked for. A subclass says how many events there are, the packed
+ * {@link Rational} time of each by index, and how to build the event at an index; this class binary searches the
+ * times, so a lookup builds exactly one event, and iterating builds one per step and holds on to none of them.</p>
+ *
+ * <p> The times must be strictly increasing by index. Every call to {@link #eventAt} may return a new object, so
+ * events handed out by two lookups need not be the same object even when they're the same event. Adding to the
+ * timeline throws an Error.</p>
+ *
+ * @param <MusicEventType> the subclass of IEvent which this timeline holds
+ *
+ * @author Patrick Celentano
+ */
+public abstract class IndexedTimeline <MusicEventType extends IEvent>
+        implements ISerialTimeline<MusicEventType>, IRangedTimeline<MusicEventType> {
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * Getter for the packed {@link Rational} time of the event at an index.
+     * @param index the index, from 0 up to {@link #size()}
+     * @return the time of the event, as a packed rational
+     */
+    protected abstract long keyAt(int index);
+
+    /**
+     * Builds the event at an index.
+     * @param index the index, from 0 up to {@link #size()}
+     * @return the event
+     */
+    protected abstract @NotNull MusicEventType eventAt(int index);
+
+    @Override
+    public final void add(@NotNull MusicEventType event) {
+        throw new Error("Cannot add an event to a read-only Indexed Timeline!");
+    }
+    @Override
+    public final boolean addIfAbsent(@NotNull MusicEventType event) {
+        throw new Error("Cannot add an event to a read-only Indexed Timeline!");
+    }
+
+    // PUBLIC GETTERS
+    @Override
+    public final @Nullable MusicEventType getFirst() {
+        return size() == 0 ? null : eventAt(0);
+    }
+    @Override
+    public final @Nullable MusicEventType getLast() {
+        int size = size();
+        return size == 0 ? null : eventAt(size - 1);
+    }
+    @Override
+    public final @Nullable MusicEventType getAt(@NotNull Time time) {
+        long key = time.toRational();
+        int index = rank(key, false);
+        return index < size() && Rational.compare(keyAt(index), key) == 0 ? eventAt(index) : null;
+    }
+    @Override
+    public final @Nullable MusicEventType getBefore(@NotNull Time time) {
+        int index = rank(time.toRational(), true) - 1;
+        return index >= 0 ? eventAt(index) : null;
+    }
+    @Override
+    public final @Nullable MusicEventType getAfter(@NotNull Time time) {
+        int index = rank(time.toRational(), false);
+        return index < size() ? eventAt(index) : null;
+    }
+    @Override
+    public final @Nullable MusicEventType getLower(@NotNull Time time) {
+        int index = rank(time.toRational(), false) - 1;
+        return index >= 0 ? eventAt(index) : null;
+    }
+
+    /**
+     * The number of events strictly before a time, or at or before it if inclusive, by binary search.
+     * @param key the time, as a packed rational
+     * @param inclusive whether to count an event at the time itself
+     * @return the index of the first event after the time
+     */
+    public final int rank(long key, boolean inclusive) {
+        int low = 0, high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int comparison = Rational.compare(keyAt(mid), key);
+            if (comparison < 0 || (inclusive && comparison == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public final @NotNull ITimeline<MusicEventType> subTimeline(@NotNull Time from, @NotNull Time to) {
+        return new TimelineView<>(this, from, to);
+    }
+    @Override
+    public final @NotNull ITimeline<MusicEventType> headTimeline(@NotNull Time to) {
+        return new TimelineView<>(this, null, to);
+    }
+    @Override
+    public final @NotNull ITimeline<MusicEventType> tailTimeline(@NotNull Time from) {
+        return new TimelineView<>(this, from, null);
+    }
+
+    @Override
+    public final @NotNull Stream<MusicEventType> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+    @Override
+    public final @NotNull Stream<MusicEventType> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+    @Override
+    public final @NotNull Iterator<MusicEventType> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+    @Override
+    public final @NotNull Spliterator<MusicEventType> spliterator() {
+        return new IndexSpliterator(0, size());
+    }
+    @Override
+    public final @NotNull Spliterator<MusicEventType> spliterator(@Nullable Time from, @Nullable Time to) {
+        int low = from == null ? 0 : rank(from.toRational(), false);
+        int high = to == null ? size() : rank(to.toRational(), false);
+        return new IndexSpliterator(low, Math.max(low, high));
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    // Builds each event as it's reached, and splits its range down the middle
+    private final class IndexSpliterator implements Spliterator<MusicEventType> {
+        private int index;
+        private final int fence;
+
+        private IndexSpliterator(int from, int to) {
+            this.index = from;
+            this.fence = to;
+        }
+
+        @Override
+        public Spliterator<MusicEventType> trySplit() {
+            int low = index, mid = (low + fence) >>> 1;
+            if (low >= mid) {
+                return null;
+            }
+            index = mid;
+            return new IndexSpliterator(low, mid);
+        }
+
+        @Override
+        public boolean tryAdvance(@NotNull Consumer<? super MusicEventType> action) {
+            if (index >= fence) {
+                return false;
+            }
+            action.accept(eventAt(index++));
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super MusicEventType> getComparator() {
+            return TimelineSpliterator.BY_TIME;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package util.timeline;
+
+import form.events.SpanningEvent;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import util.fraction.Rational;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * An index over {@link SpanningEvent}s by the whole interval they cover, rather than just by their start. It answers
+ * "what is sounding at this time" and "what overlaps this range", which a {@link SerialTimeline} can only answer by
+ * scanning backwards.</p>
+ *
+ * <p> Events are kept in arrays sorted by start, alongside an implicit max-tree over their ends: every node holds the
+ * latest end of any event beneath it. A query binary searches for the last event which starts early enough, then
+ * walks the tree left to right, skipping every subtree which ends too early to matter. That costs O(log n) to find
+ * the first hit and O(log n) at worst per further hit, and hits come back in start order. Adding in start order
+ * (as a single line does) is amortized O(log n). Events added out of order are buffered, and merged in all at once
+ * by the next query, so writing several lines one after the other and then analyzing them stays cheap. That merge
+ * may be set off by several reading threads at once, and only one of them does it; adding is still single-threaded,
+ * and must not overlap any read.</p>
+ *
+ * @param <MusicEventType> the type of spanning event this timeline may hold
+ *
+ * @author Patrick Celentano
+ */
+public final class IntervalTimeline <MusicEventType extends SpanningEvent>
+        implements IIntervalTimeline<MusicEventType> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    private static final int INITIAL_CAPACITY = 16;
+    /** Marks an empty node of the end-tree. Never a valid packed rational, since its denominator is zero */
+    private static final long NONE = Long.MIN_VALUE;
+    private static final Comparator<SpanningEvent> BY_START = Comparator.comparing(SpanningEvent::getStart);
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    /** Packed rational start of every indexed event, sorted */
+    private long[] starts;
+    /** Packed rational end of every indexed event, in the same order */
+    private long[] ends;
+    private Object[] events;
+    private int size;
+
+    /** The end-tree: node 1 is the root, node i has children 2i and 2i+1, and leaves start at {@code capacity} */
+    private long[] tree;
+    private int capacity;
+
+    /** Events which were added out of order, and haven't been merged in yet */
+    private Object[] pending;
+    /** Written last by a merge, so a reader which sees it at nought also sees everything merged */
+    private volatile int pendingSize;
+    /** Held by whichever reader merges the pending events in */
+    private final Object lock = new Object();
+    /** The view of this timeline which can't be added to, made the first time it's asked for */
+    private IIntervalTimeline<MusicEventType> view;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    public IntervalTimeline() {
+        this.capacity = INITIAL_CAPACITY;
+        this.starts = new long[capacity];
+        this.ends = new long[capacity];
+        this.events = new Object[capacity];
+        this.tree = newTree(capacity);
+        this.pending = new Object[0];
+    }
+
+    // ADDER
+    public void add(@NotNull MusicEventType event) {
+        long start = event.getStart().toRational();
+        if (pendingSize > 0 || (size > 0 && Rational.compare(start, starts[size - 1]) < 0)) {
+            if (pendingSize == pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(INITIAL_CAPACITY, pendingSize + (pendingSize >> 1)));
+            }
+            pending[pendingSize++] = event;
+            return;
+        }
+        if (size == capacity) {
+            grow(capacity << 1);
+        }
+        long end = event.getEnd().toRational();
+        starts[size] = start;
+        ends[size] = end;
+        events[size] = event;
+        // Walk up from the new leaf, stopping as soon as an ancestor already ends later
+        for (int node = capacity + size; node > 0 && later(end, tree[node]); node >>>= 1) {
+            tree[node] = end;
+        }
+        size++;
+    }
+
+    // PUBLIC GETTERS
+    @Override
+    public int size() {
+        return size + pendingSize;
+    }
+
+    /**
+     * Getter for a view of this timeline which reads through to it, but has no way to add to it.
+     * @return the read-only view
+     */
+    public @NotNull IIntervalTimeline<MusicEventType> readOnly() {
+        if (view == null) view = new ReadOnly<>(this);
+        return view;
+    }
+
+    @Override
+    public @NotNull List<MusicEventType> getOngoingAt(@NotNull Time time) {
+        List<MusicEventType> ongoing = new ArrayList<>();
+        forEachOngoingAt(time, ongoing::add);
+        return ongoing;
+    }
+
+    @Override
+    public @NotNull List<MusicEventType> getOverlapping(@NotNull Time start, @NotNull Time end) {
+        List<MusicEventType> overlapping = new ArrayList<>();
+        forEachOverlapping(start, end, overlapping::add);
+        return overlapping;
+    }
+
+    @Override
+    public void forEachOngoingAt(@NotNull Time time, @NotNull Consumer<? super MusicEventType> action) {
+        merge();
+        long key = time.toRational();
+        report(1, 0, capacity, firstAfter(key), key, action);
+    }
+
+    @Override
+    public void forEachOverlapping(@NotNull Time start, @NotNull Time end,
+                                   @NotNull Consumer<? super MusicEventType> action) {
+        if (start.compareTo(end) >= 0) {
+            forEachOngoingAt(start, action);
+            return;
+        }
+        merge();
+        report(1, 0, capacity, firstAtOrAfter(end.toRational()), start.toRational(), action);
+    }
+
+    @Override
+    public @NotNull Stream<MusicEventType> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+    @Override
+    public @NotNull Stream<MusicEventType> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+    @Override
+    public @NotNull Iterator<MusicEventType> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+    @Override
+    public @NotNull Spliterator<MusicEventType> spliterator() {
+        merge();
+        return new TimelineSpliterator<>(events, 0, size, false);
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    // Reports every event in [0, limit) beneath this node whose end is strictly after the threshold
+    @SuppressWarnings("unchecked")
+    private void report(int node, int low, int high, int limit, long threshold,
+                        Consumer<? super MusicEventType> action) {
+        if (low >= limit || !later(tree[node], threshold)) {
+            return;
+        }
+        if (node >= capacity) {
+            action.accept((MusicEventType) events[low]);
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        report(node << 1, low, mid, limit, threshold, action);
+        report((node << 1) | 1, mid, high, limit, threshold, action);
+    }
+
+    // Whether a is strictly later than b, where either may be NONE
+    private static boolean later(long a, long b) {
+        if (a == NONE) return false;
+        return b == NONE || Rational.compare(a, b) > 0;
+    }
+
+    // The number of events which start at or before the key
+    private int firstAfter(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Rational.compare(starts[mid], key) <= 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // The number of events which start strictly before the key
+    private int firstAtOrAfter(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Rational.compare(starts[mid], key) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // Sorts the pending events and merges them in, then rebuilds the end-tree. Readers which race here wait on the lock
+    // for whichever got there first, and then find nothing left to merge
+    private void merge() {
+        if (pendingSize == 0) {
+            return;
+        }
+        synchronized (lock) {
+            if (pendingSize > 0) mergePending();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mergePending() {
+        int pendingSize = this.pendingSize;
+        Arrays.sort(pending, 0, pendingSize, (Comparator<Object>) (Comparator<?>) BY_START);
+        int total = size + pendingSize;
+        int newCapacity = capacity;
+        while (newCapacity < total) newCapacity <<= 1;
+
+        long[] newStarts = new long[newCapacity];
+        long[] newEnds = new long[newCapacity];
+        Object[] newEvents = new Object[newCapacity];
+        int i = 0, j = 0;
+        for (int k = 0; k < total; k++) {
+            // Ties go to events which were already indexed
+            if (j == pendingSize || (i < size && Rational.compare(starts[i],
+                    ((SpanningEvent) pending[j]).getStart().toRational()) <= 0)) {
+                newStarts[k] = starts[i];
+                newEnds[k] = ends[i];
+                newEvents[k] = events[i++];
+            }
+            else {
+                SpanningEvent event = (SpanningEvent) pending[j++];
+                newStarts[k] = event.getStart().toRational();
+                newEnds[k] = event.getEnd().toRational();
+                newEvents[k] = event;
+            }
+        }
+        starts = newStarts;
+        ends = newEnds;
+        events = newEvents;
+        size = total;
+        capacity = newCapacity;
+        pending = new Object[0];
+        rebuild();
+        this.pendingSize = 0;
+    }
+
+    private void grow(int newCapacity) {
+        starts = Arrays.copyOf(starts, newCapacity);
+        ends = Arrays.copyOf(ends, newCapacity);
+        events = Arrays.copyOf(events, newCapacity);
+        capacity = newCapacity;
+        rebuild();
+    }
+
+    private void rebuild() {
+        tree = newTree(capacity);
+        System.arraycopy(ends, 0, tree, capacity, size);
+        for (int node = capacity - 1; node > 0; node--) {
+            long left = tree[node << 1], right = tree[(node << 1) | 1];
+            tree[node] = later(right, left) ? right : left;
+        }
+    }
+
+    private static long[] newTree(int capacity) {
+        long[] tree = new long[capacity << 1];
+        Arrays.fill(tree, NONE);
+        return tree;
+    }
+
+    // Every lookup of an interval timeline, passed straight through
+    private static final class ReadOnly <MusicEventType extends SpanningEvent>
+            implements IIntervalTimeline<MusicEventType> {
+        private final IntervalTimeline<MusicEventType> timeline;
+
+        private ReadOnly(IntervalTimeline<MusicEventType> timeline) {
+            this.timeline = timeline;
+        }
+
+        @Override
+        public int size() {
+            return timeline.size();
+        }
+        @Override
+        public @NotNull List<MusicEventType> getOngoingAt(@NotNull Time time) {
+            return timeline.getOngoingAt(time);
+        }
+        @Override
+        public @NotNull List<MusicEventType> getOverlapping(@NotNull Time start, @NotNull Time end) {
+            return timeline.getOverlapping(start, end);
+        }
+        @Override
+        public void forEachOngoingAt(@NotNull Time time, @NotNull Consumer<? super MusicEventType> action) {
+            timeline.forEachOngoingAt(time, action);
+        }
+        @Override
+        public void forEachOverlapping(@NotNull Time start, @NotNull Time end,
+                                       @NotNull Consumer<? super MusicEventType> action) {
+            timeline.forEachOverlapping(start, end, action);
+        }
+        @Override
+        public @NotNull Stream<MusicEventType> stream() {
+            return timeline.stream();
+        }
+        @Override
+        public @NotNull Stream<MusicEventType> parallelStream() {
+            return timeline.parallelStream();
+        }
+        @Override
+        public @NotNull Iterator<MusicEventType> iterator() {
+            return timeline.iterator();
+        }
+        @Override
+        public @NotNull Spliterator<MusicEventType> spliterator() {
+            return timeline.spliterator();
+        }
+    }
+}
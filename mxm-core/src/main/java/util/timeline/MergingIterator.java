@@ -0,0 +1,91 @@
+package util.timeline;
+
+import form.ITimed;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * Walks several timelines at once, handing out everything in all of them in one time order, without ever collecting
+ * or sorting it. It keeps one cursor per timeline in a heap ordered by the time of the cursor's next element, so it
+ * holds O(k) memory for k timelines and takes O(log k) per element.</p>
+ *
+ * <p> Elements at the same time come out in the order of their timelines in the collection, then in the order of
+ * each timeline, so the merge is stable and repeatable. The timelines must not be written to while it runs.</p>
+ *
+ * @param <TimedType> the type of timed object held by the timelines
+ *
+ * @author Patrick Celentano
+ */
+public final class MergingIterator <TimedType extends ITimed> implements Iterator<TimedType> {
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final PriorityQueue<Cursor<TimedType>> cursors;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * @param timelines the timelines to merge, each of which must iterate in time order
+     */
+    public MergingIterator(@NotNull Collection<? extends Iterable<? extends TimedType>> timelines) {
+        this.cursors = new PriorityQueue<>(Math.max(1, timelines.size()));
+        int rank = 0;
+        for (Iterable<? extends TimedType> timeline : timelines) {
+            Cursor<TimedType> cursor = new Cursor<>(timeline.iterator(), rank++);
+            if (cursor.next != null) cursors.add(cursor);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !cursors.isEmpty();
+    }
+
+    @Override
+    public TimedType next() {
+        Cursor<TimedType> cursor = cursors.poll();
+        if (cursor == null) {
+            throw new NoSuchElementException();
+        }
+        TimedType current = cursor.advance();
+        if (cursor.next != null) cursors.add(cursor);
+        return current;
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private static final class Cursor<E extends ITimed> implements Comparable<Cursor<E>> {
+        private final Iterator<? extends E> iterator;
+        private final int rank;
+        private E next;
+
+        private Cursor(Iterator<? extends E> iterator, int rank) {
+            this.iterator = iterator;
+            this.rank = rank;
+            this.next = iterator.hasNext() ? iterator.next() : null;
+        }
+
+        private E advance() {
+            E current = next;
+            next = iterator.hasNext() ? iterator.next() : null;
+            return current;
+        }
+
+        @Override
+        public int compareTo(@NotNull Cursor<E> other) {
+            int comparison = next.getTime().compareTo(other.next.getTime());
+            return comparison != 0 ? comparison : Integer.compare(rank, other.rank);
+        }
+    }
+}
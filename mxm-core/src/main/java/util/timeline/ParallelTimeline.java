@@ -3,9 +3,11 @@ package util.timeline;
 import form.time.Time;
 import form.events.IEvent;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p> <b>Interface Overview:</b>
@@ -14,53 +16,129 @@ import java.util.stream.Stream;
  * other, with no overlap. In a {@link ParallelTimeline}, contemporaneous form.events are stored in a {@link Frame}, which
  * is simply a vertical stack of form.events at a given form.time</p>
  *
+ * <p> Frames are built whole and in order, by a {@link FrameBuilder}, so they are kept in one sorted array and found
+ * by binary search- four bytes per frame, rather than a tree node.</p>
+ *
  * @param <MusicEventType> The subclass of IEvent which this timeline may hold. It's worth noting that this might
  *                        be IEvent itself- in which case, all music form.events may be stored within this timeline.
  *
  * @author Patrick Celentano
  */
-final class ParallelTimeline <MusicEventType extends IEvent> implements ITimeline<Frame<MusicEventType>> {
+final class ParallelTimeline <MusicEventType extends IEvent> implements IRangedTimeline<Frame<MusicEventType>> {
 
-    private final TreeMap<Time, Frame<MusicEventType>> frames;
+    private Object[] frames;
+    private int size;
+    /** Whether the builder has finished with this timeline, after which it never changes */
+    private boolean frozen;
 
     public ParallelTimeline() {
-        this.frames = new TreeMap<>();
+        this.frames = new Object[16];
+    }
+
+    // Package private on purpose- frames are built whole, by a FrameBuilder.
+    void add(@NotNull Frame<MusicEventType> frame) {
+        if (frozen) {
+            throw new Error("Cannot add a frame to a finished Parallel Timeline!");
+        }
+        Time time = frame.getTime();
+        int index = size == 0 || frame(size - 1).getTime().compareTo(time) < 0 ? size : firstAtOrAfter(time);
+        if (index < size && frame(index).getTime().compareTo(time) == 0) {
+            throw new Error("Cannot add one frame on top of another in a Parallel Timeline!");
+        }
+        if (size == frames.length) {
+            frames = Arrays.copyOf(frames, size + (size >> 1));
+        }
+        System.arraycopy(frames, index, frames, index + 1, size - index);
+        frames[index] = frame;
+        size++;
+    }
+
+    // Package private on purpose- only the builder knows when it's done.
+    void freeze() {
+        frozen = true;
     }
 
     // PUBLIC GETTERS
     @Override
-    public final @NotNull Frame<MusicEventType> getFirst() { return frames.firstEntry().getValue(); }
+    public final @Nullable Frame<MusicEventType> getFirst() { return size == 0 ? null : frame(0); }
     @Override
-    public final @NotNull Frame<MusicEventType> getLast() { return frames.lastEntry().getValue(); }
+    public final @Nullable Frame<MusicEventType> getLast() { return size == 0 ? null : frame(size - 1); }
     @Override
-    public final @NotNull Frame<MusicEventType> getAt(@NotNull Time time) {
-        return frames.get(time);
+    public final @Nullable Frame<MusicEventType> getAt(@NotNull Time time) {
+        int index = firstAtOrAfter(time);
+        return index < size && frame(index).getTime().compareTo(time) == 0 ? frame(index) : null;
     }
     @Override
-    public final @NotNull Frame<MusicEventType> getBefore(@NotNull Time time) {
-        return frames.floorEntry(time).getValue();
+    public final @Nullable Frame<MusicEventType> getBefore(@NotNull Time time) {
+        int index = firstAtOrAfter(time);
+        if (index < size && frame(index).getTime().compareTo(time) == 0) return frame(index);
+        return index > 0 ? frame(index - 1) : null;
     }
     @Override
-    public final @NotNull Frame<MusicEventType> getAfter(@NotNull Time time) {
-        return frames.ceilingEntry(time).getValue();
+    public final @Nullable Frame<MusicEventType> getAfter(@NotNull Time time) {
+        int index = firstAtOrAfter(time);
+        return index < size ? frame(index) : null;
+    }
+    @Override
+    public final @Nullable Frame<MusicEventType> getLower(@NotNull Time time) {
+        int index = firstAtOrAfter(time);
+        return index > 0 ? frame(index - 1) : null;
+    }
+    public final int size() {
+        return size;
+    }
+
+    @Override
+    public @NotNull ITimeline<Frame<MusicEventType>> subTimeline(@NotNull Time from, @NotNull Time to) {
+        return new TimelineView<>(this, from, to);
+    }
+    @Override
+    public @NotNull ITimeline<Frame<MusicEventType>> headTimeline(@NotNull Time to) {
+        return new TimelineView<>(this, null, to);
+    }
+    @Override
+    public @NotNull ITimeline<Frame<MusicEventType>> tailTimeline(@NotNull Time from) {
+        return new TimelineView<>(this, from, null);
     }
 
     @Override
     public @NotNull Stream<Frame<MusicEventType>> stream() {
-        return java.util.Collections.unmodifiableCollection(frames.values()).stream();
+        return StreamSupport.stream(spliterator(), false);
     }
 
     @Override
     public @NotNull Stream<Frame<MusicEventType>> parallelStream() {
-        return java.util.Collections.unmodifiableCollection(frames.values()).parallelStream();
+        return StreamSupport.stream(spliterator(), true);
     }
     @Override
     public final @NotNull Iterator<Frame<MusicEventType>> iterator() {
-        return java.util.Collections.unmodifiableCollection(frames.values()).iterator();
+        return Spliterators.iterator(spliterator());
     }
 
     @Override
     public @NotNull Spliterator<Frame<MusicEventType>> spliterator() {
-        return java.util.Collections.unmodifiableCollection(frames.values()).spliterator();
+        return spliterator(null, null);
+    }
+    @Override
+    public @NotNull Spliterator<Frame<MusicEventType>> spliterator(@Nullable Time from, @Nullable Time to) {
+        int low = from == null ? 0 : firstAtOrAfter(from);
+        int high = to == null ? size : firstAtOrAfter(to);
+        return new TimelineSpliterator<>(frames, low, Math.max(low, high), frozen);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Frame<MusicEventType> frame(int index) {
+        return (Frame<MusicEventType>) frames[index];
+    }
+
+    // The first index whose frame is at or after the given time, or size if there is none
+    private int firstAtOrAfter(@NotNull Time time) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (frame(mid).getTime().compareTo(time) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,551 @@
+package util.timeline;
+
+import form.events.IEvent;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import util.fraction.Rational;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A {@link SerialTimeline} which never changes. Adding an event with {@link #with} returns a new version, and leaves
+ * this one exactly as it was, so holding on to a version costs nothing- it is its own snapshot. This is what lets a
+ * search fork a candidate line, extend it, score it and throw it away without ever copying what came before.</p>
+ *
+ * <p> Events are kept in time order in a 32-way trie of chunks of up to 32 events, plus a tail chunk which isn't in
+ * the trie yet. A new version shares every chunk of its parent but the ones on the path it changed. Appending after
+ * the last event writes into the tail's spare room if no other version has claimed it yet, or copies the tail if one
+ * has, and once every 32 events copies a path of at most log32 n nodes, so it is O(1) in practice. Adding anywhere
+ * else copies the one path down to the chunk the event lands in, splitting that chunk in two if it's full, and any
+ * node which then has too many children, so it is O(log n) too. Every node keeps the packed {@link Rational} key of
+ * the first event beneath each of its children, so a lookup binary searches its way down the trie once, and then
+ * through one chunk; and, since chunks needn't be full, how many events lie beneath each child and those before it,
+ * so finding an event by its index is a binary search at each level as well.</p>
+ *
+ * @param <MusicEventType> the subclass of IEvent which this timeline may hold
+ *
+ * @author Patrick Celentano
+ */
+public final class PersistentTimeline <MusicEventType extends IEvent> implements IRangedTimeline<MusicEventType> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+
+    private static final PersistentTimeline<?> EMPTY = new PersistentTimeline<>(0, BITS,
+            new Node(new long[0], new Object[0], new int[0]), new Chunk(new long[0], new Object[0], -1), 0);
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final int size;
+    /** The level of the root, in steps of BITS: at BITS, its children are chunks */
+    private final int shift;
+    /** The children of the lowest nodes are chunks */
+    private final Node root;
+    /** The last 1 to 32 events, or none if this timeline is empty. Its arrays may run on past them */
+    private final Chunk tail;
+    private final int tailSize;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    private PersistentTimeline(int size, int shift, @NotNull Node root, @NotNull Chunk tail, int tailSize) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+        this.tailSize = tailSize;
+    }
+
+    /**
+     * Getter for the empty timeline, which every other version grows from.
+     * @param <MusicEventType> the subclass of IEvent which the timeline may hold
+     * @return the empty timeline
+     */
+    @SuppressWarnings("unchecked")
+    public static <MusicEventType extends IEvent> @NotNull PersistentTimeline<MusicEventType> empty() {
+        return (PersistentTimeline<MusicEventType>) EMPTY;
+    }
+
+    // ADDER
+    /**
+     * A new version of this timeline with one more event in it. This version is left unchanged.
+     * @param event the event to add, which must not land on the same time as one already in the timeline
+     * @return the new version
+     */
+    public @NotNull PersistentTimeline<MusicEventType> with(@NotNull MusicEventType event) {
+        long key = event.getTime().toRational();
+        if (size == 0 || Rational.compare(key, keyAt(size - 1)) > 0) {
+            return append(key, event);
+        }
+        int index = rank(key, false);
+        if (Rational.compare(keyAt(index), key) == 0) {
+            throw new Error("Cannot add one event on top of another in a Serial Timeline!");
+        }
+        return insert(index, key, event);
+    }
+
+    // PUBLIC GETTERS
+    public int size() {
+        return size;
+    }
+    @Override
+    public @Nullable MusicEventType getFirst() {
+        return size == 0 ? null : eventAt(0);
+    }
+    @Override
+    public @Nullable MusicEventType getLast() {
+        return size == 0 ? null : eventAt(size - 1);
+    }
+    @Override
+    public @Nullable MusicEventType getAt(@NotNull Time time) {
+        long key = time.toRational();
+        int index = rank(key, false);
+        return index < size && Rational.compare(keyAt(index), key) == 0 ? eventAt(index) : null;
+    }
+    @Override
+    public @Nullable MusicEventType getBefore(@NotNull Time time) {
+        int index = rank(time.toRational(), true) - 1;
+        return index >= 0 ? eventAt(index) : null;
+    }
+    @Override
+    public @Nullable MusicEventType getAfter(@NotNull Time time) {
+        int index = rank(time.toRational(), false);
+        return index < size ? eventAt(index) : null;
+    }
+    @Override
+    public @Nullable MusicEventType getLower(@NotNull Time time) {
+        int index = rank(time.toRational(), false) - 1;
+        return index >= 0 ? eventAt(index) : null;
+    }
+
+    @Override
+    public @NotNull ITimeline<MusicEventType> subTimeline(@NotNull Time from, @NotNull Time to) {
+        return new TimelineView<>(this, from, to);
+    }
+    @Override
+    public @NotNull ITimeline<MusicEventType> headTimeline(@NotNull Time to) {
+        return new TimelineView<>(this, null, to);
+    }
+    @Override
+    public @NotNull ITimeline<MusicEventType> tailTimeline(@NotNull Time from) {
+        return new TimelineView<>(this, from, null);
+    }
+
+    @Override
+    public @NotNull Stream<MusicEventType> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+    @Override
+    public @NotNull Stream<MusicEventType> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+    @Override
+    public @NotNull Iterator<MusicEventType> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+    @Override
+    public @NotNull Spliterator<MusicEventType> spliterator() {
+        return new ChunkSpliterator(0, size);
+    }
+    @Override
+    public @NotNull Spliterator<MusicEventType> spliterator(@Nullable Time from, @Nullable Time to) {
+        int low = from == null ? 0 : rank(from.toRational(), false);
+        int high = to == null ? size : rank(to.toRational(), false);
+        return new ChunkSpliterator(low, Math.max(low, high));
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    // The index of the first event in the tail, which is also the number of events in the trie
+    private int tailOffset() {
+        return size - tailSize;
+    }
+
+    // The chunk holding an index, with the indices of its first event and of the first one after it put in bounds
+    private Chunk chunkFor(int index, int[] bounds) {
+        int tailOffset = tailOffset();
+        if (index >= tailOffset) {
+            bounds[0] = tailOffset;
+            bounds[1] = size;
+            return tail;
+        }
+        Node node = root;
+        int first = 0;
+        for (int level = shift; ; level -= BITS) {
+            int child = childFor(node, index - first);
+            if (level == BITS) {
+                bounds[0] = first + node.sizeBefore(child);
+                bounds[1] = first + node.sizes[child];
+                return (Chunk) node.children[child];
+            }
+            first += node.sizeBefore(child);
+            node = (Node) node.children[child];
+        }
+    }
+
+    private long keyAt(int index) {
+        int tailOffset = tailOffset();
+        if (index >= tailOffset) {
+            return tail.keys[index - tailOffset];
+        }
+        int[] bounds = new int[2];
+        return chunkFor(index, bounds).keys[index - bounds[0]];
+    }
+
+    @SuppressWarnings("unchecked")
+    private MusicEventType eventAt(int index) {
+        int tailOffset = tailOffset();
+        if (index >= tailOffset) {
+            return (MusicEventType) tail.events[index - tailOffset];
+        }
+        int[] bounds = new int[2];
+        return (MusicEventType) chunkFor(index, bounds).events[index - bounds[0]];
+    }
+
+    // The number of events before the key, or at or before it if inclusive
+    private int rank(long key, boolean inclusive) {
+        int tailOffset = tailOffset();
+        if (tailOffset < size && precedes(tail.keys[0], key, inclusive)) {
+            return tailOffset + rank(tail.keys, tailSize, key, inclusive);
+        }
+        if (tailOffset == 0) {
+            return 0;
+        }
+        // Down through the last child which starts early enough, or the first if none does
+        Node node = root;
+        int index = 0;
+        for (int level = shift; ; level -= BITS) {
+            int child = Math.max(0, rank(node.keys, node.keys.length, key, inclusive) - 1);
+            index += node.sizeBefore(child);
+            if (level == BITS) {
+                Chunk chunk = (Chunk) node.children[child];
+                return index + rank(chunk.keys, node.sizes[child] - node.sizeBefore(child), key, inclusive);
+            }
+            node = (Node) node.children[child];
+        }
+    }
+
+    private static int rank(long[] keys, int length, long key, boolean inclusive) {
+        int low = 0, high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (precedes(keys[mid], key, inclusive)) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static boolean precedes(long a, long b, boolean inclusive) {
+        int comparison = Rational.compare(a, b);
+        return inclusive ? comparison <= 0 : comparison < 0;
+    }
+
+    // The child of a node beneath which an index lies, counting from the node's first event
+    private static int childFor(Node node, int index) {
+        int low = 0, high = node.sizes.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (node.sizes[mid] <= index) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private PersistentTimeline<MusicEventType> append(long key, MusicEventType event) {
+        if (tailSize < WIDTH) {
+            // Only the first version to grow from this one may write into the shared tail
+            Chunk newTail = tail.claim(tailSize) ? tail : tail.copy(tailSize);
+            newTail.keys[tailSize] = key;
+            newTail.events[tailSize] = event;
+            return new PersistentTimeline<>(size + 1, shift, root, newTail, tailSize + 1);
+        }
+        // The tail is full, so push it down into the trie and start a new one
+        Chunk newTail = new Chunk(new long[WIDTH], new Object[WIDTH], 1);
+        newTail.keys[0] = key;
+        newTail.events[0] = event;
+        return pushTail(tail, newTail);
+    }
+
+    // A version with a full chunk hung on the right of the trie, and a new tail of one event after it
+    private PersistentTimeline<MusicEventType> pushTail(Chunk chunk, Chunk newTail) {
+        Node pushed = pushTail(shift, root, chunk);
+        if (pushed != null) {
+            return new PersistentTimeline<>(size + 1, shift, pushed, newTail, 1);
+        }
+        // Every node down the right of the trie is full, so it grows a level
+        int trieSize = tailOffset();
+        Node newRoot = new Node(new long[]{root.keys[0], chunk.keys[0]},
+                new Object[]{root, newPath(shift, chunk)}, new int[]{trieSize, trieSize + WIDTH});
+        return new PersistentTimeline<>(size + 1, shift + BITS, newRoot, newTail, 1);
+    }
+
+    // Copies the path from this node down to the last one with room, and hangs the chunk there, or gives null
+    private static Node pushTail(int level, Node parent, Chunk chunk) {
+        int last = parent.children.length - 1;
+        if (level > BITS && last >= 0) {
+            Node pushed = pushTail(level - BITS, (Node) parent.children[last], chunk);
+            if (pushed != null) {
+                return parent.with(last, pushed, parent.keys[last], WIDTH);
+            }
+        }
+        if (last + 1 == WIDTH) {
+            return null;
+        }
+        return parent.plus(level == BITS ? chunk : newPath(level - BITS, chunk), chunk.keys[0], WIDTH);
+    }
+
+    private static Node newPath(int level, Chunk chunk) {
+        return new Node(new long[]{chunk.keys[0]}, new Object[]{level == BITS ? chunk : newPath(level - BITS, chunk)},
+                new int[]{WIDTH});
+    }
+
+    // Copies the path down to where the event lands, or, in the tail, just the tail
+    private PersistentTimeline<MusicEventType> insert(int index, long key, MusicEventType event) {
+        int tailOffset = tailOffset();
+        if (index >= tailOffset) {
+            long[] keys = new long[WIDTH + 1];
+            Object[] events = new Object[WIDTH + 1];
+            splice(tail.keys, tail.events, tailSize, index - tailOffset, key, event, keys, events);
+            if (tailSize < WIDTH) {
+                Chunk newTail = new Chunk(Arrays.copyOf(keys, WIDTH), Arrays.copyOf(events, WIDTH), tailSize + 1);
+                return new PersistentTimeline<>(size + 1, shift, root, newTail, tailSize + 1);
+            }
+            // The tail overflows, so its first 32 events go down into the trie as on an append
+            Chunk newTail = new Chunk(new long[WIDTH], new Object[WIDTH], 1);
+            newTail.keys[0] = keys[WIDTH];
+            newTail.events[0] = events[WIDTH];
+            return pushTail(new Chunk(Arrays.copyOf(keys, WIDTH), Arrays.copyOf(events, WIDTH), -1), newTail);
+        }
+        Node[] nodes = insert(shift, root, index, key, event);
+        if (nodes.length == 1) {
+            return new PersistentTimeline<>(size + 1, shift, nodes[0], tail, tailSize);
+        }
+        // The root split, so the trie grows a level
+        Node newRoot = new Node(new long[]{nodes[0].keys[0], nodes[1].keys[0]}, new Object[]{nodes[0], nodes[1]},
+                new int[]{nodes[0].size(), nodes[0].size() + nodes[1].size()});
+        return new PersistentTimeline<>(size + 1, shift + BITS, newRoot, tail, tailSize);
+    }
+
+    // The node with the event inserted beneath it, as one node, or as two halves if it had no room for another child
+    private static Node[] insert(int level, Node node, int index, long key, Object event) {
+        int child = childFor(node, index);
+        int before = node.sizeBefore(child);
+        int count = node.sizes[child] - before;
+        if (level > BITS) {
+            Node[] nodes = insert(level - BITS, (Node) node.children[child], index - before, key, event);
+            if (nodes.length == 1) {
+                return new Node[]{node.with(child, nodes[0], nodes[0].keys[0], 1)};
+            }
+            return node.split(child, nodes[0], nodes[0].keys[0], nodes[0].size(), nodes[1], nodes[1].keys[0],
+                    nodes[1].size());
+        }
+        Chunk chunk = (Chunk) node.children[child];
+        long[] keys = new long[count + 1];
+        Object[] events = new Object[count + 1];
+        splice(chunk.keys, chunk.events, count, index - before, key, event, keys, events);
+        if (count < WIDTH) {
+            return new Node[]{node.with(child, new Chunk(keys, events, -1), keys[0], 1)};
+        }
+        // The chunk is full, so it splits in two
+        int half = (count + 1) >>> 1;
+        Chunk left = new Chunk(Arrays.copyOf(keys, half), Arrays.copyOf(events, half), -1);
+        Chunk right = new Chunk(Arrays.copyOfRange(keys, half, count + 1), Arrays.copyOfRange(events, half, count + 1),
+                -1);
+        return node.split(child, left, keys[0], half, right, keys[half], count + 1 - half);
+    }
+
+    // Copies the first count keys and events with one more put in at the given position
+    private static void splice(long[] keys, Object[] events, int count, int position, long key, Object event,
+                               long[] newKeys, Object[] newEvents) {
+        System.arraycopy(keys, 0, newKeys, 0, position);
+        System.arraycopy(events, 0, newEvents, 0, position);
+        newKeys[position] = key;
+        newEvents[position] = event;
+        System.arraycopy(keys, position, newKeys, position + 1, count - position);
+        System.arraycopy(events, position, newEvents, position + 1, count - position);
+    }
+
+    // Walks a range of the chunks in place, and splits it down the middle- a version never changes, so neither can it
+    private final class ChunkSpliterator implements Spliterator<MusicEventType> {
+        private int index;
+        private final int fence;
+        private Chunk chunk;
+        /** The indices of the chunk's first event, and of the first one after it */
+        private final int[] bounds = new int[2];
+
+        private ChunkSpliterator(int from, int to) {
+            this.index = from;
+            this.fence = to;
+        }
+
+        @Override
+        public Spliterator<MusicEventType> trySplit() {
+            int low = index, mid = (low + fence) >>> 1;
+            if (low >= mid) {
+                return null;
+            }
+            index = mid;
+            chunk = null;
+            return new ChunkSpliterator(low, mid);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(@NotNull Consumer<? super MusicEventType> action) {
+            if (index >= fence) {
+                return false;
+            }
+            if (chunk == null || index >= bounds[1]) {
+                chunk = chunkFor(index, bounds);
+            }
+            action.accept((MusicEventType) chunk.events[index++ - bounds[0]]);
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super MusicEventType> getComparator() {
+            return TimelineSpliterator.BY_TIME;
+        }
+    }
+
+    // Up to 32 children, the key of the first event beneath each, and the running count of the events beneath them
+    private static final class Node {
+        private final long[] keys;
+        private final Object[] children;
+        private final int[] sizes;
+
+        private Node(long[] keys, Object[] children, int[] sizes) {
+            this.keys = keys;
+            this.children = children;
+            this.sizes = sizes;
+        }
+
+        private int size() {
+            return sizes.length == 0 ? 0 : sizes[sizes.length - 1];
+        }
+        private int sizeBefore(int child) {
+            return child == 0 ? 0 : sizes[child - 1];
+        }
+
+        // A copy with one child replaced, which has grown by the given number of events
+        private Node with(int child, Object replacement, long key, int grown) {
+            long[] newKeys = keys.clone();
+            Object[] newChildren = children.clone();
+            int[] newSizes = sizes.clone();
+            newKeys[child] = key;
+            newChildren[child] = replacement;
+            for (int i = child; i < newSizes.length; i++) newSizes[i] += grown;
+            return new Node(newKeys, newChildren, newSizes);
+        }
+
+        // A copy with one more child on the end
+        private Node plus(Object child, long key, int count) {
+            int length = children.length;
+            long[] newKeys = Arrays.copyOf(keys, length + 1);
+            Object[] newChildren = Arrays.copyOf(children, length + 1);
+            int[] newSizes = Arrays.copyOf(sizes, length + 1);
+            newKeys[length] = key;
+            newChildren[length] = child;
+            newSizes[length] = size() + count;
+            return new Node(newKeys, newChildren, newSizes);
+        }
+
+        // A copy with one child replaced by two, as one node, or as two halves if that makes more than 32 children
+        private Node[] split(int child, Object left, long leftKey, int leftCount, Object right, long rightKey,
+                             int rightCount) {
+            int length = children.length + 1;
+            long[] newKeys = new long[length];
+            Object[] newChildren = new Object[length];
+            int[] counts = new int[length];
+            for (int i = 0, j = 0; i < children.length; i++, j++) {
+                if (i == child) {
+                    newKeys[j] = leftKey;
+                    newChildren[j] = left;
+                    counts[j++] = leftCount;
+                    newKeys[j] = rightKey;
+                    newChildren[j] = right;
+                    counts[j] = rightCount;
+                }
+                else {
+                    newKeys[j] = keys[i];
+                    newChildren[j] = children[i];
+                    counts[j] = sizes[i] - sizeBefore(i);
+                }
+            }
+            if (length <= WIDTH) {
+                return new Node[]{of(newKeys, newChildren, counts, 0, length)};
+            }
+            int half = length >>> 1;
+            return new Node[]{of(newKeys, newChildren, counts, 0, half),
+                    of(newKeys, newChildren, counts, half, length)};
+        }
+
+        private static Node of(long[] keys, Object[] children, int[] counts, int from, int to) {
+            int[] sizes = new int[to - from];
+            int total = 0;
+            for (int i = from; i < to; i++) {
+                total += counts[i];
+                sizes[i - from] = total;
+            }
+            return new Node(Arrays.copyOfRange(keys, from, to), Arrays.copyOfRange(children, from, to), sizes);
+        }
+    }
+
+    // Up to 32 consecutive events and their keys. Slots are written once, by whichever version claimed them. A chunk
+    // in the trie may hold fewer than 32, and how many it holds is kept by its parent
+    private static final class Chunk {
+        private final long[] keys;
+        private final Object[] events;
+        /** How many slots have been claimed, or -1 if this chunk has no room to share */
+        private final AtomicInteger claimed;
+
+        private Chunk(long[] keys, Object[] events, int claimed) {
+            this.keys = keys;
+            this.events = events;
+            this.claimed = new AtomicInteger(claimed);
+        }
+
+        // Whether the slot after the given number of events was free, and is now the caller's
+        private boolean claim(int count) {
+            return count < events.length && claimed.compareAndSet(count, count + 1);
+        }
+
+        // A copy of the given number of events, with the slot after them claimed
+        private Chunk copy(int count) {
+            long[] newKeys = new long[WIDTH];
+            Object[] newEvents = new Object[WIDTH];
+            System.arraycopy(keys, 0, newKeys, 0, count);
+            System.arraycopy(events, 0, newEvents, 0, count);
+            return new Chunk(newKeys, newEvents, count + 1);
+        }
+    }
+}
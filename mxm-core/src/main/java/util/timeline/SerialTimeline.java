@@ -2,13 +2,20 @@ package util.timeline;
 
 import form.events.IEvent;
 import form.time.Time;
+import form.time.Timebase;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import util.fraction.Rational;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeMap;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p> <b>Interface Overview:</b>
@@ -16,63 +23,298 @@ import java.util.stream.Stream;
  * after the other, that is. This contrasts starkly with a {@link ParallelTimeline} in which many form.events may happen
  * simultaneously, and are stored in a {@link Frame}.</p>
  *
+ * <p> Almost every line is written front to back, so events are kept in parallel sorted arrays: a primitive key per
+ * event, and the event itself. Appending is amortized O(1), and every lookup is a binary search over the keys. While
+ * the {@link Timebase} is in tick mode the keys are plain tick counts; otherwise they are packed
+ * {@link Rational}s. Out-of-order inserts shift the arrays, and once a timeline has spent more on shifting than it
+ * would have on a tree, it moves its events into a {@link TreeMap} and stays there.</p>
+ *
  * @param <MusicEventType> The subclass of IEvent which this timeline may hold. It's worth noting that this might
  *                        be IEvent itself- in which case, all music form.events may be stored within this timeline.
  *
  * @author Patrick Celentano
  */
-public final class SerialTimeline <MusicEventType extends IEvent> implements ITimeline<MusicEventType> {
-    private final TreeMap<Time, MusicEventType> events;
+public final class SerialTimeline <MusicEventType extends IEvent> implements ISerialTimeline<MusicEventType>,
+        IRangedTimeline<MusicEventType> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    private static final int INITIAL_CAPACITY = 16;
+    /** How many elements out-of-order inserts may shift, beyond the size of the timeline, before it becomes a tree */
+    private static final long SHIFT_ALLOWANCE = 1 << 16;
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final Timebase timebase;
+
+    /** The resolution the keys are counted in, or {@link Timebase#RATIONAL} if they are packed rationals */
+    private long resolution;
+    private long[] keys;
+    private Object[] events;
+    private int size;
+    /** The total number of elements shifted by out-of-order inserts so far */
+    private long shifted;
+
+    /** Only non-null once this timeline has given up on arrays */
+    private TreeMap<Time, MusicEventType> tree;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
 
     public SerialTimeline() {
-        this.events = new TreeMap<>();
+        this(Timebase.rational());
+    }
+
+    /**
+     * A constructor for a timeline whose keys follow the given timebase, usually the timebase of the owning score.
+     * @param timebase the timebase to take tick resolutions from
+     */
+    public SerialTimeline(@NotNull Timebase timebase) {
+        this.timebase = timebase;
+        this.resolution = timebase.getResolution();
+        this.keys = new long[INITIAL_CAPACITY];
+        this.events = new Object[INITIAL_CAPACITY];
     }
 
-    // ADDER
+    // ADDERS
     // Package private on purpose- we don't want users adding form.events, only score.
-    public void add(MusicEventType event) {
-        if (events.get(event.getTime()) == null) {
-            events.put(event.getTime(), event);
-        } else {
+    @Override
+    public void add(@NotNull MusicEventType event) {
+        if (!addIfAbsent(event)) {
             throw new Error("Cannot add one event on top of another in a Serial Timeline!");
         }
     }
+    @Override
+    public boolean addIfAbsent(@NotNull MusicEventType event) {
+        Time time = event.getTime();
+        if (tree != null) {
+            return tree.putIfAbsent(time, event) == null;
+        }
+
+        if (!fits(time)) {
+            timebase.observe(time);
+            rekey(timebase.isTicked() ? timebase.getResolution() : Timebase.RATIONAL);
+        }
+        long key = keyOf(time);
+
+        // The common case: appending to the end
+        if (size == 0 || compareKeys(keys[size - 1], key) < 0) {
+            ensureCapacity(size + 1);
+            keys[size] = key;
+            events[size] = event;
+            size++;
+            return true;
+        }
+
+        int index = firstAtOrAfter(key);
+        if (compareKeys(keys[index], key) == 0) {
+            return false;
+        }
+        int toShift = size - index;
+        if (shifted + toShift > SHIFT_ALLOWANCE + 2L * size) {
+            convertToTree();
+            tree.put(time, event);
+            return true;
+        }
+        shifted += toShift;
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, index, keys, index + 1, toShift);
+        System.arraycopy(events, index, events, index + 1, toShift);
+        keys[index] = key;
+        events[index] = event;
+        size++;
+        return true;
+    }
 
     // PUBLIC GETTERS
+    @Override
+    public int size() {
+        return tree != null ? tree.size() : size;
+    }
     @Nullable
-    public MusicEventType getFirst() { return events.firstEntry().getValue(); }
+    public MusicEventType getFirst() {
+        if (tree != null) return value(tree.firstEntry());
+        return size == 0 ? null : event(0);
+    }
     @Nullable
-    public MusicEventType getLast() { return events.lastEntry().getValue(); }
+    public MusicEventType getLast() {
+        if (tree != null) return value(tree.lastEntry());
+        return size == 0 ? null : event(size - 1);
+    }
     @Nullable
     public MusicEventType getAt(@NotNull Time time) {
-        return events.get(time);
+        if (tree != null) return tree.get(time);
+        if (!fits(time)) return null;
+        long key = keyOf(time);
+        int index = firstAtOrAfter(key);
+        return index < size && compareKeys(keys[index], key) == 0 ? event(index) : null;
     }
     @Nullable
     public MusicEventType getBefore(@NotNull Time time) {
-        return events.floorEntry(time).getValue();
+        if (tree != null) return value(tree.floorEntry(time));
+        int index = floorIndex(time);
+        return index >= 0 ? event(index) : null;
     }
     @Nullable
     public MusicEventType getAfter(@NotNull Time time) {
-        return events.ceilingEntry(time).getValue();
+        if (tree != null) return value(tree.ceilingEntry(time));
+        int index = ceilingIndex(time);
+        return index < size ? event(index) : null;
+    }
+    @Nullable
+    @Override
+    public MusicEventType getLower(@NotNull Time time) {
+        if (tree != null) return value(tree.lowerEntry(time));
+        int index = ceilingIndex(time) - 1;
+        return index >= 0 ? event(index) : null;
+    }
+
+    @Override
+    public @NotNull ITimeline<MusicEventType> subTimeline(@NotNull Time from, @NotNull Time to) {
+        return new TimelineView<>(this, from, to);
+    }
+    @Override
+    public @NotNull ITimeline<MusicEventType> headTimeline(@NotNull Time to) {
+        return new TimelineView<>(this, null, to);
+    }
+    @Override
+    public @NotNull ITimeline<MusicEventType> tailTimeline(@NotNull Time from) {
+        return new TimelineView<>(this, from, null);
     }
 
     @NotNull
     @Override
     public Stream<MusicEventType> stream() {
-        return java.util.Collections.unmodifiableCollection(events.values()).stream();
+        return StreamSupport.stream(spliterator(), false);
     }
     @NotNull
     @Override
     public Stream<MusicEventType> parallelStream() {
-        return java.util.Collections.unmodifiableCollection(events.values()).parallelStream();
+        return StreamSupport.stream(spliterator(), true);
     }
     @Override
     public @NotNull Iterator<MusicEventType> iterator() {
-        return java.util.Collections.unmodifiableCollection(events.values()).iterator();
+        return Spliterators.iterator(spliterator());
     }
     @NotNull
     @Override
     public Spliterator<MusicEventType> spliterator() {
-        return java.util.Collections.unmodifiableCollection(events.values()).spliterator();
+        return spliterator(null, null);
+    }
+    @NotNull
+    @Override
+    public Spliterator<MusicEventType> spliterator(@Nullable Time from, @Nullable Time to) {
+        if (tree != null) {
+            // A tree splits unevenly, so copy the range out- no more than traversing it costs anyway
+            NavigableMap<Time, MusicEventType> range = tree;
+            if (from != null) range = range.tailMap(from, true);
+            if (to != null) range = range.headMap(to, false);
+            Object[] snapshot = range.values().toArray();
+            return new TimelineSpliterator<>(snapshot, 0, snapshot.length, true);
+        }
+        int low = from == null ? 0 : ceilingIndex(from);
+        int high = to == null ? size : ceilingIndex(to);
+        return new TimelineSpliterator<>(events, low, Math.max(low, high), false);
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    @SuppressWarnings("unchecked")
+    private MusicEventType event(int index) {
+        return (MusicEventType) events[index];
+    }
+
+    private static <V> V value(@Nullable Map.Entry<Time, V> entry) {
+        return entry == null ? null : entry.getValue();
+    }
+
+    // Whether a time can be keyed exactly at the current resolution
+    private boolean fits(@NotNull Time time) {
+        return resolution == Timebase.RATIONAL || resolution % time.getDenominator() == 0;
+    }
+
+    // Only valid for times which fit
+    private long keyOf(@NotNull Time time) {
+        if (resolution == Timebase.RATIONAL) {
+            return time.toRational();
+        }
+        return time.getNumerator() * (resolution / time.getDenominator());
+    }
+
+    private int compareKeys(long a, long b) {
+        return resolution == Timebase.RATIONAL ? Rational.compare(a, b) : Long.compare(a, b);
+    }
+
+    // The first index whose key is at or after the given key, or size if there is none
+    private int firstAtOrAfter(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKeys(keys[mid], key) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // The first index whose key is strictly after the given key, or size if there is none
+    private int firstAfter(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareKeys(keys[mid], key) <= 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // The index of the last event at or before the time, or -1
+    private int floorIndex(@NotNull Time time) {
+        if (fits(time)) {
+            return firstAfter(keyOf(time)) - 1;
+        }
+        // Between two ticks, so everything at or before the tick below it
+        return firstAfter(Math.floorDiv(time.getNumerator() * resolution, time.getDenominator())) - 1;
+    }
+
+    // The index of the first event at or after the time, or size
+    private int ceilingIndex(@NotNull Time time) {
+        if (fits(time)) {
+            return firstAtOrAfter(keyOf(time));
+        }
+        // Between two ticks, so everything strictly after the tick below it
+        return firstAfter(Math.floorDiv(time.getNumerator() * resolution, time.getDenominator()));
+    }
+
+    // Recomputes every key at a new resolution
+    private void rekey(long newResolution) {
+        resolution = newResolution;
+        for (int i = 0; i < size; i++) {
+            keys[i] = keyOf(event(i).getTime());
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int newLength = Math.max(capacity, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, newLength);
+            events = Arrays.copyOf(events, newLength);
+        }
+    }
+
+    private void convertToTree() {
+        tree = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            tree.put(event(i).getTime(), event(i));
+        }
+        keys = null;
+        events = null;
+        size = 0;
     }
 }
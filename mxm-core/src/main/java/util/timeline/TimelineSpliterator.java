@@ -0,0 +1,103 @@
+package util.timeline;
+
+import form.ITimed;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A spliterator over a range of a timeline's backing array. Its size is always exact, and it always splits down the
+ * middle, so a fork-join pool gets evenly sized halves all the way down instead of the lopsided ones a tree-backed
+ * collection hands out. It reports the timeline's order as {@link #SORTED} by time, and {@link #IMMUTABLE} when the
+ * array it covers will never change.</p>
+ *
+ * @param <TimedType> the type of timed object in the array
+ */
+final class TimelineSpliterator <TimedType extends ITimed> implements Spliterator<TimedType> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    // Package private on purpose- other spliterators over timelines report the same order
+    static final Comparator<ITimed> BY_TIME = Comparator.comparing(ITimed::getTime);
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final Object[] array;
+    private int index;
+    private final int fence;
+    private final int characteristics;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * @param array the backing array, sorted by time
+     * @param from the first index to cover, inclusive
+     * @param to the last index to cover, exclusive
+     * @param immutable whether the covered part of the array is guaranteed never to change
+     */
+    TimelineSpliterator(@NotNull Object[] array, int from, int to, boolean immutable) {
+        this(array, from, to, ORDERED | SORTED | SIZED | SUBSIZED | NONNULL | (immutable ? IMMUTABLE : 0));
+    }
+
+    private TimelineSpliterator(Object[] array, int from, int to, int characteristics) {
+        this.array = array;
+        this.index = from;
+        this.fence = to;
+        this.characteristics = characteristics;
+    }
+
+    @Override
+    public Spliterator<TimedType> trySplit() {
+        int low = index, mid = (low + fence) >>> 1;
+        if (low >= mid) {
+            return null;
+        }
+        index = mid;
+        return new TimelineSpliterator<>(array, low, mid, characteristics);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAdvance(@NotNull Consumer<? super TimedType> action) {
+        if (index < fence) {
+            action.accept((TimedType) array[index++]);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachRemaining(@NotNull Consumer<? super TimedType> action) {
+        Object[] array = this.array;
+        int fence = this.fence;
+        for (int i = index; i < fence; i++) {
+            action.accept((TimedType) array[i]);
+        }
+        index = fence;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+
+    @Override
+    public Comparator<? super TimedType> getComparator() {
+        return BY_TIME;
+    }
+}
@@ -0,0 +1,123 @@
+package util.timeline;
+
+import form.ITimed;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * A live window onto part of another timeline, from one time (inclusive) to another (exclusive). Nothing is copied:
+ * every lookup is answered by the underlying timeline and clamped to the window, and the window's bounds are searched
+ * for afresh on every call, so the view keeps up with anything added to its timeline. Lookups cost what they cost on
+ * the timeline itself, and iterating costs only as much as the window holds.</p>
+ *
+ * @param <TimedType> the type of timed object held by the underlying timeline
+ */
+final class TimelineView <TimedType extends ITimed> implements ITimeline<TimedType> {
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final IRangedTimeline<TimedType> timeline;
+    /** The start of the window, inclusive, or null if it's unbounded */
+    private final Time from;
+    /** The end of the window, exclusive, or null if it's unbounded */
+    private final Time to;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    TimelineView(@NotNull IRangedTimeline<TimedType> timeline, @Nullable Time from, @Nullable Time to) {
+        this.timeline = timeline;
+        this.from = from;
+        this.to = to;
+    }
+
+    // PUBLIC GETTERS
+    @Override
+    public @Nullable TimedType getFirst() {
+        return from == null ? bounded(timeline.getFirst()) : bounded(timeline.getAfter(from));
+    }
+    @Override
+    public @Nullable TimedType getLast() {
+        return to == null ? bounded(timeline.getLast()) : bounded(timeline.getLower(to));
+    }
+    @Override
+    public @Nullable TimedType getAt(@NotNull Time time) {
+        return contains(time) ? timeline.getAt(time) : null;
+    }
+    @Override
+    public @Nullable TimedType getBefore(@NotNull Time time) {
+        if (from != null && time.compareTo(from) < 0) return null;
+        if (to != null && time.compareTo(to) >= 0) return getLast();
+        return bounded(timeline.getBefore(time));
+    }
+    @Override
+    public @Nullable TimedType getAfter(@NotNull Time time) {
+        if (to != null && time.compareTo(to) >= 0) return null;
+        if (from != null && time.compareTo(from) < 0) return getFirst();
+        return bounded(timeline.getAfter(time));
+    }
+
+    @Override
+    public @NotNull ITimeline<TimedType> subTimeline(@NotNull Time from, @NotNull Time to) {
+        return new TimelineView<>(timeline, later(this.from, from), earlier(this.to, to));
+    }
+    @Override
+    public @NotNull ITimeline<TimedType> headTimeline(@NotNull Time to) {
+        return new TimelineView<>(timeline, from, earlier(this.to, to));
+    }
+    @Override
+    public @NotNull ITimeline<TimedType> tailTimeline(@NotNull Time from) {
+        return new TimelineView<>(timeline, later(this.from, from), to);
+    }
+
+    @Override
+    public @NotNull Stream<TimedType> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+    @Override
+    public @NotNull Stream<TimedType> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+    @Override
+    public @NotNull Iterator<TimedType> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+    @Override
+    public @NotNull Spliterator<TimedType> spliterator() {
+        if (from != null && to != null && from.compareTo(to) >= 0) {
+            return Spliterators.emptySpliterator();
+        }
+        return timeline.spliterator(from, to);
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private boolean contains(@NotNull Time time) {
+        return (from == null || time.compareTo(from) >= 0) && (to == null || time.compareTo(to) < 0);
+    }
+
+    private @Nullable TimedType bounded(@Nullable TimedType timed) {
+        return timed != null && contains(timed.getTime()) ? timed : null;
+    }
+
+    private static @Nullable Time later(@Nullable Time a, @NotNull Time b) {
+        return a == null || b.compareTo(a) > 0 ? b : a;
+    }
+
+    private static @Nullable Time earlier(@Nullable Time a, @NotNull Time b) {
+        return a == null || b.compareTo(a) < 0 ? b : a;
+    }
+}
@@ -0,0 +1,75 @@
+package form.passage;
+
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import org.junit.jupiter.api.Test;
+import sound.attributes.Instrument;
+import sound.pitched.Pitch;
+import util.fraction.Rational;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ControllerLaneTest {
+    private static final Time ONE = Time.of(Measure.ONE);
+
+    @Test
+    void laneTest() {
+        ControllerLane lane = new ControllerLane(7);
+        for (int i = 0; i < 100; i++) lane.add(ONE.plus(Duration.of(i, 8)), i);
+        // Out of order, and twice on one time, which keeps the order they were added in
+        lane.add(ONE.plus(Duration.of(3, 16)), 120);
+        lane.add(ONE.plus(Duration.of(3, 16)), 121);
+        assertEquals(102, lane.size());
+        assertEquals(Arrays.asList(0, 1, 120, 121, 2), lane.values().limit(5).boxed().collect(Collectors.toList()));
+        assertEquals(ONE.plus(Duration.of(3, 16)).toRational(), lane.getTime(3));
+        assertEquals(lane.times().boxed().sorted(Rational::compare).collect(Collectors.toList()),
+                lane.times().boxed().collect(Collectors.toList()));
+
+        assertEquals(-1, lane.getValueAt(Time.of(Measure.PICKUP), -1));
+        assertEquals(0, lane.getValueAt(ONE, -1));
+        assertEquals(121, lane.getValueAt(ONE.plus(Duration.of(3, 16)), -1));
+        assertEquals(121, lane.getValueAt(ONE.plus(Duration.of(7, 32)), -1));
+        assertEquals(99, lane.getValueAt(Time.of(Measure.of(100)), -1));
+
+        assertEquals(2, lane.rowAt(ONE.plus(Duration.of(3, 16))));
+        assertEquals(4, lane.rowAt(ONE.plus(Duration.of(7, 32))));
+        assertEquals(0, lane.rowAt(Time.of(Measure.PICKUP)));
+        assertEquals(lane.size(), lane.rowAt(Time.of(Measure.of(100))));
+
+        ControllerLane during = lane.getDuring(ONE.plus(Duration.of(1, 8)), Time.of(Measure.of(2)));
+        assertEquals(7, during.getController());
+        assertEquals(Arrays.asList(1, 120, 121, 2, 3, 4, 5, 6, 7),
+                during.values().boxed().collect(Collectors.toList()));
+        assertTrue(lane.getDuring(Time.of(Measure.of(2)), ONE).isEmpty());
+        assertEquals(Arrays.asList(1, 120), lane.getDuring(ONE.plus(Duration.of(1, 8)), ONE.plus(Duration.of(2, 8)))
+                .values().limit(2).boxed().collect(Collectors.toList()));
+    }
+    @Test
+    void valueTest() {
+        assertEquals(0x3FFF, new ControllerLane(ControllerLane.PITCH_BEND).add(ONE, 0x3FFF).getValue(0));
+        assertEquals(ControllerLane.POLY_PRESSURE + 60, ControllerLane.polyPressure(60));
+        assertThrows(Error.class, () -> new ControllerLane(7).add(ONE, 128));
+        assertThrows(Error.class, () -> new ControllerLane(ControllerLane.PITCH_BEND).add(ONE, -1));
+        assertThrows(Error.class, () -> new ControllerLane(ControllerLane.CONTROLLERS));
+        assertThrows(Error.class, () -> ControllerLane.polyPressure(128));
+        assertThrows(Error.class, () -> new ControllerLane(1).getValue(0));
+    }
+    @Test
+    void partTest() {
+        Ensemble score = new Ensemble("Lanes");
+        Line<Pitch> line = score.addLine(Instrument.DEFAULT);
+        assertEquals(Collections.emptyList(), line.getLanes());
+        assertSame(line.getLane(64), line.getLane(64));
+        line.getLane(ControllerLane.PITCH_BEND).add(ONE, ControllerLane.PITCH_BEND_CENTRE);
+        line.getLane(1).add(ONE, 10);
+        // A lane asked for but never changed isn't one of the part's lanes
+        assertEquals(Arrays.asList(1, ControllerLane.PITCH_BEND),
+                line.getLanes().stream().map(ControllerLane::getController).collect(Collectors.toList()));
+        assertThrows(Error.class, () -> line.getLane(-1));
+    }
+}
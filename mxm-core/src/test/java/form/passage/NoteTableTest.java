@@ -0,0 +1,94 @@
+package form.passage;
+
+import form.events.Note;
+import form.time.Duration;
+import form.time.Time;
+import org.junit.jupiter.api.Test;
+import sound.attributes.Accent;
+import sound.attributes.Dynamic;
+import sound.attributes.Technique;
+import sound.pitched.Pitch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteTableTest {
+    @Test
+    void lineTest() {
+        LeadSheet leadSheet = new LeadSheet("Table");
+        Line<Pitch> tune = leadSheet.getTune();
+        tune.add(Pitch.get(60), Duration.of(1,4));
+        tune.add(Duration.of(1,8));
+        tune.add(Pitch.get(64), Duration.of(3,8));
+        tune.getNotes().getLast().set(Dynamic.FORTE).set(Technique.of("pizzicato")).set(Accent.of("staccato"));
+
+        NoteTable table = NoteTable.of(tune);
+        assertEquals(2, table.size());
+        assertEquals(Arrays.asList(60, 64), table.pitches().boxed().collect(Collectors.toList()));
+        assertEquals(Arrays.asList(NoteTable.NONE, 96), table.velocities().boxed().collect(Collectors.toList()));
+        assertEquals(tune.getNotes().getLast().getStart().toRational(), table.getStart(1));
+        assertEquals(Duration.of(3,8).toRational(), table.getDuration(1));
+        assertEquals(Arrays.asList(0L, 12L), table.startTicks(32).map(tick -> tick - table.startTicks(32)
+                .findFirst().getAsLong()).boxed().collect(Collectors.toList()));
+        assertNull(table.getTechnique(0));
+        assertEquals(Technique.of("pizzicato"), table.getTechnique(1));
+        assertEquals(Accent.of("staccato"), table.getAccent(1));
+        assertSame(tune, table.getPart(1));
+        assertThrows(Error.class, () -> table.getPitch(2));
+    }
+    @Test
+    void scoreTest() {
+        Chorale chorale = new Chorale("Table");
+        Random random = new Random(0);
+        Duration[] rhythms = {Duration.of(1,4), Duration.of(1,8), Duration.of(1,2), Duration.of(1,6)};
+        for (Line<Pitch> line : Arrays.asList(chorale.getSoprano(), chorale.getAlto(), chorale.getTenor(),
+                chorale.getBass())) {
+            for (int i = 0; i < 200; i++) {
+                if (random.nextInt(6) == 0) line.add(rhythms[random.nextInt(rhythms.length)]);
+                line.add(Pitch.get(40 + random.nextInt(40)), rhythms[random.nextInt(rhythms.length)]);
+                if (random.nextBoolean()) line.getNotes().getLast().set(Dynamic.of(random.nextInt(128)));
+            }
+        }
+        NoteTable table = NoteTable.of(chorale);
+        List<Note<?>> expected = new ArrayList<>();
+        chorale.getNoteIterator().forEachRemaining(expected::add);
+        assertEquals(expected.size(), table.size());
+        assertEquals(4, table.getParts().size());
+
+        // Back to notes, with every property intact
+        List<Note<?>> notes = table.toNotes();
+        for (int row = 0; row < table.size(); row++) {
+            Note<?> original = expected.get(row), copy = notes.get(row);
+            assertEquals(original.getStart(), copy.getStart());
+            assertEquals(original.getEnd(), copy.getEnd());
+            assertSame(original.getSound(), copy.getSound());
+            assertSame(original.getPart(), copy.getPart());
+            assertEquals(original.getDynamic(), copy.getDynamic());
+            assertEquals(((Pitch) original.getSound()).getValue(), table.getPitch(row));
+        }
+
+        // And onto the lines of a new score, rests and all
+        Chorale copy = new Chorale("Copy");
+        List<Line<Pitch>> lines = Arrays.asList(copy.getSoprano(), copy.getAlto(), copy.getTenor(), copy.getBass());
+        for (int part = 0; part < 4; part++) {
+            table.appendTo(lines.get(part), part);
+        }
+        NoteTable copied = NoteTable.of(copy);
+        assertEquals(table.starts().boxed().collect(Collectors.toList()),
+                copied.starts().boxed().collect(Collectors.toList()));
+        assertEquals(table.durations().boxed().collect(Collectors.toList()),
+                copied.durations().boxed().collect(Collectors.toList()));
+        assertEquals(table.pitches().boxed().collect(Collectors.toList()),
+                copied.pitches().boxed().collect(Collectors.toList()));
+        assertEquals(table.velocities().boxed().collect(Collectors.toList()),
+                copied.velocities().boxed().collect(Collectors.toList()));
+        assertEquals(table.partIndices().boxed().collect(Collectors.toList()),
+                copied.partIndices().boxed().collect(Collectors.toList()));
+        assertThrows(Error.class, () -> table.appendTo(lines.get(0), 0));
+    }
+}
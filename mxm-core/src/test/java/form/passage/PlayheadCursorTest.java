@@ -0,0 +1,89 @@
+package form.passage;
+
+import form.attributes.Tempo;
+import form.attributes.TimeSig;
+import form.events.Note;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import org.junit.jupiter.api.Test;
+import sound.pitched.Pitch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayheadCursorTest {
+    @Test
+    void walkTest() {
+        Chorale chorale = chorale();
+        PlayheadCursor cursor = new PlayheadCursor(chorale);
+        assertEquals(Time.of(Measure.ONE), cursor.getTime());
+
+        // Stepping from change to change visits every start, end and change once, and agrees with the score at each
+        TreeSet<Time> expected = new TreeSet<>();
+        chorale.getNoteIterator().forEachRemaining(note -> {
+            expected.add(note.getStart());
+            expected.add(note.getEnd());
+        });
+        chorale.getTempoChanges().forEach(change -> expected.add(change.getTime()));
+        chorale.getTimeSigChanges().forEach(change -> expected.add(change.getTime()));
+        List<Time> visited = new ArrayList<>();
+        Time next;
+        while ((next = cursor.getNextTime()) != null) {
+            cursor.advanceTo(next);
+            assertAgrees(chorale, cursor);
+            visited.add(next);
+        }
+        assertEquals(new ArrayList<>(expected.tailSet(Time.of(Measure.ONE), false)), visited);
+        assertTrue(cursor.getSoundingNotes().isEmpty());
+    }
+    @Test
+    void seekTest() {
+        Chorale chorale = chorale();
+        PlayheadCursor cursor = new PlayheadCursor(chorale);
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            // Forwards and backwards, on and between events
+            Time time = Time.of(Measure.ONE).plus(Duration.of(random.nextInt(30 * 48), 48));
+            if (random.nextBoolean()) cursor.seek(time);
+            else cursor.advanceTo(time);
+            assertEquals(time, cursor.getTime());
+            assertAgrees(chorale, cursor);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static Chorale chorale() {
+        Chorale chorale = new Chorale("Playhead");
+        Duration[] rhythms = {Duration.of(1,4), Duration.of(1,8), Duration.of(1,2), Duration.of(1,6)};
+        Random random = new Random(0);
+        for (Line<Pitch> line : Arrays.asList(chorale.getSoprano(), chorale.getAlto(), chorale.getTenor(),
+                chorale.getBass())) {
+            for (int i = 0; i < 100; i++) {
+                if (random.nextInt(8) == 0) line.add(Duration.of(1,4));
+                line.add(Pitch.random(), rhythms[random.nextInt(rhythms.length)]);
+            }
+        }
+        chorale.add(TimeSig.THREE_FOUR, Measure.of(4));
+        chorale.add(TimeSig.SIX_EIGHT, Measure.of(9));
+        chorale.add(Tempo.of(90), Time.of(Measure.of(3)).plus(Duration.of(1,8)));
+        chorale.add(Tempo.of(140), Time.of(Measure.of(12)));
+        return chorale;
+    }
+
+    private static void assertAgrees(Score score, PlayheadCursor cursor) {
+        Time time = cursor.getTime();
+        assertEquals(score.getTempoAt(time), cursor.getTempo());
+        assertEquals(score.getTimeSigAt(time), cursor.getTimeSig());
+        List<Note<?>> expected = new ArrayList<>(score.getNotesAt(time));
+        assertEquals(new HashSet<>(expected), new HashSet<>(cursor.getSoundingNotes()));
+        assertEquals(expected.size(), cursor.getSoundingNotes().size());
+    }
+}
@@ -0,0 +1,42 @@
+package form.time;
+
+import org.junit.jupiter.api.Test;
+import util.fraction.Rational;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternerTest {
+    @Test
+    void identityTest() {
+        // Common values come out of the precomputed table
+        assertSame(Duration.of(1,4), Duration.of(2,8));
+        assertSame(Duration.of(1,12), Duration.of(1,3).divBy(4));
+        assertSame(Time.of(Measure.ONE).plus(Duration.of(1,4)), Time.of(Beat.of(1,4), Measure.ONE));
+        // Rare ones come out of the overflow cache
+        assertSame(Duration.of(3,7), Duration.of(6,14));
+        assertSame(Time.of(Measure.of(1000)), Time.of(Measure.of(1000)));
+        assertSame(Time.of(Measure.of(-1)), Time.of(Measure.of(-2)).plus(Duration.of(1)));
+    }
+    @Test
+    void statisticsTest() {
+        Interner<Duration> interner = Duration.interner();
+        long tableHits = interner.getTableHits();
+        long misses = interner.getMisses();
+        Duration.of(1,8);
+        assertEquals(tableHits + 1, interner.getTableHits());
+        Duration.of(1,1234567);
+        assertEquals(misses + 1, interner.getMisses());
+        assertTrue(interner.getHitRate() > 0);
+    }
+    @Test
+    void evictionTest() {
+        Interner<Duration> interner = new Interner<>(Duration::of, Duration::getFraction, 1, 8);
+        assertEquals(8, interner.getOverflowCapacity());
+        for (int i = 0; i < 100; i++) {
+            interner.intern(Rational.of(1, 101 + i));
+        }
+        assertTrue(interner.getEvictions() > 0);
+        // Evicted values are still correct, just no longer shared
+        assertEquals(Duration.of(1,101), interner.intern(Rational.of(1,101)));
+    }
+}
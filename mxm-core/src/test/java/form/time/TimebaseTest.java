@@ -0,0 +1,43 @@
+package form.time;
+
+import form.passage.LeadSheet;
+import org.junit.jupiter.api.Test;
+import sound.pitched.Pitch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimebaseTest {
+    @Test
+    void adaptiveTest() {
+        Timebase timebase = Timebase.adaptive();
+        assertTrue(timebase.observe(Time.of(Measure.ONE)));
+        assertEquals(1, timebase.getResolution());
+        timebase.observe(Time.of(Beat.of(1,4), Measure.ONE));
+        timebase.observe(Time.of(Beat.of(1,6), Measure.ONE));
+        assertEquals(12, timebase.getResolution());
+        assertEquals(15, timebase.toTicks(Time.of(Beat.of(1,4), Measure.ONE)));
+        assertEquals(Time.of(Beat.of(1,4), Measure.ONE), timebase.fromTicks(15));
+    }
+    @Test
+    void fixedTest() {
+        Timebase timebase = Timebase.ofPPQ(480);
+        assertEquals(1920, timebase.getResolution());
+        assertTrue(timebase.observe(Time.of(Beat.of(1,3), Measure.ONE)));
+        assertEquals(2560, timebase.toTicks(Time.of(Beat.of(1,3), Measure.ONE)));
+        // 1/7 does not divide 1920, so this falls back to rationals for good
+        assertFalse(timebase.observe(Time.of(Beat.of(1,7), Measure.ONE)));
+        assertFalse(timebase.isTicked());
+        assertFalse(timebase.observe(Time.of(Measure.ONE)));
+        assertThrows(Error.class, () -> timebase.toTicks(Time.of(Measure.ONE)));
+    }
+    @Test
+    void scoreTest() {
+        LeadSheet leadSheet = new LeadSheet("Timebase");
+        leadSheet.getTune().add(Pitch.random(), Duration.of(1,8)).add(Pitch.random(), Duration.of(1,12));
+        assertEquals(24, leadSheet.getTimebase().getResolution());
+
+        LeadSheet rational = new LeadSheet("Rational", Timebase.rational());
+        rational.getTune().add(Pitch.random(), Duration.of(1,8));
+        assertFalse(rational.getTimebase().isTicked());
+    }
+}
@@ -0,0 +1,137 @@
+package general;
+
+import form.attributes.Tempo;
+import form.passage.Ensemble;
+import form.passage.Line;
+import form.passage.Score;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import sound.attributes.Dynamic;
+import sound.attributes.Instrument;
+import sound.pitched.Pitch;
+import util.fraction.Rational;
+import util.io.BinaryScoreReader;
+import util.io.BinaryScoreWriter;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the .mxmb format against MIDI for the MIDI files bundled with mxm-midi: the size of each file, and how long
+ * it takes to parse. The MIDI side only parses into a javax.sound.midi Sequence, which is less than a score; the
+ * .mxmb side reads all the way back into one. Each MIDI file is turned into a score here, one line per voice of each
+ * track, to have something to write.
+ */
+public class BinaryScoreBenchmark {
+    public static String RESOURCES = "mxm-midi/src/test/resources";
+    public static int SAMPLES = 50;
+
+    public static void main(String[] args) throws Exception {
+        File folder = new File(args.length > 0 ? args[0] : RESOURCES);
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".mid"));
+        if (files == null || files.length == 0) throw new Error("No MIDI files in " + folder.getAbsolutePath());
+
+        for (File file : files) {
+            Score score = toScore(MidiSystem.getSequence(file), file.getName());
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            new BinaryScoreWriter().write(score, Channels.newChannel(output));
+            byte[] bytes = output.toByteArray();
+
+            long midi = Long.MAX_VALUE, binary = Long.MAX_VALUE;
+            for (int s = 0; s < SAMPLES; s++) {
+                long startTime = System.nanoTime();
+                MidiSystem.getSequence(file);
+                midi = Math.min(midi, System.nanoTime() - startTime);
+
+                startTime = System.nanoTime();
+                new BinaryScoreReader().read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+                binary = Math.min(binary, System.nanoTime() - startTime);
+            }
+
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println(file.getName() + ": " + score.getNoteCount() + " notes in " + score.getParts().size()
+                    + " lines");
+            System.out.println("MIDI bytes:                " + file.length());
+            System.out.println(".mxmb bytes:               " + bytes.length);
+            System.out.println("MIDI to Sequence us:       " + midi / 1000);
+            System.out.println(".mxmb to Score us:         " + binary / 1000);
+        }
+    }
+
+    // Pairs each note-on with the oldest unfinished one of its key, and gives every note the first line free for it
+    private static Score toScore(Sequence sequence, String title) {
+        Ensemble ensemble = new Ensemble(title);
+        long ticksPerMeasure = 4L * sequence.getResolution();
+        for (Track track : sequence.getTracks()) {
+            Map<Integer, ArrayDeque<long[]>> pending = new HashMap<>();
+            List<long[]> notes = new ArrayList<>();
+            for (int i = 0; i < track.size(); i++) {
+                MidiEvent event = track.get(i);
+                if (event.getMessage() instanceof MetaMessage) {
+                    MetaMessage meta = (MetaMessage) event.getMessage();
+                    if (meta.getType() == 0x51 && ensemble.getTempoChanges().getAt(time(event.getTick(),
+                            ticksPerMeasure)) == null) {
+                        byte[] data = meta.getData();
+                        int micros = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+                        ensemble.add(Tempo.of(60000000 / micros), time(event.getTick(), ticksPerMeasure));
+                    }
+                    continue;
+                }
+                if (!(event.getMessage() instanceof ShortMessage)) continue;
+                ShortMessage message = (ShortMessage) event.getMessage();
+                int key = message.getChannel() * 128 + message.getData1();
+                boolean on = message.getCommand() == ShortMessage.NOTE_ON && message.getData2() > 0;
+                boolean off = message.getCommand() == ShortMessage.NOTE_OFF
+                        || (message.getCommand() == ShortMessage.NOTE_ON && message.getData2() == 0);
+                if (on) {
+                    pending.computeIfAbsent(key, k -> new ArrayDeque<>())
+                            .add(new long[]{event.getTick(), 0, message.getData1(), message.getData2()});
+                } else if (off && pending.containsKey(key) && !pending.get(key).isEmpty()) {
+                    long[] note = pending.get(key).poll();
+                    note[1] = event.getTick();
+                    if (note[1] > note[0]) notes.add(note);
+                }
+            }
+            notes.sort(Comparator.comparingLong(note -> note[0]));
+            List<Line<Pitch>> lines = new ArrayList<>();
+            for (long[] note : notes) {
+                Time start = time(note[0], ticksPerMeasure);
+                Line<Pitch> free = null;
+                for (Line<Pitch> line : lines) {
+                    if (line.getWriteHead().compareTo(start) <= 0) {
+                        free = line;
+                        break;
+                    }
+                }
+                if (free == null) {
+                    free = ensemble.addLine(Instrument.DEFAULT);
+                    lines.add(free);
+                }
+                if (free.getWriteHead().compareTo(start) < 0) free.add(start.minus(free.getWriteHead()));
+                free.add(Pitch.get((int) note[2]), time(note[1], ticksPerMeasure).minus(start));
+                free.getNotes().getLast().set(Dynamic.of((int) note[3]));
+            }
+        }
+        return ensemble;
+    }
+
+    private static Time time(long ticks, long ticksPerMeasure) {
+        return Time.of(Measure.ONE).plus(Duration.ofRational(Rational.of(ticks, ticksPerMeasure)));
+    }
+}
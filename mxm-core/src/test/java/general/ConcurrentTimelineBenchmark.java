@@ -0,0 +1,84 @@
+package general;
+
+import form.attributes.Tempo;
+import form.events.TempoChange;
+import form.passage.LeadSheet;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import form.time.Timebase;
+import util.timeline.ConcurrentSerialTimeline;
+import util.timeline.SerialTimeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Races a number of writer threads adding events at interleaved times, once into a SerialTimeline guarded by a lock
+ * and once into a ConcurrentSerialTimeline, and compares how many adds per second each manages.
+ */
+public class ConcurrentTimelineBenchmark {
+    public static int THREADS = 16;
+    public static int ADDS_PER_THREAD = 50000;
+    public static int SAMPLES = 5;
+
+    public static void main(String[] args) throws Exception {
+        Time[] times = new Time[THREADS * ADDS_PER_THREAD];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = Time.of(Measure.ONE).plus(Duration.of(i, 64));
+        }
+
+        LeadSheet leadSheet = new LeadSheet("Benchmark");
+        for (int s = 0; s < SAMPLES; s++) {
+            SerialTimeline<TempoChange> serial = new SerialTimeline<>(Timebase.adaptive());
+            long locked = run(leadSheet, times, event -> {
+                synchronized (serial) {
+                    return serial.addIfAbsent(event);
+                }
+            });
+            ConcurrentSerialTimeline<TempoChange> concurrent = new ConcurrentSerialTimeline<>();
+            long lockFree = run(leadSheet, times, concurrent::addIfAbsent);
+            if (serial.size() != concurrent.size()) throw new Error("Timelines disagree!");
+
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println(THREADS + " writers, " + times.length + " adds, "
+                    + Runtime.getRuntime().availableProcessors() + " cores");
+            System.out.println("Synchronized SerialTimeline adds/s: " + times.length * 1000000000L / locked);
+            System.out.println("ConcurrentSerialTimeline adds/s:    " + times.length * 1000000000L / lockFree);
+        }
+    }
+
+    // Each writer takes every THREADS-th time, so every writer is adding all over the timeline at once
+    private static long run(LeadSheet leadSheet, Time[] times, Adder adder) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = offset; i < times.length; i += THREADS) {
+                    adder.add(new TempoChange(leadSheet, times[i], Tempo.DEFAULT));
+                }
+                return null;
+            }));
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - startTime;
+        executor.shutdown();
+        return elapsed;
+    }
+
+    private interface Adder {
+        boolean add(TempoChange event);
+    }
+}
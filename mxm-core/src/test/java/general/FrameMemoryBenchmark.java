@@ -0,0 +1,83 @@
+package general;
+
+import form.events.Note;
+import form.passage.Chorale;
+import form.passage.Line;
+import form.time.Duration;
+import form.time.Time;
+import sound.pitched.Pitch;
+import util.timeline.Frame;
+import util.timeline.ITimeline;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Measures the heap retained per frame of a dense four-voice chorale, against the four {@link TreeSet}s per frame
+ * which {@link Frame} used to allocate, holding the same events, in a {@link TreeMap} as the parallel timeline used
+ * to be.
+ */
+public class FrameMemoryBenchmark {
+    public static int NUM_NOTES = 200000;
+    public static int SAMPLES = 3;
+
+    private static final Duration[] RHYTHMS = {
+            Duration.of(1,4), Duration.of(1,8), Duration.of(1,2), Duration.of(1,16), Duration.of(3,8), Duration.of(1,12)
+    };
+    private static final Comparator<Object> BY_IDENTITY =
+            Comparator.comparingInt(System::identityHashCode);
+
+    public static void main(String[] args) {
+        for (int s = 0; s < SAMPLES; s++) {
+            Random random = new Random(s);
+            Chorale chorale = new Chorale("Benchmark");
+            for (Line<Pitch> line : new Line[]{chorale.getSoprano(), chorale.getAlto(), chorale.getTenor(), chorale.getBass()}) {
+                for (int i = 0; i < NUM_NOTES / 4; i++) {
+                    line.add(Pitch.get(36 + random.nextInt(48)), RHYTHMS[random.nextInt(RHYTHMS.length)]);
+                }
+            }
+
+            // COMPACT FRAMES
+            long before = usedMemory();
+            ITimeline<Frame<Note<?>>> frames = chorale.getFrames();
+            long compact = usedMemory() - before;
+            int numFrames = 0, numEvents = 0;
+            for (Frame<Note<?>> frame : frames) {
+                numFrames++;
+                numEvents += frame.ongoingEvents().size() + frame.endedEvents().size();
+            }
+
+            // FOUR TREESETS PER FRAME, each frame in a TreeMap
+            before = usedMemory();
+            TreeMap<Time, Object[]> treeFrames = new TreeMap<>();
+            for (Frame<Note<?>> frame : frames) {
+                TreeSet<Object> started = new TreeSet<>(BY_IDENTITY), ongoing = new TreeSet<>(BY_IDENTITY);
+                TreeSet<Object> continued = new TreeSet<>(BY_IDENTITY), ended = new TreeSet<>(BY_IDENTITY);
+                started.addAll(frame.startedEvents());
+                ongoing.addAll(frame.ongoingEvents());
+                continued.addAll(frame.continuedEvents());
+                ended.addAll(frame.endedEvents());
+                treeFrames.put(frame.getTime(), new Object[]{frame.getTime(), started, ongoing, continued, ended});
+            }
+            long trees = usedMemory() - before;
+
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println(NUM_NOTES + " notes in " + numFrames + " frames, " + numEvents + " event slots ("
+                    + treeFrames.size() + ")");
+            System.out.println("Compact bytes per frame:  " + compact / numFrames);
+            System.out.println("TreeSet bytes per frame:  " + trees / numFrames);
+            System.out.println("Ratio: " + String.format("%.1f", (double) trees / compact));
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,66 @@
+package general;
+
+import form.passage.LeadSheet;
+import form.passage.Line;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import sound.pitched.Pitch;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures time and bytes allocated per {@link Line#add} and per {@link Time#plus}, to keep an eye on how much the
+ * arithmetic path allocates.
+ */
+public class LineBenchmark {
+    public static int NUM_NOTES = 1000000;
+    public static int SAMPLES = 5;
+
+    private static final Duration[] RHYTHM = {
+            Duration.of(1,4), Duration.of(1,8), Duration.of(1,8), Duration.of(1,12), Duration.of(1,12),
+            Duration.of(1,12), Duration.of(3,16), Duration.of(1,16), Duration.of(1,2)
+    };
+
+    public static void main(String[] args) {
+        Pitch pitch = Pitch.random();
+
+        for (int s = 0; s < SAMPLES; s++) {
+            // LINE.ADD
+            LeadSheet leadSheet = new LeadSheet("Benchmark");
+            Line<Pitch> line = leadSheet.getTune();
+            long startBytes = allocatedBytes();
+            long startTime = System.nanoTime();
+            for (int i = 0; i < NUM_NOTES; i++) {
+                line.add(pitch, RHYTHM[i % RHYTHM.length]);
+            }
+            long elapsedTime = System.nanoTime() - startTime;
+            long elapsedBytes = allocatedBytes() - startBytes;
+
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println("Line.add x " + NUM_NOTES);
+            System.out.println("Average ns per add: " + elapsedTime / NUM_NOTES);
+            System.out.println("Average bytes per add: " + elapsedBytes / NUM_NOTES);
+
+            // TIME.PLUS
+            Time time = Time.of(Measure.ONE);
+            startBytes = allocatedBytes();
+            startTime = System.nanoTime();
+            for (int i = 0; i < NUM_NOTES; i++) {
+                time = time.plus(RHYTHM[i % RHYTHM.length]);
+            }
+            elapsedTime = System.nanoTime() - startTime;
+            elapsedBytes = allocatedBytes() - startBytes;
+
+            System.out.println("Time.plus x " + NUM_NOTES + " (ends at " + time + ")");
+            System.out.println("Average ns per plus: " + elapsedTime / NUM_NOTES);
+            System.out.println("Average bytes per plus: " + elapsedBytes / NUM_NOTES);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,116 @@
+package general;
+
+import form.events.Note;
+import form.passage.Chorale;
+import form.passage.Line;
+import form.passage.NoteTable;
+import form.time.Duration;
+import sound.attributes.Dynamic;
+import sound.pitched.Pitch;
+import util.fraction.Rational;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs a small feature extraction over every note of a large chorale- a pitch class histogram, a histogram of
+ * melodic intervals within each part, and the mean velocity and duration- once over the notes themselves, and once
+ * over a columnar note table.
+ */
+public class NoteTableBenchmark {
+    public static int NUM_NOTES = 1000000;
+    public static int SAMPLES = 5;
+
+    private static final Duration[] RHYTHMS = {
+            Duration.of(1,4), Duration.of(1,8), Duration.of(1,2), Duration.of(1,16), Duration.of(3,8)
+    };
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+        Chorale chorale = new Chorale("Benchmark");
+        for (Line<Pitch> line : new Line[]{chorale.getSoprano(), chorale.getAlto(), chorale.getTenor(), chorale.getBass()}) {
+            for (int i = 0; i < NUM_NOTES / 4; i++) {
+                line.add(Pitch.get(36 + random.nextInt(48)), RHYTHMS[random.nextInt(RHYTHMS.length)]);
+                line.getNotes().getLast().set(Dynamic.of(random.nextInt(128)));
+            }
+        }
+        List<Note<?>> notes = new ArrayList<>();
+        chorale.getNoteIterator().forEachRemaining(notes::add);
+
+        for (int s = 0; s < SAMPLES; s++) {
+            long startTime = System.nanoTime();
+            long objectResult = analyze(notes);
+            long objects = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            NoteTable table = NoteTable.of(chorale);
+            long building = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            long tableResult = analyze(table);
+            long columns = System.nanoTime() - startTime;
+            if (objectResult != tableResult) throw new Error("Analyses disagree!");
+
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println(NUM_NOTES + " notes (" + tableResult + ")");
+            System.out.println("Notes ns per note:        " + objects / NUM_NOTES);
+            System.out.println("NoteTable ns per note:    " + columns / NUM_NOTES);
+            System.out.println("Building ns per note:     " + building / NUM_NOTES);
+        }
+    }
+
+    private static long analyze(List<Note<?>> notes) {
+        long[] pitchClasses = new long[12];
+        long[] intervals = new long[256];
+        int[] last = new int[4];
+        List<Object> parts = new ArrayList<>();
+        long velocity = 0;
+        double duration = 0;
+        for (Note<?> note : notes) {
+            int pitch = ((Pitch) note.getSound()).getValue();
+            int part = parts.indexOf(note.getPart());
+            if (part < 0) {
+                part = parts.size();
+                parts.add(note.getPart());
+            }
+            pitchClasses[pitch % 12]++;
+            if (last[part] != 0) intervals[128 + pitch - last[part]]++;
+            last[part] = pitch;
+            velocity += note.getDynamic().getValue();
+            long length = note.getDuration().toRational();
+            duration += (double) Rational.numerator(length) / Rational.denominator(length);
+        }
+        return checksum(pitchClasses, intervals, velocity, duration);
+    }
+
+    private static long analyze(NoteTable table) {
+        long[] pitchClasses = new long[12];
+        long[] intervals = new long[256];
+        int[] last = new int[4];
+        int size = table.size();
+        int[] pitches = table.getPitchColumn();
+        int[] parts = table.getPartIndexColumn();
+        int[] velocities = table.getVelocityColumn();
+        long[] durations = table.getDurationColumn();
+        long velocity = 0;
+        double duration = 0;
+        for (int row = 0; row < size; row++) {
+            int pitch = pitches[row], part = parts[row];
+            pitchClasses[pitch % 12]++;
+            if (last[part] != 0) intervals[128 + pitch - last[part]]++;
+            last[part] = pitch;
+            velocity += velocities[row];
+            duration += (double) Rational.numerator(durations[row]) / Rational.denominator(durations[row]);
+        }
+        return checksum(pitchClasses, intervals, velocity, duration);
+    }
+
+    private static long checksum(long[] pitchClasses, long[] intervals, long velocity, double duration) {
+        long checksum = velocity + Math.round(duration);
+        for (int i = 0; i < 12; i++) checksum = checksum * 31 + pitchClasses[i];
+        for (int i = 0; i < 256; i++) checksum = checksum * 31 + intervals[i];
+        return checksum;
+    }
+}
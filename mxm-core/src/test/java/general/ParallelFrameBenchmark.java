@@ -0,0 +1,76 @@
+package general;
+
+import form.events.Note;
+import form.passage.Chorale;
+import form.passage.Line;
+import form.time.Duration;
+import sound.pitched.Pitch;
+import util.timeline.Frame;
+import util.timeline.ITimeline;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times a per-frame analysis over every frame of a large chorale, sequentially and then in parallel at each power of
+ * two up to the number of available cores, to see how the timeline's spliterators scale.
+ */
+public class ParallelFrameBenchmark {
+    public static int NUM_NOTES = 400000;
+    public static int SAMPLES = 5;
+
+    private static final Duration[] RHYTHMS = {
+            Duration.of(1,4), Duration.of(1,8), Duration.of(1,2), Duration.of(1,16), Duration.of(3,8), Duration.of(1,12)
+    };
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(0);
+        Chorale chorale = new Chorale("Benchmark");
+        for (Line<Pitch> line : new Line[]{chorale.getSoprano(), chorale.getAlto(), chorale.getTenor(), chorale.getBass()}) {
+            for (int i = 0; i < NUM_NOTES / 4; i++) {
+                line.add(Pitch.get(36 + random.nextInt(48)), RHYTHMS[random.nextInt(RHYTHMS.length)]);
+            }
+        }
+        ITimeline<Frame<Note<?>>> frames = chorale.getFrames();
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int s = 0; s < SAMPLES; s++) {
+            long startTime = System.nanoTime();
+            long sequentialResult = frames.stream().mapToLong(ParallelFrameBenchmark::analyze).sum();
+            long sequential = System.nanoTime() - startTime;
+
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println(NUM_NOTES + " notes, " + cores + " cores (" + sequentialResult + ")");
+            System.out.println("Sequential ms: " + sequential / 1000000);
+            for (int parallelism = 1; parallelism <= cores; parallelism <<= 1) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                startTime = System.nanoTime();
+                long result = pool.submit(() -> frames.parallelStream().mapToLong(ParallelFrameBenchmark::analyze)
+                        .sum()).get();
+                long parallel = System.nanoTime() - startTime;
+                pool.shutdown();
+                if (result != sequentialResult) throw new Error("Parallel analysis disagrees!");
+                System.out.println("Parallel x" + parallelism + " ms: " + parallel / 1000000
+                        + " (speedup " + String.format("%.2f", (double) sequential / parallel) + ")");
+            }
+        }
+    }
+
+    // Scores the roughness of a frame from the intervals between every pair of sounding pitches
+    private static long analyze(Frame<Note<?>> frame) {
+        long roughness = 0;
+        for (Note<?> low : frame.ongoingEvents()) {
+            for (Note<?> high : frame.ongoingEvents()) {
+                int semitones = Math.abs(((Pitch) high.getSound()).getValue() - ((Pitch) low.getSound()).getValue());
+                switch (semitones % 12) {
+                    case 1: case 11: roughness += 4; break;
+                    case 2: case 10: roughness += 2; break;
+                    case 6:          roughness += 3; break;
+                    default:         break;
+                }
+            }
+        }
+        return roughness + Integer.bitCount(frame.getPitchClassMask());
+    }
+}
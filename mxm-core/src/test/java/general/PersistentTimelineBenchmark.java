@@ -0,0 +1,121 @@
+package general;
+
+import form.events.Note;
+import form.passage.LeadSheet;
+import form.passage.Line;
+import form.time.Duration;
+import form.time.Time;
+import form.time.Timebase;
+import sound.pitched.Pitch;
+import util.timeline.ITimeline;
+import util.timeline.PersistentTimeline;
+import util.timeline.SerialTimeline;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Runs a beam search which, at every step, forks each surviving candidate line several ways, extends each fork by a
+ * few notes, scores it and keeps only the best. Forking either copies a SerialTimeline, or grows a new version of a
+ * PersistentTimeline.
+ */
+public class PersistentTimelineBenchmark {
+    public static int BASE_NOTES = 20000;
+    public static int BEAM_WIDTH = 8;
+    public static int BRANCHES = 8;
+    public static int STEPS = 40;
+    public static int NOTES_PER_STEP = 4;
+    public static int SAMPLES = 5;
+
+    private static final Duration STEP = Duration.of(1,8);
+
+    public static void main(String[] args) {
+        LeadSheet leadSheet = new LeadSheet("Benchmark");
+        Line<Pitch> tune = leadSheet.getTune();
+        Random random = new Random(0);
+        for (int i = 0; i < BASE_NOTES; i++) {
+            tune.add(Pitch.get(48 + random.nextInt(24)), STEP);
+        }
+
+        for (int s = 0; s < SAMPLES; s++) {
+            SerialTimeline<Note<Pitch>> copyBase = new SerialTimeline<>(leadSheet.getTimebase());
+            tune.getNotes().forEach(copyBase::add);
+            long startTime = System.nanoTime();
+            long copyScore = search(tune, copyBase, (timeline) -> {
+                SerialTimeline<Note<Pitch>> copy = new SerialTimeline<>(leadSheet.getTimebase());
+                timeline.forEach(copy::add);
+                return copy;
+            }, (timeline, note) -> {
+                ((SerialTimeline<Note<Pitch>>) timeline).add(note);
+                return timeline;
+            });
+            long copying = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            long persistentScore = search(tune, tune.snapshot(), Function.identity(),
+                    (timeline, note) -> ((PersistentTimeline<Note<Pitch>>) timeline).with(note));
+            long persistent = System.nanoTime() - startTime;
+            if (copyScore != persistentScore) throw new Error("Searches disagree!");
+
+            int forks = STEPS * BEAM_WIDTH * BRANCHES;
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println(BASE_NOTES + " notes, " + forks + " forks (" + persistentScore + ")");
+            System.out.println("Copying SerialTimeline us per fork:  " + copying / 1000 / forks);
+            System.out.println("PersistentTimeline us per fork:      " + persistent / 1000 / forks);
+        }
+    }
+
+    private interface Appender {
+        ITimeline<Note<Pitch>> append(ITimeline<Note<Pitch>> timeline, Note<Pitch> note);
+    }
+
+    private static final class Candidate {
+        private final ITimeline<Note<Pitch>> notes;
+        private final long score;
+
+        private Candidate(ITimeline<Note<Pitch>> notes, long score) {
+            this.notes = notes;
+            this.score = score;
+        }
+    }
+
+    private static long search(Line<Pitch> owner, ITimeline<Note<Pitch>> start,
+                               Function<ITimeline<Note<Pitch>>, ITimeline<Note<Pitch>>> fork, Appender appender) {
+        Random random = new Random(1);
+        List<Candidate> beam = new ArrayList<>();
+        beam.add(new Candidate(start, 0));
+        for (int step = 0; step < STEPS; step++) {
+            List<Candidate> next = new ArrayList<>();
+            for (Candidate candidate : beam) {
+                for (int b = 0; b < BRANCHES; b++) {
+                    ITimeline<Note<Pitch>> notes = fork.apply(candidate.notes);
+                    for (int n = 0; n < NOTES_PER_STEP; n++) {
+                        Time end = notes.getLast().getEnd();
+                        notes = appender.append(notes, new Note<>(owner, Pitch.get(48 + random.nextInt(24)), end,
+                                end.plus(STEP)));
+                    }
+                    next.add(new Candidate(notes, candidate.score + smoothness(notes)));
+                }
+            }
+            next.sort(Comparator.comparingLong(candidate -> -candidate.score));
+            beam = next.subList(0, BEAM_WIDTH);
+        }
+        return beam.get(0).score;
+    }
+
+    // Rewards small leaps between the last few notes
+    private static long smoothness(ITimeline<Note<Pitch>> notes) {
+        long score = 0;
+        Note<Pitch> note = notes.getLast();
+        for (int i = 0; i < NOTES_PER_STEP; i++) {
+            Note<Pitch> previous = notes.getBefore(note.getTime().minus(STEP));
+            score -= Math.abs(note.getSound().getValue() - previous.getSound().getValue());
+            note = previous;
+        }
+        return score;
+    }
+}
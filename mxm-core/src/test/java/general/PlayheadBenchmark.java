@@ -0,0 +1,75 @@
+package general;
+
+import form.attributes.Tempo;
+import form.attributes.TimeSig;
+import form.events.Note;
+import form.passage.Chorale;
+import form.passage.Line;
+import form.passage.PlayheadCursor;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import sound.pitched.Pitch;
+
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Walks every note of a large chorale the way an exporter does, asking for the tempo, time signature and sounding
+ * notes at each: once by asking the score every time, and once by moving a playhead cursor along.
+ */
+public class PlayheadBenchmark {
+    public static int NUM_NOTES = 200000;
+    public static int NUM_CHANGES = 2000;
+    public static int SAMPLES = 5;
+
+    private static final Duration[] RHYTHMS = {
+            Duration.of(1,4), Duration.of(1,8), Duration.of(1,2), Duration.of(1,16), Duration.of(3,8)
+    };
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+        Chorale chorale = new Chorale("Benchmark");
+        for (Line<Pitch> line : new Line[]{chorale.getSoprano(), chorale.getAlto(), chorale.getTenor(), chorale.getBass()}) {
+            for (int i = 0; i < NUM_NOTES / 4; i++) {
+                line.add(Pitch.get(36 + random.nextInt(48)), RHYTHMS[random.nextInt(RHYTHMS.length)]);
+            }
+        }
+        int measures = chorale.getSoprano().getNotes().getEnd().getMeasure().getNumber();
+        chorale.add(Tempo.DEFAULT, Time.of(Measure.ONE));
+        if (chorale.getTimeSigAt(Time.of(Measure.ONE)) == null) chorale.add(TimeSig.DEFAULT, Measure.ONE);
+        for (int i = 1; i <= NUM_CHANGES; i++) {
+            int measure = 1 + i * measures / NUM_CHANGES;
+            chorale.add(Tempo.of(60 + random.nextInt(120)), Time.of(Measure.of(measure)).plus(Duration.of(1,8)));
+            chorale.add(random.nextBoolean() ? TimeSig.FOUR_FOUR : TimeSig.THREE_FOUR, Measure.of(measure));
+        }
+
+        for (int s = 0; s < SAMPLES; s++) {
+            long check = 0;
+            long startTime = System.nanoTime();
+            for (Iterator<Note<?>> notes = chorale.getNoteIterator(); notes.hasNext(); ) {
+                Time time = notes.next().getTime();
+                check += chorale.getTempoAt(time).getBPM() + chorale.getTimeSigAt(time).hashCode()
+                        + chorale.getNotesAt(time).size();
+            }
+            long lookups = System.nanoTime() - startTime;
+
+            long cursorCheck = 0;
+            startTime = System.nanoTime();
+            PlayheadCursor cursor = new PlayheadCursor(chorale);
+            for (Iterator<Note<?>> notes = chorale.getNoteIterator(); notes.hasNext(); ) {
+                cursor.advanceTo(notes.next().getTime());
+                cursorCheck += cursor.getTempo().getBPM() + cursor.getTimeSig().hashCode()
+                        + cursor.getSoundingNotes().size();
+            }
+            long cursing = System.nanoTime() - startTime;
+            if (check != cursorCheck) throw new Error("Cursor disagrees with the score!");
+
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println(NUM_NOTES + " notes, " + NUM_CHANGES * 2 + " changes (" + check + ")");
+            System.out.println("Score lookups ns per note:   " + lookups / NUM_NOTES);
+            System.out.println("PlayheadCursor ns per note:  " + cursing / NUM_NOTES);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package general;
+
+import util.fraction.Rational;
+import util.fraction.ReducedFraction;
+
+import java.util.Random;
+
+/**
+ * Compares the packed {@link Rational} helpers against {@link ReducedFraction} objects, and binary gcd against the
+ * subtractive Euclid loop ReducedFraction used to reduce with.
+ */
+public class RationalBenchmark {
+    public static int NUM_VALUES = 1 << 16;
+    public static int SAMPLES = 200;
+    public static int FACTOR = 1000;
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+        long[] packed = new long[NUM_VALUES];
+        ReducedFraction[] objects = new ReducedFraction[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; i++) {
+            // Musical values: small numerators over powers of two and triplets
+            int den = (1 << random.nextInt(5)) * (random.nextBoolean() ? 3 : 1);
+            int num = 1 + random.nextInt(4 * den);
+            packed[i] = Rational.of(num, den);
+            objects[i] = ReducedFraction.of(num, den);
+        }
+
+        long startTime;
+        long totalTime;
+
+        // SUM WITH REDUCEDFRACTION OBJECTS
+        System.out.println("");
+        System.out.println("====================================");
+        System.out.println("ReducedFraction plus, compare");
+        totalTime = 0;
+        long objectCheck = 0;
+        for (int s = 0; s < SAMPLES; s++) {
+            startTime = System.nanoTime();
+            for (int i = 1; i < NUM_VALUES; i++) {
+                ReducedFraction sum = objects[i - 1].plus(objects[i]);
+                objectCheck += sum.compareTo(objects[i]);
+            }
+            totalTime += System.nanoTime() - startTime;
+        }
+        System.out.println("Average ns per operation: " + (totalTime / SAMPLES) / NUM_VALUES + " (" + objectCheck + ")");
+
+        // SUM WITH PACKED RATIONALS
+        System.out.println("");
+        System.out.println("====================================");
+        System.out.println("Rational plus, compare");
+        totalTime = 0;
+        long packedCheck = 0;
+        for (int s = 0; s < SAMPLES; s++) {
+            startTime = System.nanoTime();
+            for (int i = 1; i < NUM_VALUES; i++) {
+                long sum = Rational.plus(packed[i - 1], packed[i]);
+                packedCheck += Rational.compare(sum, packed[i]);
+            }
+            totalTime += System.nanoTime() - startTime;
+        }
+        System.out.println("Average ns per operation: " + (totalTime / SAMPLES) / NUM_VALUES + " (" + packedCheck + ")");
+
+        // GCD, SUBTRACTIVE VS BINARY
+        long[] as = new long[NUM_VALUES];
+        long[] bs = new long[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; i++) {
+            as[i] = 1 + random.nextInt(1 << 20);
+            bs[i] = 1 + random.nextInt(64);
+        }
+        System.out.println("");
+        System.out.println("====================================");
+        System.out.println("Subtractive gcd");
+        totalTime = 0;
+        long gcdCheck = 0;
+        for (int s = 0; s < SAMPLES / FACTOR + 1; s++) {
+            startTime = System.nanoTime();
+            for (int i = 0; i < NUM_VALUES; i++) {
+                gcdCheck += subtractiveGcd(as[i], bs[i]);
+            }
+            totalTime += System.nanoTime() - startTime;
+        }
+        System.out.println("Average ns per gcd: " + (totalTime / (SAMPLES / FACTOR + 1)) / NUM_VALUES + " (" + gcdCheck + ")");
+
+        System.out.println("");
+        System.out.println("====================================");
+        System.out.println("Binary gcd");
+        totalTime = 0;
+        gcdCheck = 0;
+        for (int s = 0; s < SAMPLES; s++) {
+            startTime = System.nanoTime();
+            for (int i = 0; i < NUM_VALUES; i++) {
+                gcdCheck += Rational.gcd(as[i], bs[i]);
+            }
+            totalTime += System.nanoTime() - startTime;
+        }
+        System.out.println("Average ns per gcd: " + (totalTime / SAMPLES) / NUM_VALUES + " (" + gcdCheck + ")");
+    }
+
+    // What ReducedFraction used to do: O(max(a,b)) steps when one side is much larger than the other
+    private static long subtractiveGcd(long a, long b) {
+        while (a != b) {
+            if (a > b) {
+                a -= b;
+            } else {
+                b -= a;
+            }
+        }
+        return a;
+    }
+}
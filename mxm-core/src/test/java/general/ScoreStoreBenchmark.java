@@ -0,0 +1,120 @@
+package general;
+
+import form.passage.Chorale;
+import form.passage.Line;
+import form.passage.Score;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import sound.attributes.Dynamic;
+import sound.pitched.Pitch;
+import util.io.ScoreStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Holds a corpus of chorales open two ways- as scores on the heap, and as scores mapped from a store- and measures the
+ * heap each takes, and how long it takes to look up what's sounding at random times across the whole corpus.
+ */
+public class ScoreStoreBenchmark {
+    public static int NUM_SCORES = 500;
+    public static int NOTES_PER_LINE = 500;
+    public static int NUM_LOOKUPS = 200000;
+    public static int SAMPLES = 3;
+
+    private static final Duration[] RHYTHMS = {
+            Duration.of(1,4), Duration.of(1,8), Duration.of(1,2), Duration.of(1,16), Duration.of(3,8)
+    };
+
+    public static void main(String[] args) throws Exception {
+        Path path = Files.createTempFile("benchmark", ".mxms");
+        try {
+            long before = usedMemory();
+            List<Score> scores = new ArrayList<>();
+            for (int s = 0; s < NUM_SCORES; s++) {
+                scores.add(randomChorale(s));
+            }
+            long heap = usedMemory() - before;
+
+            long startTime = System.nanoTime();
+            ScoreStore.write(scores, path);
+            long writing = System.nanoTime() - startTime;
+
+            long heapLookups = 0, heapResult = 0;
+            for (int s = 0; s < SAMPLES; s++) {
+                startTime = System.nanoTime();
+                heapResult = lookUp(scores);
+                heapLookups = System.nanoTime() - startTime;
+            }
+            scores = null;
+
+            before = usedMemory();
+            startTime = System.nanoTime();
+            List<Score> mapped = new ArrayList<>();
+            ScoreStore store = ScoreStore.open(path);
+            for (int s = 0; s < store.size(); s++) {
+                mapped.add(store.get(s));
+            }
+            long opening = System.nanoTime() - startTime;
+            long mappedHeap = usedMemory() - before;
+
+            long mappedLookups = 0, mappedResult = 0;
+            for (int s = 0; s < SAMPLES; s++) {
+                startTime = System.nanoTime();
+                mappedResult = lookUp(mapped);
+                mappedLookups = System.nanoTime() - startTime;
+            }
+            if (heapResult != mappedResult) throw new Error("Lookups disagree!");
+            store.close();
+
+            long notes = (long) NUM_SCORES * NOTES_PER_LINE * 4;
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println(NUM_SCORES + " scores, " + notes + " notes, " + Files.size(path) + " bytes stored");
+            System.out.println("Heap bytes per note:       " + heap / notes);
+            System.out.println("Mapped bytes per note:     " + mappedHeap / notes);
+            System.out.println("Writing ns per note:       " + writing / notes);
+            System.out.println("Opening ms:                " + opening / 1000000);
+            System.out.println("Heap ns per lookup:        " + heapLookups / NUM_LOOKUPS);
+            System.out.println("Mapped ns per lookup:      " + mappedLookups / NUM_LOOKUPS);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static Chorale randomChorale(long seed) {
+        Random random = new Random(seed);
+        Chorale chorale = new Chorale("Chorale " + seed);
+        for (Line<Pitch> line : new Line[]{chorale.getSoprano(), chorale.getAlto(), chorale.getTenor(), chorale.getBass()}) {
+            for (int i = 0; i < NOTES_PER_LINE; i++) {
+                line.add(Pitch.get(36 + random.nextInt(48)), RHYTHMS[random.nextInt(RHYTHMS.length)]);
+                line.getNotes().getLast().set(Dynamic.of(random.nextInt(128)));
+            }
+        }
+        return chorale;
+    }
+
+    // The same random lookups every time, so that the last of several samples is measured warm
+    private static long lookUp(List<Score> scores) {
+        Random random = new Random(0);
+        long result = 0;
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            Score score = scores.get(random.nextInt(scores.size()));
+            Time time = Time.of(Measure.ONE).plus(Duration.of(random.nextInt(NOTES_PER_LINE), 8));
+            result += score.getNotesAt(time).size();
+        }
+        return result;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
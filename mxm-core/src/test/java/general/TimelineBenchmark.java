@@ -0,0 +1,96 @@
+package general;
+
+import form.events.Note;
+import form.passage.LeadSheet;
+import form.passage.Line;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import sound.pitched.Pitch;
+import util.timeline.ITimeline;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Builds a one-million-note line and times appends, point lookups and a full iteration, against a plain
+ * {@link TreeMap} holding the same notes (which is what SerialTimeline used to wrap).
+ */
+public class TimelineBenchmark {
+    public static int NUM_NOTES = 1000000;
+    public static int NUM_LOOKUPS = 1000000;
+    public static int SAMPLES = 5;
+
+    private static final Duration[] RHYTHM = {
+            Duration.of(1,4), Duration.of(1,8), Duration.of(1,8), Duration.of(1,12), Duration.of(1,12),
+            Duration.of(1,12), Duration.of(3,16), Duration.of(1,16), Duration.of(1,2)
+    };
+
+    public static void main(String[] args) {
+        Pitch pitch = Pitch.random();
+        Random random = new Random(0);
+
+        for (int s = 0; s < SAMPLES; s++) {
+            // APPEND
+            LeadSheet leadSheet = new LeadSheet("Benchmark");
+            Line<Pitch> line = leadSheet.getTune();
+            long startTime = System.nanoTime();
+            for (int i = 0; i < NUM_NOTES; i++) {
+                line.add(pitch, RHYTHM[i % RHYTHM.length]);
+            }
+            long lineAppend = System.nanoTime() - startTime;
+            ITimeline<Note<Pitch>> notes = line.getNotes();
+
+            TreeMap<Time, Note<Pitch>> tree = new TreeMap<>();
+            startTime = System.nanoTime();
+            for (Note<Pitch> note : notes) {
+                tree.put(note.getTime(), note);
+            }
+            long treeAppend = System.nanoTime() - startTime;
+
+            // LOOKUPS, between and on notes
+            Time end = notes.getLast().getTime();
+            Time[] queries = new Time[NUM_LOOKUPS];
+            for (int i = 0; i < NUM_LOOKUPS; i++) {
+                queries[i] = Time.of(Measure.of(1 + random.nextInt(end.getMeasure().getNumber())))
+                        .plus(Duration.of(random.nextInt(48), 48));
+            }
+            long check = 0;
+            startTime = System.nanoTime();
+            for (Time query : queries) {
+                Note<Pitch> before = notes.getBefore(query);
+                Note<Pitch> after = notes.getAfter(query);
+                check += (before == null ? 0 : 1) + (after == null ? 0 : 1);
+            }
+            long lineLookup = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            for (Time query : queries) {
+                check += (tree.floorEntry(query) == null ? 0 : 1) + (tree.ceilingEntry(query) == null ? 0 : 1);
+            }
+            long treeLookup = System.nanoTime() - startTime;
+
+            // ITERATION
+            startTime = System.nanoTime();
+            for (Note<Pitch> note : notes) {
+                check += note.getTime().getDenominator();
+            }
+            long lineIterate = System.nanoTime() - startTime;
+            startTime = System.nanoTime();
+            for (Note<Pitch> note : tree.values()) {
+                check += note.getTime().getDenominator();
+            }
+            long treeIterate = System.nanoTime() - startTime;
+
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println(NUM_NOTES + " notes, timebase " + leadSheet.getTimebase() + " (" + check + ")");
+            System.out.println("Line.add ns per note:           " + lineAppend / NUM_NOTES);
+            System.out.println("TreeMap.put ns per note:        " + treeAppend / NUM_NOTES);
+            System.out.println("SerialTimeline ns per lookup:   " + lineLookup / (2L * NUM_LOOKUPS));
+            System.out.println("TreeMap ns per lookup:          " + treeLookup / (2L * NUM_LOOKUPS));
+            System.out.println("SerialTimeline ns per iterated: " + lineIterate / NUM_NOTES);
+            System.out.println("TreeMap ns per iterated:        " + treeIterate / NUM_NOTES);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package util.fraction;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RationalTest {
+    private static final int SAMPLES = 200000;
+
+    @Test
+    void creationTest() {
+        assertEquals(Rational.of(1,2), Rational.of(2,4));
+        assertEquals(Rational.of(-1,2), Rational.of(1,-2));
+        assertEquals(Rational.of(-3,4), Rational.of(-6,8));
+        assertEquals(Rational.ZERO, Rational.of(0,17));
+        assertEquals(Rational.ONE, Rational.of(-5,-5));
+        assertEquals(1, Rational.denominator(Rational.of(0,-3)));
+        assertThrows(Error.class, () -> Rational.of(1,0));
+    }
+    @Test
+    void gcdTest() {
+        Random random = new Random(1);
+        for (int i = 0; i < SAMPLES; i++) {
+            long a = random.nextLong() >>> 1, b = random.nextLong() >>> (1 + random.nextInt(62));
+            assertEquals(BigInteger.valueOf(a).gcd(BigInteger.valueOf(b)).longValueExact(), Rational.gcd(a, b));
+        }
+        assertEquals(0, Rational.gcd(0,0));
+        assertEquals(7, Rational.gcd(0,7));
+        assertEquals(12, Rational.lcm(4,6));
+    }
+    @Test
+    void floorTest() {
+        assertEquals(2, Rational.floor(Rational.of(9,4)));
+        assertEquals(Rational.of(1,4), Rational.fractionalPart(Rational.of(9,4)));
+        assertEquals(-3, Rational.floor(Rational.of(-9,4)));
+        assertEquals(Rational.of(3,4), Rational.fractionalPart(Rational.of(-9,4)));
+    }
+    @Test
+    void arithmeticTest() {
+        Random random = new Random(2);
+        for (int i = 0; i < SAMPLES; i++) {
+            long a = random(random), b = random(random);
+            int factor = random.nextInt(2001) - 1000;
+
+            checkAgainst(() -> Rational.plus(a, b),
+                    bigNum(a).multiply(bigDen(b)).add(bigNum(b).multiply(bigDen(a))), bigDen(a).multiply(bigDen(b)));
+            checkAgainst(() -> Rational.minus(a, b),
+                    bigNum(a).multiply(bigDen(b)).subtract(bigNum(b).multiply(bigDen(a))), bigDen(a).multiply(bigDen(b)));
+            checkAgainst(() -> Rational.times(a, factor),
+                    bigNum(a).multiply(BigInteger.valueOf(factor)), bigDen(a));
+            checkAgainst(() -> Rational.times(a, b),
+                    bigNum(a).multiply(bigNum(b)), bigDen(a).multiply(bigDen(b)));
+            if (factor != 0) {
+                checkAgainst(() -> Rational.divBy(a, factor),
+                        bigNum(a), bigDen(a).multiply(BigInteger.valueOf(factor)));
+            }
+            int expected = bigNum(a).multiply(bigDen(b)).compareTo(bigNum(b).multiply(bigDen(a)));
+            assertEquals(expected, Integer.signum(Rational.compare(a, b)));
+        }
+    }
+    @Test
+    void overflowTest() {
+        long big = Rational.of(Integer.MAX_VALUE, 1);
+        assertThrows(ArithmeticException.class, () -> Rational.plus(big, Rational.ONE));
+        assertThrows(ArithmeticException.class, () -> Rational.times(big, 2));
+        assertThrows(ArithmeticException.class, () -> Rational.of(1, Long.MAX_VALUE));
+        // Long.MIN_VALUE can't be negated in 64 bits, so these take the BigInteger path
+        assertEquals(Rational.ONE, Rational.of(Long.MIN_VALUE, Long.MIN_VALUE));
+        assertEquals(Rational.of(1,2), Rational.of(Long.MIN_VALUE / 2, Long.MIN_VALUE));
+        assertEquals(Rational.of(-2,1), Rational.of(Long.MIN_VALUE, Long.MIN_VALUE / -2));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    private interface Operation {
+        long apply();
+    }
+
+    // Runs the operation, and checks it either matches the BigInteger result or overflows exactly when it should
+    private static void checkAgainst(Operation operation, BigInteger num, BigInteger den) {
+        if (den.signum() < 0) {
+            num = num.negate();
+            den = den.negate();
+        }
+        BigInteger gcd = num.gcd(den);
+        if (num.signum() == 0) {
+            den = BigInteger.ONE;
+        } else {
+            num = num.divide(gcd);
+            den = den.divide(gcd);
+        }
+        if (num.bitLength() > 31 || den.bitLength() > 31) {
+            assertThrows(ArithmeticException.class, operation::apply);
+        } else {
+            long result = operation.apply();
+            assertEquals(num.intValueExact(), Rational.numerator(result));
+            assertEquals(den.intValueExact(), Rational.denominator(result));
+        }
+    }
+
+    // Mostly musical denominators, with the odd huge value thrown in to exercise overflow
+    private static long random(Random random) {
+        if (random.nextInt(10) == 0) {
+            return Rational.of(random.nextInt(), 1 + random.nextInt(Integer.MAX_VALUE));
+        }
+        int den = 1 << random.nextInt(7);
+        if (random.nextBoolean()) den *= 3;
+        return Rational.of(random.nextInt(20001) - 10000, den);
+    }
+
+    private static BigInteger bigNum(long rational) {
+        return Rational.bigNumerator(rational);
+    }
+
+    private static BigInteger bigDen(long rational) {
+        return Rational.bigDenominator(rational);
+    }
+}
@@ -0,0 +1,159 @@
+package util.io;
+
+import form.attributes.Tempo;
+import form.attributes.TimeSig;
+import form.events.TempoChange;
+import form.events.TimeSigChange;
+import form.passage.Chorale;
+import form.passage.Ensemble;
+import form.passage.LeadSheet;
+import form.passage.Line;
+import form.passage.Part;
+import form.passage.Score;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import org.junit.jupiter.api.Test;
+import sound.attributes.Accent;
+import sound.attributes.Dynamic;
+import sound.attributes.Instrument;
+import sound.attributes.Technique;
+import sound.pitched.Chord;
+import sound.pitched.Pitch;
+import sound.unpitched.Noise;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static util.io.ScoreStoreTest.*;
+
+class BinaryScoreTest {
+    @Test
+    void leadSheetTest() {
+        LeadSheet leadSheet = new LeadSheet("Binary");
+        leadSheet.add(TimeSig.THREE_FOUR, Measure.ONE);
+        leadSheet.add(TimeSig.SIX_EIGHT, Measure.of(5));
+        leadSheet.add(Tempo.of(96), Time.of(Measure.PICKUP));
+        leadSheet.add(Tempo.of(132), Time.of(Measure.of(2)).plus(Duration.of(1,3)));
+        leadSheet.getTune().add(Duration.of(1,8));
+        leadSheet.getTune().add(Pitch.get(60), Duration.of(1,4));
+        leadSheet.getTune().add(Pitch.get(67), Duration.of(3,8));
+        leadSheet.getTune().getNotes().getLast().set(Dynamic.FORTE).set(Technique.of("pizzicato"))
+                .set(Accent.of("staccato"));
+        leadSheet.getChanges().add(Chord.get(0), Duration.of(1,2));
+        leadSheet.getChanges().add(Chord.get(Chord.TOTAL_NUM - 1), Duration.of(1,2));
+
+        Score copy = roundTrip(leadSheet);
+        assertTrue(copy instanceof LeadSheet);
+        assertEquals("Binary", copy.getTitle());
+        assertSameScore(leadSheet, copy);
+        assertEquals(leadSheet.getTune().getWriteHead(), ((LeadSheet) copy).getTune().getWriteHead());
+    }
+    @Test
+    void choraleTest() {
+        Chorale chorale = randomChorale(2);
+        assertFalse(describeLanes(chorale).isEmpty());
+        Score copy = roundTrip(chorale);
+        assertTrue(copy instanceof Chorale);
+        assertSameScore(chorale, copy);
+        assertEquals(chorale.getTimebase().getResolution(), copy.getTimebase().getResolution());
+    }
+    @Test
+    void ensembleTest() {
+        // Denominators whose least common multiple is too large to tick at, so times are written as fractions
+        Ensemble ensemble = new Ensemble("Ensemble");
+        Line<Noise> drums = ensemble.addLine(Instrument.DRUM_SET);
+        Line<Pitch> tune = ensemble.addLine(Instrument.of("Viola"));
+        int[] primes = {1031, 1033, 1039, 1049};
+        for (int i = 0; i < 40; i++) {
+            int prime = primes[i % primes.length];
+            drums.add(i % 3 == 0 ? Noise.CRASH : Noise.of("hit"), Duration.of(1, prime));
+            drums.add(Noise.of("hit"), Duration.of(prime - 1, prime));
+            tune.add(Pitch.get(50 + i), Duration.of(1, 4));
+            if (i % 7 == 0) tune.add(Duration.of(3, 4));
+        }
+        // And a pedal from before the first measure, on the same fine grid
+        tune.getLane(64).add(Time.of(Measure.PICKUP).plus(Duration.of(1, 1031)), 127);
+        tune.getLane(64).add(Time.of(Measure.of(3)).plus(Duration.of(5, 1049)), 0);
+        Score copy = roundTrip(ensemble);
+        assertTrue(copy instanceof Ensemble);
+        assertSameScore(ensemble, copy);
+        assertEquals(Instrument.of("Viola"), new ArrayList<>(copy.getParts()).get(1).getInstrument());
+    }
+    @Test
+    void instrumentTest() throws Exception {
+        // A lead sheet's lines are made with their instruments, so a file giving them others can't be read as one
+        LeadSheet leadSheet = new LeadSheet("Instruments");
+        leadSheet.getTune().add(Pitch.get(60), Duration.of(1,4));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BinaryScoreWriter().write(leadSheet, Channels.newChannel(bytes));
+        String contents = new String(bytes.toByteArray(), StandardCharsets.ISO_8859_1);
+        assertTrue(contents.contains(Instrument.DEFAULT.getName()));
+        byte[] changed = contents.replace(Instrument.DEFAULT.getName(), "Electric Grand Piano")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        assertThrows(Error.class, () -> new BinaryScoreReader().read(
+                Channels.newChannel(new ByteArrayInputStream(changed))));
+    }
+    @Test
+    void mappedTest() throws Exception {
+        // A score of any other kind comes back as an ensemble, with the same notes
+        Path path = Files.createTempFile("scores", ".mxms");
+        try {
+            Chorale chorale = randomChorale(3);
+            List<Score> scores = new ArrayList<>();
+            scores.add(chorale);
+            ScoreStore.write(scores, path);
+            try (ScoreStore store = ScoreStore.open(path)) {
+                Score copy = roundTrip(store.get(0));
+                assertTrue(copy instanceof Ensemble);
+                assertSameScore(chorale, copy);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+    @Test
+    void fileTest() throws Exception {
+        Path path = Files.createTempFile("score", BinaryScoreWriter.EXTENSION);
+        try {
+            Chorale chorale = randomChorale(4);
+            new BinaryScoreWriter().write(chorale, path.toString());
+            assertSameScore(chorale, new BinaryScoreReader().read(path.toString()));
+            Files.write(path, new byte[]{'M', 'I', 'D', 'I'});
+            assertThrows(Error.class, () -> new BinaryScoreReader().read(path.toString()));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static Score roundTrip(Score score) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BinaryScoreWriter().write(score, Channels.newChannel(bytes));
+        return new BinaryScoreReader().read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static void assertSameScore(Score expected, Score actual) {
+        assertEquals(expected.getParts().size(), actual.getParts().size());
+        assertEquals(expected.getParts().stream().map(Part::getInstrument).collect(Collectors.toList()),
+                actual.getParts().stream().map(Part::getInstrument).collect(Collectors.toList()));
+        assertEquals(describe(expected.getNoteStream().collect(Collectors.toList())),
+                describe(actual.getNoteStream().collect(Collectors.toList())));
+        assertEquals(describeLanes(expected), describeLanes(actual));
+        assertEquals(expected.getTempoChanges().stream().map(TempoChange::getTempo).collect(Collectors.toList()),
+                actual.getTempoChanges().stream().map(TempoChange::getTempo).collect(Collectors.toList()));
+        assertEquals(expected.getTempoChanges().stream().map(TempoChange::getTime).collect(Collectors.toList()),
+                actual.getTempoChanges().stream().map(TempoChange::getTime).collect(Collectors.toList()));
+        assertEquals(expected.getTimeSigChanges().stream().map(TimeSigChange::getTimeSig).collect(Collectors.toList()),
+                actual.getTimeSigChanges().stream().map(TimeSigChange::getTimeSig).collect(Collectors.toList()));
+        assertEquals(expected.getTimeSigChanges().stream().map(TimeSigChange::getTime).collect(Collectors.toList()),
+                actual.getTimeSigChanges().stream().map(TimeSigChange::getTime).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,119 @@
+package util.io;
+
+import form.passage.Score;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static util.io.ScoreStoreTest.*;
+
+class FileBatchTest {
+    @Test
+    void orderTest() {
+        // Later files finish first, but come back in the order they were given
+        List<String> filenames = new ArrayList<>();
+        for (int i = 0; i < 40; i++) filenames.add("file" + i);
+        IFileReader<String> reader = filename -> {
+            sleep(40 - Integer.parseInt(filename.substring(4)));
+            return filename.toUpperCase();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<FileResult<String>> results = reader.readAll(filenames, executor, 16);
+            assertEquals(filenames, results.stream().map(FileResult::getFilename).collect(Collectors.toList()));
+            assertEquals(filenames.stream().map(String::toUpperCase).collect(Collectors.toList()),
+                    results.stream().map(FileResult::get).collect(Collectors.toList()));
+            assertEquals(new ArrayList<>(reader.read(filenames)),
+                    results.stream().map(FileResult::get).collect(Collectors.toList()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+    @Test
+    void errorTest() {
+        // A bad file is reported in its place, and the rest of the batch is still read
+        IFileReader<Integer> reader = filename -> {
+            if (filename.startsWith("bad")) throw new Error("Bad file " + filename);
+            return filename.length();
+        };
+        List<String> filenames = new ArrayList<>();
+        Collections.addAll(filenames, "a", "bad", "abc", "bad again", "abcde");
+        List<FileResult<Integer>> results = reader.readAll(filenames);
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(3, (int) results.get(2).get());
+        assertEquals(5, (int) results.get(4).get());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Bad file bad again", results.get(3).getError().getMessage());
+        assertThrows(Error.class, () -> results.get(1).get());
+        assertThrows(Error.class, () -> reader.read(filenames));
+    }
+    @Test
+    void inFlightTest() {
+        // No more files are ever started than the window holds past the last one consumed
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicInteger mostInFlight = new AtomicInteger();
+        IFileReader<String> reader = filename -> {
+            mostInFlight.accumulateAndGet(started.incrementAndGet() - consumed.get(), Math::max);
+            sleep(1);
+            return filename;
+        };
+        List<String> filenames = new ArrayList<>();
+        for (int i = 0; i < 200; i++) filenames.add("file" + i);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<String> read = new ArrayList<>();
+            reader.readAll(filenames, executor, 6, result -> {
+                read.add(result.get());
+                consumed.incrementAndGet();
+            });
+            assertEquals(filenames, read);
+            assertTrue(mostInFlight.get() <= 6);
+            assertThrows(Error.class, () -> reader.readAll(filenames, executor, 0));
+        } finally {
+            executor.shutdown();
+        }
+    }
+    @Test
+    void writeTest() throws Exception {
+        Path folder = Files.createTempDirectory("batch");
+        try {
+            List<Score> scores = new ArrayList<>();
+            for (int i = 0; i < 12; i++) scores.add(randomChorale(i));
+            String filename = folder.resolve("chorale").toString();
+            List<FileResult<Score>> written = new BinaryScoreWriter().writeAll(scores, filename);
+            assertTrue(written.stream().allMatch(FileResult::isSuccess));
+
+            List<String> filenames = written.stream().map(FileResult::getFilename).collect(Collectors.toList());
+            assertEquals(filename + "_11", filenames.get(11));
+            filenames.add(folder.resolve("missing").toString());
+            List<FileResult<Score>> read = new BinaryScoreReader().readAll(filenames);
+            for (int i = 0; i < scores.size(); i++) {
+                assertEquals(describe(scores.get(i).getNoteStream().collect(Collectors.toList())),
+                        describe(read.get(i).get().getNoteStream().collect(Collectors.toList())));
+            }
+            assertFalse(read.get(12).isSuccess());
+        } finally {
+            for (Path path : Files.list(folder).collect(Collectors.toList())) Files.delete(path);
+            Files.delete(folder);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package util.io;
+
+import form.passage.Score;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static util.io.ScoreStoreTest.*;
+
+class ScoreCacheTest {
+    // Makes a random chorale seeded by a file's contents, and counts how many it has made
+    private static final class Parser implements IFileReader<Score> {
+        final AtomicInteger parsed = new AtomicInteger();
+
+        @Override
+        public Score read(String filename) {
+            parsed.incrementAndGet();
+            try {
+                return randomChorale(Long.parseLong(new String(Files.readAllBytes(Paths.get(filename)),
+                        StandardCharsets.UTF_8)));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    @Test
+    void hitTest() throws Exception {
+        Path folder = Files.createTempDirectory("cache");
+        try {
+            List<String> files = files(folder, 0, 1, 2);
+            Parser parser = new Parser();
+            ScoreCache cache = new ScoreCache(folder.resolve("scores"), Long.MAX_VALUE, parser, "1");
+            for (String file : files) cache.read(file);
+            assertEquals(3, parser.parsed.get());
+            assertEquals(3, cache.getMisses());
+            assertEquals(3, cache.getEntryCount());
+
+            for (int i = 0; i < files.size(); i++) {
+                Score score = cache.read(files.get(i));
+                assertTrue(score instanceof MappedScore);
+                assertEquals(describe(randomChorale(i).getNoteStream().collect(Collectors.toList())),
+                        describe(score.getNoteStream().collect(Collectors.toList())));
+            }
+            assertEquals(3, parser.parsed.get());
+            assertEquals(3, cache.getHits());
+            assertEquals(3, cache.getBytesSaved());
+            assertEquals(0.5, cache.getHitRate());
+
+            // A file with new contents, or a parser of another version, is a miss
+            Files.write(Paths.get(files.get(0)), "3".getBytes(StandardCharsets.UTF_8));
+            assertEquals(describe(randomChorale(3).getNoteStream().collect(Collectors.toList())),
+                    describe(cache.read(files.get(0)).getNoteStream().collect(Collectors.toList())));
+            ScoreCache next = new ScoreCache(folder.resolve("scores"), Long.MAX_VALUE, parser, "2");
+            assertEquals(4, next.getEntryCount());
+            next.read(files.get(1));
+            assertEquals(0, next.getHits());
+            assertEquals(5, parser.parsed.get());
+
+            cache.resetStatistics();
+            assertEquals(0, cache.getHits() + cache.getMisses() + cache.getBytesSaved());
+            assertEquals(0.0, cache.getHitRate());
+        } finally {
+            delete(folder);
+        }
+    }
+    @Test
+    void laneTest() throws Exception {
+        Path folder = Files.createTempDirectory("cache");
+        try {
+            List<String> files = files(folder, 4, 5);
+            Parser parser = new Parser();
+            ScoreCache cache = new ScoreCache(folder.resolve("scores"), Long.MAX_VALUE, parser, "1");
+            for (String file : files) {
+                Score missed = cache.read(file);
+                Score hit = cache.read(file);
+                assertTrue(hit instanceof MappedScore);
+                assertFalse(describeLanes(missed).isEmpty());
+                assertEquals(describeLanes(missed), describeLanes(hit));
+            }
+            assertEquals(2, cache.getHits());
+            assertEquals(2, cache.getMisses());
+        } finally {
+            delete(folder);
+        }
+    }
+    @Test
+    void evictionTest() throws Exception {
+        Path folder = Files.createTempDirectory("cache");
+        try {
+            // The same score each time, but a different file
+            List<String> files = new ArrayList<>();
+            for (String contents : new String[]{"0", "00", "000"}) {
+                Path file = folder.resolve("zero" + contents.length());
+                Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+                files.add(file.toString());
+            }
+            Parser parser = new Parser();
+            ScoreCache cache = new ScoreCache(folder.resolve("scores"), Long.MAX_VALUE, parser, "1");
+            cache.read(files.get(0));
+            long bytes = cache.getSize();
+            assertTrue(bytes > 0);
+
+            // Room for about two scores: reading the first again keeps it over the second
+            cache = new ScoreCache(folder.resolve("scores"), 5 * bytes / 2, parser, "1");
+            cache.read(files.get(1));
+            cache.read(files.get(0));
+            cache.read(files.get(2));
+            assertEquals(2, cache.getEntryCount());
+            assertEquals(1, cache.getEvictions());
+            assertEquals(1, cache.getHits());
+            assertTrue(cache.getSize() <= cache.getMaxBytes());
+            cache.read(files.get(0));
+            assertEquals(2, cache.getHits());
+            cache.read(files.get(1));
+            assertEquals(2, cache.getHits());
+            assertEquals(2, cache.getEvictions());
+            assertEquals(2, cache.getEntryCount());
+            assertEquals(2, Files.list(cache.getDirectory()).count());
+
+            // A cache opened on the same directory picks up where the last left off
+            ScoreCache reopened = new ScoreCache(folder.resolve("scores"), 5 * bytes / 2, parser, "1");
+            assertEquals(cache.getSize(), reopened.getSize());
+            reopened.read(files.get(1));
+            assertEquals(1, reopened.getHits());
+
+            // A smaller cache throws out what no longer fits as soon as it opens
+            ScoreCache smaller = new ScoreCache(folder.resolve("scores"), bytes / 2, parser, "1");
+            assertEquals(0, smaller.getEntryCount());
+            assertEquals(2, smaller.getEvictions());
+            assertEquals(0, Files.list(cache.getDirectory()).count());
+        } finally {
+            delete(folder);
+        }
+    }
+    @Test
+    void concurrentTest() throws Exception {
+        Path folder = Files.createTempDirectory("cache");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<String> files = new ArrayList<>();
+            for (int i = 0; i < 4; i++) files.addAll(files(folder.resolve("round" + i), 0, 1, 2, 3, 4, 5, 6, 7));
+            Parser parser = new Parser();
+            ScoreCache cache = new ScoreCache(folder.resolve("scores"), Long.MAX_VALUE, parser, "1");
+            List<FileResult<Score>> results = cache.readAll(files, executor, 16);
+            results = cache.readAll(files, executor, 16);
+            for (int i = 0; i < files.size(); i++) {
+                assertEquals(describe(randomChorale(i % 8).getNoteStream().collect(Collectors.toList())),
+                        describe(results.get(i).get().getNoteStream().collect(Collectors.toList())));
+            }
+            assertEquals(8, cache.getEntryCount());
+            assertEquals(2 * files.size(), cache.getHits() + cache.getMisses());
+            assertEquals(parser.parsed.get(), cache.getMisses());
+            assertTrue(cache.getHits() >= files.size());
+        } finally {
+            executor.shutdown();
+            delete(folder);
+        }
+    }
+
+    // Writes a file holding each seed
+    private static List<String> files(Path folder, long... seeds) throws Exception {
+        Files.createDirectories(folder);
+        List<String> files = new ArrayList<>();
+        for (long seed : seeds) {
+            Path file = folder.resolve("seed" + seed);
+            Files.write(file, Long.toString(seed).getBytes(StandardCharsets.UTF_8));
+            files.add(file.toString());
+        }
+        return files;
+    }
+
+    private static void delete(Path folder) throws Exception {
+        List<Path> paths = Files.walk(folder).sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList());
+        for (Path path : paths) Files.delete(path);
+    }
+}
@@ -0,0 +1,166 @@
+package util.io;
+
+import form.attributes.Tempo;
+import form.attributes.TimeSig;
+import form.events.Note;
+import form.passage.Chorale;
+import form.passage.ControllerLane;
+import form.passage.LeadSheet;
+import form.passage.Line;
+import form.passage.NoteTable;
+import form.passage.Part;
+import form.passage.Score;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import org.junit.jupiter.api.Test;
+import sound.attributes.Accent;
+import sound.attributes.Dynamic;
+import sound.attributes.Technique;
+import sound.pitched.Chord;
+import sound.pitched.Pitch;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoreStoreTest {
+    @Test
+    void roundTripTest() throws Exception {
+        LeadSheet leadSheet = new LeadSheet("Stored");
+        leadSheet.add(TimeSig.THREE_FOUR, Measure.ONE);
+        leadSheet.add(TimeSig.SIX_EIGHT, Measure.of(3));
+        leadSheet.add(Tempo.of(96), Time.of(Measure.ONE));
+        leadSheet.add(Tempo.of(132), Time.of(Measure.of(2)).plus(Duration.of(1,4)));
+        leadSheet.getTune().add(Pitch.get(60), Duration.of(1,4));
+        leadSheet.getTune().add(Duration.of(1,8));
+        leadSheet.getTune().add(Pitch.get(67), Duration.of(3,8));
+        leadSheet.getTune().getNotes().getLast().set(Dynamic.FORTE).set(Technique.of("pizzicato"))
+                .set(Accent.of("staccato"));
+        leadSheet.getChanges().add(Chord.get(0), Duration.of(1,2));
+        leadSheet.getChanges().add(Chord.random(), Duration.of(1,2));
+
+        Path path = Files.createTempFile("scores", ".mxms");
+        try {
+            ScoreStore.write(Arrays.asList(leadSheet, randomChorale(0)), path);
+            try (ScoreStore store = ScoreStore.open(path)) {
+                assertEquals(2, store.size());
+                MappedScore score = store.get(0);
+                assertEquals("Stored", score.getTitle());
+                assertEquals(4, score.getNoteCount());
+                assertEquals(Arrays.asList(TimeSig.THREE_FOUR, TimeSig.SIX_EIGHT), Arrays.asList(
+                        score.getTimeSigChanges().getFirst().getTimeSig(),
+                        score.getTimeSigChanges().getLast().getTimeSig()));
+                assertEquals(Measure.of(3), score.getTimeSigChanges().getLast().getTime().getMeasure());
+                assertEquals(Tempo.of(96), score.getTempoAt(Time.of(Measure.of(2))));
+                assertEquals(Tempo.of(132), score.getTempoAt(Time.of(Measure.of(3))));
+                assertThrows(Error.class, () -> score.add(Tempo.of(60), Time.of(Measure.of(4))));
+                assertThrows(Error.class, () -> store.get(2));
+
+                // The chord which started earlier is still sounding, so the tune's note comes second
+                Note<?> last = score.getNotesAt(leadSheet.getTune().getNotes().getLast().getStart()).get(1);
+                assertSame(Pitch.get(67), last.getSound());
+                assertEquals(Dynamic.FORTE, last.getDynamic());
+                assertSame(Technique.of("pizzicato"), last.getTechnique());
+                assertSame(Accent.of("staccato"), last.getAccent());
+                List<Object> sounds = new ArrayList<>();
+                for (Note<?> note : score.getNotesAt(Time.of(Measure.ONE))) sounds.add(note.getSound());
+                assertTrue(sounds.contains(Chord.get(0)) && sounds.contains(Pitch.get(60)));
+                assertEquals(leadSheet.getChanges().getNotes().getLast().getSound(),
+                        score.getNotesAt(leadSheet.getChanges().getWriteHead().minus(Duration.of(1,8))).get(0)
+                                .getSound());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+    @Test
+    void lookupTest() throws Exception {
+        Chorale chorale = randomChorale(1);
+        Path path = Files.createTempFile("scores", ".mxms");
+        try {
+            ScoreStore.write(Arrays.asList(chorale), path);
+            try (ScoreStore store = ScoreStore.open(path)) {
+                MappedScore score = store.get(0);
+                assertEquals(chorale.getNoteCount(), score.getNoteCount());
+                assertEquals(chorale.getParts().size(), score.getParts().size());
+
+                // The same notes, walked the same way
+                assertEquals(describe(chorale.getNoteStream().collect(Collectors.toList())),
+                        describe(score.getNoteStream().collect(Collectors.toList())));
+                assertEquals(chorale.getNoteCount(), NoteTable.of(score).size());
+                assertFalse(describeLanes(chorale).isEmpty());
+                assertEquals(describeLanes(chorale), describeLanes(score));
+
+                // And the same answers to every lookup, on and off the beat
+                for (int n = 0; n < 400; n++) {
+                    Time time = Time.of(Measure.ONE).plus(Duration.of(n, 12));
+                    Time end = time.plus(Duration.of(5, 8));
+                    assertEquals(describe(chorale.getNotesAt(time)), describe(score.getNotesAt(time)));
+                    assertEquals(describe(chorale.getNotesDuring(time, end)),
+                            describe(score.getNotesDuring(time, end)));
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    static Chorale randomChorale(long seed) {
+        Chorale chorale = new Chorale("Random " + seed);
+        Random random = new Random(seed);
+        Duration[] rhythms = {Duration.of(1,4), Duration.of(1,8), Duration.of(1,2), Duration.of(1,6)};
+        for (Line<Pitch> line : Arrays.asList(chorale.getSoprano(), chorale.getAlto(), chorale.getTenor(),
+                chorale.getBass())) {
+            for (int i = 0; i < 100; i++) {
+                if (random.nextInt(6) == 0) line.add(rhythms[random.nextInt(rhythms.length)]);
+                line.add(Pitch.get(40 + random.nextInt(40)), rhythms[random.nextInt(rhythms.length)]);
+                if (random.nextBoolean()) line.getNotes().getLast().set(Dynamic.of(random.nextInt(128)));
+            }
+            // A sweep or two of a few controllers, some changes on the same time
+            for (int controller : new int[]{1, 64, ControllerLane.PITCH_BEND}) {
+                if (random.nextInt(3) == 0) continue;
+                ControllerLane lane = line.getLane(controller);
+                for (int i = 0; i < 50; i++) {
+                    lane.add(Time.of(Measure.ONE).plus(Duration.of(i / 2, 16)), random.nextInt(lane.getMaxValue() + 1));
+                }
+            }
+        }
+        return chorale;
+    }
+
+    // Every change of every lane of every part
+    static List<String> describeLanes(Score score) {
+        List<String> descriptions = new ArrayList<>();
+        int index = 0;
+        for (Part<?> part : score.getParts()) {
+            for (ControllerLane lane : part.getLanes()) {
+                for (int i = 0; i < lane.size(); i++) {
+                    descriptions.add("part " + index + " controller " + lane.getController() + " at "
+                            + Time.ofRational(lane.getTime(i)) + " " + lane.getValue(i));
+                }
+            }
+            index++;
+        }
+        return descriptions;
+    }
+
+    // Stored notes are new objects, so compare what they say rather than which they are
+    static List<String> describe(List<? extends Note<?>> notes) {
+        List<String> descriptions = new ArrayList<>();
+        for (Note<?> note : notes) {
+            Score score = note.getPart().getScore();
+            descriptions.add(note.getStart() + "-" + note.getEnd() + " " + note.getSound() + " " + note.getDynamic()
+                    + " " + (note.getTechnique() == null ? null : note.getTechnique().getName())
+                    + " " + (note.getAccent() == null ? null : note.getAccent().getName())
+                    + " part " + new ArrayList<>(score.getParts()).indexOf(note.getPart()));
+        }
+        return descriptions;
+    }
+}
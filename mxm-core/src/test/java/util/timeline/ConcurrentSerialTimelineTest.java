@@ -0,0 +1,140 @@
+package util.timeline;
+
+import form.attributes.Tempo;
+import form.events.InstantEvent;
+import form.passage.Ensemble;
+import form.passage.LeadSheet;
+import form.passage.Line;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import form.time.Timebase;
+import org.junit.jupiter.api.Test;
+import sound.attributes.Instrument;
+import sound.pitched.Pitch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static util.timeline.SerialTimelineTest.*;
+
+class ConcurrentSerialTimelineTest {
+    private static final int THREADS = 16;
+    private static final int TIMES = 2000;
+
+    @Test
+    void stressTest() throws Exception {
+        // Every thread races for every time, while readers walk the timeline underneath them
+        ConcurrentSerialTimeline<InstantEvent> timeline = new ConcurrentSerialTimeline<>();
+        AtomicInteger wins = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 2);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < TIMES; i++) {
+                    int n = (i * 7 + offset * 131) % TIMES;
+                    if (timeline.addIfAbsent(event(time(n, 12)))) wins.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                while (timeline.size() < TIMES) {
+                    Time previous = null;
+                    for (InstantEvent event : timeline) {
+                        assertTrue(previous == null || previous.compareTo(event.getTime()) < 0);
+                        previous = event.getTime();
+                    }
+                    timeline.subTimeline(time(100, 12), time(200, 12)).stream().count();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(TIMES, wins.get());
+        assertEquals(TIMES, timeline.size());
+        assertEquals(TIMES, timeline.stream().count());
+        assertEquals(time(0, 12), timeline.getFirst().getTime());
+        assertEquals(time(TIMES - 1, 12), timeline.getLast().getTime());
+        assertEquals(time(4, 12), timeline.getLower(time(5, 12)).getTime());
+        assertThrows(Error.class, () -> timeline.add(event(time(3, 12))));
+    }
+    @Test
+    void scoreTest() throws Exception {
+        LeadSheet leadSheet = new LeadSheet("Concurrent", Timebase.adaptive(), true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    leadSheet.add(Tempo.DEFAULT, time(offset * 100 + i, 4));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertEquals(THREADS * 100, leadSheet.getTempoChanges().stream().count());
+        assertEquals(Tempo.DEFAULT, leadSheet.getTempoAt(time(7, 8)));
+    }
+    @Test
+    void lineTest() throws Exception {
+        // Every thread writes a line of its own, all of them registering their notes in the one index of the score,
+        // while a reader asks what's sounding underneath them
+        Ensemble score = new Ensemble("Lines", Timebase.adaptive(), true);
+        int notes = 20000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                Line<Pitch> line = score.addLine(Instrument.DEFAULT);
+                start.await();
+                for (int i = 0; i < notes; i++) {
+                    line.add(Pitch.get(40 + offset), Duration.of(1 + (i + offset) % 3, 8));
+                }
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            start.await();
+            while (score.getNoteCount() < THREADS * notes) {
+                assertTrue(score.getNotesAt(Time.of(Measure.of(2))).size() <= THREADS);
+                score.getFrames();
+                // Sized by the lines it walks, however many notes have been written since
+                score.getNoteStream().toArray();
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(THREADS * notes, score.getNoteCount());
+        assertEquals(THREADS * notes, score.getNoteStream().count());
+        assertEquals(THREADS, score.getNotesAt(Time.of(Measure.of(2))).size());
+        assertEquals(THREADS * notes, score.getNotesDuring(Time.of(Measure.ONE), Time.of(Measure.of(100000))).size());
+    }
+}
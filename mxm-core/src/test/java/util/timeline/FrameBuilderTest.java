@@ -0,0 +1,173 @@
+package util.timeline;
+
+import form.attributes.Tempo;
+import form.events.IEvent;
+import form.events.Note;
+import form.events.SpanningEvent;
+import form.events.TempoChange;
+import form.passage.LeadSheet;
+import form.time.Duration;
+import form.time.Time;
+import org.junit.jupiter.api.Test;
+import sound.pitched.Chord;
+import sound.pitched.Pitch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static util.timeline.IntervalTimelineTest.asList;
+import static util.timeline.IntervalTimelineTest.span;
+import static util.timeline.SerialTimelineTest.time;
+
+class FrameBuilderTest {
+    @Test
+    void sweepTest() {
+        SpanningEvent held = span(time(0,1), time(1,1));
+        SpanningEvent a = span(time(0,1), time(1,4));
+        SpanningEvent b = span(time(1,4), time(1,2));
+        SpanningEvent c = span(time(3,4), time(1,1));
+        List<List<SpanningEvent>> sources = Arrays.asList(Arrays.asList(held), Arrays.asList(a, b, c));
+        ITimeline<Frame<SpanningEvent>> frames = FrameBuilder.build(sources);
+
+        List<Time> times = new ArrayList<>();
+        frames.forEach(frame -> times.add(frame.getTime()));
+        assertEquals(Arrays.asList(time(0,1), time(1,4), time(1,2), time(3,4), time(1,1)), times);
+
+        Frame<SpanningEvent> second = frames.getAt(time(1,4));
+        assertEquals(asList(b), new ArrayList<>(second.startedEvents()));
+        assertEquals(asList(held), new ArrayList<>(second.continuedEvents()));
+        assertEquals(asList(held, b), new ArrayList<>(second.ongoingEvents()));
+        assertEquals(asList(a), new ArrayList<>(second.endedEvents()));
+
+        Frame<SpanningEvent> rest = frames.getAt(time(1,2));
+        assertEquals(asList(held), new ArrayList<>(rest.ongoingEvents()));
+        assertEquals(asList(), new ArrayList<>(rest.startedEvents()));
+        Frame<SpanningEvent> last = frames.getLast();
+        assertEquals(2, last.endedEvents().size());
+        assertTrue(last.endedEvents().containsAll(asList(held, c)));
+        assertTrue(last.ongoingEvents().isEmpty());
+        assertEquals(time(1,2), frames.getBefore(time(5,8)).getTime());
+    }
+    @Test
+    void instantTest() {
+        // Zero-length events start and end on the same frame, and are never carried
+        SpanningEvent held = span(time(0,1), time(10,1));
+        List<SpanningEvent> runs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) runs.add(span(time(i,1), time(i,1)));
+        ITimeline<Frame<SpanningEvent>> frames = FrameBuilder.build(Arrays.asList(Arrays.asList(held), runs));
+        Frame<SpanningEvent> first = frames.getAt(time(1,1));
+        Frame<SpanningEvent> next = frames.getAt(time(2,1));
+        assertEquals(asList(held), new ArrayList<>(next.continuedEvents()));
+        assertEquals(new ArrayList<>(first.continuedEvents()), new ArrayList<>(next.continuedEvents()));
+        assertEquals(new ArrayList<>(next.startedEvents()), new ArrayList<>(next.endedEvents()));
+        assertEquals(2, next.ongoingEvents().size());
+    }
+    @Test
+    void sharingTest() {
+        // A chord held under instants and then under notes which start while it holds, and end apart
+        SpanningEvent low = span(time(0,1), time(8,1));
+        SpanningEvent high = span(time(0,1), time(6,1));
+        List<SpanningEvent> instants = new ArrayList<>();
+        for (int i = 1; i < 4; i++) instants.add(span(time(i,1), time(i,1)));
+        SpanningEvent a = span(time(4,1), time(7,1));
+        SpanningEvent b = span(time(5,1), time(7,1));
+        ITimeline<Frame<SpanningEvent>> frames = FrameBuilder.build(
+                Arrays.asList(Arrays.asList(low, high), instants, Arrays.asList(a), Arrays.asList(b)));
+
+        for (int i = 1; i < 4; i++) {
+            Frame<SpanningEvent> frame = frames.getAt(time(i,1));
+            assertEquals(asList(low, high), new ArrayList<>(frame.continuedEvents()));
+            assertEquals(asList(low, high, instants.get(i - 1)), new ArrayList<>(frame.ongoingEvents()));
+            assertEquals(asList(instants.get(i - 1)), new ArrayList<>(frame.endedEvents()));
+        }
+        Frame<SpanningEvent> fourth = frames.getAt(time(4,1));
+        assertEquals(asList(low, high), new ArrayList<>(fourth.continuedEvents()));
+        assertEquals(asList(low, high, a), new ArrayList<>(fourth.ongoingEvents()));
+        Frame<SpanningEvent> fifth = frames.getAt(time(5,1));
+        assertEquals(asList(low, high, a), new ArrayList<>(fifth.continuedEvents()));
+        assertEquals(asList(low, high, a, b), new ArrayList<>(fifth.ongoingEvents()));
+        assertEquals(asList(b), new ArrayList<>(fifth.startedEvents()));
+        Frame<SpanningEvent> sixth = frames.getAt(time(6,1));
+        assertEquals(asList(low, a, b), new ArrayList<>(sixth.ongoingEvents()));
+        assertEquals(asList(high), new ArrayList<>(sixth.endedEvents()));
+        assertEquals(asList(low), new ArrayList<>(frames.getAt(time(7,1)).ongoingEvents()));
+        assertEquals(2, frames.getAt(time(7,1)).endedEvents().size());
+        assertTrue(frames.getAt(time(7,1)).endedEvents().containsAll(asList(a, b)));
+        assertEquals(asList(low), new ArrayList<>(frames.getLast().endedEvents()));
+
+        // Adding to a frame whose continued events lie apart from the rest of its run
+        Frame<SpanningEvent> copy = frames.getAt(time(5,1));
+        SpanningEvent c = span(time(5,1), time(6,1));
+        copy.addStart(c);
+        assertEquals(asList(low, high, a, b, c), new ArrayList<>(copy.ongoingEvents()));
+        assertEquals(asList(low, high, a), new ArrayList<>(copy.continuedEvents()));
+        assertEquals(asList(low, a, b), new ArrayList<>(frames.getAt(time(6,1)).continuedEvents()));
+    }
+    @Test
+    void addTest() {
+        // An instant added to a frame lies where a frame built whole puts one: started, and ended
+        SpanningEvent held = span(time(0,1), time(2,1));
+        SpanningEvent a = span(time(0,1), time(1,1));
+        SpanningEvent b = span(time(1,1), time(2,1));
+        SpanningEvent zero = span(time(1,1), time(1,1));
+        Frame<SpanningEvent> built = FrameBuilder.build(Arrays.asList(Arrays.asList(held), Arrays.asList(a, b),
+                Arrays.asList(zero))).getAt(time(1,1));
+
+        TempoChange instant = new TempoChange(null, time(1,1), Tempo.DEFAULT);
+        Frame<IEvent> added = new Frame<>(time(1,1));
+        added.addEnd(a);
+        added.add(instant);
+        added.addStart(b);
+        added.addContinue(held);
+        assertEquals(asList(held), new ArrayList<>(added.continuedEvents()));
+        assertEquals(asList(held, b, instant), new ArrayList<>(added.ongoingEvents()));
+        assertEquals(asList(b, instant), new ArrayList<>(added.startedEvents()));
+        assertEquals(asList(instant, a), new ArrayList<>(added.endedEvents()));
+        assertEquals(asList(held, b, zero), new ArrayList<>(built.ongoingEvents()));
+        assertEquals(asList(b, zero), new ArrayList<>(built.startedEvents()));
+        assertEquals(asList(zero, a), new ArrayList<>(built.endedEvents()));
+    }
+    @Test
+    void sonorityTest() {
+        LeadSheet leadSheet = new LeadSheet("Sonority");
+        Pitch c4 = Pitch.get(60), e4 = Pitch.get(64), g5 = Pitch.get(79);
+        leadSheet.getTune().add(c4, Duration.of(1,4)).add(e4, Duration.of(1,4)).add(g5, Duration.of(1,2));
+        leadSheet.getChanges().add(Chord.random(), Duration.of(1,1));
+        Frame<Note<?>> second = leadSheet.getFrames().getAt(leadSheet.getTune().getNotes().getAfter(time(5,4)).getTime());
+        assertTrue(second.isSounding(e4));
+        assertFalse(second.isSounding(c4));
+        assertEquals(1, second.getPitchCount());
+        assertTrue(second.isSounding(e4.getPitchClass()));
+        Frame<Note<?>> third = leadSheet.getFrames().getAfter(second.getTime().plus(Duration.of(1,8)));
+        assertTrue(third.isSounding(g5));
+        assertFalse(third.soundsSamePitchesAs(second));
+
+        // Frames filled one event at a time agree with the ones built whole
+        Frame<Note<?>> copy = new Frame<>(second.getTime());
+        for (Note<?> note : second.continuedEvents()) copy.addContinue(note);
+        for (Note<?> note : second.startedEvents()) copy.addStart(note);
+        for (Note<?> note : second.endedEvents()) copy.addEnd(note);
+        assertEquals(new ArrayList<>(second.ongoingEvents()), new ArrayList<>(copy.ongoingEvents()));
+        assertEquals(new ArrayList<>(second.endedEvents()), new ArrayList<>(copy.endedEvents()));
+        assertTrue(copy.soundsSamePitchesAs(second));
+        assertEquals(second.getPitchClassMask(), copy.getPitchClassMask());
+    }
+    @Test
+    void scoreTest() {
+        LeadSheet leadSheet = new LeadSheet("Frames");
+        leadSheet.getTune().add(Pitch.random(), Duration.of(1,4)).add(Pitch.random(), Duration.of(1,4));
+        leadSheet.getChanges().add(Chord.random(), Duration.of(1,2));
+        ITimeline<Frame<Note<?>>> frames = leadSheet.getFrames();
+        assertSame(frames, leadSheet.getFrames());
+        assertEquals(3, ((ParallelTimeline<?>) frames).size());
+
+        leadSheet.getTune().add(Pitch.random(), Duration.of(1,4));
+        ITimeline<Frame<Note<?>>> rebuilt = leadSheet.getFrames();
+        assertNotSame(frames, rebuilt);
+        assertEquals(4, ((ParallelTimeline<?>) rebuilt).size());
+        Note<Pitch> last = leadSheet.getTune().getNotes().getLast();
+        assertEquals(asList(last), new ArrayList<>(rebuilt.getAt(last.getTime()).ongoingEvents()));
+    }
+}
@@ -0,0 +1,155 @@
+package util.timeline;
+
+import form.events.Note;
+import form.events.SpanningEvent;
+import form.passage.LeadSheet;
+import form.time.Duration;
+import form.time.Time;
+import org.junit.jupiter.api.Test;
+import sound.pitched.Chord;
+import sound.pitched.Pitch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static util.timeline.SerialTimelineTest.time;
+
+class IntervalTimelineTest {
+    private static final int READERS = 8;
+
+    @Test
+    void stabbingTest() {
+        IntervalTimeline<SpanningEvent> timeline = new IntervalTimeline<>();
+        SpanningEvent whole = span(time(0,1), time(1,1));
+        SpanningEvent first = span(time(0,1), time(1,2));
+        SpanningEvent second = span(time(1,2), time(1,1));
+        timeline.add(whole);
+        timeline.add(first);
+        timeline.add(second);
+        assertEquals(asList(whole, first), timeline.getOngoingAt(time(0,1)));
+        assertEquals(asList(whole, second), timeline.getOngoingAt(time(1,2)));
+        assertEquals(asList(), timeline.getOngoingAt(time(1,1)));
+        assertEquals(asList(whole, first, second), timeline.getOverlapping(time(1,4), time(3,4)));
+        assertEquals(asList(whole, first), timeline.getOverlapping(time(0,1), time(1,2)));
+    }
+    @Test
+    void randomTest() {
+        // Against a brute force scan, with plenty of events added out of order
+        Random random = new Random(6);
+        IntervalTimeline<SpanningEvent> timeline = new IntervalTimeline<>();
+        List<SpanningEvent> all = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Time start = time(i % 3 == 0 ? random.nextInt(400) : i / 5, 8);
+            SpanningEvent event = span(start, start.plus(Duration.of(1 + random.nextInt(40), 16)));
+            timeline.add(event);
+            all.add(event);
+            if (i % 500 == 499) {
+                for (int q = 0; q < 200; q++) {
+                    Time from = time(random.nextInt(1000), 24);
+                    Time to = from.plus(Duration.of(random.nextInt(48), 24));
+                    assertEquals(bruteForce(all, from, from), sorted(timeline.getOngoingAt(from)));
+                    assertEquals(bruteForce(all, from, to), sorted(timeline.getOverlapping(from, to)));
+                }
+            }
+        }
+        assertEquals(2000, timeline.size());
+        assertEquals(2000, timeline.stream().count());
+    }
+    @Test
+    void readerTest() throws Exception {
+        // Every round leaves events pending, which the first of several readers at once has to merge for them all
+        Random random = new Random(9);
+        IntervalTimeline<SpanningEvent> timeline = new IntervalTimeline<>();
+        List<SpanningEvent> all = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        try {
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < 200; i++) {
+                    Time start = time(random.nextInt(400), 8);
+                    SpanningEvent event = span(start, start.plus(Duration.of(1 + random.nextInt(40), 16)));
+                    timeline.add(event);
+                    all.add(event);
+                }
+                Time from = time(random.nextInt(400), 8);
+                Time to = from.plus(Duration.of(random.nextInt(48), 16));
+                List<SpanningEvent> expected = bruteForce(all, from, to);
+                CyclicBarrier start = new CyclicBarrier(READERS);
+                List<Future<List<SpanningEvent>>> reads = new ArrayList<>();
+                for (int r = 0; r < READERS; r++) {
+                    reads.add(executor.submit(() -> {
+                        start.await();
+                        return sorted(timeline.getOverlapping(from, to));
+                    }));
+                }
+                for (Future<List<SpanningEvent>> read : reads) assertEquals(expected, read.get());
+                assertEquals(all.size(), timeline.stream().count());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    @Test
+    void readOnlyTest() {
+        IntervalTimeline<SpanningEvent> timeline = new IntervalTimeline<>();
+        IIntervalTimeline<SpanningEvent> view = timeline.readOnly();
+        assertFalse(view instanceof IntervalTimeline);
+        SpanningEvent late = span(time(1,2), time(1,1));
+        SpanningEvent early = span(time(0,1), time(3,4));
+        timeline.add(late);
+        timeline.add(early);
+        assertEquals(2, view.size());
+        assertEquals(asList(early, late), view.getOngoingAt(time(5,8)));
+        assertSame(view, timeline.readOnly());
+    }
+    @Test
+    void scoreTest() {
+        LeadSheet leadSheet = new LeadSheet("Sounding");
+        leadSheet.getTune().add(Pitch.random(), Duration.of(1,4)).add(Pitch.random(), Duration.of(1,4));
+        leadSheet.getChanges().add(Chord.random(), Duration.of(1,2));
+        Note<Pitch> second = leadSheet.getTune().getNotes().getLast();
+        Note<Chord> chord = leadSheet.getChanges().getNotes().getFirst();
+        assertEquals(asList(chord, second), new ArrayList<>(leadSheet.getNotesAt(second.getTime())));
+        assertEquals(asList(second), leadSheet.getTune().getNotesAt(second.getTime()));
+        assertEquals(asList(chord), leadSheet.getChanges().getNotesDuring(second.getTime(), second.getEnd()));
+        assertEquals(asList(), leadSheet.getNotesAt(second.getEnd()));
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static SpanningEvent span(Time start, Time end) {
+        return new SpanningEvent(start, end) {
+            @Override
+            public String toString() {
+                return "event from " + start + " to " + end;
+            }
+        };
+    }
+
+    static List<Object> asList(Object... events) {
+        return Arrays.asList(events);
+    }
+
+    // Overlapping [from, to), or ongoing at from when the range is empty
+    static List<SpanningEvent> bruteForce(List<SpanningEvent> all, Time from, Time to) {
+        List<SpanningEvent> hits = new ArrayList<>();
+        for (SpanningEvent event : all) {
+            boolean startsInTime = from.equals(to) ? event.getStart().compareTo(from) <= 0
+                                                   : event.getStart().compareTo(to) < 0;
+            if (startsInTime && event.getEnd().compareTo(from) > 0) hits.add(event);
+        }
+        return sorted(hits);
+    }
+
+    static List<SpanningEvent> sorted(List<SpanningEvent> events) {
+        List<SpanningEvent> copy = new ArrayList<>(events);
+        copy.sort((a, b) -> Integer.compare(System.identityHashCode(a), System.identityHashCode(b)));
+        return copy;
+    }
+}
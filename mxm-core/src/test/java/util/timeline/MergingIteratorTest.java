@@ -0,0 +1,73 @@
+package util.timeline;
+
+import form.events.Note;
+import form.events.SpanningEvent;
+import form.passage.Chorale;
+import form.passage.Line;
+import form.time.Duration;
+import org.junit.jupiter.api.Test;
+import sound.pitched.Pitch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static util.timeline.IntervalTimelineTest.asList;
+import static util.timeline.IntervalTimelineTest.span;
+import static util.timeline.SerialTimelineTest.time;
+
+class MergingIteratorTest {
+    @Test
+    void mergeTest() {
+        SpanningEvent a = span(time(0,1), time(1,4));
+        SpanningEvent b = span(time(1,4), time(1,2));
+        SpanningEvent c = span(time(0,1), time(1,2));
+        SpanningEvent d = span(time(1,4), time(1,1));
+        SpanningEvent e = span(time(1,8), time(1,1));
+        List<List<SpanningEvent>> sources = Arrays.asList(Arrays.asList(a, b), Collections.emptyList(),
+                Arrays.asList(c, d), Arrays.asList(e));
+        Iterator<SpanningEvent> merged = new MergingIterator<>(sources);
+
+        // Ties go to the earlier source
+        List<SpanningEvent> actual = new ArrayList<>();
+        merged.forEachRemaining(actual::add);
+        assertEquals(asList(a, c, e, b, d), actual);
+        assertFalse(merged.hasNext());
+        assertThrows(NoSuchElementException.class, merged::next);
+        assertFalse(new MergingIterator<SpanningEvent>(Collections.emptyList()).hasNext());
+    }
+    @Test
+    void scoreTest() {
+        Chorale chorale = new Chorale("Merge");
+        Duration[] rhythms = {Duration.of(1,4), Duration.of(1,8), Duration.of(1,2), Duration.of(1,12)};
+        Random random = new Random(0);
+        List<Line<Pitch>> lines = Arrays.asList(chorale.getSoprano(), chorale.getAlto(), chorale.getTenor(),
+                chorale.getBass());
+        for (Line<Pitch> line : lines) {
+            for (int i = 0; i < 500; i++) {
+                line.add(Pitch.random(), rhythms[random.nextInt(rhythms.length)]);
+            }
+        }
+
+        // What every caller used to do by hand: collect everything, then sort by start and part
+        List<Note<?>> expected = new ArrayList<>();
+        for (Line<Pitch> line : lines) {
+            line.getNotes().forEach(expected::add);
+        }
+        expected.sort(Comparator.comparing((Note<?> note) -> note.getTime())
+                .thenComparing(note -> lines.indexOf(note.getPart())));
+
+        List<Note<?>> actual = new ArrayList<>();
+        chorale.getNoteIterator().forEachRemaining(actual::add);
+        assertEquals(expected, actual);
+        assertEquals(expected, chorale.getNoteStream().collect(Collectors.toList()));
+        assertEquals(2000, chorale.getNoteStream().count());
+    }
+}
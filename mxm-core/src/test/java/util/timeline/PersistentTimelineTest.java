@@ -0,0 +1,142 @@
+package util.timeline;
+
+import form.events.InstantEvent;
+import form.events.Note;
+import form.passage.LeadSheet;
+import form.passage.Line;
+import form.time.Duration;
+import form.time.Time;
+import form.time.Timebase;
+import org.junit.jupiter.api.Test;
+import sound.pitched.Pitch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static util.timeline.SerialTimelineTest.*;
+
+class PersistentTimelineTest {
+    @Test
+    void appendTest() {
+        // Enough events for the trie to grow a few levels deep
+        PersistentTimeline<InstantEvent> timeline = PersistentTimeline.empty();
+        SerialTimeline<InstantEvent> expected = new SerialTimeline<>(Timebase.adaptive());
+        assertNull(timeline.getFirst());
+        assertNull(timeline.getBefore(time(1,1)));
+        for (int i = 0; i < 40000; i++) {
+            InstantEvent event = event(time(i,4));
+            timeline = timeline.with(event);
+            expected.add(event);
+        }
+        assertEquals(40000, timeline.size());
+        assertEquals(times(expected), times(timeline));
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            Time query = time(random.nextInt(40400) - 200, 16);
+            assertSame(expected.getAt(query), timeline.getAt(query));
+            assertSame(expected.getBefore(query), timeline.getBefore(query));
+            assertSame(expected.getAfter(query), timeline.getAfter(query));
+            assertSame(expected.getLower(query), timeline.getLower(query));
+        }
+        PersistentTimeline<InstantEvent> full = timeline;
+        assertThrows(Error.class, () -> full.with(event(time(3,4))));
+    }
+    @Test
+    void versionTest() {
+        PersistentTimeline<InstantEvent> base = PersistentTimeline.empty();
+        for (int i = 0; i < 100; i++) {
+            base = base.with(event(time(i,4)));
+        }
+        // Two branches off the same version, neither of which can see the other
+        PersistentTimeline<InstantEvent> left = base.with(event(time(100,4)));
+        PersistentTimeline<InstantEvent> right = base.with(event(time(401,16))).with(event(time(402,16)));
+        assertEquals(100, base.size());
+        assertEquals(101, left.size());
+        assertEquals(102, right.size());
+        assertNull(base.getAt(time(100,4)));
+        assertNull(right.getAt(time(100,4)));
+        assertNull(left.getAt(time(401,16)));
+        assertEquals(time(402,16), right.getLast().getTime());
+
+        // Inserting before the end copies a path, and still leaves the original alone
+        PersistentTimeline<InstantEvent> inserted = base.with(event(time(1,8)));
+        assertEquals(asList(time(0,1), time(1,8), time(1,4)), times(inserted.headTimeline(time(2,4))));
+        assertEquals(asList(time(0,1), time(1,4)), times(base.headTimeline(time(2,4))));
+        assertEquals(asList(time(40,4), time(41,4)), times(base.subTimeline(time(40,4), time(42,4))));
+    }
+    @Test
+    void insertTest() {
+        // Out of order, so that chunks and nodes split all through the trie, and appends land after the splits
+        List<InstantEvent> events = new ArrayList<>();
+        for (int i = 0; i < 30000; i++) events.add(event(time(i,4)));
+        Collections.shuffle(events, new Random(0));
+        PersistentTimeline<InstantEvent> timeline = PersistentTimeline.empty();
+        SerialTimeline<InstantEvent> expected = new SerialTimeline<>(Timebase.adaptive());
+        PersistentTimeline<InstantEvent> half = null;
+        List<Time> halfTimes = null;
+        for (int i = 0; i < events.size(); i++) {
+            timeline = timeline.with(events.get(i));
+            expected.add(events.get(i));
+            if (i == events.size() / 2) {
+                half = timeline;
+                halfTimes = times(timeline);
+            }
+        }
+        for (int i = 30000; i < 30100; i++) {
+            InstantEvent event = event(time(i,4));
+            timeline = timeline.with(event);
+            expected.add(event);
+        }
+        assertEquals(30100, timeline.size());
+        assertEquals(times(expected), times(timeline));
+        assertEquals(times(expected), timeline.parallelStream().map(InstantEvent::getTime)
+                .collect(Collectors.toList()));
+        assertEquals(halfTimes, times(half));
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            Time query = time(random.nextInt(120800) - 200, 16);
+            assertSame(expected.getAt(query), timeline.getAt(query));
+            assertSame(expected.getBefore(query), timeline.getBefore(query));
+            assertSame(expected.getAfter(query), timeline.getAfter(query));
+            assertSame(expected.getLower(query), timeline.getLower(query));
+        }
+        assertEquals(times(expected.subTimeline(time(1000,4), time(1100,4))),
+                times(timeline.subTimeline(time(1000,4), time(1100,4))));
+
+        // Into the front of a full tail, which pushes down into the trie
+        PersistentTimeline<InstantEvent> tail = PersistentTimeline.empty();
+        for (int i = 0; i < 32; i++) tail = tail.with(event(time(2 * i + 2,1)));
+        tail = tail.with(event(time(1,1))).with(event(time(3,1)));
+        assertEquals(asList(time(1,1), time(2,1), time(3,1), time(4,1)), times(tail.headTimeline(time(5,1))));
+        assertEquals(time(64,1), tail.getLast().getTime());
+        assertEquals(34, tail.size());
+    }
+    @Test
+    void lineTest() {
+        LeadSheet leadSheet = new LeadSheet("Snapshot");
+        Line<Pitch> tune = leadSheet.getTune();
+        for (int i = 0; i < 8; i++) {
+            tune.add(Pitch.random(), Duration.of(1,4));
+        }
+        PersistentTimeline<Note<Pitch>> snapshot = tune.snapshot();
+        List<Note<Pitch>> before = new ArrayList<>();
+        snapshot.forEach(before::add);
+        tune.add(Pitch.random(), Duration.of(1,4));
+
+        // The snapshot doesn't see later writes, and the line doesn't see what is grown from the snapshot
+        assertEquals(8, snapshot.size());
+        assertEquals(9, tune.snapshot().size());
+        Note<Pitch> last = snapshot.getLast();
+        PersistentTimeline<Note<Pitch>> candidate = snapshot.with(new Note<>(tune, Pitch.random(), last.getEnd(),
+                last.getEnd().plus(Duration.of(1,2))));
+        assertEquals(9, candidate.size());
+        assertNotSame(tune.getNotes().getLast(), candidate.getLast());
+        List<Note<Pitch>> after = new ArrayList<>();
+        snapshot.forEach(after::add);
+        assertEquals(before, after);
+    }
+}
@@ -0,0 +1,118 @@
+package util.timeline;
+
+import form.events.InstantEvent;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import form.time.Timebase;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialTimelineTest {
+    @Test
+    void appendTest() {
+        SerialTimeline<InstantEvent> timeline = new SerialTimeline<>(Timebase.adaptive());
+        assertNull(timeline.getFirst());
+        assertNull(timeline.getBefore(time(1,1)));
+        for (int i = 0; i < 100; i++) {
+            timeline.add(event(time(i,4)));
+        }
+        assertEquals(100, timeline.size());
+        assertEquals(time(0,1), timeline.getFirst().getTime());
+        assertEquals(time(99,4), timeline.getLast().getTime());
+        assertEquals(time(5,4), timeline.getAt(time(5,4)).getTime());
+        assertNull(timeline.getAt(time(11,8)));
+        // Between ticks, at whatever the resolution happens to be
+        assertEquals(time(5,4), timeline.getBefore(time(11,8)).getTime());
+        assertEquals(time(6,4), timeline.getAfter(time(11,8)).getTime());
+        assertEquals(time(5,4), timeline.getBefore(time(16,12)).getTime());
+        assertNull(timeline.getBefore(time(-1,8)));
+        assertNull(timeline.getAfter(time(100,4)));
+        assertThrows(Error.class, () -> timeline.add(event(time(3,4))));
+    }
+    @Test
+    void rekeyTest() {
+        Timebase timebase = Timebase.adaptive();
+        SerialTimeline<InstantEvent> timeline = new SerialTimeline<>(timebase);
+        timeline.add(event(time(1,4)));
+        timeline.add(event(time(1,3)));
+        timeline.add(event(time(2,5)));
+        assertEquals(60, timebase.getResolution());
+        // Something outside the timeline grows the shared timebase
+        timebase.observe(time(1,7));
+        timeline.add(event(time(3,7)));
+        assertEquals(time(2,5), timeline.getBefore(time(3,7).minus(Duration.of(1,1000))).getTime());
+        assertEquals(asList(time(1,4), time(1,3), time(2,5), time(3,7)), times(timeline));
+    }
+    @Test
+    void rationalTest() {
+        SerialTimeline<InstantEvent> timeline = new SerialTimeline<>(Timebase.ofPPQ(4));
+        timeline.add(event(time(1,4)));
+        // Doesn't land on a sixteenth, so the timeline falls back to rationals
+        timeline.add(event(time(1,5)));
+        assertEquals(asList(time(1,5), time(1,4)), times(timeline));
+        assertEquals(time(1,5), timeline.getBefore(time(2,9)).getTime());
+        assertEquals(time(1,4), timeline.getAt(time(1,4)).getTime());
+    }
+    @Test
+    void outOfOrderTest() {
+        // Enough backwards inserts to run through both shifting and the tree
+        SerialTimeline<InstantEvent> timeline = new SerialTimeline<>();
+        List<Time> expected = new ArrayList<>();
+        for (int i = 2000; i > 0; i--) {
+            timeline.add(event(time(i,3)));
+            expected.add(0, time(i,3));
+        }
+        assertEquals(expected, times(timeline));
+        assertEquals(time(10,3), timeline.getBefore(time(7,2)).getTime());
+        assertEquals(time(11,3), timeline.getAfter(time(7,2)).getTime());
+        assertEquals(2000, timeline.stream().count());
+        assertEquals(2000, timeline.size());
+    }
+    @Test
+    void spliteratorTest() {
+        SerialTimeline<InstantEvent> timeline = new SerialTimeline<>();
+        for (int i = 0; i < 1000; i++) {
+            timeline.add(event(time(i,8)));
+        }
+        Spliterator<InstantEvent> spliterator = timeline.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+        assertEquals(1000, spliterator.getExactSizeIfKnown());
+        Spliterator<InstantEvent> half = spliterator.trySplit();
+        assertEquals(500, half.estimateSize());
+        assertEquals(500, spliterator.estimateSize());
+        assertEquals(times(timeline), timeline.parallelStream().map(InstantEvent::getTime)
+                .collect(Collectors.toList()));
+        assertEquals(250, timeline.subTimeline(time(250,8), time(500,8)).spliterator().getExactSizeIfKnown());
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////////////////
+
+    static Time time(int num, int den) {
+        return Time.of(Measure.PICKUP).plus(Duration.of(num, den));
+    }
+
+    static InstantEvent event(Time time) {
+        return new InstantEvent(time) {
+            @Override
+            public String toString() {
+                return "event at " + time;
+            }
+        };
+    }
+
+    static List<Time> times(ITimeline<? extends InstantEvent> timeline) {
+        return timeline.stream().map(InstantEvent::getTime).collect(Collectors.toList());
+    }
+
+    static List<Time> asList(Time... times) {
+        return Arrays.asList(times);
+    }
+}
@@ -0,0 +1,71 @@
+package util.timeline;
+
+import form.events.InstantEvent;
+import form.events.Note;
+import form.passage.LeadSheet;
+import form.time.Duration;
+import form.time.Time;
+import org.junit.jupiter.api.Test;
+import sound.pitched.Pitch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static util.timeline.SerialTimelineTest.*;
+
+class TimelineViewTest {
+    @Test
+    void serialTest() {
+        SerialTimeline<InstantEvent> timeline = new SerialTimeline<>();
+        for (int i = 0; i < 16; i++) {
+            timeline.add(event(time(i,4)));
+        }
+        ITimeline<InstantEvent> window = timeline.subTimeline(time(3,4), time(9,8));
+        assertEquals(asList(time(3,4), time(4,4)), times(window));
+        assertEquals(time(3,4), window.getFirst().getTime());
+        assertEquals(time(4,4), window.getLast().getTime());
+        assertEquals(time(4,4), window.getBefore(time(15,4)).getTime());
+        assertEquals(time(3,4), window.getAfter(time(0,1)).getTime());
+        assertNull(window.getBefore(time(2,4)));
+        assertNull(window.getAfter(time(9,8)));
+        assertNull(window.getAt(time(5,4)));
+
+        // Views are live, and views of views only ever narrow
+        timeline.add(event(time(17,16)));
+        assertEquals(asList(time(3,4), time(4,4), time(17,16)), times(window));
+        assertEquals(asList(time(4,4), time(17,16)), times(window.tailTimeline(time(7,8))));
+        assertEquals(asList(time(3,4)), times(window.headTimeline(time(1,1)).headTimeline(time(5,1))));
+        assertEquals(0, window.subTimeline(time(5,1), time(6,1)).stream().count());
+
+        assertEquals(3, timeline.headTimeline(time(3,4)).stream().count());
+        assertEquals(14, timeline.tailTimeline(time(3,4)).stream().count());
+    }
+    @Test
+    void treeTest() {
+        // Backwards inserts until the timeline gives up on arrays
+        SerialTimeline<InstantEvent> timeline = new SerialTimeline<>();
+        for (int i = 2000; i > 0; i--) {
+            timeline.add(event(time(i,3)));
+        }
+        ITimeline<InstantEvent> window = timeline.subTimeline(time(10,3), time(13,3));
+        assertEquals(asList(time(10,3), time(11,3), time(12,3)), times(window));
+        assertEquals(time(12,3), window.getLast().getTime());
+        assertEquals(time(12,3), window.getBefore(time(100,3)).getTime());
+    }
+    @Test
+    void frameTest() {
+        LeadSheet leadSheet = new LeadSheet("Window");
+        for (int i = 0; i < 32; i++) {
+            leadSheet.getTune().add(Pitch.random(), Duration.of(1,4));
+        }
+        Time start = leadSheet.getTune().getNotes().getFirst().getTime();
+        ITimeline<Frame<Note<?>>> bars = leadSheet.getFrames().subTimeline(start.plus(Duration.of(2,1)),
+                start.plus(Duration.of(4,1)));
+        List<Time> expected = new ArrayList<>();
+        for (int i = 8; i < 16; i++) expected.add(start.plus(Duration.of(i,4)));
+        List<Time> actual = new ArrayList<>();
+        bars.forEach(frame -> actual.add(frame.getTime()));
+        assertEquals(expected, actual);
+    }
+}
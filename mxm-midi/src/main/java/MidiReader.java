@@ -1,568 +1,516 @@
-/*
-public class MidiReader implements Reader<TraditionalScore> {
-
-    private static final int SEQUENCE_NUMBER    = 0x00;
-    private static final int TEXT_EVENT         = 0x01;
-    private static final int COPYRIGHT_NOTICE   = 0x02;
-    private static final int SEQUENCE_NAME      = 0x03;
-    private static final int INSTRUMENT_NAME    = 0x04;
-    private static final int LYRIC_TEXT         = 0x05;
-    private static final int MARKER_TEXT        = 0x06;
-    private static final int CUE_POINT          = 0x07;
-    private static final int MIDI_CHNL_PREFIX   = 0x20;
+import form.attributes.Tempo;
+import form.attributes.TimeSig;
+import form.passage.ControllerLane;
+import form.passage.Ensemble;
+import form.passage.Line;
+import form.passage.Score;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import sound.attributes.Dynamic;
+import sound.attributes.Instrument;
+import sound.pitched.Pitch;
+import util.io.IFileReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * Reads a Standard MIDI File into an {@link Ensemble}, parsing its chunks straight out of a {@link ByteBuffer}- a
+ * memory-mapped file, when reading by name- without building an event object for anything along the way. Running
+ * status, variable-length quantities, meta events and system exclusive events are all handled as the standard
+ * describes; only files timed in pulses per quarter note, rather than SMPTE frames, can be read.</p>
+ *
+ * <p> The first track sets the meter and tempo of the whole score, as the standard asks of every format 1 file: its
+ * time signatures decide where each tick falls in {@link Time}, and its tempo changes are added to the score. A first
+ * bar shorter than the one after it is a pickup, which every line of the score starts in. Notes
+ * are paired up as they end, and go to a line of their track and channel- as many lines as the channel ever has
+ * notes sounding at once, each note going to the first line not already sounding. A line's instrument is the General
+ * MIDI program its channel is set to when the line is made, or the drum set on channel 10.</p>
+ *
+ * <p> A key struck again before it was let go sounds twice over, and its next note-off ends whichever of the two the
+ * reader's {@link Pairing} says to. A note-on with no velocity is a note-off, and a note still sounding when its track
+ * ends is ended there. A note on a key above the highest {@link Pitch}, which no line can hold, is left out.</p>
+ *
+ * <p> Control changes, pitch bends and key and channel pressure go to the {@link ControllerLane}s of every line of
+ * their track and channel- a sustain pedal holds down every voice of its channel, not just the first- and a line is
+ * made for them if the channel has no notes. They're kept as columns of ticks and
+ * values until their times are known, so a track dense with them makes no objects for them at all.</p>
+ *
+ * <p> Tracks only depend on each other through the meter, and pairing notes needs nothing but ticks, so each track
+ * chunk is decoded into flat arrays of ticks on a task of its own on a {@link ForkJoinPool}. Once the conductor
+ * track's meter is known, each track's ticks become times and durations on the pool in the same way. Only the writing
+ * of notes onto lines is left to one thread, as a score can only be written by one, and that goes track by track in
+ * the order of the file- so the score comes out the same however many threads read it.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class MidiReader implements IFileReader<Score> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    private static final int HEADER_CHUNK       = 0x4D546864; // "MThd"
+    private static final int TRACK_CHUNK        = 0x4D54726B; // "MTrk"
+
+    private static final int NOTE_OFF           = 0x80;
+    private static final int NOTE_ON            = 0x90;
+    private static final int POLY_PRESSURE      = 0xA0;
+    private static final int CONTROL_CHANGE     = 0xB0;
+    private static final int PROGRAM_CHANGE     = 0xC0;
+    private static final int CHANNEL_PRESSURE   = 0xD0;
+    private static final int PITCH_BEND         = 0xE0;
+    private static final int SYSTEM_EXCLUSIVE   = 0xF0;
+    private static final int SYSEX_ESCAPE       = 0xF7;
+    private static final int META_EVENT         = 0xFF;
+
     private static final int END_OF_TRACK       = 0x2F;
     private static final int TEMPO_SETTING      = 0x51;
-    private static final int SMPTE_OFFSET       = 0x54;
     private static final int TIME_SIGNATURE     = 0x58;
-    private static final int KEY_SIGNATURE      = 0x59;
-    private static final int SEQUENCER_SPECIFIC = 0x7F;
-
-    private Sequence sequence;
-    private TraditionalScore passage;
-
-    private TreeMap<Long, TimeSig> timeSigsLong;
-    private TreeMap<Float, TimeSig> timeSigsFloat;
-    private TreeMap<Count, TimeSig> timeSigsCount;
-
-    private TreeMap<Long,Integer> tempiLong;
-    private TreeMap<Float,Tempo> tempiFloat;
-    private TreeMap<Count, Tempo> tempiCount;
-
-    private TreeMap<Long,Float> timePoints;
-
-    private HashMap<Track,TreeMap<Long,TreeSet<Pitch>>> noteOnsLong;
-    private HashMap<Track,TreeMap<Float,TreeSet<Pitch>>> noteOnsFloat;
-    private HashMap<Track,TreeMap<Count,TreeSet<Pitch>>> noteOnsCount;
-
-    private HashMap<Track,TreeMap<Pitch,TreeSet<Long>>> noteOffsLong;
-    private HashMap<Track,TreeMap<Pitch,TreeSet<Float>>> noteOffsFloat;
-    private HashMap<Track,TreeMap<Pitch,TreeSet<Count>>> noteOffsCount;
-
-    private HashMap<Track,TreeMap<Long, Instrument>> instChangeLong;
-    private HashMap<Track,TreeMap<Float, Instrument>> instChangeFloat;
-    private HashMap<Track,TreeMap<Count, Instrument>> instChangeCount;
-
-    public TraditionalScore read(Sequence sequence) {
-
-        this.sequence = sequence;
-        passage = new TraditionalScore();
-
-        System.out.println("MIDI PARSER:\tParsing midi passage.passage.form.events...");
-        parseAll();
-        System.out.println("MIDI PARSER:\tFinished parsing midi passage.passage.form.events");
-
-        System.out.println("MIDI PARSER:\tInterpolating midi passage.passage.form.events...");
-        interpolateAll();
-        System.out.println("MIDI PARSER:\tFinished interpolating midi passage.passage.form.events");
-
-        System.out.println("MIDI PARSER:\tConverting to counts...");
-        convertToCounts();
-        System.out.println("MIDI PARSER:\tFinished converting to counts");
 
-        System.out.println("MIDI PARSER:\tMaking parts...");
-        makeParts();
-        System.out.println("MIDI PARSER:\tFinished making parts");
-
-        return passage;
-    }
-
-    private void parseAll() {
-
-        // Create all of the long (tick)-based timelines
-        timeSigsLong   = new TreeMap<>();
-        tempiLong      = new TreeMap<>();
-        noteOnsLong    = new HashMap<>();
-        noteOffsLong   = new HashMap<>();
-        instChangeLong = new HashMap<>();
-
-        // For every MidiTools track
-        for (Track track : sequence.getTracks()) {
-            // Create note ons and note offs for each track
-            noteOnsLong.put(track,new TreeMap<Long, TreeSet<Pitch>>());
-            noteOffsLong.put(track,new TreeMap<Pitch, TreeSet<Long>>());
-            instChangeLong.put(track,new TreeMap<Long, Instrument>());
-
-            // Set the initial instrument of this track (it may change)
-            // Note that "-1" here just means anything else will override it
-            //TreeMap<Long,base.sound.attributes.Instrument> init = new TreeMap<>();
-            //init.put(-1L,base.sound.attributes.Instrument.DEFAULT);
-            //instChangeLong.put(track,init);
-            // TODO: Instrument change stuff
-
-            // For every MidiTools event
-            for (int i = 0; i < track.size(); i++) {
-                // Some information about this MidiTools event
-                MidiEvent event     = track.get(i);
-                MidiMessage message = event.getMessage();
-                Long tick           = event.getTick();
-
-                // Parse the message based on what type of message it is
-                if (message instanceof ShortMessage)
-                    parseShortMessage(track, event,(ShortMessage)message,tick);
-                else if (message instanceof MetaMessage)
-                    parseMetaMessage(track, event,(MetaMessage)message,tick);
-                else if (message instanceof SysexMessage)
-                    parseSysexMessage(track, event,(SysexMessage)message,tick);
-                else
-                    System.out.println("MIDI:\tUnrecognized type of MIDI message!");
-            }
-        }
-    }
-
-    private void parseShortMessage(Track track, MidiEvent event, ShortMessage message, Long tick) {
-
-        // Figure out the message's command
-        switch (message.getCommand()) {
-            case ShortMessage.NOTE_ON:
-                parseNoteOnMessage(track, event, message, tick);
-                break;
-            case ShortMessage.NOTE_OFF:
-                parseNoteOffMessage(track, event, message, tick);
-                break;
-            case ShortMessage.CONTROL_CHANGE:
-                parseControlChangeMessage(track, event, message, tick);
-                break;
-            case ShortMessage.PROGRAM_CHANGE:
-                parseProgramChangeMessage(track, event, message, tick);
-                break;
-            default:
-                System.out.println("MIDI PARSER:\tUnrecognized MidiTools ShortMessage " + message.getCommand() + " on channel " + message.getChannel());
-                break;
-        }
-    }
-
-    private void parseMetaMessage(Track track, MidiEvent event, MetaMessage message, Long tick) {
-
-        // Figure out the message's type
-        switch(message.getType()) {
-
-            case SEQUENCE_NUMBER:
-                //System.out.println("MIDI PARSER:\tSequence number");
-                break;
-            case TEXT_EVENT:
-                parseTextMessage(track,event,message,tick);
-                break;
-            case COPYRIGHT_NOTICE:
-                System.out.println("MIDI PARSER:\tCopyright notice");
-                break;
-            case SEQUENCE_NAME:
-                //System.out.println("MIDI PARSER:\tSequence name");
-                break;
-            case INSTRUMENT_NAME:
-                //System.out.println("MIDI PARSER:\tInstrument name");
-                break;
-            case LYRIC_TEXT:
-                //System.out.println("MIDI PARSER:\tLyric text");
-                break;
-            case MARKER_TEXT:
-                //System.out.println("MIDI PARSER:\tMarker text");
-                break;
-            case CUE_POINT:
-                //System.out.println("MIDI PARSER:\tCue point");
-                break;
-            case MIDI_CHNL_PREFIX:
-                //System.out.println("MIDI PARSER:\tMidi channel control");
-                break;
-            case END_OF_TRACK:
-                //System.out.println("MID PARSERI:\tEnd of track");
-                break;
-            case TEMPO_SETTING:
-                parseTempoMessage(track,event,message,tick);
-                break;
-            case SMPTE_OFFSET:
-                //System.out.println("MIDI:\tMidi channel control");
-            case TIME_SIGNATURE:
-                parseTimeSignatureMessage(track,event,message,tick);
-                break;
-            case KEY_SIGNATURE:
-                //System.out.println("MIDI:\tKey signature");
-                break;
-            case SEQUENCER_SPECIFIC:
-                System.out.println("MIDI PARSER:\tSequencer-specific");
-                break;
-            default:
-                System.out.println("MIDI PARSER:\tUnrecognized MetaMessage " + Arrays.toString(message.getData()));
-                break;
-        }
-    }
+    private static final int CHANNELS           = PendingNotes.CHANNELS;
+    private static final int DRUM_CHANNEL       = 9;
+    private static final long MICROS_PER_MINUTE = 60000000L;
+    private static final int HIGHEST_KEY        = Pitch.MAX.getValue();
 
-    private void parseSysexMessage(Track track, MidiEvent event, SysexMessage message, Long tick) {
-        System.out.println("MIDI PARSER:\tUnrecognized MidiTools SysexMessage " + message.getData());
-    }
+    /** The version of what this reader makes of a file, to be moved on whenever that changes */
+    public static final int VERSION             = 2;
 
-    private void parseNoteOnMessage(Track track, MidiEvent event, ShortMessage message, Long tick) {
+    /**
+     * Which note a note-off ends, when its key has more than one sounding: the one struck first, or the one struck
+     * last.
+     */
+    public enum Pairing { FIFO, LIFO }
 
-        // Data pulled off of the MidiEvent
-        int pitchValue      = message.getData1();
-        int velocityValue   = message.getData2();
-        Pitch sound.pitch         = Pitch.get(pitchValue);
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
 
-        //System.out.println(tick + "\t" + sound);
+    private final Pairing pairing;
+    private final ForkJoinPool pool;
 
-        // If this was a note-off message in disguise
-        if(velocityValue == 0) {
-            parseNoteOffMessage(track,event,message,tick);
-        }
-        else {
-            // If this track hasn't had a note on at this tick
-            if (!noteOnsLong.get(track).containsKey(tick)) {
-                noteOnsLong.get(track).put(tick, new TreeSet<Pitch>());
-            }
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
 
-            // Add this basic to note-ons
-            noteOnsLong.get(track).get(tick).add(sound.pitch);
-        }
+    /**
+     * A reader which ends a key's notes in the order they were struck, and decodes tracks on the common pool.
+     */
+    public MidiReader() {
+        this(Pairing.FIFO);
     }
 
-    private void parseNoteOffMessage(Track track, MidiEvent event, ShortMessage message, Long tick) {
-
-        // Data pulled off of the MidiEvent
-        int pitchValue      = message.getData1();
-        Pitch sound.pitch         = Pitch.get(pitchValue);
-
-        // If this track hasn't had a note on at this tick
-        if (!noteOffsLong.get(track).containsKey(sound.pitch)) {
-            noteOffsLong.get(track).put(sound.pitch, new TreeSet<Long>());
-        }
-
-        // Add this basic to note-offs
-        noteOffsLong.get(track).get(sound.pitch).add(tick);
+    /**
+     * @param pairing which note a note-off ends, when its key has more than one sounding
+     */
+    public MidiReader(@NotNull Pairing pairing) {
+        this(pairing, ForkJoinPool.commonPool());
     }
 
-    private void parseControlChangeMessage(Track track, MidiEvent event, ShortMessage message, Long tick) {
-        // TODO: Write parseControlChangeMessage()
+    /**
+     * @param pairing which note a note-off ends, when its key has more than one sounding
+     * @param pool the pool to decode tracks on
+     */
+    public MidiReader(@NotNull Pairing pairing, @NotNull ForkJoinPool pool) {
+        this.pairing = pairing;
+        this.pool = pool;
     }
 
-
-    private void parseProgramChangeMessage(Track track, MidiEvent event, ShortMessage message, Long tick) {
-        instChangeLong.get(track).put(tick, Instrument.getGeneralMIDIInstrument(message.getData1()));
+    public @NotNull Pairing getPairing() {
+        return pairing;
     }
 
-    private void parseTempoMessage(Track track, MidiEvent event, MetaMessage message, Long tick) {
-        byte[] data = message.getData();
-        Integer ppqn = (data[0] & 0xff) << 16 | (data[1] & 0xff) << 8 | (data[2] & 0xff);
-        tempiLong.put(tick,60000000/ppqn); // 60 000 000 / Pulses Per Quarter passage.passage.form.events.sounding.Note - I think this is right
+    /**
+     * Getter for what sets the scores of this reader apart from those of any other, e.g. to key a
+     * {@link util.io.ScoreCache} by: its version, and how it pairs notes.
+     * @return the version of this reader
+     */
+    public @NotNull String getVersion() {
+        return "MIDI READER " + VERSION + " " + pairing;
     }
 
-    private void parseTimeSignatureMessage(Track track, MidiEvent event, MetaMessage message, Long tick) {
-        byte[] data = message.getData();
-        int numerator   = data[0];
-        int denominator = 2 << (data[1] - 1);
-        TimeSig timeSignature  = TimeSig.getInstance(4,4);
-        if(numerator == 0 || denominator == 0) {
-            System.out.println("MIDI PARSER:\tImproper base.form.time signature message, reverting to 4/4");
-        }
-        else {
-            timeSignature = TimeSig.getInstance(numerator, denominator);
+    @Override
+    public @NotNull Score read(@NotNull String filename) {
+        Path path = Paths.get(filename);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            String title = path.getFileName().toString();
+            int extension = title.lastIndexOf('.');
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                    extension > 0 ? title.substring(0, extension) : title);
+        } catch (IOException e) {
+            throw new Error("MIDI READER:\tCould not read " + filename, e);
         }
-        timeSigsLong.put(tick,timeSignature);
     }
 
-    private void parseTextMessage(Track track, MidiEvent event, MetaMessage message, Long tick) {
-        byte[] data = message.getData();
-        String string = new String(data);
-        // Remove any awkward newlines from the text
-        System.out.println("MIDI PARSER:\tText: \"" + string.replace("\n", "").replace("\r", "")+"\"");
+    /**
+     * Reads a score from the bytes of a Standard MIDI File, from the buffer's position to its limit. The buffer itself
+     * is left untouched.
+     * @param buffer the bytes of the file
+     * @param title the title to give the score
+     * @return the score
+     */
+    public @NotNull Score read(@NotNull ByteBuffer buffer, @NotNull String title) {
+        return new Parse(buffer, title).run();
     }
 
-    private void interpolateAll() {
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
 
-        Integer resolution = sequence.getResolution();
-        long tick = 0;
-        long prevTick = 0;
-        long finalTick = sequence.getTickLength();
-        float base.form.time = 0.0f;
+    // Finds the track chunks of one file, has them decoded, and puts what they hold on its score
+    private final class Parse {
+        private final ByteBuffer buffer;
+        private final String title;
+        private int position;
 
-        // Create the next stage's note-on and note-off collections
-        timeSigsFloat = new TreeMap<>();
-        tempiFloat = new TreeMap<>();
-        timePoints = new TreeMap<>();
-        timePoints.put(0L,0.0f);
-
-        noteOnsFloat = new HashMap<>();
-        noteOffsFloat = new HashMap<>();
-        instChangeFloat = new HashMap<>();
-
-        // Add the first base.form.time signature, if there is one
-        if (!timeSigsLong.isEmpty()) {
-            timeSigsFloat.put(0f, timeSigsLong.firstEntry().getValue());
-        }
-        // Else, make it 4/4, because why not?
-        else {
-            timeSigsFloat.put(0f, TimeSig.getInstance(4, 4));
-            System.out.println("MIDI PARSER: No base.form.time signature... defaulting to 4/4");
+        Parse(ByteBuffer buffer, String title) {
+            this.buffer = buffer.duplicate();
+            this.title = title;
+            this.position = buffer.position();
         }
 
-        // Add the first tempo, if there is one
-        if (tempiLong.firstEntry() != null) {
-            tempiFloat.put(0f, new Tempo(tempiLong.firstEntry().getValue()));
-        }
-        // Else, make it 120, because why not?
-        else {
-            tempiFloat.put(0f, new Tempo(120));
-            System.out.println("MIDI PARSER: No tempo... defaulting to 120bpm");
-        }
-
-        // For every tick in this midi sequence
-        // (Don't worry, we skip ahead efficiently)
-        while (tick <= finalTick) {
-
-            // Update the base.form.time signature if need be
-            if(timeSigsLong.get(tick) != null) {
-                timeSigsFloat.put(base.form.time, timeSigsLong.get(tick));
-            }
-            // Update the tempo if need be
-            if(tempiLong.get(tick) != null) {
-                tempiFloat.put(base.form.time, new Tempo(tempiLong.get(tick)));
-            }
-
-
-            // Information
-            TimeSig timeSig = timeSigsLong.floorEntry(tick).getValue();
-            long ticksPerMeasure = resolution * 4 * timeSig.getNumerator() / timeSig.getDenominator();
-            long ticksElapsed = tick - prevTick;
-            float timeElapsed = (float) ticksElapsed / ticksPerMeasure;
-
-            // Add to the base.form.time and set "prevTick"
-            base.form.time += timeElapsed;
-            prevTick = tick;
-            tick++;
-
-            // Add this timePoint, if it's not a duplicate
-            if (!timePoints.containsKey(tick)) {
-                timePoints.put(tick, base.form.time);
+        Score run() {
+            if (readInt() != HEADER_CHUNK) throw new Error("MIDI READER:\tNot a Standard MIDI File.");
+            int headerLength = readInt();
+            int headerEnd = position + headerLength;
+            readShort();
+            int trackCount = readShort();
+            int division = readShort();
+            if ((division & 0x8000) != 0) throw new Error("MIDI READER:\tSMPTE timing isn't supported.");
+            if (division == 0) throw new Error("MIDI READER:\tA file can't have 0 ticks per quarter note.");
+            MidiTimeMap timeMap = new MidiTimeMap(division);
+            position = headerEnd;
+
+            List<Decode> tracks = new ArrayList<>(trackCount);
+            for (int track = 0; track < trackCount; track++) {
+                // Skip over any chunk this reader doesn't know, as the standard asks
+                int type, length;
+                do {
+                    if (position + 8 > buffer.limit()) {
+                        throw new Error("MIDI READER:\tExpected " + trackCount + " tracks, but found " + track);
+                    }
+                    type = readInt();
+                    length = readInt();
+                    if (type != TRACK_CHUNK) position += length;
+                } while (type != TRACK_CHUNK);
+                int end = position + length;
+                if (end > buffer.limit()) throw new Error("MIDI READER:\tTrack " + track + " runs past the file.");
+                tracks.add(new Decode(buffer, position, end, track == 0 ? timeMap : null));
+                position = end;
             }
-
-            // If there's a base.form.time signature change, add that in
-            if (timeSigsLong.containsKey(tick)) {
-                timeSigsFloat.put(base.form.time, timeSig);
+            decode(tracks);
+            timeMap.takePickup();
+
+            Ensemble score = new Ensemble(title);
+            if (!tracks.isEmpty()) {
+                Decode conductor = tracks.get(0);
+                for (int i = 0; i < conductor.tempoCount; i++) {
+                    score.add(Tempo.of(conductor.tempoBPMs[i]), timeMap.toTime(conductor.tempoTicks[i]));
+                }
             }
-
-            // If there's a PPQN change, add that in
-            if (tempiLong.containsKey(tick)) {
-                // TODO: Is this right? I think it might not be...
-                tempiFloat.put(base.form.time, new Tempo(tempiLong.get(tick)));
+            // Each track is written as soon as its times are ready, while the pool works on those of the rest
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(tracks.size());
+            for (Decode track : tracks) {
+                tasks.add(pool.submit(() -> track.toTimes(timeMap)));
             }
-
-            // Check for the next changes in key signature or pulses per quarter note.
-            // If there are upcoming changes, figure out when they are, and if not, say
-            // that they're infinitely far away.
-            long nextTimeSigChangeTick = Long.MAX_VALUE;
-            long nextPPQNChangeTick = Long.MAX_VALUE;
-
-            if (timeSigsLong.ceilingEntry(tick) != null) {
-                nextTimeSigChangeTick = timeSigsLong.ceilingEntry(tick).getKey();
+            for (int track = 0; track < tracks.size(); track++) {
+                tasks.get(track).join();
+                tracks.get(track).writeTo(score);
             }
-            if (tempiLong.ceilingEntry(tick) != null) {
-                nextPPQNChangeTick = tempiLong.ceilingEntry(tick).getKey();
+            for (int piece = 0; piece < timeMap.size(); piece++) {
+                score.add(timeMap.getTimeSig(piece), timeMap.getMeasure(piece));
             }
+            return score;
+        }
 
-            // If the next upcoming event is the end of the piece, mark it with a base.form.time point
-            // and be done with it.
-            if (tick <= finalTick && finalTick <= nextTimeSigChangeTick && finalTick <= nextPPQNChangeTick) {
-                tick = finalTick;
-            }
-            // Else, if a base.form.time signature change is due sooner, move the tick to that
-            else if (nextTimeSigChangeTick <= nextPPQNChangeTick) {
-                tick = nextTimeSigChangeTick;
+        // Every track but the first on the pool, and the first on this thread in the meantime
+        private void decode(List<Decode> tracks) {
+            if (tracks.isEmpty()) return;
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(tracks.size() - 1);
+            for (int track = 1; track < tracks.size(); track++) {
+                tasks.add(pool.submit(tracks.get(track)));
             }
-            // Otherwise, the next ppqn change must be the closest relevant difference
-            else {
-                tick = nextPPQNChangeTick;
+            tracks.get(0).run();
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
             }
         }
 
-        for(Track track : instChangeLong.keySet()) {
-            instChangeFloat.put(track,new TreeMap<Float, Instrument>());
-            for(Long switchTick : instChangeLong.get(track).keySet()) {
-                instChangeFloat.get(track).put(interpolate(switchTick), instChangeLong.get(track).get(switchTick));
-            }
+        private int readInt() {
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
         }
 
-        // TODO: Avoid all these ".gets" and optimize
-        // Convert all note-on messages to float format
-        for(Track track : noteOnsLong.keySet()) {
-            noteOnsFloat.put(track, new TreeMap<Float, TreeSet<Pitch>>());
-
-            // For each frame
-            for (Long noteOnTick : noteOnsLong.get(track).keySet()) {
-                noteOnsFloat.get(track).put(interpolate(noteOnTick), new TreeSet<Pitch>());
-
-                // For each sound
-                for (Pitch pitchStarted : noteOnsLong.get(track).get(noteOnTick)) {
-                    noteOnsFloat.get(track).get(interpolate(noteOnTick)).add(pitchStarted);
-                }
-            }
+        private int readShort() {
+            int value = buffer.getShort(position) & 0xFFFF;
+            position += 2;
+            return value;
         }
+    }
 
-        // TODO: Avoid all these ".gets" and optimize
-        // Convert all note-off messages to float format
-        for(Track track : noteOffsLong.keySet()) {
-            noteOffsFloat.put(track, new TreeMap<Pitch, TreeSet<Float>>());
-
-            // For each frame
-            for (Pitch sound.pitch : noteOffsLong.get(track).keySet()) {
-                noteOffsFloat.get(track).put(sound.pitch, new TreeSet<Float>());
-                // For each sound
-                for (Long noteOffTick : noteOffsLong.get(track).get(sound.pitch)) {
-                    noteOffsFloat.get(track).get(sound.pitch).add(interpolate(noteOffTick));
-                }
+    // Everything one track needs while it's decoded, which reads nothing but its own chunk and writes nothing but
+    // itself- and the time map, for the conductor track
+    private final class Decode implements Runnable {
+        private final ByteBuffer buffer;
+        private int position;
+        private final int end;
+
+        // The meter of the conductor track, and its tempo changes, each the last at its tick; null for any other
+        private final MidiTimeMap timeMap;
+        private long[] tempoTicks = new long[4];
+        private int[] tempoBPMs = new int[4];
+        private int tempoCount;
+
+        // Per channel, which of its lines are sounding, which line each of its voices is, and its program
+        private final PendingNotes pending = new PendingNotes(pairing == Pairing.LIFO);
+        private final BitSet[] sounding = new BitSet[CHANNELS];
+        private final int[][] voiceLines = new int[CHANNELS][0];
+        private final int[] programs = new int[CHANNELS];
+        private final int[] firstLines = new int[CHANNELS];
+
+        // The instrument of each line, in the order they were made, and every note, in the order it ended: its onset,
+        // its end, and its line, key and velocity packed into an int
+        private final List<Instrument> instruments = new ArrayList<>();
+        private long[] starts = new long[64];
+        private long[] ends = new long[64];
+        private int[] notes = new int[64];
+        private int noteCount;
+
+        // Every control change, pitch bend and pressure, in the order it came: its tick, and its channel, controller
+        // and value packed into an int
+        private long[] controlTicks = new long[16];
+        private int[] controls = new int[16];
+        private int controlCount;
+
+        // Per controller event, its time as a packed rational
+        private long[] controlTimes;
+
+        // Where every line starts, which is in the pickup measure if the file has one; and per note, the rest before it
+        // on its line, or null if there's none, and how long it lasts
+        private Time origin;
+        private Duration[] rests;
+        private Duration[] lengths;
+
+        Decode(ByteBuffer buffer, int position, int end, MidiTimeMap timeMap) {
+            this.buffer = buffer.duplicate();
+            this.position = position;
+            this.end = end;
+            this.timeMap = timeMap;
+            for (int channel = 0; channel < CHANNELS; channel++) {
+                sounding[channel] = new BitSet();
             }
+            Arrays.fill(firstLines, -1);
         }
 
-        // Free up the previous stage's note-on and note-off collections
-        timeSigsLong.clear();
-        tempiLong.clear();
-        noteOnsLong.clear();
-        noteOffsLong.clear();
-        instChangeLong.clear();
-    }
-
-    private void convertToCounts() {
-
-        timeSigsCount = new TreeMap<>();
-        tempiCount = new TreeMap<>();
-
-        noteOnsCount = new HashMap<>();
-        noteOffsCount = new HashMap<>();
-        instChangeCount = new HashMap<>();
+        @Override
+        public void run() {
+            long tick = 0;
+            int status = 0;
+            while (position < end) {
+                tick += readVariable();
+                int first = buffer.get(position) & 0xFF;
+                if (first >= 0x80) {
+                    position++;
+                    if (first == META_EVENT) {
+                        int type = buffer.get(position++) & 0xFF;
+                        int length = (int) readVariable();
+                        int data = position;
+                        position += length;
+                        if (type == END_OF_TRACK) break;
+                        if (timeMap != null) readMeta(type, data, length, tick);
+                        status = 0;
+                        continue;
+                    }
+                    if (first == SYSTEM_EXCLUSIVE || first == SYSEX_ESCAPE) {
+                        int length = (int) readVariable();
+                        position += length;
+                        status = 0;
+                        continue;
+                    }
+                    status = first;
+                } else if (status == 0) {
+                    throw new Error("MIDI READER:\tA data byte at " + position + " has no running status.");
+                }
 
-        // For each base.form.time signature change
-        for (Float timeSigChangeTime : timeSigsFloat.keySet()) {
-            // The best-matching count to put this event on
-            Count count = closestCount(timeSigChangeTime);
-            timeSigsCount.put(count,timeSigsFloat.get(timeSigChangeTime));
+                int channel = status & 0x0F;
+                int data1 = buffer.get(position++) & 0x7F;
+                int command = status & 0xF0;
+                if (command == PROGRAM_CHANGE) {
+                    programs[channel] = data1;
+                    continue;
+                }
+                if (command == CHANNEL_PRESSURE) {
+                    control(channel, ControllerLane.CHANNEL_PRESSURE, data1, tick);
+                    continue;
+                }
+                int data2 = buffer.get(position++) & 0x7F;
+                if (command == NOTE_ON && data2 > 0) {
+                    noteOn(channel, data1, data2, tick);
+                } else if (command == NOTE_OFF || command == NOTE_ON) {
+                    noteOff(channel, data1, tick);
+                } else if (command == CONTROL_CHANGE) {
+                    control(channel, data1, data2, tick);
+                } else if (command == PITCH_BEND) {
+                    control(channel, ControllerLane.PITCH_BEND, data2 << 7 | data1, tick);
+                } else if (command == POLY_PRESSURE) {
+                    control(channel, ControllerLane.polyPressure(data1), data2, tick);
+                }
+            }
+            // Whatever's still sounding ends with the track
+            for (int index = pending.popAny(); index >= 0; index = pending.popAny()) endNote(index, tick);
+            // A channel with controllers but no notes still needs a line to hold them
+            for (int i = 0; i < controlCount; i++) {
+                int channel = controls[i] >>> 23;
+                if (firstLines[channel] < 0) lineOf(channel, 0);
+            }
         }
 
-        // For each tempo change
-        for (Float tempoChangeTime : tempiFloat.keySet()) {
-            // The best-matching count to put this event on
-            Count count = closestCount(tempoChangeTime);
-            tempiCount.put(count,tempiFloat.get(tempoChangeTime));
+        // Works out the rest before and the length of every note, following each line's write head along
+        void toTimes(MidiTimeMap timeMap) {
+            rests = new Duration[noteCount];
+            lengths = new Duration[noteCount];
+            Time[] heads = new Time[instruments.size()];
+            origin = timeMap.toTime(0);
+            Arrays.fill(heads, origin);
+            for (int i = 0; i < noteCount; i++) {
+                int line = notes[i] >>> 14;
+                Time start = timeMap.toTime(starts[i]);
+                Time end = timeMap.toTime(ends[i]);
+                if (heads[line].compareTo(start) < 0) rests[i] = start.minus(heads[line]);
+                lengths[i] = end.minus(start);
+                heads[line] = end;
+            }
+            controlTimes = new long[controlCount];
+            for (int i = 0; i < controlCount; i++) {
+                controlTimes[i] = timeMap.toRational(controlTicks[i]);
+            }
         }
 
-        // TODO: Make a "tracks" set?
-        // For every track
-        for(Track track : noteOnsFloat.keySet()) {
-
-            // Add a space for the new collection
-            noteOnsCount.put(track, new TreeMap<Count, TreeSet<Pitch>>());
-            noteOffsCount.put(track, new TreeMap<Pitch, TreeSet<Count>>());
-            instChangeCount.put(track, new TreeMap<Count, Instrument>());
-
-            // For each note-on frame
-            for (Float instChangeTime : instChangeFloat.get(track).keySet()) {
-                // The best-matching count to put this event on
-                Count count = closestCount(instChangeTime);
-                instChangeCount.get(track).put(count,instChangeFloat.get(track).get(instChangeTime));
+        // Adds the track's lines to the score, and writes its notes onto them
+        void writeTo(Ensemble score) {
+            List<Line<Pitch>> lines = new ArrayList<>(instruments.size());
+            for (Instrument instrument : instruments) {
+                Line<Pitch> line = score.addLine(instrument);
+                if (!origin.equals(Time.of(Measure.ONE))) line.startAt(origin);
+                lines.add(line);
             }
-
-            // For each note-on frame
-            for (Float noteOnFloat : noteOnsFloat.get(track).keySet()) {
-
-                // The best-matching count to put this event on
-                Count count = closestCount(noteOnFloat);
-
-                // Add a sound set at this base.form.time
-                noteOnsCount.get(track).put(count, new TreeSet<Pitch>());
-
-                // For each sound to add... add it
-                for (Pitch pitchStarted : noteOnsFloat.get(track).get(noteOnFloat)) {
-                    noteOnsCount.get(track).get(count).add(pitchStarted);
+            for (int i = 0; i < noteCount; i++) {
+                Line<Pitch> line = lines.get(notes[i] >>> 14);
+                if (rests[i] != null) line.add(rests[i]);
+                line.add(Pitch.get(notes[i] >> 7 & 0x7F), lengths[i]);
+                line.getNotes().getLast().set(Dynamic.of(notes[i] & 0x7F));
+            }
+            // A controller acts on every voice of its channel, so each line split off from the channel gets all of them
+            for (int i = 0; i < controlCount; i++) {
+                for (int line : voiceLines[controls[i] >>> 23]) {
+                    if (line < 0) continue;
+                    lines.get(line).getLane(controls[i] >>> 14 & 0x1FF).add(controlTimes[i], controls[i] & 0x3FFF);
                 }
             }
+        }
 
-            for (Pitch sound.pitch : noteOffsFloat.get(track).keySet()) {
-                noteOffsCount.get(track).put(sound.pitch, new TreeSet<Count>());
-                for (Float noteOffFloat : noteOffsFloat.get(track).get(sound.pitch)) {
-                    Count count = closestCount(noteOffFloat);
-                    noteOffsCount.get(track).get(sound.pitch).add(count);
+        private void readMeta(int type, int data, int length, long tick) {
+            if (type == TEMPO_SETTING && length >= 3) {
+                int micros = (buffer.get(data) & 0xFF) << 16 | (buffer.get(data + 1) & 0xFF) << 8
+                        | (buffer.get(data + 2) & 0xFF);
+                if (micros == 0) return;
+                int bpm = (int) Math.max(1, (MICROS_PER_MINUTE + micros / 2) / micros);
+                if (tempoCount > 0 && tempoTicks[tempoCount - 1] == tick) {
+                    tempoBPMs[tempoCount - 1] = bpm;
+                    return;
+                }
+                if (tempoCount == tempoTicks.length) {
+                    tempoTicks = Arrays.copyOf(tempoTicks, tempoCount * 2);
+                    tempoBPMs = Arrays.copyOf(tempoBPMs, tempoCount * 2);
                 }
+                tempoTicks[tempoCount] = tick;
+                tempoBPMs[tempoCount++] = bpm;
+            } else if (type == TIME_SIGNATURE && length >= 2) {
+                int numerator = buffer.get(data) & 0xFF;
+                int power = buffer.get(data + 1) & 0xFF;
+                if (numerator == 0 || power > 30) return;
+                timeMap.add(TimeSig.of(numerator, 1 << power), tick);
             }
         }
-        // Clear old collections
-        timeSigsFloat.clear();
-        tempiFloat.clear();
-        noteOnsFloat.clear();
-        noteOffsFloat.clear();
-        instChangeFloat.clear();
-    }
 
-    private void makeParts() {
-
-        for(Count timeSigChange : timeSigsCount.keySet()) {
-            passage.addTimeSignature(timeSigsCount.get(timeSigChange),timeSigChange.getMeasure());
+        private void noteOn(int channel, int key, int velocity, long tick) {
+            int voice = sounding[channel].nextClearBit(0);
+            sounding[channel].set(voice);
+            pending.push(channel, key, tick, velocity, voice);
         }
-        for(Count tempoChange : tempiCount.keySet()) {
-            passage.addTempoChange(tempiCount.get(tempoChange),tempoChange);
+
+        // A note-off with nothing sounding on its key is ignored
+        private void noteOff(int channel, int key, long tick) {
+            int index = pending.pop(channel, key);
+            if (index >= 0) endNote(index, tick);
         }
 
-        // For every track
-        for(Track track : noteOnsCount.keySet()) {
-            if(!noteOnsCount.get(track).isEmpty() && !instChangeCount.get(track).isEmpty()) {
-                Instrument instrument = instChangeCount.get(track).firstEntry().getValue();
-                Part part = new Part(instrument);
-                // TODO: Instrument changes
-
-                for(Map.Entry<Count, TreeSet<Pitch>> pair : noteOnsCount.get(track).entrySet()) {
-                    Count start = pair.getKey();
-                    for(Pitch sound.pitch : pair.getValue()) {
-                        Count end = noteOffsCount.get(track).get(sound.pitch).ceiling(start);
-                        System.out.println(new Note(start,end,sound.pitch));
-                        part.add(new Note(start,end,sound.pitch));
-                    }
-                }
-                // Add the part to the passage
-                passage.add(part);
+        // Frees the note's line for the next, and keeps the note unless it never lasted a tick or has no pitch
+        private void endNote(int index, long tick) {
+            int channel = pending.channel(index);
+            int voice = pending.voice(index);
+            long onset = pending.onset(index);
+            sounding[channel].clear(voice);
+            if (tick == onset || pending.key(index) > HIGHEST_KEY) return;
+
+            if (noteCount == starts.length) {
+                starts = Arrays.copyOf(starts, noteCount * 2);
+                ends = Arrays.copyOf(ends, noteCount * 2);
+                notes = Arrays.copyOf(notes, noteCount * 2);
             }
+            starts[noteCount] = onset;
+            ends[noteCount] = tick;
+            notes[noteCount++] = lineOf(channel, voice) << 14 | pending.key(index) << 7 | pending.velocity(index);
         }
-    }
-
-    private float interpolate(long tick) {
-        // Get the base.form.time points before and after this tick
-        long earlierTick    = timePoints.floorKey(tick);
-        long laterTick      = timePoints.ceilingKey(tick);
 
-        // If we're right on the base.form.time point we want
-        if(Long.compare(earlierTick,laterTick) == 0) {
-            return timePoints.get(earlierTick);
+        private void control(int channel, int controller, int value, long tick) {
+            if (controlCount == controlTicks.length) {
+                controlTicks = Arrays.copyOf(controlTicks, controlCount * 2);
+                controls = Arrays.copyOf(controls, controlCount * 2);
+            }
+            controlTicks[controlCount] = tick;
+            controls[controlCount++] = channel << 23 | controller << 14 | value;
         }
-        // If we have to interpolate
-        else {
-            // Figure out what fractions-of-a-measure those base.form.time points
-            // represent, and lerp between them to figure out where "tick" is
-            float earlierTimePoint  = timePoints.get(earlierTick);
-            float laterTimePoint    = timePoints.get(laterTick);
-            float relativePosition  = (float)(tick - earlierTick) / (float)(laterTick - earlierTick);
-            return (relativePosition * (laterTimePoint - earlierTimePoint )) + earlierTimePoint;
+
+        // The line of a channel's voice, made the first time it's needed, with the program the channel has then
+        private int lineOf(int channel, int voice) {
+            int[] lines = voiceLines[channel];
+            if (lines.length <= voice) {
+                lines = Arrays.copyOf(lines, voice + 1);
+                Arrays.fill(lines, voiceLines[channel].length, lines.length, -1);
+                voiceLines[channel] = lines;
+            }
+            if (lines[voice] < 0) {
+                lines[voice] = instruments.size();
+                if (firstLines[channel] < 0) firstLines[channel] = lines[voice];
+                instruments.add(channel == DRUM_CHANNEL ? Instrument.DRUM_SET
+                        : Instrument.getGeneralMIDIInstrument(programs[channel]));
+            }
+            return lines[voice];
         }
-    }
 
-    private Count closestCount(float base.form.time) {
-        // Now we get to calculate where in the measure this lies
-        int measure = (int)Math.floor(base.form.time);
-        float remainder = base.form.time - measure;
-
-        // We need a base.form.time.Count that's sufficiently close to the remainder
-        int numerator = 1;
-        int denominator = 1;
-
-        // For all possible subdivision amounts
-        for(int testDenominator = 1; testDenominator < 60; testDenominator++) {
-            float increment = 1f/(float)testDenominator;
-            float closestSnapPoint = increment*Math.round(remainder/increment);
-            float distance = Math.abs(increment - closestSnapPoint);
-
-            // If it's close enough
-            if(distance < .001f) {
-                denominator = testDenominator;
-                numerator = Math.round(base.form.time*denominator);
-                break;
+        private long readVariable() {
+            long value = 0;
+            for (int i = 0; i < 4; i++) {
+                int b = buffer.get(position++);
+                value = (value << 7) | (b & 0x7F);
+                if (b >= 0) return value;
             }
+            throw new Error("MIDI READER:\tA variable-length quantity at " + position + " runs past 4 bytes.");
         }
-        // The best-matching count to put this event on
-        return new Count(numerator,denominator);
     }
-
 }
-*/
\ No newline at end of file
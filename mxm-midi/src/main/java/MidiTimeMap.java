@@ -0,0 +1,259 @@
+import form.attributes.TimeSig;
+import form.events.Note;
+import form.events.TimeSigChange;
+import form.passage.ControllerLane;
+import form.passage.Part;
+import form.passage.Score;
+import form.time.Measure;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import util.fraction.Rational;
+
+import java.util.Arrays;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * The meter of a MIDI file, as a piecewise map between its ticks and {@link Time}. Each piece starts at a time
+ * signature change, on the tick and measure where it takes effect, and within a piece every measure has the same
+ * number of ticks- so that a tick becomes a time, or a time a tick, with one binary search for its piece and a little
+ * integer arithmetic, and exactly: a tick comes out as an exact rational time, however long the piece.</p>
+ *
+ * <p> The map is built once, front to back, from either the time signature events of a file or the time signature
+ * changes of a score, and only read after that, from as many threads as like. A map starts out in 4/4 at tick 0, the
+ * start of the first measure, until told otherwise.</p>
+ *
+ * <p> A score with a pickup starts its file in the pickup measure instead, on the beat its earliest note or controller
+ * change falls in: the first piece then starts on a tick before 0, at the downbeat of the pickup measure, and the
+ * file only has the rest of that measure, as a short first bar. Reading a file back, a first bar shorter than the one
+ * after it is taken for a pickup in the same way, as notation programs take it.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class MidiTimeMap {
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final int ppq;
+
+    // Each piece's first tick, the measure that tick starts, and its time signature
+    private long[] ticks;
+    private int[] measures;
+    private TimeSig[] timeSigs;
+    private int size;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A map in 4/4 from the start, to have time signatures added to it.
+     * @param ppq the ticks in a quarter note
+     */
+    public MidiTimeMap(int ppq) {
+        this(ppq, Measure.ONE);
+    }
+
+    private MidiTimeMap(int ppq, Measure first) {
+        if (ppq <= 0) throw new Error("MIDI TIME MAP:\tA file can't have " + ppq + " ticks per quarter note.");
+        this.ppq = ppq;
+        this.ticks = new long[4];
+        this.measures = new int[4];
+        this.timeSigs = new TimeSig[4];
+        this.ticks[0] = 0;
+        this.measures[0] = first.getNumber();
+        this.timeSigs[0] = TimeSig.DEFAULT;
+        this.size = 1;
+    }
+
+    /**
+     * Builds the map of a score's time signature changes, for writing it out at the given resolution. Tick 0 falls
+     * on the first measure, or on the beat of the earliest note or controller change if that comes before it.
+     * @param score the score
+     * @param ppq the ticks in a quarter note
+     * @return the map
+     */
+    public static @NotNull MidiTimeMap of(@NotNull Score score, int ppq) {
+        long origin = earliest(score);
+        Measure first = Measure.of(Math.min(Rational.floor(origin), Measure.ONE.getNumber()));
+        MidiTimeMap map = new MidiTimeMap(ppq, first);
+        for (TimeSigChange change : score.getTimeSigChanges()) {
+            // A time signature from before the file starts is taken to start its first measure
+            Measure measure = change.getTime().getMeasure();
+            if (measure.compareTo(first) < 0) measure = first;
+            map.add(change.getTimeSig(), map.toTick(Time.of(measure)), measure.getNumber());
+        }
+        if (first.compareTo(Measure.ONE) < 0) {
+            // Back to the beat the earliest event falls in, so that what's left of the measure is a whole bar
+            long beat = 4L * ppq / map.timeSigs[0].getDenominator();
+            long lead = map.toTick(origin);
+            lead -= Math.floorMod(lead, beat);
+            for (int piece = 0; piece < map.size; piece++) map.ticks[piece] -= lead;
+        }
+        return map;
+    }
+
+    /**
+     * Adds a time signature event, which must come no earlier than the last one added. One on the same tick as the
+     * last replaces it; one part way through a measure cuts that measure short, and starts the next one.
+     * @param timeSig the time signature
+     * @param tick the tick it takes effect on
+     */
+    public void add(@NotNull TimeSig timeSig, long tick) {
+        int last = size - 1;
+        if (tick < ticks[last]) {
+            throw new Error("MIDI TIME MAP:\tA time signature at tick " + tick + " comes before the one at "
+                    + ticks[last]);
+        }
+        long elapsed = (tick - ticks[last]) * timeSigs[last].getDenominator();
+        long span = span(timeSigs[last]);
+        add(timeSig, tick, measures[last] + (int) ((elapsed + span - 1) / span));
+    }
+
+    /**
+     * Takes a first measure shorter than the one after it for a pickup, once every time signature has been added: the
+     * map then starts in the pickup measure, in the time signature which follows it, as far before tick 0 as the
+     * pickup is short of a whole measure.
+     */
+    public void takePickup() {
+        if (size < 2 || ticks[0] != 0 || measures[1] != measures[0] + 1) return;
+        long bar = span(timeSigs[1]) / timeSigs[1].getDenominator();
+        if (ticks[1] >= bar) return;
+        // The short bar was counted as the first measure, so every one after it moves back one
+        int shift = measures[0] - Measure.PICKUP.getNumber();
+        System.arraycopy(ticks, 1, ticks, 0, size - 1);
+        System.arraycopy(timeSigs, 1, timeSigs, 0, size - 1);
+        System.arraycopy(measures, 1, measures, 0, size - 1);
+        size--;
+        for (int piece = 1; piece < size; piece++) measures[piece] -= shift;
+        ticks[0] -= bar;
+        measures[0] = Measure.PICKUP.getNumber();
+    }
+
+    /**
+     * Getter for the time a tick falls on.
+     * @param tick the tick, from the start of the file
+     * @return the time
+     */
+    public @NotNull Time toTime(long tick) {
+        return Time.ofRational(toRational(tick));
+    }
+
+    /**
+     * Getter for the time a tick falls on as a packed {@link Rational}, in measures, without making a {@link Time}.
+     * @param tick the tick, from the start of the file
+     * @return the time
+     */
+    public long toRational(long tick) {
+        int piece = pieceOfTick(tick);
+        long span = span(timeSigs[piece]);
+        long elapsed = (tick - ticks[piece]) * timeSigs[piece].getDenominator();
+        return Rational.of(measures[piece] * span + elapsed, span);
+    }
+
+    /**
+     * Getter for the tick a time falls on, rounded to the nearest one if it falls between two.
+     * @param time the time
+     * @return the tick, from the start of the file
+     */
+    public long toTick(@NotNull Time time) {
+        return toTick(time.toRational());
+    }
+
+    /**
+     * Getter for the tick a time, given as a packed {@link Rational} in measures, falls on, as {@link #toTick(Time)}.
+     * @param fraction the time
+     * @return the tick, from the start of the file
+     */
+    public long toTick(long fraction) {
+        int piece = pieceOfTime(fraction);
+        long offset = Rational.minus(fraction, Rational.of(measures[piece], 1));
+        // The ticks since the piece started, over the offset's denominator, rounded half up
+        long num = Rational.numerator(offset) * span(timeSigs[piece]);
+        long den = (long) Rational.denominator(offset) * timeSigs[piece].getDenominator();
+        return ticks[piece] + Math.floorDiv(2 * num + den, 2 * den);
+    }
+
+    public int getPPQ() {
+        return ppq;
+    }
+
+    /**
+     * Getter for how many pieces this map has- one per time signature, counting the 4/4 it starts with unless it
+     * was replaced.
+     * @return the number of pieces
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getTick(int piece) {
+        return ticks[piece];
+    }
+
+    public @NotNull Measure getMeasure(int piece) {
+        return Measure.of(measures[piece]);
+    }
+
+    public @NotNull TimeSig getTimeSig(int piece) {
+        return timeSigs[piece];
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    private void add(TimeSig timeSig, long tick, int measure) {
+        int last = size - 1;
+        if (tick == ticks[last]) {
+            timeSigs[last] = timeSig;
+            return;
+        }
+        if (size == ticks.length) {
+            ticks = Arrays.copyOf(ticks, size * 2);
+            measures = Arrays.copyOf(measures, size * 2);
+            timeSigs = Arrays.copyOf(timeSigs, size * 2);
+        }
+        ticks[size] = tick;
+        measures[size] = measure;
+        timeSigs[size] = timeSig;
+        size++;
+    }
+
+    // The earliest note or controller change of a score, or the first measure if nothing comes before it
+    private static long earliest(Score score) {
+        long toReturn = Time.of(Measure.ONE).toRational();
+        for (Part<?> part : score.getParts()) {
+            Note<?> first = part.getNotes().getFirst();
+            if (first != null && Rational.compare(first.getStart().toRational(), toReturn) < 0) {
+                toReturn = first.getStart().toRational();
+            }
+            for (ControllerLane lane : part.getLanes()) {
+                if (Rational.compare(lane.getTime(0), toReturn) < 0) toReturn = lane.getTime(0);
+            }
+        }
+        return toReturn;
+    }
+
+    // The ticks in a measure of this time signature, times its denominator, so that it's always whole
+    private long span(TimeSig timeSig) {
+        return 4L * ppq * timeSig.getNumerator();
+    }
+
+    // The last piece starting at or before a tick; a tick before the first piece belongs to it anyway
+    private int pieceOfTick(long tick) {
+        int index = Arrays.binarySearch(ticks, 0, size, tick);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    private int pieceOfTime(long fraction) {
+        int low = 0, high = size - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (Rational.floor(fraction) >= measures[mid]) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+}
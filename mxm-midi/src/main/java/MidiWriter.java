@@ -1,223 +1,504 @@
-/*
-class MidiWriter implements Writer<TraditionalScore> {
+import form.attributes.TimeSig;
+import form.events.Note;
+import form.events.TempoChange;
+import form.passage.ControllerLane;
+import form.passage.Part;
+import form.passage.Score;
+import form.time.Time;
+import org.jetbrains.annotations.NotNull;
+import sound.attributes.Dynamic;
+import sound.attributes.Instrument;
+import sound.pitched.Pitch;
+import util.io.IFileWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * Writes a {@link Score} as a format 1 Standard MIDI File, encoding its events straight into one reusable
+ * {@link ByteBuffer} as it walks the score in time order, and flushing that buffer to a channel whenever it fills-
+ * with no event objects, and no whole track held in memory, along the way.</p>
+ *
+ * <p> The first track is the conductor track: the score's title, and its time signatures and tempo changes. Every
+ * part then gets a track of its own, on a channel of its own- channel 10 for the drum set, and the others in turn
+ * for the rest- starting with a program change to its instrument's General MIDI program. Notes are placed on ticks
+ * with a {@link MidiTimeMap} of the score's meter, and ended with note-ons of no velocity, so that a part's track is
+ * running status from its first note to its last. A score with a pickup starts the file in it, as a short first bar.
+ * Only notes sounding a {@link Pitch} can be written; any other is left out. A part's {@link ControllerLane}s are
+ * merged in among its notes on its channel, each change just ahead of any note starting on its tick.</p>
+ *
+ * <p> Each track's length is only known once it's written, so it's patched into its chunk header afterwards: in
+ * place, if the header is still in the buffer, or by seeking back, if the channel can. A track written to a channel
+ * which can't seek is kept in the buffer until it ends, the buffer growing to hold it.</p>
+ *
+ * <p> Given a {@link ForkJoinPool} of more than one thread, the parts' tracks are instead each encoded into a buffer
+ * of their own on the pool, a few per thread at a time, and written out one after the other in the order of the
+ * parts as they're done. Every track is encoded the same way whichever thread does it, from a fresh running status
+ * and its own first tick, so the file comes out byte for byte the same however many threads write it.</p>
+ *
+ * @author Patrick Celentano
+ */
+public final class MidiWriter implements IFileWriter<Score> {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    public static final int DEFAULT_PPQ         = 480;
+
+    private static final int HEADER_CHUNK       = 0x4D546864; // "MThd"
+    private static final int TRACK_CHUNK        = 0x4D54726B; // "MTrk"
+    private static final int HEADER_LENGTH      = 6;
+    private static final int FORMAT             = 1;
+
+    private static final int NOTE_ON            = 0x90;
+    private static final int POLY_PRESSURE      = 0xA0;
+    private static final int CONTROL_CHANGE     = 0xB0;
+    private static final int PROGRAM_CHANGE     = 0xC0;
+    private static final int CHANNEL_PRESSURE   = 0xD0;
+    private static final int PITCH_BEND         = 0xE0;
+    private static final int META_EVENT         = 0xFF;
+
+    private static final int TRACK_NAME         = 0x03;
+    private static final int END_OF_TRACK       = 0x2F;
+    private static final int TEMPO_SETTING      = 0x51;
+    private static final int TIME_SIGNATURE     = 0x58;
+
+    private static final int CHANNELS           = 16;
+    private static final int KEYS               = 128;
+    private static final int DRUM_CHANNEL       = 9;
+    private static final long MICROS_PER_MINUTE = 60000000L;
+    private static final int BUFFER_SIZE        = 1 << 16;
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final int ppq;
+    private final int bufferSize;
+    private final ForkJoinPool pool;
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * A writer at {@link #DEFAULT_PPQ} ticks a quarter note.
+     */
+    public MidiWriter() {
+        this(DEFAULT_PPQ);
+    }
 
-    private static int resolution = 24;
-    private TraditionalScore passage = null;
-    private Sequence sequence = null;
+    /**
+     * A writer which encodes tracks on the common pool.
+     * @param ppq the ticks in a quarter note of the files written
+     */
+    public MidiWriter(int ppq) {
+        this(ppq, ForkJoinPool.commonPool());
+    }
 
-    private TreeMap<Float,Long> timePoints;
+    /**
+     * @param ppq the ticks in a quarter note of the files written
+     * @param pool the pool to encode tracks on, or to encode them one by one on the calling thread if it has only one
+     */
+    public MidiWriter(int ppq, @NotNull ForkJoinPool pool) {
+        this(ppq, BUFFER_SIZE, pool);
+    }
 
-    // Writes the information contained in a passage down to a sequence
-    public Sequence run(TraditionalScore passage) {
-        try {
-            // Initialize our variables
-            this.passage = passage;
-            this.sequence = new Sequence(javax.sound.midi.Sequence.PPQ,resolution);
-            this.timePoints = new TreeMap<>();
-
-            // Constantly reused variables
-            MetaMessage metaMessage;
-            MidiEvent event;
-
-            // Create and initialize the control track (for tempi and base.form.time signatures)
-            Track controlTrack = sequence.createTrack();
-            initTrack(controlTrack);
-
-            // Set the default base.form.time signature... should be removed
-            metaMessage = new MetaMessage();
-            byte[] bt = {0x04, 0x04, (byte)resolution, (byte)8}; // Should work... should.
-            metaMessage.setMessage(0x58 ,bt, 3);
-            event = new MidiEvent(metaMessage,(long)resolution);
-            controlTrack.add(event);
-
-            writeTimeSignatures(controlTrack);
-            writeTempoChanges(controlTrack);
-
-            System.out.println("MIDI READER:\tAdded a new track (from a Part)");
-            // For every part in the passage, create a track, and fill it with all the notes in that track
-            for(Part line : passage) {
-                Track track = sequence.createTrack();
-                initTrack(track);
-                for(Note note : line) {
-                    addNote(note, track);
-                }
-                //endTrack(track);
-            }
-        }
-        catch (InvalidMidiDataException e) {
-            e.printStackTrace();
+    // Package private on purpose- a small buffer, to have tests flush and patch tracks part way through
+    MidiWriter(int ppq, int bufferSize, @NotNull ForkJoinPool pool) {
+        if (ppq <= 0 || ppq > 0x7FFF) {
+            throw new Error("MIDI WRITER:\tA file can't have " + ppq + " ticks per quarter note.");
         }
-        return sequence;
+        this.ppq = ppq;
+        this.bufferSize = Math.max(16, bufferSize);
+        this.pool = pool;
     }
 
-
+    public int getPPQ() {
+        return ppq;
+    }
 
     @Override
-    public void write(TraditionalScore type, String filename) {
+    public void write(@NotNull Score score, @NotNull String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(score, channel);
+        } catch (IOException e) {
+            throw new Error("MIDI WRITER:\tCould not write " + filename, e);
+        }
+    }
 
+    /**
+     * Writes a score to a channel, which is left open.
+     * @param score the score to write
+     * @param channel the channel to write to
+     */
+    public void write(@NotNull Score score, @NotNull WritableByteChannel channel) {
+        try {
+            new Encode(score, MidiTimeMap.of(score, ppq), channel).run();
+        } catch (IOException e) {
+            throw new Error("MIDI WRITER:\tCould not write " + score.getTitle(), e);
+        }
     }
 
-    @Override
-    public void write(Collection<TraditionalScore> types, String filename) {
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    // Everything one file needs while it's written, so that the writer itself holds nothing between files- or one
+    // track, when it's written to a buffer of its own rather than to a channel
+    private final class Encode {
+        private final Score score;
+        private final WritableByteChannel channel;
+        private final MidiTimeMap timeMap;
+        private ByteBuffer buffer;
+
+        // How many bytes have gone out to the channel, and where the length of the open track goes
+        private long flushed;
+        private long lengthAt = -1;
+
+        // The status of the last channel event, for running status, and the tick of the last event of the track
+        private int status;
+        private long tick;
+
+        // The notes of the part being written which are still to end, as a heap of their ticks and keys; and its
+        // lanes, as a heap of the tick and index of each one's next change, with the row of that change
+        private final Heap endings = new Heap();
+        private final Heap changes = new Heap();
+        private List<ControllerLane> lanes;
+        private int[] rows;
+
+        Encode(Score score, MidiTimeMap timeMap, WritableByteChannel channel) {
+            this.score = score;
+            this.channel = channel;
+            this.timeMap = timeMap;
+            this.buffer = ByteBuffer.allocate(bufferSize);
+        }
 
-    }
+        void run() throws IOException {
+            List<Part<?>> parts = new ArrayList<>();
+            for (Part<?> part : score.getParts()) parts.add(part);
+
+            ensure(14);
+            buffer.putInt(HEADER_CHUNK);
+            buffer.putInt(HEADER_LENGTH);
+            buffer.putShort((short) FORMAT);
+            buffer.putShort((short) (parts.size() + 1));
+            buffer.putShort((short) timeMap.getPPQ());
+
+            writeConductor();
+            int[] partChannels = new int[parts.size()];
+            int next = 0;
+            for (int i = 0; i < parts.size(); i++) {
+                if (parts.get(i).getInstrument().equals(Instrument.DRUM_SET)) {
+                    partChannels[i] = DRUM_CHANNEL;
+                } else {
+                    partChannels[i] = next;
+                    next = (next + 1) % CHANNELS;
+                    if (next == DRUM_CHANNEL) next++;
+                }
+            }
 
+            if (pool.getParallelism() < 2 || parts.size() < 2) {
+                for (int i = 0; i < parts.size(); i++) writePart(parts.get(i), partChannels[i]);
+            } else {
+                // A sliding window of tracks being encoded, each written out as soon as those before it have been
+                int window = 2 * pool.getParallelism();
+                List<ForkJoinTask<ByteBuffer>> tasks = new ArrayList<>(parts.size());
+                for (int i = 0; i < parts.size(); i++) {
+                    if (i >= window) writeChunk(tasks.get(i - window).join());
+                    Part<?> part = parts.get(i);
+                    int partChannel = partChannels[i];
+                    tasks.add(pool.submit(() -> {
+                        Encode track = new Encode(score, timeMap, null);
+                        track.writePart(part, partChannel);
+                        track.buffer.flip();
+                        return track.buffer;
+                    }));
+                }
+                for (int i = Math.max(0, parts.size() - window); i < parts.size(); i++) {
+                    writeChunk(tasks.get(i).join());
+                }
+            }
+            flush();
+        }
 
-    private void init(Track track) throws InvalidMidiDataException {
+        // The title, then every time signature and tempo change, time signatures first where they fall together
+        private void writeConductor() throws IOException {
+            beginTrack();
+            byte[] title = score.getTitle().getBytes(StandardCharsets.UTF_8);
+            if (title.length > 0) meta(0, TRACK_NAME, title);
+
+            int piece = 0;
+            if (timeMap.getTick(0) < 0) {
+                // A pickup measure, started part way through: the beats of it left make a short first bar, and its
+                // time signature follows on from the end of that, unless the next one does instead
+                TimeSig timeSig = timeMap.getTimeSig(0);
+                long beat = 4L * timeMap.getPPQ() / timeSig.getDenominator();
+                writeTimeSig(TimeSig.of((int) (barTick(0) / beat), timeSig.getDenominator()), 0);
+                if (timeMap.size() > 1 && timeMap.getTick(1) == barTick(0)) piece = 1;
+            }
+            for (TempoChange tempo : score.getTempoChanges()) {
+                // A tempo from before the file starts is the tempo it starts in
+                long tempoTick = Math.max(0, tickOf(tempo.getTime()));
+                for (; piece < timeMap.size() && barTick(piece) <= tempoTick; piece++) writeTimeSig(piece);
+                int bpm = tempo.getTempo().getBPM();
+                int micros = (int) ((MICROS_PER_MINUTE + bpm / 2) / bpm);
+                meta(tempoTick, TEMPO_SETTING, new byte[]{(byte) (micros >> 16), (byte) (micros >> 8), (byte) micros});
+            }
+            for (; piece < timeMap.size(); piece++) writeTimeSig(piece);
+            endTrack(tick);
+        }
 
-    }
+        private void writeTimeSig(int piece) throws IOException {
+            writeTimeSig(timeMap.getTimeSig(piece), barTick(piece));
+        }
 
-    private void initTrack(Track track) throws InvalidMidiDataException {
-        //****  General MIDI sysex -- turn on General MIDI sound set  ****
-        byte[] b = {(byte)0xF0, 0x7E, 0x7F, 0x09, 0x01, (byte)0xF7};
-        SysexMessage sm = new SysexMessage();
-        sm.setMessage(b, 6);
-        MidiEvent me = new MidiEvent(sm,(long)0);
-        track.add(me);
-
-        //****  set track name (meta event)  ****
-        MetaMessage mt = new MetaMessage();
-        String TrackName = "Control Track";
-        mt.setMessage(0x03 ,TrackName.getBytes(), TrackName.length());
-        me = new MidiEvent(mt,(long)0);
-        track.add(me);
-
-        //****  set omni on  ****
-        ShortMessage mm = new ShortMessage();
-        mm.setMessage(0xB0, 0x7D,0x00);
-        me = new MidiEvent(mm,(long)0);
-        track.add(me);
-
-        mm = new ShortMessage();
-        mm.setMessage(0xB0, 0x7F,0x00);
-        me = new MidiEvent(mm,(long)0);
-        track.add(me);
-
-        // Set the instrument to piano
-        ShortMessage instChange = new ShortMessage();
-        instChange.setMessage(ShortMessage.PROGRAM_CHANGE, 0, 0, 0);
-        track.add(new MidiEvent(instChange, 0));
-    }
+        private void writeTimeSig(TimeSig timeSig, long timeSigTick) throws IOException {
+            if (timeSig.getNumerator() > 0xFF) {
+                throw new Error("MIDI WRITER:\tA time signature of " + timeSig + " can't be written to MIDI.");
+            }
+            // The denominator as a power of two, then twenty four clocks a click, and eight 32nd notes a quarter
+            meta(timeSigTick, TIME_SIGNATURE, new byte[]{(byte) timeSig.getNumerator(),
+                    (byte) Integer.numberOfTrailingZeros(timeSig.getDenominator()), 24, 8});
+        }
+
+        private void writePart(Part<?> part, int partChannel) throws IOException {
+            beginTrack();
+            if (partChannel != DRUM_CHANNEL) {
+                int program = part.getInstrument().getGeneralMIDIProgram();
+                event(0, PROGRAM_CHANGE | partChannel, Math.max(program, 0), -1);
+            }
+            lanes = part.getLanes();
+            rows = new int[lanes.size()];
+            for (int lane = 0; lane < lanes.size(); lane++) {
+                changes.push(tickOf(lanes.get(lane).getTime(0)) << 9 | lane);
+            }
+            for (Note<?> note : part.getNotes()) {
+                if (!(note.getSound() instanceof Pitch)) continue;
+                int key = ((Pitch) note.getSound()).getValue();
+                if (key < 0 || key >= KEYS) continue;
+                long start = tickOf(note.getStart());
+                // A note too short for a tick still lasts one, rather than vanishing
+                long end = Math.max(tickOf(note.getEnd()), start + 1);
+                writeUntil(start, partChannel);
+                Dynamic dynamic = note.getDynamic();
+                int velocity = dynamic != null ? Math.max(1, dynamic.getValue()) : Dynamic.MEZZO_FORTE.getValue();
+                event(start, NOTE_ON | partChannel, key, velocity);
+                endings.push(end << 7 | key);
+            }
+            writeUntil(Long.MAX_VALUE, partChannel);
+            endTrack(tick);
+        }
 
-    private void addNote(Note note, Track track) throws InvalidMidiDataException {
-        //System.out.println("Added note");
+        // Every note-off and controller change up to a tick, in tick order, note-offs first where they fall together
+        private void writeUntil(long until, int partChannel) throws IOException {
+            while (true) {
+                boolean ending = endings.size() > 0 && endings.peek() >> 7 <= until;
+                boolean change = changes.size() > 0 && changes.peek() >> 9 <= until;
+                if (ending && change) ending = endings.peek() >> 7 <= changes.peek() >> 9;
+                else if (!ending && !change) return;
+
+                if (ending) {
+                    long next = endings.pop();
+                    event(next >> 7, NOTE_ON | partChannel, (int) (next & 0x7F), 0);
+                    continue;
+                }
+                long next = changes.pop();
+                int lane = (int) (next & 0x1FF);
+                ControllerLane controllerLane = lanes.get(lane);
+                int row = rows[lane]++;
+                writeChange(next >> 9, partChannel, controllerLane.getController(), controllerLane.getValue(row));
+                if (rows[lane] < controllerLane.size()) {
+                    changes.push(tickOf(controllerLane.getTime(rows[lane])) << 9 | lane);
+                }
+            }
+        }
 
-        ShortMessage on = new ShortMessage();
-        ShortMessage off = new ShortMessage();
-        on.setMessage(ShortMessage.NOTE_ON, 0, note.getPitch().getValue(), 60);
-        off.setMessage(ShortMessage.NOTE_OFF, 0, note.getPitch().getValue(), 0);
-        track.add(new MidiEvent(on, interpolate(note.getStart().toFloat())));
-        track.add(new MidiEvent(off, interpolate(note.getEnd().toFloat())));
-    }
+        private void writeChange(long changeTick, int partChannel, int controller, int value) throws IOException {
+            if (controller < ControllerLane.CONTROL_CHANGES) {
+                event(changeTick, CONTROL_CHANGE | partChannel, controller, value);
+            } else if (controller == ControllerLane.PITCH_BEND) {
+                event(changeTick, PITCH_BEND | partChannel, value & 0x7F, value >> 7);
+            } else if (controller == ControllerLane.CHANNEL_PRESSURE) {
+                event(changeTick, CHANNEL_PRESSURE | partChannel, value, -1);
+            } else {
+                event(changeTick, POLY_PRESSURE | partChannel, controller - ControllerLane.POLY_PRESSURE, value);
+            }
+        }
 
-    private void endTrack(Track track) throws InvalidMidiDataException {
-        System.out.println("Ending track");
-        MetaMessage mt = new MetaMessage();
-        byte[] bet = {}; // empty array
-        mt.setMessage(0x2F,bet,0);
-        MidiEvent me = new MidiEvent(mt, (long)10000000); // TEMPORARY
-        track.add(me);
-    }
+        // Where a piece's time signature goes: on its first tick, or where the pickup ends if it starts before the file
+        private long barTick(int piece) {
+            long toReturn = timeMap.getTick(piece);
+            if (toReturn >= 0) return toReturn;
+            TimeSig timeSig = timeMap.getTimeSig(piece);
+            return toReturn + 4L * timeMap.getPPQ() * timeSig.getNumerator() / timeSig.getDenominator();
+        }
 
-    private long interpolate(float base.form.time) {
-        // Get the base.form.time points before and after this tick
-        float earlierTime    = timePoints.floorKey(base.form.time);
-        float laterTime      = timePoints.ceilingKey(base.form.time);
-
-        // If we're right on the base.form.time point we want
-        if(Float.compare(earlierTime,laterTime) == 0) {
-            System.out.println("Interpolated "+base.form.time+" to exactly "+(timePoints.get(earlierTime)));
-            return timePoints.get(earlierTime);
-        }
-        // If we have to interpolate
-        else {
-            // Figure out what fractions-of-a-measure those base.form.time points
-            // represent, and lerp between them to figure out where "tick" is
-            long earlierTimePoint  = timePoints.get(earlierTime);
-            long laterTimePoint    = timePoints.get(laterTime);
-            float relativePosition  = ((base.form.time - earlierTime) / (laterTime - earlierTime));
-            System.out.println("Interpolated "+base.form.time+" to "+(relativePosition * (laterTimePoint - earlierTimePoint )) + earlierTimePoint);
-            return (long)(relativePosition * (laterTimePoint - earlierTimePoint )) + earlierTimePoint;
+        // A whole track chunk, encoded elsewhere, after what's already in the buffer
+        private void writeChunk(ByteBuffer chunk) throws IOException {
+            if (buffer.remaining() >= chunk.remaining()) {
+                buffer.put(chunk);
+                return;
+            }
+            flush();
+            flushed += chunk.remaining();
+            while (chunk.hasRemaining()) channel.write(chunk);
+        }
+
+        // The map starts the file no later than the earliest note or controller change, so neither comes before it
+        private long tickOf(Time time) {
+            return timeMap.toTick(time);
         }
-    }
 
-    private void writeTimeSignatures(Track track) throws InvalidMidiDataException {
-        // Put a starting point in
-        timePoints.put(0f,(long)0);
+        private long tickOf(long fraction) {
+            return timeMap.toTick(fraction);
+        }
 
-        // The measure that the base.form.time signature last changed
-        int lastTimeSigChange = 0;
-        // The size of those measures in ticks
-        long lastMeasureSize = 0;
+        private void beginTrack() throws IOException {
+            ensure(8);
+            buffer.putInt(TRACK_CHUNK);
+            lengthAt = flushed + buffer.position();
+            buffer.putInt(0);
+            status = 0;
+            tick = 0;
+        }
 
-        // The iterator over all the passage's base.form.time signatures
-        Iterator<Integer> timeSigItr = passage.timeSignatureIterator();
+        private void endTrack(long endTick) throws IOException {
+            meta(endTick, END_OF_TRACK, new byte[0]);
+            int length = (int) (flushed + buffer.position() - lengthAt - 4);
+            if (lengthAt >= flushed) {
+                buffer.putInt((int) (lengthAt - flushed), length);
+            } else {
+                // Only a channel which can seek ever flushes an open track
+                SeekableByteChannel seekable = (SeekableByteChannel) channel;
+                flush();
+                long end = seekable.position();
+                seekable.position(end - (flushed - lengthAt));
+                ByteBuffer patch = ByteBuffer.allocate(4).putInt(0, length);
+                while (patch.hasRemaining()) seekable.write(patch);
+                seekable.position(end);
+            }
+            lengthAt = -1;
+        }
 
-        // Add all of the timeSignature changes
-        while(timeSigItr.hasNext()) {
-            int curMeasure = timeSigItr.next();
-            int measuresPassed = curMeasure - lastTimeSigChange;
+        // A channel event, with its status left out if it's the same as the last one's; a second data byte below 0
+        // is left out too
+        private void event(long eventTick, int eventStatus, int data1, int data2) throws IOException {
+            ensure(8);
+            delta(eventTick);
+            if (eventStatus != status) buffer.put((byte) eventStatus);
+            buffer.put((byte) data1);
+            if (data2 >= 0) buffer.put((byte) data2);
+            status = eventStatus;
+        }
 
-            TimeSig timeSignature = passage.getTimeSignatureAt(new Count(curMeasure));
+        // A meta event, which cancels running status
+        private void meta(long eventTick, int type, byte[] data) throws IOException {
+            ensure(data.length + 10);
+            delta(eventTick);
+            buffer.put((byte) META_EVENT);
+            buffer.put((byte) type);
+            variable(data.length);
+            buffer.put(data);
+            status = 0;
+        }
 
-            long newTimePoint = timePoints.lastEntry().getValue() + measuresPassed * lastMeasureSize;
+        private void delta(long eventTick) {
+            variable(eventTick - tick);
+            tick = eventTick;
+        }
 
-            timePoints.put((float)curMeasure,newTimePoint);
-            System.out.println(curMeasure + "  " + newTimePoint + "  " + timeSignature);
+        private void variable(long value) {
+            if (value > 0x0FFFFFFF) throw new Error("MIDI WRITER:\tA gap of " + value + " ticks is too long.");
+            int shift = 21;
+            while (shift > 0 && value >> shift == 0) shift -= 7;
+            for (; shift > 0; shift -= 7) buffer.put((byte) (value >> shift & 0x7F | 0x80));
+            buffer.put((byte) (value & 0x7F));
+        }
 
-            int cc = 0;
-            switch(timeSignature.getDenominator()) {
-                case 1:     cc = 0;     break;
-                case 2:     cc = 1;     break;
-                case 4:     cc = 2;     break;
-                case 8:     cc = 3;     break;
-                case 16:    cc = 4;     break;
+        // Makes room for the bytes to come: flushing what's there, up to the open track's length if the channel can't
+        // seek back to patch it later, and growing the buffer if that isn't enough or there's no channel
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            if (channel != null) {
+                if (lengthAt >= 0 && !(channel instanceof SeekableByteChannel)) flush(lengthAt - flushed);
+                else flush();
             }
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
 
-            byte[] bytes = {(byte)timeSignature.getNumerator(), (byte)cc, (byte)resolution, (byte)8};
+        private void flush() throws IOException {
+            flush(buffer.position());
+        }
 
-            // Create a base.form.time signature change event
-            MetaMessage metaMessage = new MetaMessage();
-            metaMessage.setMessage(0x58 ,bytes, 3);
-            MidiEvent event = new MidiEvent(metaMessage,newTimePoint);
-            track.add(event);
+        // Writes out the first bytes of the buffer, and moves the rest to its front
+        private void flush(long bytes) throws IOException {
+            if (bytes <= 0) return;
+            buffer.flip();
+            int limit = buffer.limit();
+            buffer.limit((int) bytes);
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.limit(limit);
+            buffer.compact();
+            flushed += bytes;
+        }
+    }
+
+    // A min-heap of longs, for whatever comes next of the events of a track
+    private static final class Heap {
+        private long[] keys = new long[16];
+        private int size;
 
-            lastMeasureSize = resolution*timeSignature.getNumerator()/timeSignature.getDenominator();
-            lastTimeSigChange = curMeasure;
+        int size() {
+            return size;
         }
 
-        // Create a base.form.time point waaaaaaay after the end of the piece to ensure our interpolator can work
-        timePoints.put((float)lastTimeSigChange+10000,timePoints.lastEntry().getValue()+lastMeasureSize*10000);
-    }
+        long peek() {
+            return keys[0];
+        }
 
-    private void writeTempoChanges(Track track) throws InvalidMidiDataException {
-        // Add all of the tempo changes
-        Iterator<Count> tempoItr = passage.tempoChangeIterator();
-        while(tempoItr.hasNext()) {
-            Count base.form.time = tempoItr.next();
-            Tempo tempo = passage.getTempoAt(base.form.time);
-            int ppqn = 60000000 / tempo.getBPM();
-
-            // Set tempo
-            MetaMessage metaMessage = new MetaMessage();
-            byte[] bytes = new byte[]{(byte) (ppqn >> 16), (byte) (ppqn >> 8), (byte) (ppqn)}; // Should work... should.
-            metaMessage.setMessage(0x51, bytes, 3);
-            MidiEvent event = new MidiEvent(metaMessage,interpolate(base.form.time.toFloat()));
-            track.add(event);
+        void push(long key) {
+            if (size == keys.length) keys = Arrays.copyOf(keys, size * 2);
+            int i = size++;
+            while (i > 0 && keys[(i - 1) >> 1] > key) {
+                keys[i] = keys[(i - 1) >> 1];
+                i = (i - 1) >> 1;
+            }
+            keys[i] = key;
         }
-    }
 
-    public static void main(String argv[]) throws IOException, InvalidMidiDataException, MidiUnavailableException {
-        //Sequence sequence = MidiTools.download("https://www.8notes.com/school/midi/violin/bach_bourree.mid");
-        Sequence sequence = MidiTools.load(Paths.get("").toAbsolutePath()+"/mxm-midi/src/tests/resources/midi_schubert_impromptu.mid");
-        TraditionalScore passage = MidiTools.parse(sequence);
-        //MidiWriter writer = new MidiWriter();
-        //writer.write(passage,"input");
-
-        //Sequence out = MidiTools.write(passage);
-        //ScoreEvent outputPassage = MidiTools.parse(out);
-        //MxmScoreWriter.java.write(outputPassage,"output");
-        //MidiTools.play(out);
+        long pop() {
+            long toReturn = keys[0];
+            long last = keys[--size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (keys[child] >= last) break;
+                keys[i] = keys[child];
+                i = child;
+            }
+            keys[i] = last;
+            return toReturn;
+        }
     }
 }
-*/
\ No newline at end of file
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+/**
+ * <p> <b>Class Overview:</b>
+ * The notes of a MIDI track which have started but not yet ended, kept per channel and key in flat primitive arrays,
+ * so that pairing a note-off with its note-on costs no more than an array index. Each of the 16 x 128 channels and
+ * keys has a small queue of its own, for a key struck again before it was let go, which gives back either its oldest
+ * or its newest note.</p>
+ *
+ * <p> Every key's queue has the same room, which starts at one note and doubles whenever any key needs more- so the
+ * arrays only ever grow with the most notes one key has held at once.</p>
+ *
+ * @author Patrick Celentano
+ */
+final class PendingNotes {
+
+    //////////////////////////////
+    // Static variables         //
+    //////////////////////////////
+
+    static final int CHANNELS = 16;
+    static final int KEYS = 128;
+    private static final int SLOTS = CHANNELS * KEYS;
+
+    //////////////////////////////
+    // Member variables         //
+    //////////////////////////////
+
+    private final boolean lastInFirstOut;
+
+    // Per key, where its queue starts and how many notes are in it
+    private final int[] heads = new int[SLOTS];
+    private final int[] counts = new int[SLOTS];
+    private int depth = 1;
+    private int size;
+
+    // Per note, in its key's queue, when it started, how loud it is, and the line it's sounding on
+    private long[] onsets = new long[SLOTS];
+    private int[] velocities = new int[SLOTS];
+    private int[] voices = new int[SLOTS];
+
+    //////////////////////////////
+    // Member methods           //
+    //////////////////////////////
+
+    /**
+     * @param lastInFirstOut whether a note-off ends the newest note sounding on its key, rather than the oldest
+     */
+    PendingNotes(boolean lastInFirstOut) {
+        this.lastInFirstOut = lastInFirstOut;
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void push(int channel, int key, long onset, int velocity, int voice) {
+        int slot = channel * KEYS + key;
+        if (counts[slot] == depth) grow();
+        int index = slot * depth + (heads[slot] + counts[slot]) % depth;
+        onsets[index] = onset;
+        velocities[index] = velocity;
+        voices[index] = voice;
+        counts[slot]++;
+        size++;
+    }
+
+    /**
+     * Takes a note off a key's queue.
+     * @param channel the channel
+     * @param key the key
+     * @return where the note is, to be read with {@link #onset(int)} and the like until the next push, or -1 if the
+     * key has no note sounding
+     */
+    int pop(int channel, int key) {
+        int slot = channel * KEYS + key;
+        if (counts[slot] == 0) return -1;
+        counts[slot]--;
+        size--;
+        if (lastInFirstOut) return slot * depth + (heads[slot] + counts[slot]) % depth;
+        int index = slot * depth + heads[slot];
+        heads[slot] = (heads[slot] + 1) % depth;
+        return index;
+    }
+
+    /**
+     * Takes any note off any queue, to end whatever's still sounding at the end of a track.
+     * @return where the note is, or -1 if nothing is sounding
+     */
+    int popAny() {
+        if (size == 0) return -1;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (counts[slot] > 0) return pop(slot / KEYS, slot % KEYS);
+        }
+        return -1;
+    }
+
+    long onset(int index) {
+        return onsets[index];
+    }
+
+    int velocity(int index) {
+        return velocities[index];
+    }
+
+    int voice(int index) {
+        return voices[index];
+    }
+
+    int key(int index) {
+        return index / depth % KEYS;
+    }
+
+    int channel(int index) {
+        return index / depth / KEYS;
+    }
+
+    //////////////////////////////
+    // Private methods          //
+    //////////////////////////////
+
+    // Doubles every queue's room, laying each one back out from its start
+    private void grow() {
+        int newDepth = depth * 2;
+        long[] newOnsets = new long[SLOTS * newDepth];
+        int[] newVelocities = new int[SLOTS * newDepth];
+        int[] newVoices = new int[SLOTS * newDepth];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            for (int i = 0; i < counts[slot]; i++) {
+                int from = slot * depth + (heads[slot] + i) % depth;
+                int to = slot * newDepth + i;
+                newOnsets[to] = onsets[from];
+                newVelocities[to] = velocities[from];
+                newVoices[to] = voices[from];
+            }
+            heads[slot] = 0;
+        }
+        depth = newDepth;
+        onsets = newOnsets;
+        velocities = newVelocities;
+        voices = newVoices;
+    }
+}
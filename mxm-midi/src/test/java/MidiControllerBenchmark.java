@@ -0,0 +1,83 @@
+import form.passage.ControllerLane;
+import form.passage.Part;
+import form.passage.Score;
+
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a file dense with controller data- every track a few notes under a stream of control changes, pitch bends and
+ * pressure- and measures the heap it takes up held as a javax.sound.midi Sequence of MidiEvents, against held as the
+ * {@link ControllerLane}s of a score, and how long each takes to read.
+ */
+public class MidiControllerBenchmark {
+    public static int TRACKS = 16;
+    public static int CHANGES = 40000;
+    public static int SAMPLES = 10;
+
+    public static void main(String[] args) throws Exception {
+        int changes = args.length > 0 ? Integer.parseInt(args[0]) : CHANGES;
+        byte[] bytes = file(changes);
+        MidiReader reader = new MidiReader();
+
+        long sequence = Long.MAX_VALUE, lanes = Long.MAX_VALUE;
+        long sequenceBytes = 0, laneBytes = 0, changeCount = 0;
+        for (int s = 0; s < SAMPLES; s++) {
+            long before = usedMemory();
+            long startTime = System.nanoTime();
+            Sequence read = MidiSystem.getSequence(new ByteArrayInputStream(bytes));
+            sequence = Math.min(sequence, System.nanoTime() - startTime);
+            sequenceBytes = usedMemory() - before;
+            if (read.getTracks().length != TRACKS + 1) throw new Error("Expected " + (TRACKS + 1) + " tracks");
+            read = null;
+
+            before = usedMemory();
+            startTime = System.nanoTime();
+            Score score = reader.read(ByteBuffer.wrap(bytes), "Controllers");
+            lanes = Math.min(lanes, System.nanoTime() - startTime);
+            laneBytes = usedMemory() - before;
+            changeCount = 0;
+            for (Part<?> part : score.getParts()) {
+                for (ControllerLane lane : part.getLanes()) changeCount += lane.size();
+            }
+        }
+
+        System.out.println("");
+        System.out.println("====================================");
+        System.out.println(TRACKS + " tracks, " + changeCount + " controller changes, " + bytes.length + " bytes");
+        System.out.println("Sequence read us:          " + sequence / 1000);
+        System.out.println("Score read us:             " + lanes / 1000);
+        System.out.println("Sequence heap bytes:       " + sequenceBytes);
+        System.out.println("Score heap bytes:          " + laneBytes);
+        System.out.println("Sequence bytes/change:     " + String.format("%.1f", (double) sequenceBytes / changeCount));
+        System.out.println("Score bytes/change:        " + String.format("%.1f", (double) laneBytes / changeCount));
+    }
+
+    // A conductor track, then tracks of a note at the start of every measure, each under a sweep of the modulation
+    // wheel, the pitch bend and the channel pressure in turn, a change every tick
+    private static byte[] file(int changes) {
+        MidiReaderTest.Smf smf = new MidiReaderTest.Smf(96);
+        smf.track().meta(0, 0x58, 4, 2, 24, 8).end(0);
+        for (int track = 0; track < TRACKS; track++) {
+            int channel = track % 16;
+            smf.track();
+            for (int i = 0; i < changes; i++) {
+                if (i % 384 == 0) smf.event(0, 0x90 | channel, 60 + track, 100);
+                if (i % 3 == 0) smf.event(1, 0xB0 | channel, 1, i & 0x7F);
+                else if (i % 3 == 1) smf.event(1, 0xE0 | channel, i & 0x7F, i >> 7 & 0x7F);
+                else smf.event(1, 0xD0 | channel, i & 0x7F);
+                if (i % 384 == 383) smf.event(0, 0x80 | channel, 60 + track, 0);
+            }
+            smf.end(0);
+        }
+        return smf.toBytes();
+    }
+
+    private static long usedMemory() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
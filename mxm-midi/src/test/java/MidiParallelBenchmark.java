@@ -0,0 +1,60 @@
+import form.passage.Score;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times reading and writing one MIDI file with its tracks decoded and encoded on pools of one thread and more, to show
+ * how both scale with the number of tracks a file has and the cores there are to spread them over.
+ */
+public class MidiParallelBenchmark {
+    public static String FILENAME = "src/test/resources/midi_bach_musicalOffering.mid";
+    public static int SAMPLES = 100;
+    public static int[] THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        String filename = args.length > 0 ? args[0] : FILENAME;
+        byte[] bytes = Files.readAllBytes(new File(filename).toPath());
+        Score score = new MidiReader().read(filename);
+        WritableByteChannel sink = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) {
+                int written = source.remaining();
+                source.position(source.limit());
+                return written;
+            }
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+            @Override
+            public void close() {
+            }
+        };
+
+        System.out.println("");
+        System.out.println("====================================");
+        System.out.println(filename + ": " + score.getParts().size() + " parts, "
+                + Runtime.getRuntime().availableProcessors() + " cores");
+        for (int threads : THREADS) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            MidiReader reader = new MidiReader(MidiReader.Pairing.FIFO, pool);
+            MidiWriter writer = new MidiWriter(MidiWriter.DEFAULT_PPQ, pool);
+            long read = Long.MAX_VALUE, written = Long.MAX_VALUE;
+            for (int s = 0; s < SAMPLES; s++) {
+                long startTime = System.nanoTime();
+                reader.read(ByteBuffer.wrap(bytes), filename);
+                read = Math.min(read, System.nanoTime() - startTime);
+
+                startTime = System.nanoTime();
+                writer.write(score, sink);
+                written = Math.min(written, System.nanoTime() - startTime);
+            }
+            pool.shutdown();
+            System.out.println(threads + " threads: read us " + read / 1000 + ", write us " + written / 1000);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import form.attributes.Tempo;
+import form.passage.Ensemble;
+import form.passage.Line;
+import form.passage.Score;
+import form.time.Measure;
+import form.time.Time;
+import sound.attributes.Dynamic;
+import sound.attributes.Instrument;
+import sound.pitched.Pitch;
+import util.fraction.Rational;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times reading a MIDI file into a score: the old way, by having javax.sound.midi parse it into a Sequence of
+ * MidiEvents and walking those, against the streaming {@link MidiReader}, both from the file and from bytes already
+ * in memory. Both ways pair notes first in, first out and give them lines the same way, so they build the same score-
+ * the old way keeping each key's sounding notes in a queue of its own, the reader in flat arrays.
+ */
+public class MidiReaderBenchmark {
+    public static String FILENAME = "src/test/resources/midi_beethoven_symphony5.mid";
+    public static int SAMPLES = 200;
+
+    public static void main(String[] args) throws Exception {
+        String filename = args.length > 0 ? args[0] : FILENAME;
+        byte[] bytes = Files.readAllBytes(new File(filename).toPath());
+        MidiReader reader = new MidiReader();
+
+        long sequence = Long.MAX_VALUE, mapped = Long.MAX_VALUE, buffered = Long.MAX_VALUE;
+        int sequenceNotes = 0, readerNotes = 0;
+        for (int s = 0; s < SAMPLES; s++) {
+            long startTime = System.nanoTime();
+            sequenceNotes = fromSequence(MidiSystem.getSequence(new File(filename))).getNoteCount();
+            sequence = Math.min(sequence, System.nanoTime() - startTime);
+
+            startTime = System.nanoTime();
+            readerNotes = reader.read(filename).getNoteCount();
+            mapped = Math.min(mapped, System.nanoTime() - startTime);
+
+            startTime = System.nanoTime();
+            reader.read(ByteBuffer.wrap(bytes), filename);
+            buffered = Math.min(buffered, System.nanoTime() - startTime);
+        }
+        if (sequenceNotes != readerNotes) throw new Error(sequenceNotes + " notes from the sequence, " + readerNotes);
+
+        System.out.println("");
+        System.out.println("====================================");
+        System.out.println(filename + ": " + bytes.length + " bytes, " + readerNotes + " notes");
+        System.out.println("Sequence to Score us:      " + sequence / 1000);
+        System.out.println("Mapped file to Score us:   " + mapped / 1000);
+        System.out.println("Byte buffer to Score us:   " + buffered / 1000);
+        System.out.println("Speedup:                   " + String.format("%.2f", (double) sequence / mapped));
+    }
+
+    // The same score the reader builds, from the events of a sequence; a 4/4 meter is enough for timing
+    private static Score fromSequence(Sequence sequence) {
+        Ensemble score = new Ensemble("Sequence");
+        long ticksPerMeasure = 4L * sequence.getResolution();
+        long tempoTick = -1;
+        for (Track track : sequence.getTracks()) {
+            // Per channel and key, the onset, velocity and voice of each note sounding there, oldest first
+            Map<Integer, Deque<long[]>> pending = new HashMap<>();
+            int[] programs = new int[16];
+            List<List<Line<Pitch>>> lines = new ArrayList<>();
+            BitSet[] sounding = new BitSet[16];
+            for (int channel = 0; channel < 16; channel++) {
+                lines.add(new ArrayList<>());
+                sounding[channel] = new BitSet();
+            }
+            for (int i = 0; i < track.size(); i++) {
+                MidiEvent event = track.get(i);
+                long tick = event.getTick();
+                if (event.getMessage() instanceof MetaMessage) {
+                    MetaMessage meta = (MetaMessage) event.getMessage();
+                    if (meta.getType() == 0x51 && tick != tempoTick) {
+                        byte[] data = meta.getData();
+                        int micros = (data[0] & 0xFF) << 16 | (data[1] & 0xFF) << 8 | (data[2] & 0xFF);
+                        score.add(Tempo.of((int) (60000000L / micros)), time(tick, ticksPerMeasure));
+                        tempoTick = tick;
+                    }
+                    continue;
+                }
+                if (!(event.getMessage() instanceof ShortMessage)) continue;
+                ShortMessage message = (ShortMessage) event.getMessage();
+                int channel = message.getChannel();
+                int key = message.getData1();
+                Deque<long[]> slot = pending.computeIfAbsent(channel * 128 + key, k -> new ArrayDeque<>());
+                if (message.getCommand() == ShortMessage.PROGRAM_CHANGE) programs[channel] = key;
+                if (message.getCommand() == ShortMessage.NOTE_ON && message.getData2() > 0) {
+                    int voice = sounding[channel].nextClearBit(0);
+                    sounding[channel].set(voice);
+                    slot.addLast(new long[]{tick, message.getData2(), voice});
+                } else if (message.getCommand() == ShortMessage.NOTE_OFF
+                        || message.getCommand() == ShortMessage.NOTE_ON) {
+                    if (!slot.isEmpty()) end(score, lines, sounding, programs, channel, key, slot.removeFirst(), tick,
+                            ticksPerMeasure);
+                }
+            }
+            for (Map.Entry<Integer, Deque<long[]>> entry : pending.entrySet()) {
+                for (long[] note : entry.getValue()) {
+                    end(score, lines, sounding, programs, entry.getKey() / 128, entry.getKey() % 128, note,
+                            track.ticks(), ticksPerMeasure);
+                }
+            }
+        }
+        return score;
+    }
+
+    private static void end(Ensemble score, List<List<Line<Pitch>>> lines, BitSet[] sounding, int[] programs,
+                            int channel, int key, long[] note, long tick, long ticksPerMeasure) {
+        int voice = (int) note[2];
+        sounding[channel].clear(voice);
+        if (tick == note[0]) return;
+        while (lines.get(channel).size() <= voice) {
+            lines.get(channel).add(score.addLine(channel == 9 ? Instrument.DRUM_SET
+                    : Instrument.getGeneralMIDIInstrument(programs[channel])));
+        }
+        Line<Pitch> line = lines.get(channel).get(voice);
+        Time start = time(note[0], ticksPerMeasure);
+        if (line.getWriteHead().compareTo(start) < 0) line.add(start.minus(line.getWriteHead()));
+        line.add(Pitch.get(key), time(tick, ticksPerMeasure).minus(start));
+        line.getNotes().getLast().set(Dynamic.of((int) note[1]));
+    }
+
+    private static Time time(long tick, long ticksPerMeasure) {
+        return Time.ofRational(Rational.of(Measure.ONE.getNumber() * ticksPerMeasure + tick, ticksPerMeasure));
+    }
+}
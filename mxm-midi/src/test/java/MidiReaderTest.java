@@ -0,0 +1,375 @@
+import form.attributes.Tempo;
+import form.attributes.TimeSig;
+import form.events.Note;
+import form.events.TempoChange;
+import form.events.TimeSigChange;
+import form.passage.ControllerLane;
+import form.passage.Part;
+import form.passage.Score;
+import form.time.Measure;
+import form.time.Time;
+import org.junit.jupiter.api.Test;
+import sound.attributes.Instrument;
+import sound.pitched.Pitch;
+
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MidiReaderTest {
+    static final String RESOURCES = "src/test/resources/";
+
+    @Test
+    void readTest() {
+        // Two tracks at 96 ticks a quarter: a conductor track, and a chord over a melody under running status
+        Smf smf = new Smf(96);
+        smf.track()
+                .meta(0, 0x58, 3, 2, 24, 8)
+                .meta(0, 0x51, 0x07, 0xA1, 0x20)
+                .meta(288, 0x51, 0x09, 0x27, 0xC0)
+                .meta(0, 0x51, 0x0B, 0x71, 0xB0)
+                .meta(144, 0x58, 2, 2, 24, 8)
+                .end(0);
+        smf.track()
+                .event(0, 0xC0, 40)
+                .event(0, 0x90, 60, 100).data(0, 64, 90).data(0, 67, 80)
+                .event(96, 0x80, 60, 0).data(0, 64, 0)
+                .event(0, 0x90, 62, 70)
+                .data(96, 62, 0).data(0, 67, 0)
+                .event(96, 0xF0, 0x01, 0xF7)
+                .event(0, 0x90, 69, 50)
+                .meta(96, 0x01, 'h', 'i')
+                .event(96, 0x90, 69, 0)
+                .end(0);
+
+        Score score = new MidiReader().read(ByteBuffer.wrap(smf.toBytes()), "Test");
+        assertEquals("Test", score.getTitle());
+        assertEquals(5, score.getNoteCount());
+        assertEquals(3, score.getParts().size());
+        for (Part<?> part : score.getParts()) {
+            assertEquals(Instrument.of("Violin"), part.getInstrument());
+        }
+
+        List<String> notes = score.getNoteStream().map(MidiReaderTest::describe).collect(Collectors.toList());
+        assertTrue(notes.contains("60 1 4/3 100"));
+        assertTrue(notes.contains("64 1 4/3 90"));
+        assertTrue(notes.contains("67 1 5/3 80"));
+        assertTrue(notes.contains("62 4/3 5/3 70"));
+        // The second time signature cuts measure 2 short half way through, and starts measure 3 there
+        assertTrue(notes.contains("69 2 13/4 50"));
+
+        assertEquals(list(TimeSig.of(3, 4), TimeSig.of(2, 4)),
+                score.getTimeSigChanges().stream().map(TimeSigChange::getTimeSig).collect(Collectors.toList()));
+        assertEquals(list(Measure.ONE, Measure.of(3)), score.getTimeSigChanges().stream()
+                .map(change -> change.getTime().getMeasure()).collect(Collectors.toList()));
+        // Of the two tempos at the same tick, only the last is kept
+        assertEquals(list(Tempo.of(120), Tempo.of(80)),
+                score.getTempoChanges().stream().map(TempoChange::getTempo).collect(Collectors.toList()));
+        assertEquals(list(Time.of(Measure.ONE), Time.of(Measure.of(2))),
+                score.getTempoChanges().stream().map(TempoChange::getTime).collect(Collectors.toList()));
+    }
+    @Test
+    void drumTest() {
+        // A format 0 file with no meter, a drum channel, and a key struck again before it was let go- which the
+        // one note-off ends the first strike of, leaving the second to hang until the track ends
+        Score score = new MidiReader().read(ByteBuffer.wrap(drums()), "Drums");
+        assertEquals(list("36 1 5/4 127", "36 9/8 9/4 100"), notesOf(score, Instrument.DRUM_SET));
+        assertEquals(list("72 5/4 9/4 64"), notesOf(score, Instrument.DEFAULT));
+        assertEquals(list(TimeSig.DEFAULT),
+                score.getTimeSigChanges().stream().map(TimeSigChange::getTimeSig).collect(Collectors.toList()));
+    }
+    @Test
+    void pairingTest() {
+        // Last in, first out, the note-off ends the second strike instead
+        MidiReader reader = new MidiReader(MidiReader.Pairing.LIFO);
+        assertEquals(MidiReader.Pairing.LIFO, reader.getPairing());
+        Score score = reader.read(ByteBuffer.wrap(drums()), "Drums");
+        assertEquals(list("36 1 9/4 127", "36 9/8 5/4 100"), notesOf(score, Instrument.DRUM_SET));
+
+        // A key struck five times over before any is let go, as a sustain pedal might leave it
+        Smf smf = new Smf(4);
+        smf.track();
+        for (int i = 0; i < 5; i++) smf.event(i == 0 ? 0 : 1, 0x90, 60, 10 + i);
+        for (int i = 0; i < 5; i++) smf.event(2, 0x80, 60, 0);
+        smf.end(0);
+        assertEquals(list("60 1 11/8 10", "60 17/16 3/2 11", "60 9/8 13/8 12", "60 19/16 7/4 13",
+                "60 5/4 15/8 14"), notesOf(new MidiReader().read(ByteBuffer.wrap(smf.toBytes()), "FIFO"),
+                Instrument.DEFAULT));
+        assertEquals(list("60 1 15/8 10", "60 17/16 7/4 11", "60 9/8 13/8 12", "60 19/16 3/2 13",
+                "60 5/4 11/8 14"), notesOf(reader.read(ByteBuffer.wrap(smf.toBytes()), "LIFO"),
+                Instrument.DEFAULT));
+    }
+    @Test
+    void hangingTest() {
+        // Notes never let go end with their track, wherever it ends; one struck on the last tick never sounds
+        Smf smf = new Smf(96);
+        smf.track()
+                .event(0, 0x90, 60, 100)
+                .event(96, 0x91, 64, 90)
+                .event(96, 0x90, 67, 0)
+                .event(0, 0x92, 67, 80)
+                .end(192);
+        smf.track()
+                .event(0, 0x93, 48, 70)
+                .event(384, 0x83, 48, 0)
+                .event(0, 0x93, 50, 60);
+        Score score = new MidiReader().read(ByteBuffer.wrap(smf.toBytes()), "Hanging");
+        assertEquals(4, score.getNoteCount());
+        List<String> notes = score.getNoteStream().map(MidiReaderTest::describe).collect(Collectors.toList());
+        assertTrue(notes.contains("60 1 2 100"));
+        assertTrue(notes.contains("64 5/4 2 90"));
+        assertTrue(notes.contains("67 3/2 2 80"));
+        assertTrue(notes.contains("48 1 2 70"));
+    }
+    @Test
+    void highKeyTest() {
+        // Keys 121 to 127 are valid MIDI but have no pitch, so their notes are left out and the rest still read
+        Smf smf = new Smf(4);
+        smf.track()
+                .event(0, 0x90, 124, 90)
+                .event(0, 0x90, 120, 80)
+                .event(4, 0x80, 124, 0)
+                .event(0, 0x80, 120, 0)
+                .event(0, 0x90, 127, 70)
+                .event(4, 0x80, 127, 0)
+                .event(0, 0x90, 60, 60)
+                .end(4);
+        Score score = new MidiReader().read(ByteBuffer.wrap(smf.toBytes()), "High keys");
+        assertEquals(list("120 1 5/4 80", "60 3/2 7/4 60"), notesOf(score, Instrument.DEFAULT));
+    }
+    @Test
+    void controllerTest() {
+        // Control changes, pitch bends under running status, and pressure, on every line of their channel; a channel
+        // with nothing but pressure gets a line of its own to hold it
+        Smf smf = new Smf(4);
+        smf.track()
+                .event(0, 0xB0, 7, 100)
+                .event(0, 0x90, 60, 80)
+                .event(0, 0x90, 64, 80)
+                .event(4, 0xE0, 0, 0x50)
+                .data(2, 0x7F, 0x7F)
+                .event(2, 0x80, 60, 0)
+                .event(0, 0x80, 64, 0)
+                .event(0, 0xD1, 33)
+                .event(0, 0xA0, 60, 20)
+                .event(8, 0xB0, 7, 90)
+                .end(0);
+        Score score = new MidiReader().read(ByteBuffer.wrap(smf.toBytes()), "Controllers");
+        assertEquals(list("0 7 1 100", "0 7 2 90", "0 128 5/4 10240", "0 128 11/8 16383", "0 190 3/2 20",
+                "1 7 1 100", "1 7 2 90", "1 128 5/4 10240", "1 128 11/8 16383", "1 190 3/2 20",
+                "2 129 3/2 33"), lanes(score));
+        assertEquals(list(Instrument.DEFAULT + " 1", Instrument.DEFAULT + " 1", Instrument.DEFAULT + " 0"),
+                parts(score));
+
+        ControllerLane bend = new ArrayList<>(score.getParts()).get(0).getLane(ControllerLane.PITCH_BEND);
+        assertEquals(ControllerLane.PITCH_BEND_CENTRE, bend.getValueAt(Time.of(Measure.ONE),
+                ControllerLane.PITCH_BEND_CENTRE));
+        assertEquals(16383, bend.getValueAt(Time.of(Measure.of(2)), ControllerLane.PITCH_BEND_CENTRE));
+    }
+    @Test
+    void errorTest() {
+        assertThrows(Error.class, () -> new MidiReader().read(ByteBuffer.wrap(new byte[]{'R', 'I', 'F', 'F'}), ""));
+        byte[] smpte = new Smf(0xE728).toBytes();
+        assertThrows(Error.class, () -> new MidiReader().read(ByteBuffer.wrap(smpte), ""));
+    }
+    @Test
+    void beethovenTest() throws Exception {
+        // Every note paired up first in, first out from the events javax.sound.midi parses is read
+        String filename = RESOURCES + "midi_beethoven_symphony5.mid";
+        Score score = new MidiReader().read(filename);
+        assertEquals("midi_beethoven_symphony5", score.getTitle());
+
+        Sequence sequence = MidiSystem.getSequence(new File(filename));
+        int expected = 0;
+        for (Track track : sequence.getTracks()) {
+            Map<Integer, Deque<Long>> onsets = new HashMap<>();
+            for (int i = 0; i < track.size(); i++) {
+                MidiEvent event = track.get(i);
+                if (!(event.getMessage() instanceof ShortMessage)) continue;
+                ShortMessage message = (ShortMessage) event.getMessage();
+                Deque<Long> slot = onsets.computeIfAbsent(message.getChannel() * 128 + message.getData1(),
+                        key -> new ArrayDeque<>());
+                if (message.getCommand() == ShortMessage.NOTE_ON && message.getData2() > 0) {
+                    slot.addLast(event.getTick());
+                } else if (message.getCommand() == ShortMessage.NOTE_OFF
+                        || message.getCommand() == ShortMessage.NOTE_ON) {
+                    if (!slot.isEmpty() && event.getTick() > slot.removeFirst()) expected++;
+                }
+            }
+            for (Deque<Long> slot : onsets.values()) {
+                for (long onset : slot) if (track.ticks() > onset) expected++;
+            }
+        }
+        assertEquals(expected, score.getNoteCount());
+        assertEquals(TimeSig.TWO_FOUR, score.getTimeSigChanges().stream().findFirst().get().getTimeSig());
+    }
+
+    // A format 0 file with no meter: a drum struck twice and let go once, and a note on the first channel
+    private static byte[] drums() {
+        Smf smf = new Smf(480);
+        smf.track()
+                .event(0, 0x99, 36, 127)
+                .event(240, 0x99, 36, 100)
+                .event(240, 0x89, 36, 0)
+                .event(0, 0x90, 72, 64)
+                .event(1920, 0x80, 72, 0)
+                .end(0);
+        return smf.toBytes();
+    }
+
+    // Every note of the parts playing an instrument, by when it starts
+    private static List<String> notesOf(Score score, Instrument instrument) {
+        List<Note<?>> notes = new ArrayList<>();
+        for (Part<?> part : score.getParts()) {
+            if (part.getInstrument().equals(instrument)) part.getNotes().forEach(notes::add);
+        }
+        notes.sort(Comparator.comparing(Note::getStart));
+        return notes.stream().map(MidiReaderTest::describe).collect(Collectors.toList());
+    }
+
+    @Test
+    void parallelTest() {
+        // Tracks decoded on four threads at once make the same score as tracks decoded one after the other
+        String filename = RESOURCES + "midi_bach_musicalOffering.mid";
+        ForkJoinPool one = new ForkJoinPool(1), four = new ForkJoinPool(4);
+        try {
+            Score expected = new MidiReader(MidiReader.Pairing.FIFO, one).read(filename);
+            for (int i = 0; i < 4; i++) {
+                Score score = new MidiReader(MidiReader.Pairing.FIFO, four).read(filename);
+                assertEquals(parts(expected), parts(score));
+                assertEquals(lanes(expected), lanes(score));
+                assertEquals(expected.getNoteStream().map(MidiReaderTest::describe).collect(Collectors.toList()),
+                        score.getNoteStream().map(MidiReaderTest::describe).collect(Collectors.toList()));
+                assertEquals(expected.getTempoChanges().stream().map(TempoChange::getTime).collect(Collectors.toList()),
+                        score.getTempoChanges().stream().map(TempoChange::getTime).collect(Collectors.toList()));
+            }
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+    }
+
+    // Each part's instrument and how many notes it has, in order
+    private static List<String> parts(Score score) {
+        List<String> parts = new ArrayList<>();
+        for (Part<?> part : score.getParts()) parts.add(part.getInstrument() + " " + part.getNotes().stream().count());
+        return parts;
+    }
+
+    // Every change of every lane: its part's index, its controller, its time and its value
+    static List<String> lanes(Score score) {
+        List<String> lanes = new ArrayList<>();
+        int index = 0;
+        for (Part<?> part : score.getParts()) {
+            for (ControllerLane lane : part.getLanes()) {
+                for (int row = 0; row < lane.size(); row++) {
+                    lanes.add(index + " " + lane.getController() + " " + fraction(Time.ofRational(lane.getTime(row)))
+                            + " " + lane.getValue(row));
+                }
+            }
+            index++;
+        }
+        return lanes;
+    }
+
+    static String describe(Note<?> note) {
+        return ((Pitch) note.getSound()).getValue() + " " + fraction(note.getStart()) + " " + fraction(note.getEnd())
+                + " " + note.getDynamic().getValue();
+    }
+
+    private static String fraction(Time time) {
+        int num = time.getNumerator(), den = time.getDenominator();
+        return den == 1 ? "" + num : num + "/" + den;
+    }
+
+    @SafeVarargs
+    private static <T> List<T> list(T... values) {
+        List<T> list = new ArrayList<>();
+        for (T value : values) list.add(value);
+        return list;
+    }
+
+    // Writes a Standard MIDI File by hand, byte by byte, so that tests can say exactly what a file holds
+    static final class Smf {
+        private final int division;
+        private final List<ByteArrayOutputStream> tracks = new ArrayList<>();
+
+        Smf(int division) {
+            this.division = division;
+        }
+
+        Smf track() {
+            tracks.add(new ByteArrayOutputStream());
+            return this;
+        }
+
+        // A status byte and its data
+        Smf event(long delta, int... bytes) {
+            variable(delta);
+            for (int b : bytes) current().write(b);
+            return this;
+        }
+
+        // Data under running status
+        Smf data(long delta, int... bytes) {
+            return event(delta, bytes);
+        }
+
+        Smf meta(long delta, int type, int... data) {
+            variable(delta);
+            current().write(0xFF);
+            current().write(type);
+            variable(data.length);
+            for (int b : data) current().write(b);
+            return this;
+        }
+
+        Smf end(long delta) {
+            return meta(delta, 0x2F);
+        }
+
+        byte[] toBytes() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            chunk(bytes, "MThd", new byte[]{0, (byte) (tracks.size() > 1 ? 1 : 0), 0, (byte) tracks.size(),
+                    (byte) (division >> 8), (byte) division});
+            for (ByteArrayOutputStream track : tracks) chunk(bytes, "MTrk", track.toByteArray());
+            return bytes.toByteArray();
+        }
+
+        private ByteArrayOutputStream current() {
+            return tracks.get(tracks.size() - 1);
+        }
+
+        private void variable(long value) {
+            int shift = 21;
+            while (shift > 0 && (value >> shift) == 0) shift -= 7;
+            for (; shift > 0; shift -= 7) current().write((int) ((value >> shift) & 0x7F) | 0x80);
+            current().write((int) (value & 0x7F));
+        }
+
+        private static void chunk(ByteArrayOutputStream bytes, String type, byte[] data) {
+            for (char c : type.toCharArray()) bytes.write(c);
+            bytes.write(data.length >>> 24);
+            bytes.write(data.length >>> 16);
+            bytes.write(data.length >>> 8);
+            bytes.write(data.length);
+            bytes.write(data, 0, data.length);
+        }
+    }
+}
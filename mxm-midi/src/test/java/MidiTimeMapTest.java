@@ -0,0 +1,106 @@
+import form.attributes.TimeSig;
+import form.passage.Ensemble;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import sound.attributes.Instrument;
+import sound.pitched.Pitch;
+import org.junit.jupiter.api.Test;
+import util.fraction.Rational;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MidiTimeMapTest {
+    @Test
+    void toTimeTest() {
+        // 96 ticks a quarter: 3/4 from the start, 6/8 from measure 5, and 5/16 cutting measure 7 short
+        MidiTimeMap map = new MidiTimeMap(96);
+        map.add(TimeSig.THREE_FOUR, 0);
+        map.add(TimeSig.SIX_EIGHT, 4 * 288);
+        map.add(TimeSig.of(5, 16), 4 * 288 + 2 * 288 + 144);
+        assertEquals(3, map.size());
+        assertEquals(Measure.of(5), map.getMeasure(1));
+        assertEquals(Measure.of(8), map.getMeasure(2));
+
+        assertEquals(Time.of(Measure.ONE), map.toTime(0));
+        assertEquals(Time.of(Measure.ONE).plus(Duration.of(1, 3)), map.toTime(96));
+        assertEquals(Time.of(Measure.of(5)), map.toTime(4 * 288));
+        assertEquals(Time.of(Measure.of(6)).plus(Duration.of(1, 6)), map.toTime(4 * 288 + 288 + 48));
+        assertEquals(Time.of(Measure.of(8)), map.toTime(4 * 288 + 2 * 288 + 144));
+        assertEquals(Time.of(Measure.of(9)).plus(Duration.of(1, 5)), map.toTime(4 * 288 + 2 * 288 + 144 + 120 + 24));
+    }
+    @Test
+    void exactTest() {
+        // Far into a long piece, where a float measure would be off by whole ticks, every tick still comes back
+        MidiTimeMap map = new MidiTimeMap(960);
+        map.add(TimeSig.SEVEN_EIGHT, 0);
+        map.add(TimeSig.FIVE_FOUR, 3360L * 1000 + 480);
+        for (long tick = 30000000L; tick < 30000000L + 5000; tick++) {
+            Time time = map.toTime(tick);
+            assertEquals(tick, map.toTick(time));
+        }
+        for (long tick = 0; tick < 5000; tick++) {
+            assertEquals(tick, map.toTick(map.toTime(tick)));
+        }
+        long tick = 3360L * 1000 + 480 + 4800L * 5000 + 1;
+        assertEquals(Rational.of((1002 + 5000L) * 4800 + 1, 4800), map.toTime(tick).toRational());
+        // The same tick as a float measure, as the old reader kept it, comes back as a different tick
+        float measures = (float) (6002 + 1.0 / 4800);
+        assertNotEquals(tick, 3360L * 1000 + 480 + Math.round((measures - 1002) * 4800));
+    }
+    @Test
+    void toTickTest() {
+        // A time between two ticks rounds to the nearer one, and half way rounds up
+        MidiTimeMap map = new MidiTimeMap(4);
+        assertEquals(5, map.toTick(Time.of(Measure.ONE).plus(Duration.of(1, 3))));
+        assertEquals(1, map.toTick(Time.of(Measure.ONE).plus(Duration.of(1, 32))));
+        assertEquals(0, map.toTick(Time.of(Measure.ONE).plus(Duration.of(1, 33))));
+        assertEquals(-16, map.toTick(Time.of(Measure.PICKUP)));
+    }
+    @Test
+    void scoreTest() {
+        Ensemble score = new Ensemble("Meter");
+        score.add(TimeSig.THREE_FOUR, Measure.ONE);
+        score.add(TimeSig.SIX_EIGHT, Measure.of(3));
+        score.add(TimeSig.TWO_FOUR, Measure.of(4));
+        MidiTimeMap map = MidiTimeMap.of(score, 480);
+        assertEquals(3, map.size());
+        assertEquals(TimeSig.THREE_FOUR, map.getTimeSig(0));
+        assertEquals(2 * 1440, map.getTick(1));
+        assertEquals(3 * 1440, map.getTick(2));
+        assertEquals(3 * 1440 + 960 + 240, map.toTick(Time.of(Measure.of(5)).plus(Duration.of(1, 4))));
+        assertEquals(Time.of(Measure.of(5)).plus(Duration.of(1, 4)), map.toTime(3 * 1440 + 960 + 240));
+    }
+    @Test
+    void pickupTest() {
+        // The file starts on the beat of the pickup's first note, so the downbeat of the pickup measure is before it
+        Ensemble score = new Ensemble("Pickup");
+        score.add(TimeSig.THREE_FOUR, Measure.PICKUP);
+        score.addLine(Instrument.of("Violin")).startAt(Time.of(Measure.PICKUP).plus(Duration.of(3, 4)))
+                .add(Pitch.get(60), Duration.of(1, 4));
+        MidiTimeMap map = MidiTimeMap.of(score, 480);
+        assertEquals(Measure.PICKUP, map.getMeasure(0));
+        assertEquals(-960, map.getTick(0));
+        assertEquals(480, map.toTick(Time.of(Measure.ONE)));
+        assertEquals(Time.of(Measure.PICKUP).plus(Duration.of(2, 3)), map.toTime(0));
+
+        // Read back, a bar of 1/4 before one of 3/4 is taken for the same pickup
+        MidiTimeMap read = new MidiTimeMap(480);
+        read.add(TimeSig.of(1, 4), 0);
+        read.add(TimeSig.THREE_FOUR, 480);
+        read.takePickup();
+        assertEquals(1, read.size());
+        assertEquals(Measure.PICKUP, read.getMeasure(0));
+        assertEquals(TimeSig.THREE_FOUR, read.getTimeSig(0));
+        assertEquals(-960, read.getTick(0));
+        assertEquals(Time.of(Measure.of(2)), read.toTime(480 + 1440));
+
+        // A first bar as long as the next is no pickup
+        MidiTimeMap whole = new MidiTimeMap(480);
+        whole.add(TimeSig.THREE_FOUR, 0);
+        whole.add(TimeSig.TWO_FOUR, 1440);
+        whole.takePickup();
+        assertEquals(2, whole.size());
+        assertEquals(Measure.ONE, whole.getMeasure(0));
+    }
+}
@@ -0,0 +1,111 @@
+import form.events.Note;
+import form.events.TempoChange;
+import form.passage.Part;
+import form.passage.Score;
+import sound.pitched.Pitch;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Times writing a score out as a MIDI file: the old way, by building a javax.sound.midi Sequence of MidiEvents and
+ * having MidiSystem write it, against the streaming {@link MidiWriter}, into a channel which throws its bytes away.
+ * Both ways place events on ticks with the same {@link MidiTimeMap}.
+ */
+public class MidiWriterBenchmark {
+    public static String FILENAME = "src/test/resources/midi_beethoven_symphony5.mid";
+    public static int SAMPLES = 200;
+
+    public static void main(String[] args) throws Exception {
+        String filename = args.length > 0 ? args[0] : FILENAME;
+        Score score = new MidiReader().read(filename);
+        MidiWriter writer = new MidiWriter();
+        Sink sink = new Sink();
+
+        long sequence = Long.MAX_VALUE, streamed = Long.MAX_VALUE;
+        int sequenceBytes = 0;
+        for (int s = 0; s < SAMPLES; s++) {
+            long startTime = System.nanoTime();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            MidiSystem.write(toSequence(score), 1, bytes);
+            sequenceBytes = bytes.size();
+            sequence = Math.min(sequence, System.nanoTime() - startTime);
+
+            sink.bytes = 0;
+            startTime = System.nanoTime();
+            writer.write(score, sink);
+            streamed = Math.min(streamed, System.nanoTime() - startTime);
+        }
+        long events = 2L * score.getNoteCount() + score.getTempoChanges().stream().count()
+                + score.getTimeSigChanges().stream().count();
+
+        System.out.println("");
+        System.out.println("====================================");
+        System.out.println(filename + ": " + score.getNoteCount() + " notes, " + events + " events");
+        System.out.println("Sequence bytes:            " + sequenceBytes);
+        System.out.println("Streamed bytes:            " + sink.bytes);
+        System.out.println("Score to Sequence us:      " + sequence / 1000);
+        System.out.println("Score to channel us:       " + streamed / 1000);
+        System.out.println("Streamed events/s:         " + String.format("%.2fM", events * 1000.0 / streamed));
+        System.out.println("Speedup:                   " + String.format("%.2f", (double) sequence / streamed));
+    }
+
+    // The same events the writer encodes, as MidiEvents in a Sequence
+    private static Sequence toSequence(Score score) throws Exception {
+        MidiTimeMap timeMap = MidiTimeMap.of(score, MidiWriter.DEFAULT_PPQ);
+        Sequence sequence = new Sequence(Sequence.PPQ, MidiWriter.DEFAULT_PPQ);
+        Track conductor = sequence.createTrack();
+        for (int piece = 0; piece < timeMap.size(); piece++) {
+            byte[] data = {(byte) timeMap.getTimeSig(piece).getNumerator(),
+                    (byte) Integer.numberOfTrailingZeros(timeMap.getTimeSig(piece).getDenominator()), 24, 8};
+            conductor.add(new MidiEvent(new MetaMessage(0x58, data, data.length), timeMap.getTick(piece)));
+        }
+        for (TempoChange tempo : score.getTempoChanges()) {
+            int micros = 60000000 / tempo.getTempo().getBPM();
+            byte[] data = {(byte) (micros >> 16), (byte) (micros >> 8), (byte) micros};
+            conductor.add(new MidiEvent(new MetaMessage(0x51, data, data.length), timeMap.toTick(tempo.getTime())));
+        }
+        int channel = 0;
+        for (Part<?> part : score.getParts()) {
+            Track track = sequence.createTrack();
+            for (Note<?> note : part.getNotes()) {
+                int key = ((Pitch) note.getSound()).getValue();
+                track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, channel, key,
+                        note.getDynamic().getValue()), timeMap.toTick(note.getStart())));
+                track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, channel, key, 0),
+                        timeMap.toTick(note.getEnd())));
+            }
+            channel = (channel + 1) % 16;
+        }
+        return sequence;
+    }
+
+    // Counts the bytes written to it, and keeps none of them
+    private static final class Sink implements WritableByteChannel {
+        long bytes;
+
+        @Override
+        public int write(ByteBuffer source) {
+            int written = source.remaining();
+            source.position(source.limit());
+            bytes += written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,269 @@
+import form.attributes.Tempo;
+import form.attributes.TimeSig;
+import form.events.TempoChange;
+import form.events.TimeSigChange;
+import form.passage.ControllerLane;
+import form.passage.Ensemble;
+import form.passage.Line;
+import form.passage.Part;
+import form.passage.Score;
+import form.time.Duration;
+import form.time.Measure;
+import form.time.Time;
+import org.junit.jupiter.api.Test;
+import sound.attributes.Dynamic;
+import sound.attributes.Instrument;
+import sound.pitched.Pitch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MidiWriterTest {
+    @Test
+    void bytesTest() {
+        // One note in 4/4 at 96 ticks a quarter, byte for byte
+        Ensemble score = new Ensemble("");
+        Line<Pitch> line = score.addLine(Instrument.of("Violin"));
+        line.add(Pitch.get(60), Duration.of(1, 4));
+        line.getNotes().getLast().set(Dynamic.of(100));
+
+        MidiReaderTest.Smf smf = new MidiReaderTest.Smf(96);
+        smf.track()
+                .meta(0, 0x58, 4, 2, 24, 8)
+                .end(0);
+        smf.track()
+                .event(0, 0xC0, 40)
+                .event(0, 0x90, 60, 100)
+                .data(96, 60, 0)
+                .end(0);
+        assertArrayEquals(smf.toBytes(), write(new MidiWriter(96), score));
+    }
+    @Test
+    void controllerBytesTest() {
+        // Changes go out in among the notes, ahead of a note starting on their tick and behind one ending on it
+        Ensemble score = new Ensemble("");
+        Line<Pitch> line = score.addLine(Instrument.of("Violin"));
+        line.add(Pitch.get(60), Duration.of(1, 4));
+        line.getNotes().getLast().set(Dynamic.of(100));
+        line.getLane(ControllerLane.PITCH_BEND).add(Time.of(Measure.ONE).plus(Duration.of(1, 4)),
+                ControllerLane.PITCH_BEND_CENTRE);
+        line.getLane(ControllerLane.CHANNEL_PRESSURE).add(Time.of(Measure.ONE).plus(Duration.of(1, 8)), 50);
+        line.getLane(7).add(Time.of(Measure.ONE), 100);
+        line.getLane(ControllerLane.polyPressure(60)).add(Time.of(Measure.ONE).plus(Duration.of(1, 8)), 30);
+
+        MidiReaderTest.Smf smf = new MidiReaderTest.Smf(96);
+        smf.track()
+                .meta(0, 0x58, 4, 2, 24, 8)
+                .end(0);
+        smf.track()
+                .event(0, 0xC0, 40)
+                .event(0, 0xB0, 7, 100)
+                .event(0, 0x90, 60, 100)
+                .event(48, 0xD0, 50)
+                .event(0, 0xA0, 60, 30)
+                .event(48, 0x90, 60, 0)
+                .event(0, 0xE0, 0, 0x40)
+                .end(0);
+        assertArrayEquals(smf.toBytes(), write(new MidiWriter(96), score));
+    }
+    @Test
+    void roundTripTest() {
+        Score score = score();
+        Score read = new MidiReader().read(ByteBuffer.wrap(write(new MidiWriter(), score)), "Round trip");
+        assertEquals(notes(score), notes(read));
+        assertEquals(instruments(score), instruments(read));
+        assertEquals(MidiReaderTest.lanes(score), MidiReaderTest.lanes(read));
+        assertEquals(score.getTimeSigChanges().stream().map(TimeSigChange::getTimeSig).collect(Collectors.toList()),
+                read.getTimeSigChanges().stream().map(TimeSigChange::getTimeSig).collect(Collectors.toList()));
+        assertEquals(score.getTimeSigChanges().stream().map(TimeSigChange::getTime).collect(Collectors.toList()),
+                read.getTimeSigChanges().stream().map(TimeSigChange::getTime).collect(Collectors.toList()));
+        assertEquals(score.getTempoChanges().stream().map(TempoChange::getTempo).collect(Collectors.toList()),
+                read.getTempoChanges().stream().map(TempoChange::getTempo).collect(Collectors.toList()));
+        assertEquals(score.getTempoChanges().stream().map(TempoChange::getTime).collect(Collectors.toList()),
+                read.getTempoChanges().stream().map(TempoChange::getTime).collect(Collectors.toList()));
+    }
+    @Test
+    void sustainRoundTripTest() {
+        // A chord under the sustain pedal is split into a line a voice, and the pedal still holds down every one of
+        // them once they're written out on channels of their own and read back
+        MidiReaderTest.Smf smf = new MidiReaderTest.Smf(4);
+        smf.track()
+                .event(0, 0xB0, 64, 127)
+                .event(0, 0x90, 60, 80)
+                .data(0, 64, 80)
+                .data(0, 67, 80)
+                .event(4, 0x80, 60, 0)
+                .data(0, 64, 0)
+                .data(0, 67, 0)
+                .event(12, 0xB0, 64, 0)
+                .end(0);
+        Score score = new MidiReader().read(ByteBuffer.wrap(smf.toBytes()), "Sustain");
+        assertEquals(3, score.getParts().size());
+        for (Part<?> part : score.getParts()) {
+            assertEquals(2, part.getLane(64).size());
+            assertEquals(127, part.getLane(64).getValueAt(Time.of(Measure.ONE), -1));
+        }
+        Score read = new MidiReader().read(ByteBuffer.wrap(write(new MidiWriter(), score)), "Round trip");
+        assertEquals(notes(score), notes(read));
+        assertEquals(MidiReaderTest.lanes(score), MidiReaderTest.lanes(read));
+    }
+    @Test
+    void bufferTest() throws Exception {
+        // However small the buffer, and whether the channel can seek back to patch a track or not, the bytes are the
+        // same
+        Score score = new MidiReader().read(MidiReaderTest.RESOURCES + "midi_schubert_impromptu.mid");
+        ForkJoinPool pool = new ForkJoinPool(1);
+        File file = File.createTempFile("midi_writer", ".mid");
+        try {
+            byte[] expected = write(new MidiWriter(MidiWriter.DEFAULT_PPQ, pool), score);
+            assertArrayEquals(expected, write(new MidiWriter(MidiWriter.DEFAULT_PPQ, 16, pool), score));
+
+            new MidiWriter(MidiWriter.DEFAULT_PPQ, 16, pool).write(score, file.getPath());
+            assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+            assertEquals(notes(score), notes(new MidiReader().read(file.getPath())));
+        } finally {
+            pool.shutdown();
+            assertTrue(file.delete());
+        }
+    }
+    @Test
+    void parallelTest() {
+        // Tracks encoded on four threads at once, or eight, come out just as they do one after the other
+        Score score = new MidiReader().read(MidiReaderTest.RESOURCES + "midi_bach_musicalOffering.mid");
+        assertTrue(score.getParts().size() > 8);
+        ForkJoinPool one = new ForkJoinPool(1), four = new ForkJoinPool(4), eight = new ForkJoinPool(8);
+        try {
+            byte[] expected = write(new MidiWriter(MidiWriter.DEFAULT_PPQ, one), score);
+            assertArrayEquals(expected, write(new MidiWriter(MidiWriter.DEFAULT_PPQ, four), score));
+            assertArrayEquals(expected, write(new MidiWriter(MidiWriter.DEFAULT_PPQ, 16, eight), score));
+        } finally {
+            one.shutdown();
+            four.shutdown();
+            eight.shutdown();
+        }
+    }
+    @Test
+    void pickupBytesTest() {
+        // A quarter note pickup in 4/4 is a bar of 1/4, and the tempo from the downbeat of the pickup measure starts it
+        Ensemble score = new Ensemble("");
+        score.add(TimeSig.DEFAULT, Measure.PICKUP);
+        score.add(Tempo.of(100), Time.of(Measure.PICKUP));
+        Line<Pitch> line = score.addLine(Instrument.of("Violin"));
+        line.startAt(Time.of(Measure.PICKUP).plus(Duration.of(3, 4)));
+        line.add(Pitch.get(60), Duration.of(1, 4)).add(Pitch.get(62), Duration.of(1, 4));
+        line.getNotes().getFirst().set(Dynamic.of(100));
+        line.getNotes().getLast().set(Dynamic.of(100));
+
+        MidiReaderTest.Smf smf = new MidiReaderTest.Smf(96);
+        smf.track()
+                .meta(0, 0x58, 1, 2, 24, 8)
+                .meta(0, 0x51, 0x09, 0x27, 0xC0)
+                .meta(96, 0x58, 4, 2, 24, 8)
+                .end(0);
+        smf.track()
+                .event(0, 0xC0, 40)
+                .event(0, 0x90, 60, 100)
+                .data(96, 60, 0)
+                .data(0, 62, 100)
+                .data(96, 62, 0)
+                .end(0);
+        assertArrayEquals(smf.toBytes(), write(new MidiWriter(96), score));
+    }
+    @Test
+    void pickupRoundTripTest() {
+        // An eighth note pickup in 3/4, with the sustain pedal already down, comes back in the pickup measure
+        Ensemble score = new Ensemble("Anacrusis");
+        score.add(TimeSig.THREE_FOUR, Measure.PICKUP);
+        score.add(TimeSig.SIX_EIGHT, Measure.of(3));
+        score.add(Tempo.of(100), Time.of(Measure.PICKUP));
+        Time pickup = Time.of(Measure.PICKUP).plus(Duration.of(5, 6));
+        Line<Pitch> line = score.addLine(Instrument.of("Violin"));
+        line.startAt(pickup);
+        for (int i = 0; i < 10; i++) {
+            line.add(Pitch.get(60 + i), Duration.of(1, 3));
+            line.getNotes().getLast().set(Dynamic.of(60 + i));
+        }
+        line.getLane(64).add(pickup, 127);
+        line.getLane(64).add(Time.of(Measure.of(2)), 0);
+
+        Score read = new MidiReader().read(ByteBuffer.wrap(write(new MidiWriter(), score)), "Round trip");
+        assertEquals(notes(score), notes(read));
+        assertEquals(MidiReaderTest.lanes(score), MidiReaderTest.lanes(read));
+        assertEquals(score.getTimeSigChanges().stream().map(TimeSigChange::getTimeSig).collect(Collectors.toList()),
+                read.getTimeSigChanges().stream().map(TimeSigChange::getTimeSig).collect(Collectors.toList()));
+        assertEquals(score.getTimeSigChanges().stream().map(TimeSigChange::getTime).collect(Collectors.toList()),
+                read.getTimeSigChanges().stream().map(TimeSigChange::getTime).collect(Collectors.toList()));
+        // The tempo is only known from where the file starts
+        assertEquals(Tempo.of(100), read.getTempoAt(pickup));
+    }
+    @Test
+    void errorTest() {
+        assertThrows(Error.class, () -> new MidiWriter(0));
+        Ensemble score = new Ensemble("Pickup");
+        Line<Pitch> line = score.addLine(Instrument.of("Violin"));
+        line.add(Pitch.get(60), Duration.of(1, 4));
+        assertThrows(Error.class, () -> line.startAt(Time.of(Measure.PICKUP)));
+    }
+
+    // Two violins, a cello and drums, in 3/4 then 6/8, speeding up on the way
+    private static Score score() {
+        Ensemble score = new Ensemble("Quartet");
+        score.add(TimeSig.THREE_FOUR, Measure.ONE);
+        score.add(TimeSig.SIX_EIGHT, Measure.of(3));
+        score.add(Tempo.of(90), Time.of(Measure.ONE));
+        score.add(Tempo.of(132), Time.of(Measure.of(2)).plus(Duration.of(1, 3)));
+        score.add(Tempo.of(140), Time.of(Measure.of(3)));
+        List<Line<Pitch>> lines = new ArrayList<>();
+        lines.add(score.addLine(Instrument.of("Violin")));
+        lines.add(score.addLine(Instrument.of("Violin")));
+        lines.add(score.addLine(Instrument.of("Cello")));
+        lines.add(score.addLine(Instrument.DRUM_SET));
+        for (int i = 0; i < 12; i++) {
+            for (int l = 0; l < lines.size(); l++) {
+                Line<Pitch> line = lines.get(l);
+                if ((i + l) % 5 == 4) {
+                    line.add(Duration.of(1, 6));
+                    continue;
+                }
+                line.add(Pitch.get(l == 3 ? 36 + i % 3 : 72 - 12 * l + i), Duration.of(1 + (i + l) % 3, 6));
+                line.getNotes().getLast().set(Dynamic.of(40 + 7 * i + l));
+            }
+        }
+        // A swell on the first violin, added back to front, and the cello bending up and back
+        for (int i = 24; i >= 0; i--) {
+            lines.get(0).getLane(11).add(Time.of(Measure.ONE).plus(Duration.of(i, 12)), 64 + i);
+        }
+        ControllerLane bend = lines.get(2).getLane(ControllerLane.PITCH_BEND);
+        for (int i = 0; i <= 8; i++) {
+            bend.add(Time.of(Measure.of(2)).plus(Duration.of(i, 24)), ControllerLane.PITCH_BEND_CENTRE + 512 * i);
+        }
+        bend.add(Time.of(Measure.of(3)), ControllerLane.PITCH_BEND_CENTRE);
+        lines.get(3).getLane(ControllerLane.CHANNEL_PRESSURE).add(Time.of(Measure.of(4)), 90);
+        return score;
+    }
+
+    static byte[] write(MidiWriter writer, Score score) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writer.write(score, Channels.newChannel(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static List<String> notes(Score score) {
+        return score.getNoteStream().map(MidiReaderTest::describe).sorted().collect(Collectors.toList());
+    }
+
+    private static List<Instrument> instruments(Score score) {
+        List<Instrument> instruments = new ArrayList<>();
+        for (Part<?> part : score.getParts()) instruments.add(part.getInstrument());
+        return instruments;
+    }
+}
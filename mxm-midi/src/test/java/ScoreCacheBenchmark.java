@@ -0,0 +1,73 @@
+import form.passage.Score;
+import util.io.FileResult;
+import util.io.IFileReader;
+import util.io.ScoreCache;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Times a batch job over a corpus of MIDI files: parsed every time, then through a {@link ScoreCache} which starts out
+ * empty, then through the same cache again once it's warm. Every file of the corpus is one real file with a chunk of
+ * its own on the end, which the reader skips, so each has a key of its own but all parse alike. Each run ends by
+ * counting the notes of every score, as the least analysis a job could do.
+ */
+public class ScoreCacheBenchmark {
+    public static String FILENAME = "src/test/resources/midi_beethoven_symphony5.mid";
+    public static int FILES = 200;
+
+    public static void main(String[] args) throws Exception {
+        String filename = args.length > 0 ? args[0] : FILENAME;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : FILES;
+        byte[] bytes = Files.readAllBytes(new File(filename).toPath());
+        Path folder = Files.createTempDirectory("corpus");
+        try {
+            List<String> filenames = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Path file = folder.resolve("file" + i + ".mid");
+                ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 12);
+                buffer.put(bytes).put("XIDX".getBytes("US-ASCII")).putInt(4).putInt(i);
+                Files.write(file, buffer.array());
+                filenames.add(file.toString());
+            }
+            MidiReader reader = new MidiReader();
+            ScoreCache cache = new ScoreCache(folder.resolve("cache"), Long.MAX_VALUE, reader, reader.getVersion());
+
+            // One run untimed, so the parser is warmed up before the first counts
+            run(reader, filenames);
+            long[] parsed = run(reader, filenames);
+            long[] cold = run(cache, filenames);
+            String coldStatistics = cache.toString();
+            cache.resetStatistics();
+            long[] warm = run(cache, filenames);
+
+            System.out.println("");
+            System.out.println("====================================");
+            System.out.println(count + " copies of " + filename + ", " + parsed[1] + " notes each run");
+            System.out.println("Parsed ms:                 " + parsed[0] / 1000000);
+            System.out.println("Cold cache ms:             " + cold[0] / 1000000);
+            System.out.println("Warm cache ms:             " + warm[0] / 1000000);
+            System.out.println("Notes counted (warm):      " + warm[1]);
+            System.out.println("Speedup (warm):            " + String.format("%.2f", (double) parsed[0] / warm[0]));
+            System.out.println("Cold:                      " + coldStatistics);
+            System.out.println("Warm:                      " + cache);
+        } finally {
+            for (Path path : Files.walk(folder).sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // Reads every file and counts the notes of each score, returning the nanoseconds taken and the notes counted
+    private static long[] run(IFileReader<? extends Score> reader, List<String> filenames) {
+        long startTime = System.nanoTime();
+        long notes = 0;
+        for (FileResult<? extends Score> result : reader.readAll(filenames)) notes += result.get().getNoteCount();
+        return new long[]{System.nanoTime() - startTime, notes};
+    }
+}